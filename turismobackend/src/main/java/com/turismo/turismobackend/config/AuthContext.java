@@ -0,0 +1,146 @@
+package com.turismo.turismobackend.config;
+
+import com.turismo.turismobackend.model.Rol;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.MunicipalidadRepository;
+import com.turismo.turismobackend.service.JwtService;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+// Datos de autorización del usuario actual, resueltos como máximo una vez por petición.
+// El estado se guarda como atributo de la petición; fuera de una petición HTTP (WebSocket,
+// tareas programadas) se resuelve en cada llamada.
+@Component
+@RequiredArgsConstructor
+public class AuthContext {
+    
+    private static final String ATRIBUTO_ESTADO = AuthContext.class.getName();
+    
+    private final EmprendedorRepository emprendedorRepository;
+    private final MunicipalidadRepository municipalidadRepository;
+    
+    public Usuario getUsuario() {
+        return estado().usuario;
+    }
+    
+    public Long getUsuarioId() {
+        return estado().usuario.getId();
+    }
+    
+    public boolean hasRole(Rol.RolNombre rol) {
+        return (estado().roles & mascara(rol)) != 0;
+    }
+    
+    public boolean hasRole(String rol) {
+        return hasRole(Rol.RolNombre.valueOf(rol));
+    }
+    
+    public boolean isAdmin() {
+        return hasRole(Rol.RolNombre.ROLE_ADMIN);
+    }
+    
+    // Id del emprendedor vinculado al usuario actual, o null si no tiene
+    public Long getEmprendedorId() {
+        Estado estado = estado();
+        if (!estado.emprendedorResuelto) {
+            Long desdeToken = claimLong(estado.claims, JwtService.CLAIM_EMPRENDEDOR_ID);
+            if (desdeToken != null) {
+                estado.emprendedorId = desdeToken;
+            } else if (estado.principal != null) {
+                estado.emprendedorId = estado.principal.emprendedorId();
+            } else {
+                estado.emprendedorId = emprendedorRepository.findIdByUsuarioId(estado.usuario.getId()).orElse(null);
+            }
+            estado.emprendedorResuelto = true;
+        }
+        return estado.emprendedorId;
+    }
+    
+    // Id de la municipalidad vinculada al usuario actual, o null si no tiene
+    public Long getMunicipalidadId() {
+        Estado estado = estado();
+        if (!estado.municipalidadResuelta) {
+            Long desdeToken = claimLong(estado.claims, JwtService.CLAIM_MUNICIPALIDAD_ID);
+            if (desdeToken != null) {
+                estado.municipalidadId = desdeToken;
+            } else if (estado.principal != null) {
+                estado.municipalidadId = estado.principal.municipalidadId();
+            } else {
+                estado.municipalidadId = municipalidadRepository.findIdByUsuarioId(estado.usuario.getId()).orElse(null);
+            }
+            estado.municipalidadResuelta = true;
+        }
+        return estado.municipalidadId;
+    }
+    
+    private Estado estado() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Object principal = authentication != null ? authentication.getPrincipal() : null;
+        if (!(principal instanceof Usuario usuario)) {
+            throw new RuntimeException("Usuario no autenticado correctamente");
+        }
+        
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        if (atributos == null) {
+            return new Estado(usuario, authentication, null, null);
+        }
+        
+        // Se reconstruye si la autenticación cambió durante la petición (por ejemplo, en el login)
+        Estado estado = (Estado) atributos.getAttribute(ATRIBUTO_ESTADO, RequestAttributes.SCOPE_REQUEST);
+        if (estado == null || estado.authentication != authentication) {
+            Claims claims = (Claims) atributos.getAttribute(JwtAuthenticationFilter.ATRIBUTO_CLAIMS, RequestAttributes.SCOPE_REQUEST);
+            PrincipalCache.Principal principalCacheado = (PrincipalCache.Principal) atributos.getAttribute(
+                    JwtAuthenticationFilter.ATRIBUTO_PRINCIPAL, RequestAttributes.SCOPE_REQUEST);
+            estado = new Estado(usuario, authentication, claims, principalCacheado);
+            atributos.setAttribute(ATRIBUTO_ESTADO, estado, RequestAttributes.SCOPE_REQUEST);
+        }
+        return estado;
+    }
+    
+    private static int mascara(Rol.RolNombre rol) {
+        return 1 << rol.ordinal();
+    }
+    
+    private static Long claimLong(Claims claims, String nombre) {
+        Object valor = claims != null ? claims.get(nombre) : null;
+        return valor instanceof Number numero ? numero.longValue() : null;
+    }
+    
+    private static class Estado {
+        
+        private final Usuario usuario;
+        private final Authentication authentication;
+        private final Claims claims;
+        private final PrincipalCache.Principal principal;
+        private final int roles;
+        
+        private Long emprendedorId;
+        private boolean emprendedorResuelto;
+        private Long municipalidadId;
+        private boolean municipalidadResuelta;
+        
+        Estado(Usuario usuario, Authentication authentication, Claims claims, PrincipalCache.Principal principal) {
+            this.usuario = usuario;
+            this.authentication = authentication;
+            this.claims = claims;
+            // Solo vale para el usuario que autenticó el filtro, no si la autenticación cambió (login)
+            this.principal = principal != null && principal.id().equals(usuario.getId()) ? principal : null;
+            int mascaraRoles = 0;
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                try {
+                    mascaraRoles |= mascara(Rol.RolNombre.valueOf(authority.getAuthority()));
+                } catch (IllegalArgumentException e) {
+                    // Autoridad ajena a los roles de la aplicación
+                }
+            }
+            this.roles = mascaraRoles;
+        }
+    }
+}
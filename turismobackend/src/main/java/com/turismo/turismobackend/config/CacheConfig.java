@@ -0,0 +1,35 @@
+package com.turismo.turismobackend.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    
+    // Respuestas individuales por id
+    public static final String PLANES = "planes";
+    public static final String SERVICIOS = "servicios";
+    public static final String EMPRENDEDORES = "emprendedores";
+    public static final String CATEGORIAS = "categorias";
+    public static final String MUNICIPALIDADES = "municipalidades";
+    // Precios en céntimos de cada plan y sus servicios, para cotizar
+    public static final String TARIFAS_PLAN = "tarifasPlan";
+    
+    // Listados y filtros; la clave incluye el nombre del método
+    public static final String PLANES_LISTADOS = "planesListados";
+    public static final String SERVICIOS_LISTADOS = "serviciosListados";
+    public static final String EMPRENDEDORES_LISTADOS = "emprendedoresListados";
+    public static final String CATEGORIAS_LISTADOS = "categoriasListados";
+    public static final String MUNICIPALIDADES_LISTADOS = "municipalidadesListados";
+    
+    // Varios listados comparten la misma caché, así que el método forma parte de la clave
+    @Bean
+    public KeyGenerator catalogoKeyGenerator() {
+        return (target, method, params) -> new SimpleKey(method.getName(), SimpleKeyGenerator.generateKey(params));
+    }
+}
@@ -0,0 +1,54 @@
+package com.turismo.turismobackend.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Registra cuántas sentencias SQL ejecuta cada endpoint de /api (métrica db.consultas.peticion),
+// incluida la carga del usuario autenticado; permite comparar con y sin caché de segundo nivel
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ConsultasPorPeticionFilter extends OncePerRequestFilter {
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+    
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        ContadorConsultas.reiniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // El patrón de la ruta evita una serie por cada id
+            Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("db.consultas.peticion")
+                    .description("Sentencias SQL ejecutadas por petición")
+                    .tag("metodo", request.getMethod())
+                    .tag("uri", patron != null ? patron.toString() : "DESCONOCIDA")
+                    .register(meterRegistry)
+                    .record(ContadorConsultas.total());
+            ContadorConsultas.limpiar();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.turismo.turismobackend.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Cuenta las sentencias SQL que Hibernate prepara en el hilo actual; no modifica el SQL
+public class ContadorConsultas implements StatementInspector {
+    
+    private static final ThreadLocal<int[]> CONSULTAS = ThreadLocal.withInitial(() -> new int[1]);
+    
+    @Override
+    public String inspect(String sql) {
+        CONSULTAS.get()[0]++;
+        return sql;
+    }
+    
+    public static void reiniciar() {
+        CONSULTAS.get()[0] = 0;
+    }
+    
+    public static int total() {
+        return CONSULTAS.get()[0];
+    }
+    
+    public static void limpiar() {
+        CONSULTAS.remove();
+    }
+}
@@ -5,6 +5,10 @@ import com.turismo.turismobackend.dto.request.EmprendedorRequest;
 import com.turismo.turismobackend.dto.request.MunicipalidadRequest;
 import com.turismo.turismobackend.dto.request.RegisterRequest;
 import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.MigracionDatosRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
 import com.turismo.turismobackend.repository.UsuarioRepository;
 import com.turismo.turismobackend.service.AuthService;
 import com.turismo.turismobackend.service.CategoriaService;
@@ -18,6 +22,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 
@@ -25,17 +30,46 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DataInitializer implements CommandLineRunner {
 
+    // v2: la primera versión pudo registrarse con items en 0 (columna agregada como NOT NULL); se repite
+    private static final String MIGRACION_EMPRENDEDOR_ITEMS = "reserva_carrito_items.emprendedor_id.v2";
+    private static final String MIGRACION_FECHA_ACTUALIZACION_ITEMS = "reserva_carrito_items.fecha_actualizacion";
+
     private final AuthService authService;
     private final UsuarioRepository usuarioRepository;
     private final MunicipalidadService municipalidadService;
     private final EmprendedorService emprendedorService;
     private final CategoriaService categoriaService;
+    private final ReservaRepository reservaRepository;
+    private final ReservaCarritoRepository reservaCarritoRepository;
+    private final ReservaCarritoItemRepository reservaCarritoItemRepository;
+    private final MigracionDatosRepository migracionDatosRepository;
 
     @Override
     public void run(String... args) {
         // 1. Inicializar los roles en la base de datos
         authService.initRoles();
 
+        // Completar monto pagado en reservas creadas antes de llevar el acumulado (solo filas sin versión)
+        reservaRepository.inicializarMontoPagado();
+        reservaCarritoRepository.inicializarMontoPagado();
+
+        // Primera y última fecha de servicio en reservas de carrito anteriores a esas columnas
+        reservaCarritoRepository.inicializarFechasServicio();
+
+        // Completar emprendedor_id en items de reservas de carrito anteriores a la columna, una sola vez
+        if (!migracionDatosRepository.existsById(MIGRACION_EMPRENDEDOR_ITEMS)) {
+            migrarEmprendedorItems();
+        }
+
+        // Fecha de actualización de items anteriores a la columna, una sola vez
+        if (!migracionDatosRepository.existsById(MIGRACION_FECHA_ACTUALIZACION_ITEMS)) {
+            int itemsActualizados;
+            do {
+                itemsActualizados = reservaCarritoItemRepository.asignarFechaActualizacionPendiente(5000);
+            } while (itemsActualizados > 0);
+            migracionDatosRepository.registrar(MIGRACION_FECHA_ACTUALIZACION_ITEMS, LocalDateTime.now());
+        }
+
         // 2. Verificar si ya existen usuarios para no duplicar datos
         if (usuarioRepository.count() > 0) {
             System.out.println("La base de datos ya ha sido inicializada. Omitiendo la creación de datos de demostración.");
@@ -128,6 +162,22 @@ public class DataInitializer implements CommandLineRunner {
         System.out.println("La inicialización de datos de demostración ha finalizado correctamente.");
     }
 
+    private void migrarEmprendedorItems() {
+        int itemsAsignados;
+        do {
+            itemsAsignados = reservaCarritoItemRepository.asignarEmprendedorPendiente(5000);
+        } while (itemsAsignados > 0);
+
+        // Sin registrar la migración se vuelve a intentar en el siguiente arranque
+        long sinEmprendedor = reservaCarritoItemRepository.countSinEmprendedor();
+        if (sinEmprendedor > 0) {
+            System.out.println("Quedan " + sinEmprendedor + " items de reserva sin emprendedor_id; la columna sigue admitiendo nulos.");
+            return;
+        }
+        reservaCarritoItemRepository.exigirEmprendedor();
+        migracionDatosRepository.registrar(MIGRACION_EMPRENDEDOR_ITEMS, LocalDateTime.now());
+    }
+
     private void createAdminUser() {
         RegisterRequest adminRequest = RegisterRequest.builder()
                 .nombre("Admin")
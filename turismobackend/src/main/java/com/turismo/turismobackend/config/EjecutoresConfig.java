@@ -0,0 +1,41 @@
+package com.turismo.turismobackend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// Ejecutores de tareas en segundo plano. Los gestiona Spring: se detienen al cerrar el contexto
+// y su cola es acotada, así una ráfaga de tareas no acumula memoria sin límite
+@Configuration
+public class EjecutoresConfig {
+    
+    // Regeneración de listados pre-serializados. Si la cola está llena la tarea se rechaza y la
+    // siguiente petición genera el listado; al apagar no se espera a que terminen
+    @Bean
+    public ThreadPoolTaskExecutor snapshotsExecutor(@Value("${application.snapshots.cola-maxima:100}") int colaMaxima) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(colaMaxima);
+        executor.setThreadNamePrefix("snapshots-listados-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+    
+    // Entrega inmediata del outbox tras el commit. Si la cola está llena la tarea se rechaza y el
+    // evento queda pendiente para la tarea programada; al apagar se espera a las entregas en curso
+    @Bean
+    public ThreadPoolTaskExecutor outboxExecutor(@Value("${application.outbox.hilos:2}") int hilos,
+                                                 @Value("${application.outbox.cola-maxima:1000}") int colaMaxima,
+                                                 @Value("${application.outbox.espera-apagado-segundos:30}") int esperaApagado) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(colaMaxima);
+        executor.setThreadNamePrefix("outbox-despachador-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(esperaApagado);
+        return executor;
+    }
+}
@@ -0,0 +1,17 @@
+package com.turismo.turismobackend.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// La caché de segundo nivel se configura en application.properties; aquí solo se registra
+// el contador de consultas usado por ConsultasPorPeticionFilter
+@Configuration
+public class HibernateCacheConfig {
+    
+    @Bean
+    public HibernatePropertiesCustomizer contadorConsultasCustomizer() {
+        return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorConsultas());
+    }
+}
@@ -1,6 +1,8 @@
 package com.turismo.turismobackend.config;
 
 import com.turismo.turismobackend.service.JwtService;
+import com.turismo.turismobackend.service.VersionTokenService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,8 +23,15 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
+    // Claims del token autenticado, disponibles para el resto de la petición
+    public static final String ATRIBUTO_CLAIMS = "jwt.claims";
+    // Copia en caché del usuario autenticado (solo tokens no autocontenidos), con sus vínculos
+    public static final String ATRIBUTO_PRINCIPAL = "jwt.principal";
+    
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+    private final VersionTokenService versionTokenService;
     
     @Override
     protected void doFilterInternal(
@@ -40,12 +49,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
+        // El token se parsea una sola vez; las claims se reutilizan para la validación
+        final Claims claims = jwtService.parseToken(jwt);
+        username = claims.getSubject();
         
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails;
+            PrincipalCache.Principal principal = null;
+            if (jwtService.isSelfContained(claims)) {
+                // Token autocontenido: basta con comprobar que su versión no fue revocada
+                Long usuarioId = jwtService.getLongClaim(claims, JwtService.CLAIM_USUARIO_ID);
+                Long version = jwtService.getLongClaim(claims, JwtService.CLAIM_VERSION);
+                if (version == null || !versionTokenService.esVigente(usuarioId, version.intValue())) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                userDetails = jwtService.buildPrincipal(claims);
+            } else {
+                principal = principalCache.obtener(username, this.userDetailsService::loadUserByUsername);
+                userDetails = principal.aUsuario();
+            }
             
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (jwtService.isTokenValid(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -55,6 +80,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                         new WebAuthenticationDetailsSource().buildDetails(request)
                 );
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                request.setAttribute(ATRIBUTO_CLAIMS, claims);
+                if (principal != null) {
+                    request.setAttribute(ATRIBUTO_PRINCIPAL, principal);
+                }
             }
         }
         
@@ -0,0 +1,113 @@
+package com.turismo.turismobackend.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.turismo.turismobackend.model.Rol;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.MunicipalidadRepository;
+import com.turismo.turismobackend.service.UsuarioModificadoEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Usuarios autenticados recientes por username, para no consultar usuario, roles y vínculos en cada
+// petición. Se guarda una copia inmutable y cada petición recibe su propio Usuario, nunca la entidad
+// administrada. La entrada se descarta con cada UsuarioModificadoEvent (roles, vínculos, altas y bajas).
+@Component
+public class PrincipalCache {
+    
+    private final Cache<String, Principal> cache;
+    private final EmprendedorRepository emprendedorRepository;
+    private final MunicipalidadRepository municipalidadRepository;
+    
+    public PrincipalCache(
+            @Value("${application.security.principal-cache.ttl-segundos:60}") long ttlSegundos,
+            @Value("${application.security.principal-cache.tamano-maximo:10000}") long tamanoMaximo,
+            MeterRegistry meterRegistry,
+            EmprendedorRepository emprendedorRepository,
+            MunicipalidadRepository municipalidadRepository
+    ) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+        this.emprendedorRepository = emprendedorRepository;
+        this.municipalidadRepository = municipalidadRepository;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principales");
+    }
+    
+    // Datos de seguridad del usuario en el momento de cargarlo
+    public record Principal(
+            Long id,
+            String username,
+            String password,
+            String nombre,
+            String apellido,
+            String email,
+            Integer tokenVersion,
+            Set<Rol.RolNombre> roles,
+            Long emprendedorId,
+            Long municipalidadId
+    ) {
+        
+        public Principal {
+            roles = Set.copyOf(roles);
+        }
+        
+        // Usuario nuevo y desligado de la sesión de Hibernate, propio de la petición
+        public Usuario aUsuario() {
+            return Usuario.builder()
+                    .id(id)
+                    .username(username)
+                    .password(password)
+                    .nombre(nombre)
+                    .apellido(apellido)
+                    .email(email)
+                    .tokenVersion(tokenVersion)
+                    .roles(roles.stream()
+                            .map(rol -> Rol.builder().nombre(rol).build())
+                            .collect(Collectors.toCollection(HashSet::new)))
+                    .build();
+        }
+    }
+    
+    public Principal obtener(String username, Function<String, UserDetails> cargador) {
+        return cache.get(username, clave -> copiar((Usuario) cargador.apply(clave)));
+    }
+    
+    public void invalidar(String username) {
+        cache.invalidate(username);
+    }
+    
+    // Tras el commit, para que la siguiente petición cargue los datos ya confirmados
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUsuarioModificado(UsuarioModificadoEvent evento) {
+        invalidar(evento.username());
+    }
+    
+    private Principal copiar(Usuario usuario) {
+        return new Principal(
+                usuario.getId(),
+                usuario.getUsername(),
+                usuario.getPassword(),
+                usuario.getNombre(),
+                usuario.getApellido(),
+                usuario.getEmail(),
+                usuario.getTokenVersion(),
+                usuario.getRoles().stream().map(Rol::getNombre).collect(Collectors.toSet()),
+                emprendedorRepository.findIdByUsuarioId(usuario.getId()).orElse(null),
+                municipalidadRepository.findIdByUsuarioId(usuario.getId()).orElse(null));
+    }
+}
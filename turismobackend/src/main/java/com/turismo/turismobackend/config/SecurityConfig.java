@@ -41,6 +41,8 @@ public class SecurityConfig {
                             "/swagger-ui.html",
                             "/api/swagger-ui/**"
                         ).permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
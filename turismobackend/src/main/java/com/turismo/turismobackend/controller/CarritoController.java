@@ -1,6 +1,7 @@
 package com.turismo.turismobackend.controller;
 
 import com.turismo.turismobackend.dto.request.CarritoItemRequest;
+import com.turismo.turismobackend.dto.request.CarritoLoteRequest;
 import com.turismo.turismobackend.dto.response.CarritoResponse;
 import com.turismo.turismobackend.service.CarritoService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -36,6 +37,14 @@ public class CarritoController {
         return ResponseEntity.ok(carrito);
     }
     
+    @PostMapping("/lote")
+    @Operation(summary = "Agregar, actualizar y eliminar varios items en una sola petición")
+    public ResponseEntity<CarritoResponse> aplicarLote(
+            @Valid @RequestBody CarritoLoteRequest request) {
+        CarritoResponse carrito = carritoService.aplicarLote(request);
+        return ResponseEntity.ok(carrito);
+    }
+    
     @PutMapping("/item/{itemId}")
     @Operation(summary = "Actualizar cantidad de un item")
     public ResponseEntity<CarritoResponse> actualizarCantidad(
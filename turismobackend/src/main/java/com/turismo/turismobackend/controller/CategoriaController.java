@@ -2,12 +2,15 @@ package com.turismo.turismobackend.controller;
 
 import com.turismo.turismobackend.dto.request.CategoriaRequest;
 import com.turismo.turismobackend.dto.response.CategoriaResponse;
+import com.turismo.turismobackend.service.CatalogoModificadoEvent;
+import com.turismo.turismobackend.service.ListadoSnapshotService;
 import com.turismo.turismobackend.service.CategoriaService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -17,10 +20,12 @@ import java.util.List;
 public class CategoriaController {
     
     private final CategoriaService categoriaService;
+    private final ListadoSnapshotService listadoSnapshotService;
     
     @GetMapping
-    public ResponseEntity<List<CategoriaResponse>> getAllCategorias() {
-        return ResponseEntity.ok(categoriaService.getAllCategorias());
+    public ResponseEntity<byte[]> getAllCategorias(WebRequest webRequest) {
+        return listadoSnapshotService.obtener("categorias", CatalogoModificadoEvent.Tipo.CATEGORIA, categoriaService::getAllCategorias)
+                .toResponseEntity(webRequest);
     }
     
     @GetMapping("/{id}")
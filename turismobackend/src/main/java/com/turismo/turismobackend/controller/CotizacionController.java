@@ -0,0 +1,37 @@
+package com.turismo.turismobackend.controller;
+
+import com.turismo.turismobackend.dto.request.CotizacionPlanRequest;
+import com.turismo.turismobackend.dto.response.CotizacionResponse;
+import com.turismo.turismobackend.service.CotizacionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/cotizaciones")
+@RequiredArgsConstructor
+@Tag(name = "Cotizaciones", description = "API para cotizar planes y carritos sin crear la reserva")
+@PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_EMPRENDEDOR', 'ROLE_MUNICIPALIDAD', 'ROLE_ADMIN')")
+public class CotizacionController {
+    
+    private final CotizacionService cotizacionService;
+    
+    @PostMapping("/plan")
+    @Operation(summary = "Cotizar un plan con personalizaciones y número de personas")
+    public ResponseEntity<CotizacionResponse> cotizarPlan(
+            @Valid @RequestBody CotizacionPlanRequest request) {
+        CotizacionResponse cotizacion = cotizacionService.cotizarPlan(request);
+        return ResponseEntity.ok(cotizacion);
+    }
+    
+    @GetMapping("/carrito")
+    @Operation(summary = "Cotizar el carrito del usuario autenticado")
+    public ResponseEntity<CotizacionResponse> cotizarCarrito() {
+        CotizacionResponse cotizacion = cotizacionService.cotizarCarrito();
+        return ResponseEntity.ok(cotizacion);
+    }
+}
@@ -2,15 +2,19 @@ package com.turismo.turismobackend.controller;
 
 import com.turismo.turismobackend.dto.request.EmprendedorRequest;
 import com.turismo.turismobackend.dto.response.EmprendedorResponse;
+import com.turismo.turismobackend.service.CatalogoModificadoEvent;
+import com.turismo.turismobackend.service.CatalogoVersionService;
 import com.turismo.turismobackend.service.EmprendedorService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -20,15 +24,24 @@ import java.util.List;
 public class EmprendedorController {
     
     private final EmprendedorService emprendedorService;
+    private final CatalogoVersionService catalogoVersionService;
     
     @GetMapping
-    public ResponseEntity<List<EmprendedorResponse>> getAllEmprendedores() {
-        return ResponseEntity.ok(emprendedorService.getAllEmprendedores());
+    public ResponseEntity<List<EmprendedorResponse>> getAllEmprendedores(WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogoVersionService.etagListado(CatalogoModificadoEvent.Tipo.EMPRENDEDOR),
+                catalogoVersionService.ultimaModificacion(CatalogoModificadoEvent.Tipo.EMPRENDEDOR))) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(emprendedorService.getAllEmprendedores());
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<EmprendedorResponse> getEmprendedorById(@PathVariable Long id) {
-        return ResponseEntity.ok(emprendedorService.getEmprendedorById(id));
+    public ResponseEntity<EmprendedorResponse> getEmprendedorById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogoVersionService.etagElemento(CatalogoModificadoEvent.Tipo.EMPRENDEDOR, id),
+                catalogoVersionService.ultimaModificacion(CatalogoModificadoEvent.Tipo.EMPRENDEDOR))) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(emprendedorService.getEmprendedorById(id));
     }
     
     @GetMapping("/municipalidad/{municipalidadId}")
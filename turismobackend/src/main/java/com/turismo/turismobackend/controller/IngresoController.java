@@ -0,0 +1,60 @@
+package com.turismo.turismobackend.controller;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.response.IngresoSerieResponse;
+import com.turismo.turismobackend.model.Pago;
+import com.turismo.turismobackend.model.Rol;
+import com.turismo.turismobackend.service.IngresoRollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/ingresos")
+@RequiredArgsConstructor
+@Tag(name = "Ingresos", description = "Series de ingresos confirmados a partir de los resúmenes diarios")
+public class IngresoController {
+    
+    private final IngresoRollupService ingresoRollupService;
+    private final AuthContext authContext;
+    
+    @GetMapping("/serie")
+    @Operation(summary = "Serie de ingresos por día o mes",
+            description = "Municipalidades y emprendedores solo ven sus propios ingresos")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MUNICIPALIDAD') or hasRole('EMPRENDEDOR')")
+    public ResponseEntity<List<IngresoSerieResponse>> getSerie(
+            @Parameter(description = "Fecha inicial") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @Parameter(description = "Fecha final") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @Parameter(description = "ID de la municipalidad") @RequestParam(required = false) Long municipalidadId,
+            @Parameter(description = "ID del emprendedor") @RequestParam(required = false) Long emprendedorId,
+            @Parameter(description = "Método de pago") @RequestParam(required = false) Pago.MetodoPago metodoPago,
+            @Parameter(description = "DIA o MES") @RequestParam(defaultValue = "DIA") IngresoRollupService.Agrupacion agrupacion) {
+        // Fuera del administrador, ambos filtros salen de la entidad del usuario y nunca de la petición
+        if (!authContext.isAdmin()) {
+            boolean municipalidad = authContext.hasRole(Rol.RolNombre.ROLE_MUNICIPALIDAD);
+            municipalidadId = municipalidad ? authContext.getMunicipalidadId() : null;
+            emprendedorId = municipalidad ? null : authContext.getEmprendedorId();
+            if (municipalidadId == null && emprendedorId == null) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+        }
+        return ResponseEntity.ok(ingresoRollupService.getSerie(desde, hasta, municipalidadId, emprendedorId, metodoPago, agrupacion));
+    }
+    
+    @PostMapping("/reconstruir")
+    @Operation(summary = "Recalcular los resúmenes diarios desde el histórico de pagos (solo admin)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> reconstruir() {
+        return ResponseEntity.ok(ingresoRollupService.reconstruir());
+    }
+}
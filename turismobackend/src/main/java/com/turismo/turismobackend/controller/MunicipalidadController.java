@@ -2,12 +2,15 @@ package com.turismo.turismobackend.controller;
 
 import com.turismo.turismobackend.dto.request.MunicipalidadRequest;
 import com.turismo.turismobackend.dto.response.MunicipalidadResponse;
+import com.turismo.turismobackend.service.CatalogoModificadoEvent;
+import com.turismo.turismobackend.service.ListadoSnapshotService;
 import com.turismo.turismobackend.service.MunicipalidadService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -17,10 +20,12 @@ import java.util.List;
 public class MunicipalidadController {
     
     private final MunicipalidadService municipalidadService;
+    private final ListadoSnapshotService listadoSnapshotService;
     
     @GetMapping
-    public ResponseEntity<List<MunicipalidadResponse>> getAllMunicipalidades() {
-        return ResponseEntity.ok(municipalidadService.getAllMunicipalidades());
+    public ResponseEntity<byte[]> getAllMunicipalidades(WebRequest webRequest) {
+        return listadoSnapshotService.obtener("municipalidades", CatalogoModificadoEvent.Tipo.MUNICIPALIDAD, municipalidadService::getAllMunicipalidades)
+                .toResponseEntity(webRequest);
     }
     
     @GetMapping("/{id}")
@@ -2,17 +2,29 @@ package com.turismo.turismobackend.controller;
 
 import com.turismo.turismobackend.dto.request.PagoRequest;
 import com.turismo.turismobackend.dto.response.PagoResponse;
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.service.ConciliacionPagoService;
+import com.turismo.turismobackend.service.IdempotenciaService;
 import com.turismo.turismobackend.service.PagoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -22,6 +34,9 @@ import java.util.List;
 public class PagoController {
     
     private final PagoService pagoService;
+    private final ConciliacionPagoService conciliacionPagoService;
+    private final IdempotenciaService idempotenciaService;
+    private final AuthContext authContext;
     
     @GetMapping
     @Operation(summary = "Obtener todos los pagos (solo admin)")
@@ -76,9 +91,10 @@ public class PagoController {
     @Operation(summary = "Registrar nuevo pago")
     @PreAuthorize("hasRole('USER') or hasRole('EMPRENDEDOR') or hasRole('MUNICIPALIDAD') or hasRole('ADMIN')")
     public ResponseEntity<PagoResponse> registrarPago(
-            @Valid @RequestBody PagoRequest request) {
-        PagoResponse pago = pagoService.registrarPago(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(pago);
+            @Valid @RequestBody PagoRequest request,
+            @Parameter(description = "Clave para reintentar sin duplicar") @RequestHeader(value = IdempotenciaService.CABECERA, required = false) String idempotencyKey) {
+        return idempotenciaService.ejecutar(idempotencyKey, "pagos", request, PagoResponse.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(pagoService.registrarPago(request)));
     }
     
     @PatchMapping("/{id}/confirmar")
@@ -99,4 +115,41 @@ public class PagoController {
         PagoResponse pago = pagoService.rechazarPago(id, motivo);
         return ResponseEntity.ok(pago);
     }
-}
\ No newline at end of file
+    
+    @PatchMapping("/{id}/reembolsar")
+    @Operation(summary = "Reembolsar pago confirmado")
+    @PreAuthorize("hasRole('MUNICIPALIDAD') or hasRole('ADMIN')")
+    public ResponseEntity<PagoResponse> reembolsarPago(
+            @Parameter(description = "ID del pago") @PathVariable Long id,
+            @Parameter(description = "Motivo del reembolso") @RequestParam String motivo) {
+        PagoResponse pago = pagoService.reembolsarPago(id, motivo);
+        return ResponseEntity.ok(pago);
+    }
+    
+    @PostMapping(value = "/conciliacion", consumes = {MediaType.TEXT_PLAIN_VALUE, "text/csv"}, produces = "text/csv")
+    @Operation(summary = "Conciliar pagos con un extracto bancario",
+            description = "Cada línea: referencia[,monto[,CONFIRMAR|RECHAZAR]]. Devuelve un reporte CSV por línea a medida que se procesa; las líneas mal formadas se informan como LINEA_INVALIDA")
+    @PreAuthorize("hasRole('MUNICIPALIDAD') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> conciliarPagos(HttpServletRequest request) throws IOException {
+        // El extracto se lee mientras se escribe el reporte, sin cargarlo entero en memoria
+        BufferedReader lector = request.getReader();
+        ConciliacionPagoService.Operador operador = new ConciliacionPagoService.Operador(
+                authContext.isAdmin(), authContext.getUsuarioId(), authContext.getMunicipalidadId());
+        
+        StreamingResponseBody reporte = salida -> {
+            Writer writer = new OutputStreamWriter(salida, StandardCharsets.UTF_8);
+            writer.write("linea,referencia,resultado,detalle\n");
+            conciliacionPagoService.conciliar(lector, operador, resultado -> {
+                try {
+                    writer.write(resultado.toCsv());
+                    writer.write('\n');
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("text/csv")).body(reporte);
+    }
+}
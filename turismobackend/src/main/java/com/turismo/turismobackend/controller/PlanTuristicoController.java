@@ -1,43 +1,68 @@
 package com.turismo.turismobackend.controller;
 
 import com.turismo.turismobackend.dto.request.PlanTuristicoRequest;
+import com.turismo.turismobackend.dto.response.ConsistenciaPrecioPlanResponse;
 import com.turismo.turismobackend.dto.response.PlanTuristicoResponse;
 import com.turismo.turismobackend.model.PlanTuristico;
+import com.turismo.turismobackend.service.CatalogoModificadoEvent;
+import com.turismo.turismobackend.service.CatalogoVersionService;
+import com.turismo.turismobackend.service.ListadoSnapshotService;
 import com.turismo.turismobackend.service.PlanTuristicoService;
+import com.turismo.turismobackend.service.PrecioPlanService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @RestController
+@Validated
 @RequestMapping("/api/planes")
 @RequiredArgsConstructor
 @Tag(name = "Planes Turísticos", description = "API para gestión de planes turísticos")
 public class PlanTuristicoController {
     
     private final PlanTuristicoService planService;
+    private final CatalogoVersionService catalogoVersionService;
+    private final ListadoSnapshotService listadoSnapshotService;
+    private final PrecioPlanService precioPlanService;
     
     @GetMapping
     @Operation(summary = "Obtener todos los planes turísticos")
-    public ResponseEntity<List<PlanTuristicoResponse>> getAllPlanes() {
-        List<PlanTuristicoResponse> planes = planService.getAllPlanes();
-        return ResponseEntity.ok(planes);
+    public ResponseEntity<byte[]> getAllPlanes(WebRequest webRequest) {
+        // Responder 304 antes de tocar repositorios si el cliente ya tiene esta versión
+        if (webRequest.checkNotModified(catalogoVersionService.etagListado(CatalogoModificadoEvent.Tipo.PLAN),
+                catalogoVersionService.ultimaModificacion(CatalogoModificadoEvent.Tipo.PLAN))) {
+            return null;
+        }
+        return listadoSnapshotService.obtener("planes", CatalogoModificadoEvent.Tipo.PLAN, planService::getAllPlanes)
+                .toResponseEntity(webRequest);
     }
     
     @GetMapping("/{id}")
     @Operation(summary = "Obtener plan turístico por ID")
     public ResponseEntity<PlanTuristicoResponse> getPlanById(
-            @Parameter(description = "ID del plan turístico") @PathVariable Long id) {
+            @Parameter(description = "ID del plan turístico") @PathVariable Long id,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogoVersionService.etagElemento(CatalogoModificadoEvent.Tipo.PLAN, id),
+                catalogoVersionService.ultimaModificacion(CatalogoModificadoEvent.Tipo.PLAN))) {
+            return null;
+        }
         PlanTuristicoResponse plan = planService.getPlanById(id);
-        return ResponseEntity.ok(plan);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(plan);
     }
     
     @GetMapping("/municipalidad/{municipalidadId}")
@@ -50,10 +75,11 @@ public class PlanTuristicoController {
     
     @GetMapping("/estado/{estado}")
     @Operation(summary = "Obtener planes por estado")
-    public ResponseEntity<List<PlanTuristicoResponse>> getPlanesByEstado(
-            @Parameter(description = "Estado del plan") @PathVariable PlanTuristico.EstadoPlan estado) {
-        List<PlanTuristicoResponse> planes = planService.getPlanesByEstado(estado);
-        return ResponseEntity.ok(planes);
+    public ResponseEntity<byte[]> getPlanesByEstado(
+            @Parameter(description = "Estado del plan") @PathVariable PlanTuristico.EstadoPlan estado,
+            WebRequest webRequest) {
+        return listadoSnapshotService.obtener("planes:estado:" + estado, CatalogoModificadoEvent.Tipo.PLAN,
+                () -> planService.getPlanesByEstado(estado)).toResponseEntity(webRequest);
     }
     
     @GetMapping("/dificultad/{nivel}")
@@ -100,11 +126,28 @@ public class PlanTuristicoController {
     
     @GetMapping("/populares")
     @Operation(summary = "Obtener planes más populares")
-    public ResponseEntity<List<PlanTuristicoResponse>> getPlanesMasPopulares() {
-        List<PlanTuristicoResponse> planes = planService.getPlanesMasPopulares();
+    public ResponseEntity<List<PlanTuristicoResponse>> getPlanesMasPopulares(
+            @Parameter(description = "Cantidad máxima de planes (1 a 100)") @RequestParam(defaultValue = "10")
+            @Min(value = 1, message = "El límite debe ser al menos 1")
+            @Max(value = 100, message = "El límite no puede superar 100") int limite) {
+        List<PlanTuristicoResponse> planes = planService.getPlanesMasPopulares(limite);
         return ResponseEntity.ok(planes);
     }
     
+    @GetMapping("/precios/verificar")
+    @Operation(summary = "Comparar el precio de cada plan con el de sus servicios (solo admin)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ConsistenciaPrecioPlanResponse> verificarPrecios() {
+        return ResponseEntity.ok(precioPlanService.verificar());
+    }
+    
+    @PostMapping("/precios/reconstruir")
+    @Operation(summary = "Recalcular el precio de los planes desde sus servicios (solo admin)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> reconstruirPrecios() {
+        return ResponseEntity.ok(precioPlanService.reconstruir());
+    }
+    
     @PostMapping
     @Operation(summary = "Crear nuevo plan turístico")
     @PreAuthorize("hasAnyRole('ROLE_EMPRENDEDOR', 'ROLE_ADMIN', 'ROLE_MUNICIPALIDAD')")
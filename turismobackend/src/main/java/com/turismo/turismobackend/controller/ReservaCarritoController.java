@@ -1,20 +1,29 @@
 package com.turismo.turismobackend.controller;
 
 import com.turismo.turismobackend.dto.request.ReservaCarritoRequest;
+import com.turismo.turismobackend.dto.response.AgendaEmprendedorResponse;
 import com.turismo.turismobackend.dto.response.ChatConversacionResponse;
+import com.turismo.turismobackend.dto.response.EstadisticasReservaResponse;
 import com.turismo.turismobackend.dto.response.ReservaCarritoResponse;
+import com.turismo.turismobackend.service.AgendaEmprendedorService;
+import com.turismo.turismobackend.service.EstadisticasReservaService;
+import com.turismo.turismobackend.service.IdempotenciaService;
 import com.turismo.turismobackend.service.ReservaCarritoService;
+import com.turismo.turismobackend.service.ReservaTransicionEvent;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/reservas-carrito")
@@ -24,13 +33,17 @@ import java.util.List;
 public class ReservaCarritoController {
     
     private final ReservaCarritoService reservaCarritoService;
+    private final EstadisticasReservaService estadisticasReservaService;
+    private final AgendaEmprendedorService agendaEmprendedorService;
+    private final IdempotenciaService idempotenciaService;
     
     @PostMapping("/crear")
     @Operation(summary = "Crear reserva desde carrito")
     public ResponseEntity<ReservaCarritoResponse> crearReservaDesdeCarrito(
-            @Valid @RequestBody ReservaCarritoRequest request) {
-        ReservaCarritoResponse reserva = reservaCarritoService.crearReservaDesdeCarrito(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(reserva);
+            @Valid @RequestBody ReservaCarritoRequest request,
+            @Parameter(description = "Clave para reintentar sin duplicar") @RequestHeader(value = IdempotenciaService.CABECERA, required = false) String idempotencyKey) {
+        return idempotenciaService.ejecutar(idempotencyKey, "reservas-carrito", request, ReservaCarritoResponse.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(reservaCarritoService.crearReservaDesdeCarrito(request)));
     }
     
     @GetMapping("/mis-reservas")
@@ -91,6 +104,17 @@ public class ReservaCarritoController {
         return ResponseEntity.ok(reservas);
     }
     
+    @GetMapping("/emprendedor/agenda")
+    @Operation(summary = "Agenda por días del emprendedor autenticado",
+            description = "Con version solo devuelve los items modificados desde esa consulta; los conteos por día son siempre del rango completo")
+    @PreAuthorize("hasRole('ROLE_EMPRENDEDOR')")
+    public ResponseEntity<AgendaEmprendedorResponse> obtenerAgendaEmprendedor(
+            @Parameter(description = "Fecha inicial") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @Parameter(description = "Fecha final") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @Parameter(description = "Versión devuelta por la consulta anterior") @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(agendaEmprendedorService.getAgenda(desde, hasta, version));
+    }
+    
     @GetMapping("/estado/{estado}")
     @Operation(summary = "Filtrar mis reservas por estado")
     public ResponseEntity<List<ReservaCarritoResponse>> obtenerReservasPorEstado(
@@ -100,11 +124,20 @@ public class ReservaCarritoController {
     }
     
     @GetMapping("/estadisticas")
-    @Operation(summary = "Obtener estadísticas de reservas del usuario")
-    public ResponseEntity<?> obtenerEstadisticasReservas() {
-        // Implementar estadísticas si es necesario
-        return ResponseEntity.ok("Estadísticas en desarrollo");
+    @Operation(summary = "Obtener estadísticas de reservas del usuario",
+            description = "Del usuario; de su emprendimiento para emprendedores; globales para admin")
+    public ResponseEntity<EstadisticasReservaResponse> obtenerEstadisticasReservas(
+            @Parameter(description = "TOTAL o mes (yyyy-MM)") @RequestParam(defaultValue = EstadisticasReservaService.PERIODO_TOTAL) String periodo) {
+        return ResponseEntity.ok(estadisticasReservaService.getEstadisticasActuales(ReservaTransicionEvent.Fuente.CARRITO, periodo));
     }
+    
+    @PostMapping("/estadisticas/reconstruir")
+    @Operation(summary = "Recalcular las estadísticas desde las reservas y contar diferencias (solo admin)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> reconstruirEstadisticas() {
+        return ResponseEntity.ok(estadisticasReservaService.reconstruir());
+    }
+    
     @GetMapping("/{id}/conversaciones")
     @Operation(summary = "Obtener conversaciones de chat de una reserva")
     public ResponseEntity<List<ChatConversacionResponse>> obtenerConversacionesDeReserva(
@@ -1,19 +1,35 @@
 package com.turismo.turismobackend.controller;
 
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.request.CancelacionMasivaRequest;
 import com.turismo.turismobackend.dto.request.ReservaRequest;
+import com.turismo.turismobackend.dto.response.EstadisticasReservaResponse;
 import com.turismo.turismobackend.dto.response.ReservaResponse;
+import com.turismo.turismobackend.service.CancelacionMasivaService;
+import com.turismo.turismobackend.service.EstadisticasReservaService;
+import com.turismo.turismobackend.service.IdempotenciaService;
 import com.turismo.turismobackend.service.ReservaService;
+import com.turismo.turismobackend.service.ReservaTransicionEvent;
+import com.turismo.turismobackend.service.TransicionReservaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/reservas")
@@ -22,6 +38,11 @@ import java.util.List;
 public class ReservaController {
     
     private final ReservaService reservaService;
+    private final EstadisticasReservaService estadisticasReservaService;
+    private final TransicionReservaService transicionReservaService;
+    private final IdempotenciaService idempotenciaService;
+    private final CancelacionMasivaService cancelacionMasivaService;
+    private final AuthContext authContext;
     
     @GetMapping
     @Operation(summary = "Obtener todas las reservas (solo admin)")
@@ -76,9 +97,10 @@ public class ReservaController {
     @Operation(summary = "Crear nueva reserva")
     @PreAuthorize("hasAnyRole('ROLE_EMPRENDEDOR', 'ROLE_ADMIN', 'ROLE_MUNICIPALIDAD', 'ROLE_USER')")
     public ResponseEntity<ReservaResponse> createReserva(
-            @Valid @RequestBody ReservaRequest request) {
-        ReservaResponse reserva = reservaService.createReserva(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(reserva);
+            @Valid @RequestBody ReservaRequest request,
+            @Parameter(description = "Clave para reintentar sin duplicar") @RequestHeader(value = IdempotenciaService.CABECERA, required = false) String idempotencyKey) {
+        return idempotenciaService.ejecutar(idempotencyKey, "reservas", request, ReservaResponse.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(reservaService.createReserva(request)));
     }
     
     @PatchMapping("/{id}/confirmar")
@@ -107,4 +129,46 @@ public class ReservaController {
         ReservaResponse reserva = reservaService.completarReserva(id);
         return ResponseEntity.ok(reserva);
     }
-}
\ No newline at end of file
+    
+    @GetMapping("/estadisticas")
+    @Operation(summary = "Estadísticas de reservas de planes",
+            description = "Del usuario; de su municipalidad para municipalidades; globales para admin")
+    public ResponseEntity<EstadisticasReservaResponse> getEstadisticas(
+            @Parameter(description = "TOTAL o mes (yyyy-MM)") @RequestParam(defaultValue = EstadisticasReservaService.PERIODO_TOTAL) String periodo) {
+        return ResponseEntity.ok(estadisticasReservaService.getEstadisticasActuales(ReservaTransicionEvent.Fuente.PLAN, periodo));
+    }
+    
+    @PostMapping("/transiciones/ejecutar")
+    @Operation(summary = "Aplicar ahora las transiciones de estado por fecha (solo admin)",
+            description = "Planes y reservas de carrito; devuelve cuántas reservas cambió cada transición")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> ejecutarTransiciones() {
+        return ResponseEntity.ok(transicionReservaService.ejecutar());
+    }
+    
+    @PostMapping(value = "/cancelacion-masiva", produces = "text/csv")
+    @Operation(summary = "Cancelar en bloque las reservas de un plan, servicio, emprendedor o municipalidad",
+            description = "Cancela las reservas activas entre desde y hasta. Devuelve un reporte CSV por lote a medida que avanza")
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_MUNICIPALIDAD') or hasRole('ROLE_EMPRENDEDOR')")
+    public ResponseEntity<StreamingResponseBody> cancelacionMasiva(@Valid @RequestBody CancelacionMasivaRequest request) {
+        cancelacionMasivaService.validar(request, new CancelacionMasivaService.Operador(
+                authContext.isAdmin(), authContext.getUsuarioId(), authContext.getEmprendedorId(), authContext.getMunicipalidadId()));
+        
+        StreamingResponseBody reporte = salida -> {
+            Writer writer = new OutputStreamWriter(salida, StandardCharsets.UTF_8);
+            writer.write("fuente,lote,canceladas,acumulado\n");
+            long total = cancelacionMasivaService.cancelar(request, resultado -> {
+                try {
+                    writer.write(resultado.toCsv());
+                    writer.write('\n');
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.write("TOTAL,," + total + "," + total + "\n");
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("text/csv")).body(reporte);
+    }
+}
@@ -3,41 +3,61 @@ package com.turismo.turismobackend.controller;
 import com.turismo.turismobackend.dto.request.ServicioTuristicoRequest;
 import com.turismo.turismobackend.dto.response.ServicioTuristicoResponse;
 import com.turismo.turismobackend.model.ServicioTuristico;
+import com.turismo.turismobackend.service.CatalogoModificadoEvent;
+import com.turismo.turismobackend.service.CatalogoVersionService;
+import com.turismo.turismobackend.service.ListadoSnapshotService;
 import com.turismo.turismobackend.service.ServicioTuristicoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
+@Validated
 @RequestMapping("/api/servicios")
 @RequiredArgsConstructor
 @Tag(name = "Servicios Turísticos", description = "API para gestión de servicios turísticos")
 public class ServicioTuristicoController {
     
     private final ServicioTuristicoService servicioService;
+    private final CatalogoVersionService catalogoVersionService;
+    private final ListadoSnapshotService listadoSnapshotService;
     
     @GetMapping
     @Operation(summary = "Obtener todos los servicios turísticos")
-    public ResponseEntity<List<ServicioTuristicoResponse>> getAllServicios() {
-        List<ServicioTuristicoResponse> servicios = servicioService.getAllServicios();
-        return ResponseEntity.ok(servicios);
+    public ResponseEntity<byte[]> getAllServicios(WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogoVersionService.etagListado(CatalogoModificadoEvent.Tipo.SERVICIO),
+                catalogoVersionService.ultimaModificacion(CatalogoModificadoEvent.Tipo.SERVICIO))) {
+            return null;
+        }
+        return listadoSnapshotService.obtener("servicios", CatalogoModificadoEvent.Tipo.SERVICIO, servicioService::getAllServicios)
+                .toResponseEntity(webRequest);
     }
     
     @GetMapping("/{id}")
     @Operation(summary = "Obtener servicio turístico por ID")
     public ResponseEntity<ServicioTuristicoResponse> getServicioById(
-            @Parameter(description = "ID del servicio turístico") @PathVariable Long id) {
+            @Parameter(description = "ID del servicio turístico") @PathVariable Long id,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogoVersionService.etagElemento(CatalogoModificadoEvent.Tipo.SERVICIO, id),
+                catalogoVersionService.ultimaModificacion(CatalogoModificadoEvent.Tipo.SERVICIO))) {
+            return null;
+        }
         ServicioTuristicoResponse servicio = servicioService.getServicioById(id);
-        return ResponseEntity.ok(servicio);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(servicio);
     }
     
     @GetMapping("/emprendedor/{emprendedorId}")
@@ -58,10 +78,11 @@ public class ServicioTuristicoController {
     
     @GetMapping("/tipo/{tipo}")
     @Operation(summary = "Obtener servicios por tipo")
-    public ResponseEntity<List<ServicioTuristicoResponse>> getServiciosByTipo(
-            @Parameter(description = "Tipo de servicio") @PathVariable ServicioTuristico.TipoServicio tipo) {
-        List<ServicioTuristicoResponse> servicios = servicioService.getServiciosByTipo(tipo);
-        return ResponseEntity.ok(servicios);
+    public ResponseEntity<byte[]> getServiciosByTipo(
+            @Parameter(description = "Tipo de servicio") @PathVariable ServicioTuristico.TipoServicio tipo,
+            WebRequest webRequest) {
+        return listadoSnapshotService.obtener("servicios:tipo:" + tipo, CatalogoModificadoEvent.Tipo.SERVICIO,
+                () -> servicioService.getServiciosByTipo(tipo)).toResponseEntity(webRequest);
     }
     
     @GetMapping("/estado/{estado}")
@@ -89,6 +110,16 @@ public class ServicioTuristicoController {
         return ResponseEntity.ok(servicios);
     }
     
+    @GetMapping("/populares")
+    @Operation(summary = "Obtener servicios más populares")
+    public ResponseEntity<List<ServicioTuristicoResponse>> getServiciosPopulares(
+            @Parameter(description = "Cantidad máxima de servicios (1 a 100)") @RequestParam(defaultValue = "10")
+            @Min(value = 1, message = "El límite debe ser al menos 1")
+            @Max(value = 100, message = "El límite no puede superar 100") int limite) {
+        List<ServicioTuristicoResponse> servicios = servicioService.getServiciosPopulares(limite);
+        return ResponseEntity.ok(servicios);
+    }
+    
     @GetMapping("/mis-servicios")
     @Operation(summary = "Obtener mis servicios (emprendedor autenticado)")
     @PreAuthorize("hasRole('ROLE_EMPRENDEDOR') or hasRole('ROLE_ADMIN')")
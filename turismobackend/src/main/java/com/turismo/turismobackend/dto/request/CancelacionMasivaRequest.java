@@ -0,0 +1,39 @@
+package com.turismo.turismobackend.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CancelacionMasivaRequest {
+    
+    public enum Alcance {
+        PLAN,           // reservas del plan
+        SERVICIO,       // reservas de carrito con items del servicio
+        EMPRENDEDOR,    // reservas de carrito con items del emprendedor
+        MUNICIPALIDAD   // reservas de planes e items de emprendedores de la municipalidad
+    }
+    
+    @NotNull(message = "El alcance es obligatorio")
+    private Alcance alcance;
+    
+    @NotNull(message = "El ID del alcance es obligatorio")
+    private Long id;
+    
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    private LocalDate desde;
+    
+    @NotNull(message = "La fecha de fin es obligatoria")
+    private LocalDate hasta;
+    
+    @NotBlank(message = "El motivo es obligatorio")
+    private String motivo;
+}
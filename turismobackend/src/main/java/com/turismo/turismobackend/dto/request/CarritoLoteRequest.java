@@ -0,0 +1,23 @@
+package com.turismo.turismobackend.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CarritoLoteRequest {
+    
+    @NotEmpty(message = "Debe indicar al menos una operación")
+    @Size(max = 100, message = "Se admiten hasta 100 operaciones por petición")
+    private List<@Valid @NotNull OperacionCarritoRequest> operaciones;
+}
@@ -0,0 +1,26 @@
+package com.turismo.turismobackend.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CotizacionPlanRequest {
+    
+    @NotNull(message = "El ID del plan es obligatorio")
+    private Long planId;
+    
+    @NotNull(message = "El número de personas es obligatorio")
+    @Positive(message = "El número de personas debe ser positivo")
+    private Integer numeroPersonas;
+    
+    private List<ReservaServicioRequest> serviciosPersonalizados;
+}
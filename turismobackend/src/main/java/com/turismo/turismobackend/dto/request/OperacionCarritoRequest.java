@@ -0,0 +1,37 @@
+package com.turismo.turismobackend.dto.request;
+
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperacionCarritoRequest {
+    
+    public enum Tipo {
+        AGREGAR,     // servicioId, cantidad y fechaServicio; suma a la línea existente si la hay
+        ACTUALIZAR,  // itemId y cantidad; una cantidad de 0 o menos elimina la línea
+        ELIMINAR     // itemId
+    }
+    
+    @NotNull(message = "El tipo de operación es obligatorio")
+    private Tipo tipo;
+    
+    private Long itemId;
+    
+    private Long servicioId;
+    
+    private Integer cantidad;
+    
+    @Future(message = "La fecha del servicio debe ser futura")
+    private LocalDate fechaServicio;
+    
+    private String notasEspeciales;
+}
@@ -16,4 +16,6 @@ public class ReservaCarritoRequest {
     private String contactoEmergencia;
     private String telefonoEmergencia;
     private ReservaCarrito.MetodoPago metodoPago;
+    // Token de /api/cotizaciones/carrito; si se envía, la reserva usa los montos cotizados
+    private String tokenCotizacion;
 }
\ No newline at end of file
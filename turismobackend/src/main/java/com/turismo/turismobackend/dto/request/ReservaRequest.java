@@ -40,4 +40,7 @@ public class ReservaRequest {
     private Reserva.MetodoPago metodoPago;
     
     private List<ReservaServicioRequest> serviciosPersonalizados;
+    
+    // Token de /api/cotizaciones/plan; si se envía, la reserva usa los montos cotizados
+    private String tokenCotizacion;
 }
\ No newline at end of file
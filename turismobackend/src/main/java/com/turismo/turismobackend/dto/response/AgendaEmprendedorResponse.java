@@ -0,0 +1,54 @@
+package com.turismo.turismobackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgendaEmprendedorResponse {
+    
+    private LocalDate desde;
+    private LocalDate hasta;
+    // Token para pedir solo los cambios posteriores en la siguiente consulta
+    private Long version;
+    // false cuando la respuesta solo trae los items modificados desde la versión indicada
+    private Boolean completa;
+    private List<DiaAgenda> dias;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DiaAgenda {
+        private LocalDate fecha;
+        // Conteos del día sin items cancelados, siempre sobre el rango completo
+        private Long totalItems;
+        private Long totalPersonas;
+        private List<ItemAgenda> items;
+    }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemAgenda {
+        private Long itemId;
+        private Long reservaCarritoId;
+        private String codigoReserva;
+        private Long servicioId;
+        private String servicioNombre;
+        private Integer cantidad;
+        private String estado;
+        private String estadoReserva;
+        private String clienteNombre;
+        private String clienteEmail;
+        private String notasEspeciales;
+    }
+}
@@ -22,5 +22,7 @@ public class CarritoItemResponse {
     private LocalDate fechaServicio;
     private String notasEspeciales;
     private LocalDateTime fechaAgregado;
+    // Hasta cuándo está apartado el cupo; null si no tiene cupo apartado
+    private LocalDateTime cupoApartadoHasta;
     private ServicioTuristicoBasicResponse servicio;
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.turismo.turismobackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsistenciaPrecioPlanResponse {
+    
+    private Long planesRevisados;
+    private Long inconsistentes;
+    // Solo las primeras diferencias encontradas
+    private List<DiferenciaPrecio> diferencias;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DiferenciaPrecio {
+        private Long planId;
+        private BigDecimal precioGuardado;
+        private BigDecimal precioCalculado;
+    }
+}
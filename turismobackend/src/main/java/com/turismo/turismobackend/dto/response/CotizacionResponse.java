@@ -0,0 +1,45 @@
+package com.turismo.turismobackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CotizacionResponse {
+    
+    public enum Tipo {
+        PLAN, CARRITO
+    }
+    
+    private Tipo tipo;
+    private Long planId;
+    private Integer numeroPersonas;
+    private List<LineaCotizacion> lineas;
+    private BigDecimal montoTotal;
+    private BigDecimal descuentoGrupo;
+    private BigDecimal descuentoClienteFrecuente;
+    private BigDecimal montoDescuento;
+    private BigDecimal montoFinal;
+    // Se envía como tokenCotizacion al crear la reserva para que se respeten estos montos
+    private String token;
+    private LocalDateTime validaHasta;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineaCotizacion {
+        private String concepto;
+        private Integer cantidad;
+        private BigDecimal precioUnitario;
+        private BigDecimal subtotal;
+    }
+}
@@ -0,0 +1,29 @@
+package com.turismo.turismobackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticasReservaResponse {
+    
+    private String fuente;
+    private String ambito;
+    private Long entidadId;
+    private String periodo;
+    private Long totalReservas;
+    private Map<String, Long> reservasPorEstado;
+    // Suma de montos sin contar las reservas canceladas
+    private BigDecimal montoTotal;
+    private Map<String, BigDecimal> montoPorEstado;
+    // Solo carrito: items cancelados de reservas que siguen activas (su monto sigue en el estado de la reserva)
+    private Long itemsCancelados;
+    private BigDecimal montoItemsCancelados;
+}
@@ -0,0 +1,23 @@
+package com.turismo.turismobackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngresoSerieResponse {
+    
+    // Inicio del periodo (día o primer día del mes)
+    private LocalDate fecha;
+    private BigDecimal montoConfirmado;
+    private Long cantidadConfirmados;
+    private BigDecimal montoReembolsado;
+    private Long cantidadReembolsados;
+}
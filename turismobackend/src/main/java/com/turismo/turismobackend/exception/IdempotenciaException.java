@@ -0,0 +1,21 @@
+package com.turismo.turismobackend.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Conflicto con una Idempotency-Key: otra petición con la misma clave sigue en curso (409)
+// o la clave ya se usó con un cuerpo distinto (422)
+public class IdempotenciaException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final HttpStatus status;
+    
+    public IdempotenciaException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+    
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
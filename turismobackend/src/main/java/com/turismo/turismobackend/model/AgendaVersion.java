@@ -0,0 +1,25 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Versión de la agenda de cada emprendedor. Se incrementa en la misma transacción que cambia sus items
+// y la fila queda bloqueada hasta el commit, así las versiones se confirman en orden.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "agenda_versiones")
+public class AgendaVersion {
+    
+    @Id
+    @Column(name = "emprendedor_id")
+    private Long emprendedorId;
+    
+    @Column(nullable = false)
+    private Long version;
+}
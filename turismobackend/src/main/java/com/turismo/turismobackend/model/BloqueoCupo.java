@@ -0,0 +1,42 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Cupo apartado temporalmente por un item del carrito. Cuenta como ocupado hasta expiraEn;
+// las filas vencidas las borra BloqueoCupoService y ya no se cuentan aunque sigan en la tabla
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "bloqueos_cupo",
+        uniqueConstraints = @UniqueConstraint(name = "uk_bloqueos_cupo_item", columnNames = "carrito_item_id"),
+        indexes = @Index(name = "idx_bloqueos_cupo_servicio_fecha", columnList = "servicio_id, fecha_servicio, expira_en"))
+public class BloqueoCupo {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "carrito_item_id", nullable = false)
+    private Long carritoItemId;
+    
+    @Column(name = "servicio_id", nullable = false)
+    private Long servicioId;
+    
+    @Column(name = "fecha_servicio", nullable = false)
+    private LocalDate fechaServicio;
+    
+    @Column(nullable = false)
+    private Integer cantidad;
+    
+    @Column(name = "expira_en", nullable = false)
+    private LocalDateTime expiraEn;
+}
@@ -0,0 +1,36 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Una fila por (servicio o plan, fecha) reservable. No guarda datos: se bloquea con un upsert
+// para que dos nodos no validen y reserven la misma capacidad a la vez
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "candados_cupo",
+        uniqueConstraints = @UniqueConstraint(name = "uk_candados_cupo_clave",
+                columnNames = {"tipo", "recurso_id", "fecha"}))
+public class CandadoCupo {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // SERVICIO o PLAN
+    @Column(nullable = false, length = 20)
+    private String tipo;
+    
+    @Column(name = "recurso_id", nullable = false)
+    private Long recursoId;
+    
+    @Column(nullable = false)
+    private LocalDate fecha;
+}
@@ -0,0 +1,31 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Versión compartida de cada tipo de catálogo. Todas las instancias construyen el mismo ETag
+// y detectan los cambios hechos en otras instancias leyendo esta tabla
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "catalogo_versiones")
+public class CatalogoVersion {
+    
+    // PLAN, SERVICIO, EMPRENDEDOR, CATEGORIA o MUNICIPALIDAD
+    @Id
+    @Column(length = 20)
+    private String tipo;
+    
+    @Column(nullable = false)
+    private Long version;
+    
+    @Column(name = "fecha_modificacion", nullable = false)
+    private LocalDateTime fechaModificacion;
+}
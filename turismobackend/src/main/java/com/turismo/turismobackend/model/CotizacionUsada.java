@@ -0,0 +1,29 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Tokens de cotización ya usados en una reserva; cada token sirve una sola vez. La fila se
+// conserva hasta que el token vence, después ya no podría aceptarse de todos modos
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "cotizaciones_usadas",
+        indexes = @Index(name = "idx_cotizaciones_usadas_expira", columnList = "expira_en"))
+public class CotizacionUsada {
+    
+    // Identificador aleatorio del token (jti)
+    @Id
+    @Column(length = 32)
+    private String jti;
+    
+    @Column(name = "expira_en", nullable = false)
+    private LocalDateTime expiraEn;
+}
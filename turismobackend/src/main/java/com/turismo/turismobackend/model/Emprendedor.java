@@ -3,13 +3,19 @@ package com.turismo.turismobackend.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.LazyGroup;
 
 import java.util.ArrayList;
 import java.util.List;
 
-@Data
+// Sin @Data para no cargar textos perezosos ni colecciones desde equals/hashCode/toString
+@Getter
+@Setter
+@ToString(onlyExplicitlyIncluded = true)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,8 +25,10 @@ public class Emprendedor {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ToString.Include
     private Long id;
     
+    @ToString.Include
     @Column(nullable = false)
     private String nombreEmpresa;
     
@@ -45,12 +53,18 @@ public class Emprendedor {
     
     private String sitioWeb;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String descripcion;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String productos;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String servicios;
     
@@ -81,4 +95,21 @@ public class Emprendedor {
                latitud >= -90 && latitud <= 90 && 
                longitud >= -180 && longitud <= 180;
     }
+    
+    // Identidad por id: una entidad nueva (sin id) solo es igual a sí misma
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Emprendedor otro)) {
+            return false;
+        }
+        return id != null && id.equals(otro.getId());
+    }
+    
+    @Override
+    public int hashCode() {
+        return Emprendedor.class.hashCode();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Último checkpoint de los contadores de reservas que se mantienen en memoria
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "estadisticas_reservas",
+        uniqueConstraints = @UniqueConstraint(name = "uk_estadisticas_reservas_clave",
+                columnNames = {"fuente", "ambito", "entidad_id", "periodo", "estado"}))
+public class EstadisticaReserva {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // PLAN o CARRITO
+    @Column(nullable = false, length = 10)
+    private String fuente;
+    
+    // USUARIO, EMPRENDEDOR, MUNICIPALIDAD o GLOBAL
+    @Column(nullable = false, length = 15)
+    private String ambito;
+    
+    @Column(name = "entidad_id", nullable = false)
+    private Long entidadId;
+    
+    // TOTAL o yyyy-MM
+    @Column(nullable = false, length = 7)
+    private String periodo;
+    
+    @Column(nullable = false, length = 20)
+    private String estado;
+    
+    @Column(nullable = false)
+    private Long cantidad;
+    
+    @Column(nullable = false)
+    private Long montoCentimos;
+}
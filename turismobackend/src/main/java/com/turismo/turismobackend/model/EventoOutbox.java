@@ -0,0 +1,86 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Evento de dominio guardado en la misma transacción que el cambio que lo origina.
+// El despachador lo entrega después a los suscriptores, con reintentos si alguno falla
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "eventos_outbox", indexes = {
+        @Index(name = "idx_eventos_outbox_estado_intento", columnList = "estado, proximo_intento")
+})
+public class EventoOutbox {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private TipoEvento tipo;
+    
+    // PLAN o CARRITO
+    @Column(nullable = false, length = 20)
+    private String fuente;
+    
+    @Column(nullable = false)
+    private Long agregadoId;
+    
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+    
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoEvento estado = EstadoEvento.PENDIENTE;
+    
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer intentos = 0;
+    
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+    
+    // Reserva temporal del evento por un despachador, para no procesarlo dos veces a la vez
+    private LocalDateTime bloqueadoHasta;
+    
+    @Column(length = 500)
+    private String ultimoError;
+    
+    @Column(nullable = false)
+    private LocalDateTime fechaCreacion;
+    
+    private LocalDateTime fechaProcesado;
+    
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        if (proximoIntento == null) {
+            proximoIntento = fechaCreacion;
+        }
+    }
+    
+    public enum TipoEvento {
+        RESERVA_CREADA,
+        RESERVA_CONFIRMADA,
+        RESERVA_CANCELADA,
+        // Items cancelados de una reserva de carrito que sigue activa
+        RESERVA_ITEMS_CANCELADOS,
+        PAGO_CONFIRMADO
+    }
+    
+    public enum EstadoEvento {
+        PENDIENTE,
+        PROCESADO,
+        FALLIDO
+    }
+}
@@ -0,0 +1,35 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Registro de que un suscriptor ya procesó un evento; se guarda en la misma transacción
+// que el efecto del suscriptor, así un reintento no lo repite
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "eventos_outbox_entregas",
+        uniqueConstraints = @UniqueConstraint(name = "uk_eventos_outbox_entregas",
+                columnNames = {"evento_id", "suscriptor"}))
+public class EventoOutboxEntrega {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "evento_id", nullable = false)
+    private Long eventoId;
+    
+    @Column(nullable = false, length = 100)
+    private String suscriptor;
+    
+    @Column(nullable = false)
+    private LocalDateTime fechaEntrega;
+}
@@ -0,0 +1,57 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Resumen diario de ingresos en céntimos. Se actualiza al confirmar pagos y se puede reconstruir
+// desde el histórico. Un id 0 indica que no hay municipalidad o emprendedor (p. ej. pagos de planes)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "ingresos_diarios",
+        uniqueConstraints = @UniqueConstraint(name = "uk_ingresos_diarios_clave",
+                columnNames = {"municipalidad_id", "emprendedor_id", "fecha", "metodo_pago"}),
+        indexes = {
+                @Index(name = "idx_ingresos_diarios_fecha", columnList = "fecha"),
+                @Index(name = "idx_ingresos_diarios_emprendedor_fecha", columnList = "emprendedor_id, fecha")
+        })
+public class IngresoDiario {
+    
+    public static final long SIN_ID = 0L;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "municipalidad_id", nullable = false)
+    private Long municipalidadId;
+    
+    @Column(name = "emprendedor_id", nullable = false)
+    private Long emprendedorId;
+    
+    @Column(nullable = false)
+    private LocalDate fecha;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metodo_pago", nullable = false, length = 20)
+    private Pago.MetodoPago metodoPago;
+    
+    @Column(nullable = false)
+    private Long montoConfirmadoCentimos;
+    
+    @Column(nullable = false)
+    private Integer cantidadConfirmados;
+    
+    @Column(nullable = false)
+    private Long montoReembolsadoCentimos;
+    
+    @Column(nullable = false)
+    private Integer cantidadReembolsados;
+}
@@ -0,0 +1,28 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Fila única que coordina ingresos_diarios: las actualizaciones en línea la leen con bloqueo compartido
+// y la reconstrucción con bloqueo exclusivo, así no se mezclan ni cuentan un pago dos veces
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "ingresos_reconstruccion")
+public class IngresoReconstruccion {
+    
+    public static final long ID = 1L;
+    
+    @Id
+    private Long id;
+    
+    @Column(name = "ultima_reconstruccion")
+    private LocalDateTime ultimaReconstruccion;
+}
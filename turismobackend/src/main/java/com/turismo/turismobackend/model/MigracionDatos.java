@@ -0,0 +1,26 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Migraciones de datos ya aplicadas; DataInitializer no las vuelve a ejecutar en cada arranque
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "migraciones_datos")
+public class MigracionDatos {
+    
+    @Id
+    @Column(length = 100)
+    private String nombre;
+    
+    @Column(name = "fecha_aplicacion", nullable = false)
+    private LocalDateTime fechaAplicacion;
+}
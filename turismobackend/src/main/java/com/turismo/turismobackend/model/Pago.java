@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "pagos")
+@Table(name = "pagos", indexes = @Index(name = "idx_pagos_numero_transaccion", columnList = "numero_transaccion"))
 public class Pago {
     
     @Id
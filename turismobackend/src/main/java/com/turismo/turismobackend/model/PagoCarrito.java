@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "pagos_carrito")
+@Table(name = "pagos_carrito", indexes = @Index(name = "idx_pagos_carrito_numero_transaccion", columnList = "numero_transaccion"))
 public class PagoCarrito {
     
     @Id
@@ -3,15 +3,21 @@ package com.turismo.turismobackend.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.LazyGroup;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
-@Data
+// Sin @Data para no cargar textos perezosos ni colecciones desde equals/hashCode/toString
+@Getter
+@Setter
+@ToString(onlyExplicitlyIncluded = true)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,8 +27,10 @@ public class PlanTuristico {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ToString.Include
     private Long id;
     
+    @ToString.Include
     @Column(nullable = false)
     private String nombre;
     
@@ -48,18 +56,29 @@ public class PlanTuristico {
     
     private String imagenPrincipalUrl;
     
+    // Textos largos del detalle: se cargan juntos en una consulta aparte solo cuando se lee alguno
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String itinerario;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String incluye;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String noIncluye;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String recomendaciones;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String requisitos;
     
@@ -94,6 +113,23 @@ public class PlanTuristico {
         fechaActualizacion = LocalDateTime.now();
     }
     
+    // Identidad por id: una entidad nueva (sin id) solo es igual a sí misma
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PlanTuristico otro)) {
+            return false;
+        }
+        return id != null && id.equals(otro.getId());
+    }
+    
+    @Override
+    public int hashCode() {
+        return PlanTuristico.class.hashCode();
+    }
+    
     public enum EstadoPlan {
         BORRADOR,
         ACTIVO,
@@ -18,7 +18,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "reservas")
+@Table(name = "reservas", indexes = {
+        @Index(name = "idx_reservas_estado_fecha_inicio", columnList = "estado, fecha_inicio"),
+        @Index(name = "idx_reservas_estado_fecha_fin", columnList = "estado, fecha_fin")
+})
 public class Reserva {
     
     @Id
@@ -54,6 +57,15 @@ public class Reserva {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal montoFinal;
     
+    // Suma de los pagos confirmados; se acumula al confirmar cada pago en lugar de recalcularla con SUM
+    @Builder.Default
+    @Column(precision = 10, scale = 2)
+    private BigDecimal montoPagado = BigDecimal.ZERO;
+    
+    // Bloqueo optimista: dos confirmaciones simultáneas no pueden pisar el monto pagado
+    @Version
+    private Long version;
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private EstadoReserva estado;
@@ -97,6 +109,33 @@ public class Reserva {
         return 0;
     }
     
+    public void sumarPagoConfirmado(BigDecimal monto) {
+        montoPagado = (montoPagado != null ? montoPagado : BigDecimal.ZERO).add(monto);
+    }
+    
+    // Un pago reembolsado deja de contar como pagado; el estado de la reserva no cambia
+    public void restarPagoReembolsado(BigDecimal monto) {
+        montoPagado = (montoPagado != null ? montoPagado : BigDecimal.ZERO).subtract(monto).max(BigDecimal.ZERO);
+    }
+    
+    // Comparación exacta con BigDecimal (céntimos incluidos)
+    public boolean isPagadaCompleta() {
+        return montoPagado != null && montoPagado.compareTo(montoFinal) >= 0;
+    }
+    
+    public boolean tienePagos() {
+        return montoPagado != null && montoPagado.signum() > 0;
+    }
+    
+    // PAGADA al cubrir el monto final; con pagos parciales una reserva pendiente pasa a CONFIRMADA
+    public void actualizarEstadoPorPagos() {
+        if (isPagadaCompleta()) {
+            estado = EstadoReserva.PAGADA;
+        } else if (tienePagos() && estado == EstadoReserva.PENDIENTE) {
+            estado = EstadoReserva.CONFIRMADA;
+        }
+    }
+    
     // FIX: Método para verificar si está activa
     public boolean isActiva() {
         return estado != EstadoReserva.CANCELADA && 
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,7 +17,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "reservas_carrito")
+@Table(name = "reservas_carrito", indexes = {
+        @Index(name = "idx_reservas_carrito_estado_fecha_inicio", columnList = "estado, fecha_inicio"),
+        @Index(name = "idx_reservas_carrito_estado_fecha_fin", columnList = "estado, fecha_fin")
+})
 public class ReservaCarrito {
     
     @Id
@@ -39,6 +43,15 @@ public class ReservaCarrito {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal montoFinal;
     
+    // Suma de los pagos confirmados; se acumula al confirmar cada pago en lugar de recalcularla con SUM
+    @Builder.Default
+    @Column(precision = 10, scale = 2)
+    private BigDecimal montoPagado = BigDecimal.ZERO;
+    
+    // Bloqueo optimista: dos confirmaciones simultáneas no pueden pisar el monto pagado
+    @Version
+    private Long version;
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private EstadoReservaCarrito estado;
@@ -56,6 +69,11 @@ public class ReservaCarrito {
     @Column(nullable = false)
     private LocalDateTime fechaReserva;
     
+    // Primera y última fecha de servicio de los items, para las transiciones de estado por fecha
+    private LocalDate fechaInicio;
+    
+    private LocalDate fechaFin;
+    
     private LocalDateTime fechaConfirmacion;
     
     private LocalDateTime fechaCancelacion;
@@ -77,6 +95,28 @@ public class ReservaCarrito {
     @OneToMany(mappedBy = "reservaCarrito", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ChatConversacion> conversaciones = new ArrayList<>();
     
+    public void sumarPagoConfirmado(BigDecimal monto) {
+        montoPagado = (montoPagado != null ? montoPagado : BigDecimal.ZERO).add(monto);
+    }
+    
+    // Comparación exacta con BigDecimal (céntimos incluidos)
+    public boolean isPagadaCompleta() {
+        return montoPagado != null && montoPagado.compareTo(montoFinal) >= 0;
+    }
+    
+    public boolean tienePagos() {
+        return montoPagado != null && montoPagado.signum() > 0;
+    }
+    
+    // PAGADA al cubrir el monto final; con pagos parciales una reserva pendiente pasa a CONFIRMADA
+    public void actualizarEstadoPorPagos() {
+        if (isPagadaCompleta()) {
+            estado = EstadoReservaCarrito.PAGADA;
+        } else if (tienePagos() && estado == EstadoReservaCarrito.PENDIENTE) {
+            estado = EstadoReservaCarrito.CONFIRMADA;
+        }
+    }
+    
     @PrePersist
     protected void onCreate() {
         fechaReserva = LocalDateTime.now();
@@ -8,13 +8,17 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "reserva_carrito_items")
+@Table(name = "reserva_carrito_items", indexes = {
+        @Index(name = "idx_rci_emprendedor_fecha_estado", columnList = "emprendedor_id, fecha_servicio, estado"),
+        @Index(name = "idx_rci_emprendedor_version_agenda", columnList = "emprendedor_id, version_agenda")
+})
 public class ReservaCarritoItem {
     
     @Id
@@ -29,6 +33,11 @@ public class ReservaCarritoItem {
     @JoinColumn(name = "servicio_id", nullable = false)
     private ServicioTuristico servicio;
     
+    // Copia del emprendedor del servicio al momento del checkout, para filtrar sin pasar por servicios_turisticos.
+    // Se mapea nulable para que ddl-auto agregue la columna con NULL; DataInitializer la hace NOT NULL tras completarla
+    @Column(name = "emprendedor_id")
+    private Long emprendedorId;
+    
     @Column(nullable = false)
     private Integer cantidad;
     
@@ -45,6 +54,19 @@ public class ReservaCarritoItem {
     @Column(nullable = false)
     private EstadoItemReserva estado;
     
+    private LocalDateTime fechaActualizacion;
+    
+    // Versión de agenda_versiones con la que cambió el item, para el refresco incremental de la agenda.
+    // Solo la escribe AgendaEmprendedorService.registrarCambios
+    @Column(name = "version_agenda", insertable = false, updatable = false)
+    private Long versionAgenda;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        fechaActualizacion = LocalDateTime.now();
+    }
+    
     // MÉTODO PARA CALCULAR SUBTOTAL
     public BigDecimal getSubtotal() {
         return precioUnitario.multiply(BigDecimal.valueOf(cantidad));
@@ -0,0 +1,52 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Respuesta guardada para una Idempotency-Key. Mientras la petición original se ejecuta la fila
+// queda EN_CURSO con un vencimiento corto, que el nodo renueva; al terminar guarda el cuerpo y
+// vence tras el TTL
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "respuestas_idempotentes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_respuestas_idempotentes_clave", columnNames = "clave"),
+        indexes = @Index(name = "idx_respuestas_idempotentes_expira", columnList = "expira_en"))
+public class RespuestaIdempotente {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // usuario:operación:Idempotency-Key
+    @Column(nullable = false, length = 255)
+    private String clave;
+    
+    // SHA-256 del cuerpo de la petición, para rechazar la misma clave con otro contenido
+    @Column(nullable = false, length = 64)
+    private String huella;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Estado estado;
+    
+    private Integer codigoHttp;
+    
+    @Column(columnDefinition = "TEXT")
+    private String cuerpo;
+    
+    @Column(name = "expira_en", nullable = false)
+    private LocalDateTime expiraEn;
+    
+    public enum Estado {
+        EN_CURSO,
+        COMPLETADA
+    }
+}
@@ -3,14 +3,20 @@ package com.turismo.turismobackend.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.LazyGroup;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
-@Data
+// Sin @Data para no cargar textos perezosos ni colecciones desde equals/hashCode/toString
+@Getter
+@Setter
+@ToString(onlyExplicitlyIncluded = true)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,8 +26,10 @@ public class ServicioTuristico {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ToString.Include
     private Long id;
     
+    @ToString.Include
     @Column(nullable = false)
     private String nombre;
     
@@ -54,12 +62,18 @@ public class ServicioTuristico {
     @Column(name = "longitud")
     private Double longitud;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String requisitos;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String incluye;
     
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("detalle")
     @Column(columnDefinition = "TEXT")
     private String noIncluye;
     
@@ -85,6 +99,23 @@ public class ServicioTuristico {
                longitud >= -180 && longitud <= 180;
     }
     
+    // Identidad por id: una entidad nueva (sin id) solo es igual a sí misma
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ServicioTuristico otro)) {
+            return false;
+        }
+        return id != null && id.equals(otro.getId());
+    }
+    
+    @Override
+    public int hashCode() {
+        return ServicioTuristico.class.hashCode();
+    }
+    
     public enum TipoServicio {
         ALOJAMIENTO,
         TRANSPORTE,
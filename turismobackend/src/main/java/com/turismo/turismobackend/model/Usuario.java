@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -44,11 +46,17 @@ public class Usuario implements UserDetails {
     @Column(nullable = false)
     private String password;
     
+    // Colección en caché de segundo nivel: guarda solo los ids de Rol, que también está en caché
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(name = "usuario_roles",
             joinColumns = @JoinColumn(name = "usuario_id"),
             inverseJoinColumns = @JoinColumn(name = "rol_id"))
     private Set<Rol> roles = new HashSet<>();
+    
+    // Se incrementa al cambiar roles o vínculos; invalida los tokens con claims emitidos antes
+    @Column(name = "token_version")
+    private Integer tokenVersion;
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
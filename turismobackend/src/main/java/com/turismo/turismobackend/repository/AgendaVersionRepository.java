@@ -0,0 +1,37 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.AgendaVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface AgendaVersionRepository extends JpaRepository<AgendaVersion, Long> {
+    
+    @Query("SELECT v.version FROM AgendaVersion v WHERE v.emprendedorId = :emprendedorId")
+    Optional<Long> findVersion(@Param("emprendedorId") Long emprendedorId);
+    
+    // Fila inicial de los emprendedores de esas reservas que aún no la tienen
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO agenda_versiones (emprendedor_id, version) " +
+            "SELECT DISTINCT emprendedor_id, 0 FROM reserva_carrito_items WHERE reserva_carrito_id IN :reservaCarritoIds",
+            nativeQuery = true)
+    void crearFaltantes(@Param("reservaCarritoIds") Collection<Long> reservaCarritoIds);
+    
+    // Bloquea la fila de cada emprendedor hasta el commit
+    @Modifying
+    @Query(value = "UPDATE agenda_versiones SET version = version + 1 WHERE emprendedor_id IN " +
+            "(SELECT emprendedor_id FROM reserva_carrito_items WHERE reserva_carrito_id IN :reservaCarritoIds)",
+            nativeQuery = true)
+    int incrementar(@Param("reservaCarritoIds") Collection<Long> reservaCarritoIds);
+    
+    @Modifying
+    @Query(value = "UPDATE reserva_carrito_items ri JOIN agenda_versiones v ON v.emprendedor_id = ri.emprendedor_id " +
+            "SET ri.version_agenda = v.version WHERE ri.reserva_carrito_id IN :reservaCarritoIds", nativeQuery = true)
+    int marcarItems(@Param("reservaCarritoIds") Collection<Long> reservaCarritoIds);
+}
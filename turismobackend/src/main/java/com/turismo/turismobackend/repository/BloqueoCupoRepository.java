@@ -0,0 +1,50 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.BloqueoCupo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BloqueoCupoRepository extends JpaRepository<BloqueoCupo, Long> {
+    
+    Optional<BloqueoCupo> findByCarritoItemId(Long carritoItemId);
+    
+    List<BloqueoCupo> findByCarritoItemIdIn(Collection<Long> carritoItemIds);
+    
+    // Personas con cupo apartado y vigente, sin contar los items indicados (los del propio carrito)
+    @Query("SELECT COALESCE(SUM(b.cantidad), 0) FROM BloqueoCupo b WHERE b.servicioId = :servicioId " +
+           "AND b.fechaServicio = :fecha AND b.expiraEn > :ahora AND b.carritoItemId NOT IN :excluidos")
+    Long sumarVigentes(@Param("servicioId") Long servicioId,
+                       @Param("fecha") LocalDate fecha,
+                       @Param("ahora") LocalDateTime ahora,
+                       @Param("excluidos") Collection<Long> excluidos);
+    
+    // Carga de la rueda al arrancar: [id, expiraEn]
+    @Query("SELECT b.id, b.expiraEn FROM BloqueoCupo b WHERE b.expiraEn > :ahora")
+    List<Object[]> findVigentes(@Param("ahora") LocalDateTime ahora);
+    
+    // Un bloqueo renovado después de programarse tiene expiraEn posterior y no se borra
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM BloqueoCupo b WHERE b.id IN :ids AND b.expiraEn <= :ahora")
+    int eliminarVencidos(@Param("ids") Collection<Long> ids, @Param("ahora") LocalDateTime ahora);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM BloqueoCupo b WHERE b.expiraEn <= :ahora")
+    int eliminarTodosVencidos(@Param("ahora") LocalDateTime ahora);
+    
+    @Modifying
+    @Query("DELETE FROM BloqueoCupo b WHERE b.carritoItemId IN :carritoItemIds")
+    int eliminarPorItems(@Param("carritoItemIds") Collection<Long> carritoItemIds);
+}
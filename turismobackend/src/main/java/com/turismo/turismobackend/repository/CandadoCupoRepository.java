@@ -0,0 +1,20 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.CandadoCupo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface CandadoCupoRepository extends JpaRepository<CandadoCupo, Long> {
+    
+    // Crea la fila si no existe; en ambos casos InnoDB la deja bloqueada hasta el fin de la transacción
+    @Modifying
+    @Query(value = "INSERT INTO candados_cupo (tipo, recurso_id, fecha) VALUES (:tipo, :recursoId, :fecha) " +
+            "ON DUPLICATE KEY UPDATE recurso_id = recurso_id", nativeQuery = true)
+    int bloquear(@Param("tipo") String tipo, @Param("recursoId") Long recursoId, @Param("fecha") LocalDate fecha);
+}
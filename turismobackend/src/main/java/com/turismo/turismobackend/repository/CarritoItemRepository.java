@@ -20,6 +20,10 @@ public interface CarritoItemRepository extends JpaRepository<CarritoItem, Long>
     Optional<CarritoItem> findByCarritoIdAndServicioIdAndFechaServicio(
             Long carritoId, Long servicioId, LocalDate fechaServicio);
     
+    // Líneas del carrito con su servicio y emprendedor, en una sola consulta
+    @Query("SELECT ci FROM CarritoItem ci JOIN FETCH ci.servicio s JOIN FETCH s.emprendedor WHERE ci.carrito.id = :carritoId")
+    List<CarritoItem> findByCarritoIdConServicio(@Param("carritoId") Long carritoId);
+    
     @Query("SELECT ci FROM CarritoItem ci WHERE ci.carrito.usuario.id = :usuarioId AND ci.servicio.id = :servicioId")
     List<CarritoItem> findByUsuarioIdAndServicioId(@Param("usuarioId") Long usuarioId, 
                                                    @Param("servicioId") Long servicioId);
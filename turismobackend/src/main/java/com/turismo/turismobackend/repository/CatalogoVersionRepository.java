@@ -0,0 +1,22 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.CatalogoVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CatalogoVersionRepository extends JpaRepository<CatalogoVersion, String> {
+    
+    // Incremento atómico; crea la fila con versión 1 la primera vez
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO catalogo_versiones (tipo, version, fecha_modificacion) VALUES (:tipo, 1, :fecha) " +
+            "ON DUPLICATE KEY UPDATE version = version + 1, fecha_modificacion = :fecha", nativeQuery = true)
+    void incrementar(@Param("tipo") String tipo, @Param("fecha") LocalDateTime fecha);
+}
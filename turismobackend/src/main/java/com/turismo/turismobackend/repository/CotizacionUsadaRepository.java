@@ -0,0 +1,27 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.CotizacionUsada;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CotizacionUsadaRepository extends JpaRepository<CotizacionUsada, String> {
+    
+    // Se une a la transacción de la reserva: 0 filas si el token ya se usó. Si la reserva se
+    // revierte el token queda libre otra vez
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO cotizaciones_usadas (jti, expira_en) VALUES (:jti, :expiraEn)", nativeQuery = true)
+    int registrar(@Param("jti") String jti, @Param("expiraEn") LocalDateTime expiraEn);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CotizacionUsada c WHERE c.expiraEn <= :ahora")
+    int eliminarVencidas(@Param("ahora") LocalDateTime ahora);
+}
@@ -5,8 +5,11 @@ import com.turismo.turismobackend.model.Emprendedor;
 import com.turismo.turismobackend.model.Municipalidad;
 import com.turismo.turismobackend.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +17,14 @@ import java.util.Optional;
 public interface EmprendedorRepository extends JpaRepository<Emprendedor, Long> {
     Optional<Emprendedor> findByUsuario(Usuario usuario);
     Optional<Emprendedor> findByUsuarioId(Long usuarioId);
+    
+    @Query("SELECT e.id FROM Emprendedor e WHERE e.usuario.id = :usuarioId")
+    Optional<Long> findIdByUsuarioId(@Param("usuarioId") Long usuarioId);
+    
+    // [emprendedor, municipalidad] de los emprendedores que tienen municipalidad
+    @Query("SELECT e.id, e.municipalidad.id FROM Emprendedor e WHERE e.id IN :ids AND e.municipalidad IS NOT NULL")
+    List<Object[]> findMunicipalidadIds(@Param("ids") Collection<Long> ids);
+    
     List<Emprendedor> findByMunicipalidad(Municipalidad municipalidad);
     List<Emprendedor> findByMunicipalidadId(Long municipalidadId);
     List<Emprendedor> findByRubro(String rubro);
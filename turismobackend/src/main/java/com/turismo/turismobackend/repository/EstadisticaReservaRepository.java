@@ -0,0 +1,29 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.EstadisticaReserva;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EstadisticaReservaRepository extends JpaRepository<EstadisticaReserva, Long> {
+    
+    // Suma un incremento al contador: varias instancias pueden guardar el mismo contador sin pisarse
+    @Modifying
+    @Query(value = "INSERT INTO estadisticas_reservas (fuente, ambito, entidad_id, periodo, estado, cantidad, monto_centimos) " +
+            "VALUES (:fuente, :ambito, :entidadId, :periodo, :estado, :cantidad, :montoCentimos) " +
+            "ON DUPLICATE KEY UPDATE cantidad = cantidad + :cantidad, monto_centimos = monto_centimos + :montoCentimos", nativeQuery = true)
+    void acumular(@Param("fuente") String fuente,
+                  @Param("ambito") String ambito,
+                  @Param("entidadId") Long entidadId,
+                  @Param("periodo") String periodo,
+                  @Param("estado") String estado,
+                  @Param("cantidad") long cantidad,
+                  @Param("montoCentimos") long montoCentimos);
+    
+    @Modifying
+    @Query("DELETE FROM EstadisticaReserva e")
+    int eliminarTodo();
+}
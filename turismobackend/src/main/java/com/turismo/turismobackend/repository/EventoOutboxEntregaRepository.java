@@ -0,0 +1,24 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.EventoOutboxEntrega;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Repository
+public interface EventoOutboxEntregaRepository extends JpaRepository<EventoOutboxEntrega, Long> {
+    
+    @Query("SELECT e.suscriptor FROM EventoOutboxEntrega e WHERE e.eventoId = :eventoId")
+    Set<String> findSuscriptoresByEventoId(@Param("eventoId") Long eventoId);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EventoOutboxEntrega e WHERE e.fechaEntrega < :limite")
+    int eliminarAntesDe(@Param("limite") LocalDateTime limite);
+}
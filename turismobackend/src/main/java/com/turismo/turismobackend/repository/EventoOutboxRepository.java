@@ -0,0 +1,35 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.EventoOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+    
+    @Query("SELECT e.id FROM EventoOutbox e WHERE e.estado = 'PENDIENTE' AND e.proximoIntento <= :ahora " +
+           "AND (e.bloqueadoHasta IS NULL OR e.bloqueadoHasta < :ahora) ORDER BY e.proximoIntento, e.id")
+    List<Long> findIdsPendientes(@Param("ahora") LocalDateTime ahora, Pageable pageable);
+    
+    // Toma el evento si nadie lo tiene; devuelve 0 si otro despachador se adelantó
+    @Modifying
+    @Transactional
+    @Query("UPDATE EventoOutbox e SET e.bloqueadoHasta = :hasta WHERE e.id = :id AND e.estado = 'PENDIENTE' " +
+           "AND (e.bloqueadoHasta IS NULL OR e.bloqueadoHasta < :ahora)")
+    int bloquear(@Param("id") Long id, @Param("ahora") LocalDateTime ahora, @Param("hasta") LocalDateTime hasta);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EventoOutbox e WHERE e.estado = 'PROCESADO' AND e.fechaProcesado < :limite")
+    int eliminarProcesadosAntesDe(@Param("limite") LocalDateTime limite);
+    
+    long countByEstado(EventoOutbox.EstadoEvento estado);
+}
@@ -0,0 +1,53 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.IngresoDiario;
+import com.turismo.turismobackend.model.Pago;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface IngresoDiarioRepository extends JpaRepository<IngresoDiario, Long> {
+    
+    // Suma atómica sobre la fila del día; la crea si no existe
+    @Modifying
+    @Query(value = "INSERT INTO ingresos_diarios (municipalidad_id, emprendedor_id, fecha, metodo_pago, " +
+            "monto_confirmado_centimos, cantidad_confirmados, monto_reembolsado_centimos, cantidad_reembolsados) " +
+            "VALUES (:municipalidadId, :emprendedorId, :fecha, :metodoPago, :montoConfirmado, :cantidadConfirmados, " +
+            ":montoReembolsado, :cantidadReembolsados) " +
+            "ON DUPLICATE KEY UPDATE monto_confirmado_centimos = monto_confirmado_centimos + :montoConfirmado, " +
+            "cantidad_confirmados = cantidad_confirmados + :cantidadConfirmados, " +
+            "monto_reembolsado_centimos = monto_reembolsado_centimos + :montoReembolsado, " +
+            "cantidad_reembolsados = cantidad_reembolsados + :cantidadReembolsados", nativeQuery = true)
+    void acumular(@Param("municipalidadId") Long municipalidadId,
+                  @Param("emprendedorId") Long emprendedorId,
+                  @Param("fecha") LocalDate fecha,
+                  @Param("metodoPago") String metodoPago,
+                  @Param("montoConfirmado") long montoConfirmado,
+                  @Param("cantidadConfirmados") int cantidadConfirmados,
+                  @Param("montoReembolsado") long montoReembolsado,
+                  @Param("cantidadReembolsados") int cantidadReembolsados);
+    
+    @Modifying
+    @Query("DELETE FROM IngresoDiario i")
+    int eliminarTodo();
+    
+    // Serie diaria: [fecha, confirmado, cantidad confirmados, reembolsado, cantidad reembolsados]
+    @Query("SELECT i.fecha, SUM(i.montoConfirmadoCentimos), SUM(i.cantidadConfirmados), " +
+           "SUM(i.montoReembolsadoCentimos), SUM(i.cantidadReembolsados) FROM IngresoDiario i " +
+           "WHERE i.fecha BETWEEN :desde AND :hasta " +
+           "AND (:municipalidadId IS NULL OR i.municipalidadId = :municipalidadId) " +
+           "AND (:emprendedorId IS NULL OR i.emprendedorId = :emprendedorId) " +
+           "AND (:metodoPago IS NULL OR i.metodoPago = :metodoPago) " +
+           "GROUP BY i.fecha ORDER BY i.fecha")
+    List<Object[]> sumarPorDia(@Param("desde") LocalDate desde,
+                               @Param("hasta") LocalDate hasta,
+                               @Param("municipalidadId") Long municipalidadId,
+                               @Param("emprendedorId") Long emprendedorId,
+                               @Param("metodoPago") Pago.MetodoPago metodoPago);
+}
@@ -0,0 +1,32 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.IngresoReconstruccion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IngresoReconstruccionRepository extends JpaRepository<IngresoReconstruccion, Long> {
+    
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO ingresos_reconstruccion (id) VALUES (1)", nativeQuery = true)
+    void crearSiNoExiste();
+    
+    // Lo toma cada actualización en línea; varias pueden tenerlo a la vez
+    @Query(value = "SELECT id FROM ingresos_reconstruccion WHERE id = 1 FOR SHARE", nativeQuery = true)
+    Long bloquearCompartido();
+    
+    // Lo toma la reconstrucción: espera a las actualizaciones en curso y detiene las nuevas hasta el commit
+    @Query(value = "SELECT id FROM ingresos_reconstruccion WHERE id = 1 FOR UPDATE", nativeQuery = true)
+    Long bloquearExclusivo();
+    
+    @Modifying
+    @Query("UPDATE IngresoReconstruccion i SET i.ultimaReconstruccion = :fecha WHERE i.id = 1")
+    int registrarReconstruccion(@Param("fecha") LocalDateTime fecha);
+}
@@ -0,0 +1,21 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.MigracionDatos;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface MigracionDatosRepository extends JpaRepository<MigracionDatos, String> {
+    
+    // Sin error si otra instancia que arrancó a la vez ya la registró
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO migraciones_datos (nombre, fecha_aplicacion) VALUES (:nombre, :fecha)", nativeQuery = true)
+    void registrar(@Param("nombre") String nombre, @Param("fecha") LocalDateTime fecha);
+}
@@ -3,6 +3,8 @@ package com.turismo.turismobackend.repository;
 import com.turismo.turismobackend.model.Municipalidad;
 import com.turismo.turismobackend.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,6 +14,9 @@ import java.util.Optional;
 public interface MunicipalidadRepository extends JpaRepository<Municipalidad, Long> {
     Optional<Municipalidad> findByUsuario(Usuario usuario);
     Optional<Municipalidad> findByUsuarioId(Long usuarioId);
+    
+    @Query("SELECT m.id FROM Municipalidad m WHERE m.usuario.id = :usuarioId")
+    Optional<Long> findIdByUsuarioId(@Param("usuarioId") Long usuarioId);
     List<Municipalidad> findByDepartamento(String departamento);
     List<Municipalidad> findByProvincia(String provincia);
     List<Municipalidad> findByDistrito(String distrito);
@@ -2,12 +2,15 @@ package com.turismo.turismobackend.repository;
 
 import com.turismo.turismobackend.model.PagoCarrito;
 import com.turismo.turismobackend.model.Pago;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,4 +35,31 @@ public interface PagoCarritoRepository extends JpaRepository<PagoCarrito, Long>
     
     @Query("SELECT p FROM PagoCarrito p WHERE p.reservaCarrito.id = :reservaCarritoId AND p.estado = 'CONFIRMADO'")
     List<PagoCarrito> findPagosConfirmadosByReservaCarrito(@Param("reservaCarritoId") Long reservaCarritoId);
+    
+    // Conciliación: búsqueda por los índices de codigoPago y numeroTransaccion
+    @Query("SELECT p FROM PagoCarrito p JOIN FETCH p.reservaCarrito r " +
+           "WHERE p.codigoPago IN :referencias OR p.numeroTransaccion IN :referencias")
+    List<PagoCarrito> findByReferencias(@Param("referencias") Collection<String> referencias);
+    
+    // Relectura tras la conciliación, con lo que necesitan el resumen de ingresos y el outbox
+    @Query("SELECT p FROM PagoCarrito p JOIN FETCH p.reservaCarrito r WHERE p.id IN :ids")
+    List<PagoCarrito> findConReservaByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("UPDATE PagoCarrito p SET p.estado = 'CONFIRMADO', p.fechaConfirmacion = :fecha " +
+           "WHERE p.id IN :ids AND p.estado IN ('PENDIENTE', 'PROCESANDO')")
+    int confirmarPendientes(@Param("ids") Collection<Long> ids, @Param("fecha") LocalDateTime fecha);
+    
+    @Modifying
+    @Query("UPDATE PagoCarrito p SET p.estado = 'FALLIDO', " +
+           "p.observaciones = CONCAT(COALESCE(p.observaciones, ''), ' | Motivo rechazo: ', :motivo) " +
+           "WHERE p.id IN :ids AND p.estado IN ('PENDIENTE', 'PROCESANDO')")
+    int rechazarPendientes(@Param("ids") Collection<Long> ids, @Param("motivo") String motivo);
+    
+    // Histórico para reconstruir ingresos_diarios, por páginas de id creciente:
+    // [id, monto, metodoPago, fecha de confirmación, reserva de carrito, estado]
+    @Query("SELECT p.id, p.monto, p.metodoPago, COALESCE(p.fechaConfirmacion, p.fechaPago), p.reservaCarrito.id, p.estado " +
+           "FROM PagoCarrito p " +
+           "WHERE p.id > :desdeId AND p.estado IN ('CONFIRMADO', 'REEMBOLSADO') ORDER BY p.id")
+    List<Object[]> findHistoricoIngresos(@Param("desdeId") Long desdeId, Pageable pageable);
 }
\ No newline at end of file
@@ -1,12 +1,15 @@
 package com.turismo.turismobackend.repository;
 
 import com.turismo.turismobackend.model.Pago;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,4 +41,32 @@ public interface PagoRepository extends JpaRepository<Pago, Long> {
     
     @Query("SELECT SUM(p.monto) FROM Pago p WHERE p.reserva.id = :reservaId AND p.estado = 'CONFIRMADO'")
     Long getTotalPagadoByReserva(@Param("reservaId") Long reservaId);
+    
+    // Conciliación: búsqueda por los índices de codigoPago y numeroTransaccion
+    @Query("SELECT p FROM Pago p JOIN FETCH p.reserva r JOIN FETCH r.plan pl " +
+           "WHERE p.codigoPago IN :referencias OR p.numeroTransaccion IN :referencias")
+    List<Pago> findByReferencias(@Param("referencias") Collection<String> referencias);
+    
+    // Relectura tras la conciliación, con lo que necesitan el resumen de ingresos y el outbox
+    @Query("SELECT p FROM Pago p JOIN FETCH p.reserva r JOIN FETCH r.plan pl JOIN FETCH pl.municipalidad " +
+           "WHERE p.id IN :ids")
+    List<Pago> findConReservaByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("UPDATE Pago p SET p.estado = 'CONFIRMADO', p.fechaConfirmacion = :fecha " +
+           "WHERE p.id IN :ids AND p.estado IN ('PENDIENTE', 'PROCESANDO')")
+    int confirmarPendientes(@Param("ids") Collection<Long> ids, @Param("fecha") LocalDateTime fecha);
+    
+    @Modifying
+    @Query("UPDATE Pago p SET p.estado = 'FALLIDO', " +
+           "p.observaciones = CONCAT(COALESCE(p.observaciones, ''), ' | Motivo rechazo: ', :motivo) " +
+           "WHERE p.id IN :ids AND p.estado IN ('PENDIENTE', 'PROCESANDO')")
+    int rechazarPendientes(@Param("ids") Collection<Long> ids, @Param("motivo") String motivo);
+    
+    // Histórico para reconstruir ingresos_diarios, por páginas de id creciente:
+    // [id, monto, metodoPago, fecha de confirmación, municipalidad del plan, estado]
+    @Query("SELECT p.id, p.monto, p.metodoPago, COALESCE(p.fechaConfirmacion, p.fechaPago), pl.municipalidad.id, p.estado " +
+           "FROM Pago p JOIN p.reserva r JOIN r.plan pl " +
+           "WHERE p.id > :desdeId AND p.estado IN ('CONFIRMADO', 'REEMBOLSADO') ORDER BY p.id")
+    List<Object[]> findHistoricoIngresos(@Param("desdeId") Long desdeId, Pageable pageable);
 }
\ No newline at end of file
@@ -1,17 +1,27 @@
 package com.turismo.turismobackend.repository;
 
 import com.turismo.turismobackend.model.PlanTuristico;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PlanTuristicoRepository extends JpaRepository<PlanTuristico, Long> {
     
+    // Precio del plan según sus servicios, igual que al crearlo: suma de las filas obligatorias
+    // con su precio especial o, si no tiene, el precio actual del servicio
+    String PRECIO_CALCULADO = "(SELECT COALESCE(SUM(COALESCE(sp.precio_especial, s.precio)), 0) " +
+            "FROM servicios_planes sp JOIN servicios_turisticos s ON s.id = sp.servicio_id " +
+            "WHERE sp.plan_id = p.id AND sp.es_opcional = false)";
+    
     List<PlanTuristico> findByMunicipalidadId(Long municipalidadId);
     
     List<PlanTuristico> findByUsuarioCreadorId(Long usuarioId);
@@ -39,4 +49,29 @@ public interface PlanTuristicoRepository extends JpaRepository<PlanTuristico, Lo
     
     @Query("SELECT p FROM PlanTuristico p WHERE SIZE(p.reservas) > 0 ORDER BY SIZE(p.reservas) DESC")
     List<PlanTuristico> findMostPopular();
+    
+    @Query("SELECT p.id FROM PlanTuristico p WHERE p.id > :desdeId ORDER BY p.id")
+    List<Long> findIdsDesde(@Param("desdeId") Long desdeId, Pageable pageable);
+    
+    // Suma la diferencia de precio una vez por cada fila obligatoria del servicio en el plan
+    @Modifying
+    @Query(value = "UPDATE planes_turisticos p SET p.precio_total = p.precio_total + :delta * " +
+                   "(SELECT COUNT(*) FROM servicios_planes sp WHERE sp.plan_id = p.id AND sp.servicio_id = :servicioId " +
+                   "AND sp.es_opcional = false AND sp.precio_especial IS NULL), p.fecha_actualizacion = :ahora " +
+                   "WHERE p.id IN :planIds", nativeQuery = true)
+    int aplicarDiferenciaPrecio(@Param("planIds") Collection<Long> planIds,
+                                @Param("servicioId") Long servicioId,
+                                @Param("delta") BigDecimal delta,
+                                @Param("ahora") LocalDateTime ahora);
+    
+    @Modifying
+    @Query(value = "UPDATE planes_turisticos p SET p.precio_total = " + PRECIO_CALCULADO + ", " +
+                   "p.fecha_actualizacion = :ahora WHERE p.id IN :planIds", nativeQuery = true)
+    int recalcularPrecio(@Param("planIds") Collection<Long> planIds, @Param("ahora") LocalDateTime ahora);
+    
+    // Planes del lote cuyo precio no coincide con sus servicios: [id, precio guardado, precio calculado]
+    @Query(value = "SELECT x.id, x.precio_total, x.calculado FROM (SELECT p.id, p.precio_total, " +
+                   PRECIO_CALCULADO + " AS calculado FROM planes_turisticos p WHERE p.id IN :planIds) x " +
+                   "WHERE x.precio_total <> x.calculado ORDER BY x.id", nativeQuery = true)
+    List<Object[]> findPreciosInconsistentes(@Param("planIds") Collection<Long> planIds);
 }
\ No newline at end of file
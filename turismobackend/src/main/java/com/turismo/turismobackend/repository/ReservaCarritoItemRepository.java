@@ -1,12 +1,17 @@
 package com.turismo.turismobackend.repository;
 
 import com.turismo.turismobackend.model.ReservaCarritoItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,13 +24,136 @@ public interface ReservaCarritoItemRepository extends JpaRepository<ReservaCarri
     List<ReservaCarritoItem> findByReservaCarritoIdAndEstado(Long reservaCarritoId, 
                                                             ReservaCarritoItem.EstadoItemReserva estado);
     
-    @Query("SELECT ri FROM ReservaCarritoItem ri WHERE ri.servicio.emprendedor.id = :emprendedorId")
+    @Query("SELECT ri FROM ReservaCarritoItem ri WHERE ri.emprendedorId = :emprendedorId")
     List<ReservaCarritoItem> findByEmprendedorId(@Param("emprendedorId") Long emprendedorId);
     
-    @Query("SELECT ri FROM ReservaCarritoItem ri WHERE ri.servicio.emprendedor.id = :emprendedorId AND ri.fechaServicio = :fecha")
+    @Query("SELECT ri FROM ReservaCarritoItem ri WHERE ri.emprendedorId = :emprendedorId AND ri.fechaServicio = :fecha")
     List<ReservaCarritoItem> findByEmprendedorIdAndFecha(@Param("emprendedorId") Long emprendedorId, 
                                                          @Param("fecha") LocalDate fecha);
     
     @Query("SELECT SUM(ri.cantidad) FROM ReservaCarritoItem ri WHERE ri.servicio.id = :servicioId AND ri.fechaServicio = :fecha AND ri.estado NOT IN ('CANCELADO')")
     Long countPersonasByServicioAndFecha(@Param("servicioId") Long servicioId, @Param("fecha") LocalDate fecha);
-}
\ No newline at end of file
+
+    // Items activos para inicializar el ranking, por lotes: [id, servicio, fechaReserva de la reserva]
+    @Query("SELECT ri.id, ri.servicio.id, ri.reservaCarrito.fechaReserva FROM ReservaCarritoItem ri " +
+           "WHERE ri.estado NOT IN ('CANCELADO') AND ri.id > :desdeId ORDER BY ri.id")
+    List<Object[]> findItemsActivosParaRanking(@Param("desdeId") Long desdeId, Pageable pageable);
+
+    // Reparto de pagos de carrito: [reservaCarrito, emprendedor, municipalidad del emprendedor, precioUnitario, cantidad]
+    @Query("SELECT ri.reservaCarrito.id, e.id, m.id, ri.precioUnitario, ri.cantidad FROM ReservaCarritoItem ri " +
+           "JOIN Emprendedor e ON e.id = ri.emprendedorId LEFT JOIN e.municipalidad m " +
+           "WHERE ri.reservaCarrito.id IN :reservaCarritoIds AND ri.estado NOT IN ('CANCELADO')")
+    List<Object[]> findRepartoIngresos(@Param("reservaCarritoIds") Collection<Long> reservaCarritoIds);
+
+    // Reconstrucción de estadísticas: [emprendedor, año, mes, estado de la reserva, reservas distintas, subtotal]
+    @Query("SELECT ri.emprendedorId, YEAR(r.fechaReserva), MONTH(r.fechaReserva), r.estado, COUNT(DISTINCT r.id), " +
+           "SUM(ri.precioUnitario * ri.cantidad) FROM ReservaCarritoItem ri JOIN ri.reservaCarrito r " +
+           "GROUP BY ri.emprendedorId, YEAR(r.fechaReserva), MONTH(r.fechaReserva), r.estado")
+    List<Object[]> sumarEstadisticasPorEmprendedor();
+
+    // Reconstrucción de estadísticas: [municipalidad del emprendedor, año, mes, estado de la reserva, reservas distintas, subtotal]
+    @Query("SELECT m.id, YEAR(r.fechaReserva), MONTH(r.fechaReserva), r.estado, COUNT(DISTINCT r.id), " +
+           "SUM(ri.precioUnitario * ri.cantidad) FROM ReservaCarritoItem ri JOIN ri.reservaCarrito r " +
+           "JOIN Emprendedor e ON e.id = ri.emprendedorId JOIN e.municipalidad m " +
+           "GROUP BY m.id, YEAR(r.fechaReserva), MONTH(r.fechaReserva), r.estado")
+    List<Object[]> sumarEstadisticasPorMunicipalidad();
+    
+    // Reconstrucción de estadísticas: items cancelados mientras su reserva seguía activa (antes de
+    // cancelarse la reserva, si llegó a cancelarse):
+    // [usuario, emprendedor, municipalidad del emprendedor, año, mes, items, subtotal]
+    @Query("SELECT r.usuario.id, ri.emprendedorId, m.id, YEAR(r.fechaReserva), MONTH(r.fechaReserva), COUNT(ri), " +
+           "SUM(ri.precioUnitario * ri.cantidad) FROM ReservaCarritoItem ri JOIN ri.reservaCarrito r " +
+           "JOIN Emprendedor e ON e.id = ri.emprendedorId LEFT JOIN e.municipalidad m " +
+           "WHERE ri.estado = 'CANCELADO' AND (r.fechaCancelacion IS NULL OR ri.fechaActualizacion < r.fechaCancelacion) " +
+           "GROUP BY r.usuario.id, ri.emprendedorId, m.id, YEAR(r.fechaReserva), MONTH(r.fechaReserva)")
+    List<Object[]> sumarEstadisticasItemsCancelados();
+
+    // Completa emprendedor_id en items anteriores a la columna; se llama en bucle hasta que devuelva 0
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE reserva_carrito_items ri " +
+            "JOIN (SELECT id FROM reserva_carrito_items WHERE emprendedor_id IS NULL OR emprendedor_id = 0 ORDER BY id LIMIT :lote) pendientes " +
+            "ON pendientes.id = ri.id " +
+            "JOIN servicios_turisticos s ON s.id = ri.servicio_id " +
+            "SET ri.emprendedor_id = s.emprendedor_id", nativeQuery = true)
+    int asignarEmprendedorPendiente(@Param("lote") int lote);
+    
+    // 0 cuenta como pendiente: es lo que MySQL dejó en filas existentes al agregar la columna como NOT NULL
+    @Query("SELECT COUNT(ri) FROM ReservaCarritoItem ri WHERE ri.emprendedorId IS NULL OR ri.emprendedorId = 0")
+    long countSinEmprendedor();
+    
+    // Tras completar emprendedor_id: ddl-auto=update no cambia la nulabilidad de una columna existente
+    @Modifying
+    @Transactional
+    @Query(value = "ALTER TABLE reserva_carrito_items MODIFY emprendedor_id BIGINT NOT NULL", nativeQuery = true)
+    void exigirEmprendedor();
+    
+    // Completa fecha_actualizacion en items anteriores a la columna con la fecha de su reserva
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE reserva_carrito_items ri " +
+            "JOIN (SELECT id FROM reserva_carrito_items WHERE fecha_actualizacion IS NULL ORDER BY id LIMIT :lote) pendientes ON pendientes.id = ri.id " +
+            "JOIN reservas_carrito r ON r.id = ri.reserva_carrito_id " +
+            "SET ri.fecha_actualizacion = COALESCE(r.fecha_reserva, NOW())", nativeQuery = true)
+    int asignarFechaActualizacionPendiente(@Param("lote") int lote);
+    
+    // Agenda del emprendedor: [item, fecha, servicio, nombre del servicio, cantidad, estado del item,
+    // reserva, código, estado de la reserva, nombre y apellido del cliente, email, notas]
+    @Query("SELECT ri.id, ri.fechaServicio, s.id, s.nombre, ri.cantidad, ri.estado, r.id, r.codigoReserva, r.estado, " +
+           "u.nombre, u.apellido, u.email, ri.notasEspeciales FROM ReservaCarritoItem ri " +
+           "JOIN ri.servicio s JOIN ri.reservaCarrito r JOIN r.usuario u " +
+           "WHERE ri.emprendedorId = :emprendedorId AND ri.fechaServicio BETWEEN :desde AND :hasta " +
+           "AND (:version IS NULL OR ri.versionAgenda > :version) " +
+           "ORDER BY ri.fechaServicio, ri.id")
+    List<Object[]> findAgendaEmprendedor(@Param("emprendedorId") Long emprendedorId,
+                                         @Param("desde") LocalDate desde,
+                                         @Param("hasta") LocalDate hasta,
+                                         @Param("version") Long version);
+    
+    // Conteos por día para la agenda: [fecha, items, personas]
+    @Query("SELECT ri.fechaServicio, COUNT(ri), SUM(ri.cantidad) FROM ReservaCarritoItem ri " +
+           "WHERE ri.emprendedorId = :emprendedorId AND ri.fechaServicio BETWEEN :desde AND :hasta " +
+           "AND ri.estado <> 'CANCELADO' GROUP BY ri.fechaServicio")
+    List<Object[]> contarAgendaPorDia(@Param("emprendedorId") Long emprendedorId,
+                                      @Param("desde") LocalDate desde,
+                                      @Param("hasta") LocalDate hasta);
+    
+    // Subtotal de cada emprendedor por reserva, con todos los items: [reservaCarrito, emprendedor, subtotal]
+    @Query("SELECT ri.reservaCarrito.id, ri.emprendedorId, SUM(ri.precioUnitario * ri.cantidad) FROM ReservaCarritoItem ri " +
+           "WHERE ri.reservaCarrito.id IN :reservaCarritoIds GROUP BY ri.reservaCarrito.id, ri.emprendedorId")
+    List<Object[]> sumarPorEmprendedor(@Param("reservaCarritoIds") Collection<Long> reservaCarritoIds);
+    
+    // Cancelación masiva: items activos de las reservas del lote dentro del alcance y las fechas:
+    // [id, reservaCarrito, servicio, emprendedor, subtotal]
+    @Query("SELECT ri.id, ri.reservaCarrito.id, ri.servicio.id, ri.emprendedorId, ri.precioUnitario * ri.cantidad " +
+           "FROM ReservaCarritoItem ri " +
+           "WHERE ri.reservaCarrito.id IN :reservaCarritoIds AND ri.estado <> 'CANCELADO' " +
+           "AND ri.fechaServicio BETWEEN :desde AND :hasta " +
+           "AND (:servicioId IS NULL OR ri.servicio.id = :servicioId) " +
+           "AND (:emprendedorId IS NULL OR ri.emprendedorId = :emprendedorId) " +
+           "AND (:municipalidadId IS NULL OR ri.emprendedorId IN " +
+           "(SELECT e.id FROM Emprendedor e WHERE e.municipalidad.id = :municipalidadId)) ORDER BY ri.id")
+    List<Object[]> findParaCancelacionMasiva(@Param("reservaCarritoIds") Collection<Long> reservaCarritoIds,
+                                             @Param("servicioId") Long servicioId,
+                                             @Param("emprendedorId") Long emprendedorId,
+                                             @Param("municipalidadId") Long municipalidadId,
+                                             @Param("desde") LocalDate desde,
+                                             @Param("hasta") LocalDate hasta);
+    
+    @Modifying
+    @Query("UPDATE ReservaCarritoItem ri SET ri.estado = 'CANCELADO', ri.fechaActualizacion = :fecha " +
+           "WHERE ri.id IN :ids AND ri.estado <> 'CANCELADO'")
+    int cancelarItems(@Param("ids") Collection<Long> ids, @Param("fecha") LocalDateTime fecha);
+    
+    // Servicios de items no cancelados: [reservaCarrito, servicio]
+    @Query("SELECT ri.reservaCarrito.id, ri.servicio.id FROM ReservaCarritoItem ri " +
+           "WHERE ri.reservaCarrito.id IN :reservaCarritoIds AND ri.estado <> 'CANCELADO'")
+    List<Object[]> findServiciosActivos(@Param("reservaCarritoIds") Collection<Long> reservaCarritoIds);
+    
+    @Modifying
+    @Query("UPDATE ReservaCarritoItem ri SET ri.estado = :nuevo, ri.fechaActualizacion = :fecha " +
+           "WHERE ri.reservaCarrito.id IN :reservaCarritoIds AND ri.estado <> 'CANCELADO'")
+    int cambiarEstadoPorReservas(@Param("reservaCarritoIds") Collection<Long> reservaCarritoIds,
+                                 @Param("nuevo") ReservaCarritoItem.EstadoItemReserva nuevo,
+                                 @Param("fecha") LocalDateTime fecha);
+}
@@ -1,12 +1,17 @@
 package com.turismo.turismobackend.repository;
 
 import com.turismo.turismobackend.model.ReservaCarrito;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,13 +31,98 @@ public interface ReservaCarritoRepository extends JpaRepository<ReservaCarrito,
     @Query("SELECT r FROM ReservaCarrito r WHERE r.usuario.id = :usuarioId ORDER BY r.fechaReserva DESC")
     List<ReservaCarrito> findByUsuarioIdOrderByFechaReservaDesc(@Param("usuarioId") Long usuarioId);
     
-    @Query("SELECT DISTINCT r FROM ReservaCarrito r JOIN r.items i WHERE i.servicio.emprendedor.id = :emprendedorId")
+    @Query("SELECT r FROM ReservaCarrito r WHERE r.id IN " +
+           "(SELECT i.reservaCarrito.id FROM ReservaCarritoItem i WHERE i.emprendedorId = :emprendedorId)")
     List<ReservaCarrito> findByEmprendedorId(@Param("emprendedorId") Long emprendedorId);
     
-    @Query("SELECT DISTINCT r FROM ReservaCarrito r JOIN r.items i WHERE i.servicio.emprendedor.id = :emprendedorId AND r.estado = :estado")
+    @Query("SELECT r FROM ReservaCarrito r WHERE r.estado = :estado AND r.id IN " +
+           "(SELECT i.reservaCarrito.id FROM ReservaCarritoItem i WHERE i.emprendedorId = :emprendedorId)")
     List<ReservaCarrito> findByEmprendedorIdAndEstado(@Param("emprendedorId") Long emprendedorId, 
                                                       @Param("estado") ReservaCarrito.EstadoReservaCarrito estado);
     
     @Query("SELECT COUNT(r) FROM ReservaCarrito r WHERE r.usuario.id = :usuarioId AND r.estado NOT IN ('CANCELADA')")
     Long countReservasActivasByUsuario(@Param("usuarioId") Long usuarioId);
-}
\ No newline at end of file
+    
+    // Inicializa monto pagado y versión de las filas anteriores a estas columnas
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE reservas_carrito r SET r.version = 0, r.monto_pagado = " +
+            "(SELECT COALESCE(SUM(p.monto), 0) FROM pagos_carrito p WHERE p.reserva_carrito_id = r.id AND p.estado = 'CONFIRMADO') " +
+            "WHERE r.version IS NULL", nativeQuery = true)
+    int inicializarMontoPagado();
+    
+    // Reconstrucción de estadísticas: [usuario, año, mes, estado, cantidad, monto]
+    @Query("SELECT r.usuario.id, YEAR(r.fechaReserva), MONTH(r.fechaReserva), r.estado, COUNT(r), SUM(r.montoFinal) " +
+           "FROM ReservaCarrito r GROUP BY r.usuario.id, YEAR(r.fechaReserva), MONTH(r.fechaReserva), r.estado")
+    List<Object[]> sumarEstadisticasPorUsuario();
+    
+    @Query("SELECT r.estado, COUNT(r) FROM ReservaCarrito r GROUP BY r.estado")
+    List<Object[]> countAgrupadoPorEstado();
+    
+    // Completa fecha_inicio y fecha_fin de reservas anteriores a esas columnas desde sus items
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE reservas_carrito r JOIN (SELECT reserva_carrito_id, MIN(fecha_servicio) AS inicio, " +
+            "MAX(fecha_servicio) AS fin FROM reserva_carrito_items GROUP BY reserva_carrito_id) f ON f.reserva_carrito_id = r.id " +
+            "SET r.fecha_inicio = f.inicio, r.fecha_fin = f.fin WHERE r.fecha_inicio IS NULL", nativeQuery = true)
+    int inicializarFechasServicio();
+    
+    // Transiciones por fecha: [id, usuario, fechaReserva, montoFinal], por id a partir de desdeId
+    @Query("SELECT r.id, r.usuario.id, r.fechaReserva, r.montoFinal FROM ReservaCarrito r " +
+           "WHERE r.estado = :estado AND r.fechaInicio <= :fecha AND r.id > :desdeId ORDER BY r.id")
+    List<Object[]> findParaTransicionPorInicio(@Param("estado") ReservaCarrito.EstadoReservaCarrito estado,
+                                               @Param("fecha") LocalDate fecha,
+                                               @Param("desdeId") Long desdeId,
+                                               Pageable pageable);
+    
+    @Query("SELECT r.id, r.usuario.id, r.fechaReserva, r.montoFinal FROM ReservaCarrito r " +
+           "WHERE r.estado = :estado AND r.fechaFin < :fecha AND r.id > :desdeId ORDER BY r.id")
+    List<Object[]> findParaTransicionPorFin(@Param("estado") ReservaCarrito.EstadoReservaCarrito estado,
+                                            @Param("fecha") LocalDate fecha,
+                                            @Param("desdeId") Long desdeId,
+                                            Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE ReservaCarrito r SET r.estado = :nuevo, r.version = r.version + 1 WHERE r.id IN :ids AND r.estado = :anterior")
+    int cambiarEstado(@Param("ids") Collection<Long> ids,
+                      @Param("anterior") ReservaCarrito.EstadoReservaCarrito anterior,
+                      @Param("nuevo") ReservaCarrito.EstadoReservaCarrito nuevo);
+    
+    @Modifying
+    @Query("UPDATE ReservaCarrito r SET r.estado = 'CANCELADA', r.fechaCancelacion = :fecha, r.motivoCancelacion = :motivo, " +
+           "r.version = r.version + 1 WHERE r.id IN :ids AND r.estado = 'PENDIENTE'")
+    int cancelarPendientes(@Param("ids") Collection<Long> ids,
+                           @Param("fecha") LocalDateTime fecha,
+                           @Param("motivo") String motivo);
+    
+    // Cancelación masiva: reservas en los estados indicados con algún item activo del servicio,
+    // emprendedor o municipalidad entre desde y hasta: [id, usuario, fechaReserva, montoFinal, estado]
+    @Query("SELECT r.id, r.usuario.id, r.fechaReserva, r.montoFinal, r.estado FROM ReservaCarrito r " +
+           "WHERE r.estado IN :estados AND r.id > :desdeId AND EXISTS (SELECT 1 FROM ReservaCarritoItem ri " +
+           "WHERE ri.reservaCarrito = r AND ri.estado <> 'CANCELADO' AND ri.fechaServicio BETWEEN :desde AND :hasta " +
+           "AND (:servicioId IS NULL OR ri.servicio.id = :servicioId) " +
+           "AND (:emprendedorId IS NULL OR ri.emprendedorId = :emprendedorId) " +
+           "AND (:municipalidadId IS NULL OR ri.emprendedorId IN " +
+           "(SELECT e.id FROM Emprendedor e WHERE e.municipalidad.id = :municipalidadId))) ORDER BY r.id")
+    List<Object[]> findParaCancelacionMasiva(@Param("servicioId") Long servicioId,
+                                             @Param("emprendedorId") Long emprendedorId,
+                                             @Param("municipalidadId") Long municipalidadId,
+                                             @Param("estados") Collection<ReservaCarrito.EstadoReservaCarrito> estados,
+                                             @Param("desde") LocalDate desde,
+                                             @Param("hasta") LocalDate hasta,
+                                             @Param("desdeId") Long desdeId,
+                                             Pageable pageable);
+    
+    // Reservas de la lista a las que ya no les queda ningún item activo
+    @Query("SELECT r.id FROM ReservaCarrito r WHERE r.id IN :ids AND NOT EXISTS (SELECT 1 FROM ReservaCarritoItem ri " +
+           "WHERE ri.reservaCarrito = r AND ri.estado <> 'CANCELADO') ORDER BY r.id")
+    List<Long> findSinItemsActivos(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("UPDATE ReservaCarrito r SET r.estado = 'CANCELADA', r.fechaCancelacion = :fecha, r.motivoCancelacion = :motivo, " +
+           "r.version = r.version + 1 WHERE r.id IN :ids AND r.estado = :anterior")
+    int cancelar(@Param("ids") Collection<Long> ids,
+                 @Param("anterior") ReservaCarrito.EstadoReservaCarrito anterior,
+                 @Param("fecha") LocalDateTime fecha,
+                 @Param("motivo") String motivo);
+}
@@ -1,13 +1,17 @@
 package com.turismo.turismobackend.repository;
 
 import com.turismo.turismobackend.model.Reserva;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,4 +55,69 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
 
     @Query("SELECT COUNT(r) FROM Reserva r WHERE r.usuario.id = :usuarioId AND r.estado = 'COMPLETADA'")
     Long countReservasCompletadasByUsuario(@Param("usuarioId") Long usuarioId);
-}
\ No newline at end of file
+
+    // Reservas activas para inicializar el ranking, por lotes: [id, plan, fechaReserva]
+    @Query("SELECT r.id, r.plan.id, r.fechaReserva FROM Reserva r WHERE r.estado NOT IN ('CANCELADA') AND r.id > :desdeId ORDER BY r.id")
+    List<Object[]> findReservasActivasParaRanking(@Param("desdeId") Long desdeId, Pageable pageable);
+    
+    // Inicializa monto pagado y versión de las filas anteriores a estas columnas
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE reservas r SET r.version = 0, r.monto_pagado = " +
+            "(SELECT COALESCE(SUM(p.monto), 0) FROM pagos p WHERE p.reserva_id = r.id AND p.estado = 'CONFIRMADO') " +
+            "WHERE r.version IS NULL", nativeQuery = true)
+    int inicializarMontoPagado();
+    
+    // Reconstrucción de estadísticas: [usuario, municipalidad, año, mes, estado, cantidad, monto]
+    @Query("SELECT r.usuario.id, r.plan.municipalidad.id, YEAR(r.fechaReserva), MONTH(r.fechaReserva), r.estado, " +
+           "COUNT(r), SUM(r.montoFinal) FROM Reserva r " +
+           "GROUP BY r.usuario.id, r.plan.municipalidad.id, YEAR(r.fechaReserva), MONTH(r.fechaReserva), r.estado")
+    List<Object[]> sumarEstadisticasPorUsuarioYMunicipalidad();
+    
+    @Query("SELECT r.estado, COUNT(r) FROM Reserva r GROUP BY r.estado")
+    List<Object[]> countAgrupadoPorEstado();
+    
+    // Transiciones por fecha: [id, usuario, municipalidad, fechaReserva, montoFinal], por id a partir de desdeId
+    @Query("SELECT r.id, r.usuario.id, r.plan.municipalidad.id, r.fechaReserva, r.montoFinal FROM Reserva r " +
+           "WHERE r.estado = :estado AND r.fechaInicio <= :fecha AND r.id > :desdeId ORDER BY r.id")
+    List<Object[]> findParaTransicionPorInicio(@Param("estado") Reserva.EstadoReserva estado,
+                                               @Param("fecha") LocalDate fecha,
+                                               @Param("desdeId") Long desdeId,
+                                               Pageable pageable);
+    
+    @Query("SELECT r.id, r.usuario.id, r.plan.municipalidad.id, r.fechaReserva, r.montoFinal FROM Reserva r " +
+           "WHERE r.estado = :estado AND r.fechaFin < :fecha AND r.id > :desdeId ORDER BY r.id")
+    List<Object[]> findParaTransicionPorFin(@Param("estado") Reserva.EstadoReserva estado,
+                                            @Param("fecha") LocalDate fecha,
+                                            @Param("desdeId") Long desdeId,
+                                            Pageable pageable);
+    
+    // Solo cambia las filas que siguen en el estado leído; el llamador compara el conteo
+    @Modifying
+    @Query("UPDATE Reserva r SET r.estado = :nuevo, r.version = r.version + 1 WHERE r.id IN :ids AND r.estado = :anterior")
+    int cambiarEstado(@Param("ids") Collection<Long> ids,
+                      @Param("anterior") Reserva.EstadoReserva anterior,
+                      @Param("nuevo") Reserva.EstadoReserva nuevo);
+    
+    // Cancelación masiva: reservas en los estados indicados que se cruzan con [desde, hasta],
+    // filtradas por plan o municipalidad: [id, usuario, municipalidad, fechaReserva, montoFinal, estado, plan]
+    @Query("SELECT r.id, r.usuario.id, r.plan.municipalidad.id, r.fechaReserva, r.montoFinal, r.estado, r.plan.id " +
+           "FROM Reserva r WHERE (:planId IS NULL OR r.plan.id = :planId) " +
+           "AND (:municipalidadId IS NULL OR r.plan.municipalidad.id = :municipalidadId) " +
+           "AND r.estado IN :estados AND r.fechaInicio <= :hasta AND r.fechaFin >= :desde AND r.id > :desdeId ORDER BY r.id")
+    List<Object[]> findParaCancelacionMasiva(@Param("planId") Long planId,
+                                             @Param("municipalidadId") Long municipalidadId,
+                                             @Param("estados") Collection<Reserva.EstadoReserva> estados,
+                                             @Param("desde") LocalDate desde,
+                                             @Param("hasta") LocalDate hasta,
+                                             @Param("desdeId") Long desdeId,
+                                             Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE Reserva r SET r.estado = 'CANCELADA', r.fechaCancelacion = :fecha, r.motivoCancelacion = :motivo, " +
+           "r.version = r.version + 1 WHERE r.id IN :ids AND r.estado = :anterior")
+    int cancelar(@Param("ids") Collection<Long> ids,
+                 @Param("anterior") Reserva.EstadoReserva anterior,
+                 @Param("fecha") LocalDateTime fecha,
+                 @Param("motivo") String motivo);
+}
@@ -0,0 +1,48 @@
+package com.turismo.turismobackend.repository;
+
+import com.turismo.turismobackend.model.RespuestaIdempotente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface RespuestaIdempotenteRepository extends JpaRepository<RespuestaIdempotente, Long> {
+    
+    Optional<RespuestaIdempotente> findByClave(String clave);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RespuestaIdempotente r WHERE r.clave = :clave AND r.expiraEn <= :ahora")
+    int eliminarVencida(@Param("clave") String clave, @Param("ahora") LocalDateTime ahora);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RespuestaIdempotente r WHERE r.id = :id AND r.estado = 'EN_CURSO'")
+    int liberar(@Param("id") Long id);
+    
+    // Se une a la transacción de la escritura; 0 filas si la reclamación ya venció y se borró
+    @Modifying
+    @Transactional
+    @Query("UPDATE RespuestaIdempotente r SET r.estado = 'COMPLETADA', r.codigoHttp = :codigoHttp, r.cuerpo = :cuerpo, " +
+           "r.expiraEn = :expiraEn WHERE r.id = :id AND r.estado = 'EN_CURSO'")
+    int completar(@Param("id") Long id, @Param("codigoHttp") int codigoHttp,
+                  @Param("cuerpo") String cuerpo, @Param("expiraEn") LocalDateTime expiraEn);
+    
+    // Alarga las reclamaciones que siguen ejecutándose en este nodo
+    @Modifying
+    @Transactional
+    @Query("UPDATE RespuestaIdempotente r SET r.expiraEn = :expiraEn WHERE r.id IN :ids AND r.estado = 'EN_CURSO'")
+    int renovar(@Param("ids") Collection<Long> ids, @Param("expiraEn") LocalDateTime expiraEn);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RespuestaIdempotente r WHERE r.expiraEn <= :ahora")
+    int eliminarVencidas(@Param("ahora") LocalDateTime ahora);
+}
@@ -1,13 +1,17 @@
 package com.turismo.turismobackend.repository;
 
 import com.turismo.turismobackend.model.Rol;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface RolRepository extends JpaRepository<Rol, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Rol> findByNombre(Rol.RolNombre nombre);
     boolean existsByNombre(Rol.RolNombre nombre);
 }
\ No newline at end of file
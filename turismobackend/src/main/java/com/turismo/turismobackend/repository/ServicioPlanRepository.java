@@ -16,12 +16,20 @@ public interface ServicioPlanRepository extends JpaRepository<ServicioPlan, Long
     
     List<ServicioPlan> findByPlanId(Long planId);
     
+    @Query("SELECT sp FROM ServicioPlan sp JOIN FETCH sp.servicio WHERE sp.plan.id = :planId")
+    List<ServicioPlan> findByPlanIdConServicio(@Param("planId") Long planId);
+    
     @Modifying
     @Transactional
     void deleteByPlanId(Long planId);
     
     List<ServicioPlan> findByServicioId(Long servicioId);
     
+    // Planes cuyo precio incluye el del servicio: filas obligatorias y sin precio especial
+    @Query("SELECT DISTINCT sp.plan.id FROM ServicioPlan sp WHERE sp.servicio.id = :servicioId " +
+           "AND sp.esOpcional = false AND sp.precioEspecial IS NULL ORDER BY sp.plan.id")
+    List<Long> findPlanIdsConPrecioDeServicio(@Param("servicioId") Long servicioId);
+    
     List<ServicioPlan> findByPlanIdOrderByDiaDelPlanAscOrdenEnElDiaAsc(Long planId);
     
     List<ServicioPlan> findByPlanIdAndDiaDelPlan(Long planId, Integer dia);
@@ -1,19 +1,27 @@
 package com.turismo.turismobackend.repository;
 
 import com.turismo.turismobackend.model.ServicioTuristico;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ServicioTuristicoRepository extends JpaRepository<ServicioTuristico, Long> {
     
     List<ServicioTuristico> findByEmprendedorId(Long emprendedorId);
     
+    // Bloquea la fila hasta el commit: dos ediciones del mismo servicio no leen el mismo precio anterior
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ServicioTuristico s WHERE s.id = :id")
+    Optional<ServicioTuristico> findByIdParaActualizar(@Param("id") Long id);
+    
     List<ServicioTuristico> findByEmprendedorMunicipalidadId(Long municipalidadId);
     
     List<ServicioTuristico> findByTipo(ServicioTuristico.TipoServicio tipo);
@@ -3,8 +3,11 @@ package com.turismo.turismobackend.repository;
 import com.turismo.turismobackend.model.Rol;
 import com.turismo.turismobackend.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,4 +23,16 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     List<Usuario> findUsuariosSinEmprendedor();
     
     List<Usuario> findByRolesContaining(Rol rol);
-}
\ No newline at end of file
+    
+    @Query("SELECT u.id, u.tokenVersion FROM Usuario u WHERE u.tokenVersion > 0")
+    List<Object[]> findVersionesToken();
+    
+    @Query("SELECT u.tokenVersion FROM Usuario u WHERE u.id = :usuarioId")
+    Integer findTokenVersionById(@Param("usuarioId") Long usuarioId);
+    
+    // Revoca los tokens autocontenidos del usuario cuando cambian sus vínculos desde otra entidad
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuario u SET u.tokenVersion = COALESCE(u.tokenVersion, 0) + 1 WHERE u.id = :usuarioId")
+    int incrementarVersionToken(@Param("usuarioId") Long usuarioId);
+}
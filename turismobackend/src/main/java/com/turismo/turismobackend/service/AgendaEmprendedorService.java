@@ -0,0 +1,114 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.response.AgendaEmprendedorResponse;
+import com.turismo.turismobackend.exception.ResourceNotFoundException;
+import com.turismo.turismobackend.repository.AgendaVersionRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Agenda del emprendedor por días: una consulta por rango sobre reserva_carrito_items
+// (índice emprendedor_id, fecha_servicio) proyectada a columnas sueltas, sin cargar entidades.
+// El token de refresco es la versión del emprendedor en agenda_versiones, no una hora del reloj.
+@Service
+@RequiredArgsConstructor
+public class AgendaEmprendedorService {
+    
+    private final ReservaCarritoItemRepository reservaCarritoItemRepository;
+    private final AgendaVersionRepository agendaVersionRepository;
+    private final AuthContext authContext;
+    
+    @Value("${application.agenda.max-dias:62}")
+    private int maxDias;
+    
+    @Transactional(readOnly = true)
+    public AgendaEmprendedorResponse getAgenda(LocalDate desde, LocalDate hasta, Long version) {
+        Long emprendedorId = authContext.getEmprendedorId();
+        if (emprendedorId == null) {
+            throw new ResourceNotFoundException("Emprendedor", "usuario_id", authContext.getUsuarioId());
+        }
+        if (desde.isAfter(hasta)) {
+            throw new RuntimeException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= maxDias) {
+            throw new RuntimeException("El rango de la agenda no puede superar " + maxDias + " días");
+        }
+    
+        // Se lee antes que los items y en la misma transacción (misma foto con REPEATABLE READ): quien
+        // escribió una versión menor o igual ya confirmó, porque la fila se bloquea hasta el commit
+        long nuevaVersion = agendaVersionRepository.findVersion(emprendedorId).orElse(0L);
+    
+        Map<LocalDate, AgendaEmprendedorResponse.DiaAgenda> dias = new TreeMap<>();
+        for (Object[] fila : reservaCarritoItemRepository.findAgendaEmprendedor(emprendedorId, desde, hasta, version)) {
+            AgendaEmprendedorResponse.DiaAgenda dia = dias.computeIfAbsent((LocalDate) fila[1], this::diaVacio);
+            dia.getItems().add(AgendaEmprendedorResponse.ItemAgenda.builder()
+                    .itemId((Long) fila[0])
+                    .servicioId((Long) fila[2])
+                    .servicioNombre((String) fila[3])
+                    .cantidad((Integer) fila[4])
+                    .estado(fila[5].toString())
+                    .reservaCarritoId((Long) fila[6])
+                    .codigoReserva((String) fila[7])
+                    .estadoReserva(fila[8].toString())
+                    .clienteNombre(fila[9] + " " + fila[10])
+                    .clienteEmail((String) fila[11])
+                    .notasEspeciales((String) fila[12])
+                    .build());
+            if (version == null && !"CANCELADO".equals(fila[5].toString())) {
+                dia.setTotalItems(dia.getTotalItems() + 1);
+                dia.setTotalPersonas(dia.getTotalPersonas() + (Integer) fila[4]);
+            }
+        }
+    
+        // En el refresco incremental los conteos salen de una consulta agrupada sobre el mismo índice
+        if (version != null) {
+            for (Object[] fila : reservaCarritoItemRepository.contarAgendaPorDia(emprendedorId, desde, hasta)) {
+                AgendaEmprendedorResponse.DiaAgenda dia = dias.computeIfAbsent((LocalDate) fila[0], this::diaVacio);
+                dia.setTotalItems((Long) fila[1]);
+                dia.setTotalPersonas(((Number) fila[2]).longValue());
+            }
+        }
+    
+        return AgendaEmprendedorResponse.builder()
+                .desde(desde)
+                .hasta(hasta)
+                .version(nuevaVersion)
+                .completa(version == null)
+                .dias(new ArrayList<>(dias.values()))
+                .build();
+    }
+    
+    // Se llama en la transacción que cambia items de esas reservas, después de cambiarlos.
+    // Incrementa la versión de cada emprendedor afectado y la copia en sus items
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCambios(Collection<Long> reservaCarritoIds) {
+        if (reservaCarritoIds.isEmpty()) {
+            return;
+        }
+        // Los cambios hechos sobre entidades deben estar escritos antes de marcar los items
+        reservaCarritoItemRepository.flush();
+        agendaVersionRepository.crearFaltantes(reservaCarritoIds);
+        agendaVersionRepository.incrementar(reservaCarritoIds);
+        agendaVersionRepository.marcarItems(reservaCarritoIds);
+    }
+    
+    private AgendaEmprendedorResponse.DiaAgenda diaVacio(LocalDate fecha) {
+        return AgendaEmprendedorResponse.DiaAgenda.builder()
+                .fecha(fecha)
+                .totalItems(0L)
+                .totalPersonas(0L)
+                .items(new ArrayList<>())
+                .build();
+    }
+}
@@ -4,10 +4,15 @@ import com.turismo.turismobackend.dto.request.LoginRequest;
 import com.turismo.turismobackend.dto.request.RegisterRequest;
 import com.turismo.turismobackend.dto.response.AuthResponse;
 import com.turismo.turismobackend.model.Rol;
+import com.turismo.turismobackend.model.Emprendedor;
+import com.turismo.turismobackend.model.Municipalidad;
 import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.MunicipalidadRepository;
 import com.turismo.turismobackend.repository.RolRepository;
 import com.turismo.turismobackend.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -28,6 +33,12 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final EmprendedorRepository emprendedorRepository;
+    private final MunicipalidadRepository municipalidadRepository;
+    
+    // Si está activo, el token incluye id, roles y vínculos del usuario y el filtro no consulta la base de datos
+    @Value("${application.security.jwt.claims-autocontenidas:false}")
+    private boolean claimsAutocontenidas;
     
     public AuthResponse register(RegisterRequest request) {
         // Crear un nuevo usuario
@@ -77,7 +88,7 @@ public class AuthService {
         usuarioRepository.save(usuario);
         
         // Generar token JWT
-        String jwtToken = jwtService.generateToken(usuario);
+        String jwtToken = generarToken(usuario);
         
         // Obtener la lista de nombres de roles
         List<String> roleNames = usuario.getRoles().stream()
@@ -108,7 +119,7 @@ public class AuthService {
         Usuario usuario = (Usuario) authentication.getPrincipal();
         
         // Generar token JWT
-        String jwtToken = jwtService.generateToken(usuario);
+        String jwtToken = generarToken(usuario);
         
         // Obtener la lista de nombres de roles
         List<String> roleNames = usuario.getRoles().stream()
@@ -124,6 +135,20 @@ public class AuthService {
                 .build();
     }
     
+    private String generarToken(Usuario usuario) {
+        if (!claimsAutocontenidas) {
+            return jwtService.generateToken(usuario);
+        }
+        
+        Long emprendedorId = emprendedorRepository.findByUsuario(usuario)
+                .map(Emprendedor::getId)
+                .orElse(null);
+        Long municipalidadId = municipalidadRepository.findByUsuario(usuario)
+                .map(Municipalidad::getId)
+                .orElse(null);
+        return jwtService.generateSelfContainedToken(usuario, emprendedorId, municipalidadId);
+    }
+    
     public void initRoles() {
         // Crear roles si no existen
         if (!rolRepository.existsByNombre(Rol.RolNombre.ROLE_ADMIN)) {
@@ -0,0 +1,161 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.BloqueoCupo;
+import com.turismo.turismobackend.model.CarritoItem;
+import com.turismo.turismobackend.repository.BloqueoCupoRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Cupos apartados por los items del carrito durante unos minutos. La tabla bloqueos_cupo es la
+// fuente de verdad (las consultas de capacidad solo cuentan bloqueos vigentes); la rueda en
+// memoria solo decide cuándo borrar cada fila, sin recorrer la tabla periódicamente.
+@Service
+@RequiredArgsConstructor
+public class BloqueoCupoService {
+    
+    private static final int TAMANO_LOTE_BORRADO = 500;
+    
+    private final BloqueoCupoRepository bloqueoCupoRepository;
+    private final ReservaCarritoItemRepository reservaCarritoItemRepository;
+    private final CandadoCupoService candadoCupoService;
+    
+    @Value("${application.carrito.bloqueos.habilitado:true}")
+    private boolean habilitado;
+    
+    @Value("${application.carrito.bloqueos.minutos:15}")
+    private int minutos;
+    
+    @Value("${application.carrito.bloqueos.tick-ms:1000}")
+    private long tickMs;
+    
+    private volatile RuedaTemporizadora<Long> rueda;
+    
+    // Al arrancar: se borran los vencidos durante la parada y se programan los vigentes
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        rueda = new RuedaTemporizadora<>(tickMs, System.currentTimeMillis());
+        LocalDateTime ahora = LocalDateTime.now();
+        bloqueoCupoRepository.eliminarTodosVencidos(ahora);
+        for (Object[] fila : bloqueoCupoRepository.findVigentes(ahora)) {
+            rueda.programar((Long) fila[0], aMillis((LocalDateTime) fila[1]));
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${application.carrito.bloqueos.tick-ms:1000}")
+    public void vencer() {
+        if (rueda == null) {
+            return;
+        }
+        List<Long> vencidos = rueda.avanzar(System.currentTimeMillis());
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < vencidos.size(); i += TAMANO_LOTE_BORRADO) {
+            bloqueoCupoRepository.eliminarVencidos(vencidos.subList(i, Math.min(i + TAMANO_LOTE_BORRADO, vencidos.size())), ahora);
+        }
+    }
+    
+    // Aparta (o renueva) el cupo del item con su cantidad actual; falla si no hay capacidad.
+    // Cambiar la cantidad ajusta la fila existente en un solo paso, bajo el candado de la franja:
+    // no hay un momento en que el cupo anterior esté liberado y el nuevo aún sin apartar
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apartar(CarritoItem item) {
+        apartarTodos(List.of(item));
+    }
+    
+    // Varios items a la vez: los candados de todas sus franjas se toman juntos y en orden, para
+    // que dos lotes con fechas en común no se esperen mutuamente
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apartarTodos(Collection<CarritoItem> items) {
+        if (!habilitado || items.isEmpty()) {
+            return;
+        }
+        candadoCupoService.bloquear(items.stream()
+                .map(item -> new CandadoCupoService.Clave(
+                        CandadoCupoService.Tipo.SERVICIO, item.getServicio().getId(), item.getFechaServicio()))
+                .toList());
+        Map<Long, BloqueoCupo> existentes = bloqueoCupoRepository.findByCarritoItemIdIn(
+                        items.stream().map(CarritoItem::getId).toList()).stream()
+                .collect(Collectors.toMap(BloqueoCupo::getCarritoItemId, bloqueo -> bloqueo));
+    
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime expiraEn = ahora.plusMinutes(minutos);
+        List<BloqueoCupo> bloqueos = new ArrayList<>(items.size());
+        for (CarritoItem item : items) {
+            Long servicioId = item.getServicio().getId();
+            BloqueoCupo existente = existentes.get(item.getId());
+            // Bajar la cantidad de un cupo vigente no ocupa plazas nuevas: se ajusta aunque otros
+            // hayan llenado el servicio mientras tanto
+            boolean reduce = existente != null && existente.getExpiraEn().isAfter(ahora)
+                    && item.getCantidad() <= existente.getCantidad();
+            if (!reduce) {
+                int ocupadas = ocupadasPorOtros(servicioId, item.getFechaServicio(), Set.of(item.getId()));
+                if (ocupadas + item.getCantidad() > item.getServicio().getCapacidadMaxima()) {
+                    throw new RuntimeException("No hay suficiente capacidad para el servicio " +
+                            item.getServicio().getNombre() + " en la fecha seleccionada");
+                }
+            }
+            BloqueoCupo bloqueo = existente != null ? existente : BloqueoCupo.builder().carritoItemId(item.getId()).build();
+            bloqueo.setServicioId(servicioId);
+            bloqueo.setFechaServicio(item.getFechaServicio());
+            bloqueo.setCantidad(item.getCantidad());
+            bloqueo.setExpiraEn(expiraEn);
+            bloqueos.add(bloqueo);
+        }
+        List<BloqueoCupo> guardados = bloqueoCupoRepository.saveAll(bloqueos);
+        if (rueda != null) {
+            guardados.forEach(bloqueo -> rueda.programar(bloqueo.getId(), aMillis(expiraEn)));
+        }
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void liberar(Collection<Long> carritoItemIds) {
+        if (!carritoItemIds.isEmpty()) {
+            bloqueoCupoRepository.eliminarPorItems(carritoItemIds);
+        }
+    }
+    
+    // Personas reservadas más las apartadas por otros carritos; excluye los items indicados
+    public int ocupadasPorOtros(Long servicioId, LocalDate fecha, Collection<Long> carritoItemIdsPropios) {
+        Long reservadas = reservaCarritoItemRepository.countPersonasByServicioAndFecha(servicioId, fecha);
+        // NOT IN con una colección vacía no es válido en todas las bases de datos
+        Collection<Long> excluidos = carritoItemIdsPropios.isEmpty() ? Set.of(0L) : carritoItemIdsPropios;
+        Long apartadas = bloqueoCupoRepository.sumarVigentes(servicioId, fecha, LocalDateTime.now(), excluidos);
+        return (int) ((reservadas != null ? reservadas : 0L) + apartadas);
+    }
+    
+    // Vencimiento del cupo apartado por cada item que lo tenga vigente
+    public Map<Long, LocalDateTime> getVencimientos(Collection<Long> carritoItemIds) {
+        Map<Long, LocalDateTime> vencimientos = new HashMap<>();
+        if (carritoItemIds.isEmpty()) {
+            return vencimientos;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        for (BloqueoCupo bloqueo : bloqueoCupoRepository.findByCarritoItemIdIn(carritoItemIds)) {
+            if (bloqueo.getExpiraEn().isAfter(ahora)) {
+                vencimientos.put(bloqueo.getCarritoItemId(), bloqueo.getExpiraEn());
+            }
+        }
+        return vencimientos;
+    }
+    
+    private static long aMillis(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
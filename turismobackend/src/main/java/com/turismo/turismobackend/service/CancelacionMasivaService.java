@@ -0,0 +1,307 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.dto.request.CancelacionMasivaRequest;
+import com.turismo.turismobackend.exception.ResourceNotFoundException;
+import com.turismo.turismobackend.model.Emprendedor;
+import com.turismo.turismobackend.model.PlanTuristico;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.ReservaCarrito;
+import com.turismo.turismobackend.model.ServicioTuristico;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.PlanTuristicoRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import com.turismo.turismobackend.repository.ServicioTuristicoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Cancela de una vez las reservas de un plan, servicio, emprendedor o municipalidad entre dos
+// fechas (p. ej. un cierre por clima). Los ids se leen por lotes y cada lote se cancela con UPDATE
+// masivos en su transacción, ajusta la popularidad en bloque y publica un único evento de lote
+// para estadísticas, notificaciones y chat. El progreso se informa por lote a medida que avanza.
+// En las reservas de carrito solo se cancelan los items del alcance y las fechas; la reserva pasa a
+// CANCELADA cuando no le queda ningún item activo y, si no, se publican sus items cancelados.
+@Service
+@RequiredArgsConstructor
+public class CancelacionMasivaService {
+    
+    private static final int MAXIMO_REINTENTOS = 3;
+    private static final Set<Reserva.EstadoReserva> ESTADOS_PLAN = EnumSet.of(
+            Reserva.EstadoReserva.PENDIENTE, Reserva.EstadoReserva.CONFIRMADA,
+            Reserva.EstadoReserva.PAGADA, Reserva.EstadoReserva.EN_PROCESO);
+    private static final Set<ReservaCarrito.EstadoReservaCarrito> ESTADOS_CARRITO = EnumSet.of(
+            ReservaCarrito.EstadoReservaCarrito.PENDIENTE, ReservaCarrito.EstadoReservaCarrito.CONFIRMADA,
+            ReservaCarrito.EstadoReservaCarrito.PAGADA, ReservaCarrito.EstadoReservaCarrito.EN_PROCESO);
+    
+    private final ReservaRepository reservaRepository;
+    private final ReservaCarritoRepository reservaCarritoRepository;
+    private final ReservaCarritoItemRepository reservaCarritoItemRepository;
+    private final PlanTuristicoRepository planRepository;
+    private final ServicioTuristicoRepository servicioRepository;
+    private final EmprendedorRepository emprendedorRepository;
+    private final PopularidadService popularidadService;
+    private final AgendaEmprendedorService agendaEmprendedorService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${application.cancelacion-masiva.tamano-lote:200}")
+    private int tamanoLote;
+    
+    @Value("${application.cancelacion-masiva.max-dias:31}")
+    private int maxDias;
+    
+    // Datos del usuario resueltos en el hilo de la petición; la cancelación corre al escribir la respuesta
+    public record Operador(boolean admin, Long usuarioId, Long emprendedorId, Long municipalidadId) {
+    }
+    
+    // En carritos, canceladas cuenta las reservas con algún item cancelado, queden activas o no
+    public record ResultadoLote(ReservaTransicionEvent.Fuente fuente, int lote, int canceladas, long acumulado) {
+    
+        public String toCsv() {
+            return fuente + "," + lote + "," + canceladas + "," + acumulado;
+        }
+    }
+    
+    // Filtros de las consultas según el alcance; null deja el filtro sin aplicar
+    private record Filtro(Long planId, Long servicioId, Long emprendedorId, Long municipalidadId) {
+    }
+    
+    @Transactional(readOnly = true)
+    public void validar(CancelacionMasivaRequest request, Operador operador) {
+        if (request.getDesde().isAfter(request.getHasta())) {
+            throw new RuntimeException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+        if (request.getDesde().plusDays(maxDias).isBefore(request.getHasta())) {
+            throw new RuntimeException("El rango máximo para una cancelación masiva es de " + maxDias + " días");
+        }
+        if (operador.admin()) {
+            return;
+        }
+    
+        Long id = request.getId();
+        boolean permitido = switch (request.getAlcance()) {
+            case PLAN -> {
+                PlanTuristico plan = planRepository.findById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Plan turístico", "id", id));
+                yield plan.getUsuarioCreador().getId().equals(operador.usuarioId())
+                        || Objects.equals(plan.getMunicipalidad().getId(), operador.municipalidadId());
+            }
+            case SERVICIO -> {
+                ServicioTuristico servicio = servicioRepository.findById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Servicio turístico", "id", id));
+                yield esDelOperador(servicio.getEmprendedor(), operador);
+            }
+            case EMPRENDEDOR -> esDelOperador(emprendedorRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "id", id)), operador);
+            case MUNICIPALIDAD -> id.equals(operador.municipalidadId());
+        };
+        if (!permitido) {
+            throw new RuntimeException("No tiene permisos para cancelar estas reservas");
+        }
+    }
+    
+    // Llamar después de validar; devuelve el total de reservas canceladas o con items cancelados
+    public long cancelar(CancelacionMasivaRequest request, Consumer<ResultadoLote> salida) {
+        Long id = request.getId();
+        Filtro filtro = switch (request.getAlcance()) {
+            case PLAN -> new Filtro(id, null, null, null);
+            case SERVICIO -> new Filtro(null, id, null, null);
+            case EMPRENDEDOR -> new Filtro(null, null, id, null);
+            case MUNICIPALIDAD -> new Filtro(null, null, null, id);
+        };
+        long total = 0;
+        // Las reservas de plan no tienen items por servicio: solo se cancelan por plan o municipalidad
+        if (filtro.servicioId() == null && filtro.emprendedorId() == null) {
+            total += cancelarPlanes(filtro, request, salida);
+        }
+        if (filtro.planId() == null) {
+            total += cancelarCarritos(filtro, request, salida);
+        }
+        return total;
+    }
+    
+    private long cancelarPlanes(Filtro filtro, CancelacionMasivaRequest request, Consumer<ResultadoLote> salida) {
+        long acumulado = 0;
+        int numeroLote = 0;
+        int reintentos = 0;
+        Long desdeId = 0L;
+        while (true) {
+            List<Object[]> lote = reservaRepository.findParaCancelacionMasiva(filtro.planId(), filtro.municipalidadId(),
+                    ESTADOS_PLAN, request.getDesde(), request.getHasta(), desdeId, PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            Boolean aplicado = transactionTemplate.execute(estado -> {
+                LocalDateTime ahora = LocalDateTime.now();
+                Map<Reserva.EstadoReserva, List<Long>> porEstado = lote.stream().collect(Collectors.groupingBy(
+                        fila -> (Reserva.EstadoReserva) fila[5], Collectors.mapping(fila -> (Long) fila[0], Collectors.toList())));
+                for (Map.Entry<Reserva.EstadoReserva, List<Long>> grupo : porEstado.entrySet()) {
+                    // Si alguna cambió desde la lectura se revierte el lote y se vuelve a leer
+                    if (reservaRepository.cancelar(grupo.getValue(), grupo.getKey(), ahora, request.getMotivo())
+                            != grupo.getValue().size()) {
+                        estado.setRollbackOnly();
+                        return false;
+                    }
+                }
+    
+                Map<Long, List<LocalDateTime>> fechasPorPlan = new HashMap<>();
+                lote.forEach(fila -> fechasPorPlan.computeIfAbsent((Long) fila[6], planId -> new ArrayList<>())
+                        .add((LocalDateTime) fila[3]));
+                popularidadService.cancelarReservasPlan(fechasPorPlan);
+    
+                eventPublisher.publishEvent(new ReservaTransicionLoteEvent(lote.stream()
+                        .map(fila -> new ReservaTransicionEvent(ReservaTransicionEvent.Fuente.PLAN, (Long) fila[0],
+                                (Long) fila[1], (Long) fila[2], Map.of(), (LocalDateTime) fila[3], (BigDecimal) fila[4],
+                                ((Reserva.EstadoReserva) fila[5]).name(), Reserva.EstadoReserva.CANCELADA.name()))
+                        .toList()));
+                return true;
+            });
+            if (!Boolean.TRUE.equals(aplicado)) {
+                reintentar(++reintentos);
+                continue;
+            }
+            reintentos = 0;
+            acumulado += lote.size();
+            salida.accept(new ResultadoLote(ReservaTransicionEvent.Fuente.PLAN, ++numeroLote, lote.size(), acumulado));
+            desdeId = (Long) lote.get(lote.size() - 1)[0];
+        }
+        return acumulado;
+    }
+    
+    private long cancelarCarritos(Filtro filtro, CancelacionMasivaRequest request, Consumer<ResultadoLote> salida) {
+        long acumulado = 0;
+        int numeroLote = 0;
+        int reintentos = 0;
+        Long desdeId = 0L;
+        while (true) {
+            List<Object[]> lote = reservaCarritoRepository.findParaCancelacionMasiva(filtro.servicioId(),
+                    filtro.emprendedorId(), filtro.municipalidadId(), ESTADOS_CARRITO, request.getDesde(),
+                    request.getHasta(), desdeId, PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            List<Long> ids = lote.stream().map(fila -> (Long) fila[0]).toList();
+            Boolean aplicado = transactionTemplate.execute(estado -> {
+                LocalDateTime ahora = LocalDateTime.now();
+                // Solo los items del alcance y las fechas: el resto de cada reserva sigue activo y
+                // conserva su cupo, que se cuenta por item
+                List<Object[]> items = reservaCarritoItemRepository.findParaCancelacionMasiva(ids, filtro.servicioId(),
+                        filtro.emprendedorId(), filtro.municipalidadId(), request.getDesde(), request.getHasta());
+                List<Long> itemIds = items.stream().map(fila -> (Long) fila[0]).toList();
+                // Si alguno cambió desde la lectura se revierte el lote y se vuelve a leer
+                if (itemIds.isEmpty() || reservaCarritoItemRepository.cancelarItems(itemIds, ahora) != itemIds.size()) {
+                    estado.setRollbackOnly();
+                    return false;
+                }
+    
+                Map<Long, LocalDateTime> fechasReserva = new HashMap<>();
+                lote.forEach(fila -> fechasReserva.put((Long) fila[0], (LocalDateTime) fila[2]));
+                Map<Long, List<LocalDateTime>> fechasPorServicio = new HashMap<>();
+                for (Object[] fila : items) {
+                    fechasPorServicio.computeIfAbsent((Long) fila[2], servicioId -> new ArrayList<>())
+                            .add(fechasReserva.get((Long) fila[1]));
+                }
+                popularidadService.cancelarReservasServicio(fechasPorServicio);
+                agendaEmprendedorService.registrarCambios(ids);
+    
+                // La reserva se cancela solo si ya no le queda ningún item activo
+                Set<Long> sinItems = new HashSet<>(reservaCarritoRepository.findSinItemsActivos(ids));
+                publicarItemsCancelados(lote, items, sinItems);
+                List<Object[]> canceladas = lote.stream().filter(fila -> sinItems.contains((Long) fila[0])).toList();
+                if (canceladas.isEmpty()) {
+                    return true;
+                }
+                Map<ReservaCarrito.EstadoReservaCarrito, List<Long>> porEstado = canceladas.stream().collect(Collectors.groupingBy(
+                        fila -> (ReservaCarrito.EstadoReservaCarrito) fila[4],
+                        Collectors.mapping(fila -> (Long) fila[0], Collectors.toList())));
+                for (Map.Entry<ReservaCarrito.EstadoReservaCarrito, List<Long>> grupo : porEstado.entrySet()) {
+                    if (reservaCarritoRepository.cancelar(grupo.getValue(), grupo.getKey(), ahora, request.getMotivo())
+                            != grupo.getValue().size()) {
+                        estado.setRollbackOnly();
+                        return false;
+                    }
+                }
+    
+                Map<Long, Map<Long, BigDecimal>> montos = new HashMap<>();
+                for (Object[] fila : reservaCarritoItemRepository.sumarPorEmprendedor(List.copyOf(sinItems))) {
+                    montos.computeIfAbsent((Long) fila[0], reservaId -> new HashMap<>()).put((Long) fila[1], (BigDecimal) fila[2]);
+                }
+                eventPublisher.publishEvent(new ReservaTransicionLoteEvent(canceladas.stream()
+                        .map(fila -> new ReservaTransicionEvent(ReservaTransicionEvent.Fuente.CARRITO, (Long) fila[0],
+                                (Long) fila[1], null, montos.getOrDefault((Long) fila[0], Map.of()),
+                                (LocalDateTime) fila[2], (BigDecimal) fila[3],
+                                ((ReservaCarrito.EstadoReservaCarrito) fila[4]).name(),
+                                ReservaCarrito.EstadoReservaCarrito.CANCELADA.name()))
+                        .toList()));
+                return true;
+            });
+            if (!Boolean.TRUE.equals(aplicado)) {
+                reintentar(++reintentos);
+                continue;
+            }
+            reintentos = 0;
+            acumulado += lote.size();
+            salida.accept(new ResultadoLote(ReservaTransicionEvent.Fuente.CARRITO, ++numeroLote, lote.size(), acumulado));
+            desdeId = ids.get(ids.size() - 1);
+        }
+        return acumulado;
+    }
+    
+    // Las reservas que siguen activas no cambian de estado: se publican sus items cancelados,
+    // agrupados por reserva y emprendedor
+    private void publicarItemsCancelados(List<Object[]> lote, List<Object[]> items, Set<Long> sinItems) {
+        Map<Long, Object[]> reservas = new HashMap<>();
+        lote.forEach(fila -> reservas.put((Long) fila[0], fila));
+        Map<List<Long>, List<Object[]>> porReservaYEmprendedor = new LinkedHashMap<>();
+        for (Object[] fila : items) {
+            if (!sinItems.contains((Long) fila[1])) {
+                porReservaYEmprendedor.computeIfAbsent(List.of((Long) fila[1], (Long) fila[3]), clave -> new ArrayList<>())
+                        .add(fila);
+            }
+        }
+        if (porReservaYEmprendedor.isEmpty()) {
+            return;
+        }
+        List<ReservaItemsCanceladosEvent.ItemsCancelados> cancelaciones = new ArrayList<>();
+        porReservaYEmprendedor.forEach((clave, filas) -> {
+            Object[] reserva = reservas.get(clave.get(0));
+            cancelaciones.add(new ReservaItemsCanceladosEvent.ItemsCancelados(clave.get(0), (Long) reserva[1], clave.get(1),
+                    filas.stream().map(fila -> (Long) fila[0]).toList(),
+                    filas.stream().map(fila -> (BigDecimal) fila[4]).reduce(BigDecimal.ZERO, BigDecimal::add),
+                    (LocalDateTime) reserva[2]));
+        });
+        eventPublisher.publishEvent(new ReservaItemsCanceladosEvent(cancelaciones));
+    }
+    
+    private static void reintentar(int reintentos) {
+        if (reintentos > MAXIMO_REINTENTOS) {
+            throw new RuntimeException("Las reservas cambiaron durante la cancelación masiva, intente nuevamente");
+        }
+    }
+    
+    private static boolean esDelOperador(Emprendedor emprendedor, Operador operador) {
+        return emprendedor.getId().equals(operador.emprendedorId())
+                || (emprendedor.getMunicipalidad() != null
+                    && emprendedor.getMunicipalidad().getId().equals(operador.municipalidadId()));
+    }
+}
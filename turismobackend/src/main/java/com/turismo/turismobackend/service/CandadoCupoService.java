@@ -0,0 +1,102 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.repository.CandadoCupoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Exclusión mutua por (servicio o plan, fecha) para validar capacidad y reservar. En el proceso,
+// cada clave cae por hash en un arreglo fijo de candados; entre nodos se bloquea su fila en
+// candados_cupo. Ambos se toman en orden (franjas y claves) y se sueltan al terminar la transacción.
+@Service
+public class CandadoCupoService {
+    
+    public enum Tipo {
+        SERVICIO,
+        PLAN
+    }
+    
+    public record Clave(Tipo tipo, Long recursoId, LocalDate fecha) {
+    }
+    
+    private static final Comparator<Clave> ORDEN = Comparator.comparing(Clave::tipo)
+            .thenComparing(Clave::recursoId)
+            .thenComparing(Clave::fecha);
+    
+    private final CandadoCupoRepository candadoCupoRepository;
+    private final ReentrantLock[] franjas;
+    
+    @Value("${application.candados.espera-ms:5000}")
+    private long esperaMs;
+    
+    public CandadoCupoService(CandadoCupoRepository candadoCupoRepository,
+                              @Value("${application.candados.franjas:1024}") int cantidadFranjas) {
+        this.candadoCupoRepository = candadoCupoRepository;
+        this.franjas = new ReentrantLock[cantidadFranjas];
+        for (int i = 0; i < cantidadFranjas; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bloquear(Collection<Clave> claves) {
+        TreeSet<Clave> ordenadas = new TreeSet<>(ORDEN);
+        ordenadas.addAll(claves);
+        int[] indices = ordenadas.stream().mapToInt(this::franja).distinct().sorted().toArray();
+    
+        List<ReentrantLock> tomados = new ArrayList<>(indices.length);
+        try {
+            for (int indice : indices) {
+                ReentrantLock candado = franjas[indice];
+                if (!candado.tryLock(esperaMs, TimeUnit.MILLISECONDS)) {
+                    throw new RuntimeException("Hay muchas reservas simultáneas para estas fechas, intente nuevamente");
+                }
+                tomados.add(candado);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            soltar(tomados);
+            throw new RuntimeException("Reserva interrumpida", e);
+        } catch (RuntimeException e) {
+            soltar(tomados);
+            throw e;
+        }
+    
+        // Se sueltan en el mismo hilo al confirmar o revertir, no al salir del método
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                soltar(tomados);
+            }
+        });
+    
+        for (Clave clave : ordenadas) {
+            candadoCupoRepository.bloquear(clave.tipo().name(), clave.recursoId(), clave.fecha());
+        }
+    }
+    
+    private int franja(Clave clave) {
+        int hash = clave.hashCode();
+        // Mezcla los bits altos para repartir mejor ids y fechas consecutivos
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, franjas.length);
+    }
+    
+    private static void soltar(List<ReentrantLock> tomados) {
+        for (int i = tomados.size() - 1; i >= 0; i--) {
+            tomados.get(i).unlock();
+        }
+    }
+}
@@ -1,19 +1,28 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
 import com.turismo.turismobackend.dto.request.CarritoItemRequest;
+import com.turismo.turismobackend.dto.request.CarritoLoteRequest;
+import com.turismo.turismobackend.dto.request.OperacionCarritoRequest;
 import com.turismo.turismobackend.dto.response.*;
 import com.turismo.turismobackend.exception.ResourceNotFoundException;
 import com.turismo.turismobackend.model.*;
 import com.turismo.turismobackend.repository.*;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +33,8 @@ public class CarritoService {
     private final CarritoRepository carritoRepository;
     private final CarritoItemRepository carritoItemRepository;
     private final ServicioTuristicoRepository servicioRepository;
+    private final AuthContext authContext;
+    private final BloqueoCupoService bloqueoCupoService;
     
     public CarritoResponse obtenerCarrito() {
         Usuario usuario = getCurrentUser();
@@ -56,7 +67,7 @@ public class CarritoService {
             CarritoItem item = itemExistente.get();
             item.setCantidad(item.getCantidad() + request.getCantidad());
             item.setNotasEspeciales(request.getNotasEspeciales());
-            carritoItemRepository.save(item);
+            bloqueoCupoService.apartar(carritoItemRepository.save(item));
         } else {
             // Crear nuevo item
             CarritoItem nuevoItem = CarritoItem.builder()
@@ -67,12 +78,112 @@ public class CarritoService {
                     .fechaServicio(request.getFechaServicio())
                     .notasEspeciales(request.getNotasEspeciales())
                     .build();
-            carritoItemRepository.save(nuevoItem);
+            bloqueoCupoService.apartar(carritoItemRepository.save(nuevoItem));
         }
         
         return convertToCarritoResponse(carrito);
     }
     
+    // Aplica varias operaciones en orden dentro de una transacción: las líneas del carrito y los
+    // servicios se leen con una consulta cada uno y los cambios se escriben juntos al final
+    public CarritoResponse aplicarLote(CarritoLoteRequest request) {
+        Usuario usuario = getCurrentUser();
+        Carrito carrito = obtenerOCrearCarrito(usuario);
+        List<OperacionCarritoRequest> operaciones = request.getOperaciones();
+        
+        Map<Long, CarritoItem> porId = new HashMap<>();
+        Map<String, CarritoItem> porServicioYFecha = new HashMap<>();
+        for (CarritoItem item : carritoItemRepository.findByCarritoIdConServicio(carrito.getId())) {
+            porId.put(item.getId(), item);
+            porServicioYFecha.put(claveLinea(item.getServicio().getId(), item.getFechaServicio()), item);
+        }
+        
+        Set<Long> servicioIds = new LinkedHashSet<>();
+        for (OperacionCarritoRequest operacion : operaciones) {
+            if (operacion.getTipo() == OperacionCarritoRequest.Tipo.AGREGAR) {
+                validarAgregar(operacion);
+                servicioIds.add(operacion.getServicioId());
+            }
+        }
+        Map<Long, ServicioTuristico> servicios = servicioRepository.findAllById(servicioIds).stream()
+                .collect(Collectors.toMap(ServicioTuristico::getId, Function.identity()));
+        
+        // Líneas tocadas -> si siguen en el carrito. Se comparan por instancia: las nuevas todavía
+        // no tienen id y el equals de las entidades recorre el carrito completo
+        Map<CarritoItem, Boolean> modificadas = new IdentityHashMap<>();
+        for (OperacionCarritoRequest operacion : operaciones) {
+            switch (operacion.getTipo()) {
+                case AGREGAR -> {
+                    ServicioTuristico servicio = servicios.get(operacion.getServicioId());
+                    if (servicio == null) {
+                        throw new ResourceNotFoundException("Servicio", "id", operacion.getServicioId());
+                    }
+                    if (servicio.getEstado() != ServicioTuristico.EstadoServicio.ACTIVO) {
+                        throw new RuntimeException("El servicio no está disponible");
+                    }
+                    String clave = claveLinea(servicio.getId(), operacion.getFechaServicio());
+                    CarritoItem item = porServicioYFecha.get(clave);
+                    if (item != null) {
+                        item.setCantidad(item.getCantidad() + operacion.getCantidad());
+                        item.setNotasEspeciales(operacion.getNotasEspeciales());
+                    } else {
+                        item = CarritoItem.builder()
+                                .carrito(carrito)
+                                .servicio(servicio)
+                                .cantidad(operacion.getCantidad())
+                                .precioUnitario(servicio.getPrecio())
+                                .fechaServicio(operacion.getFechaServicio())
+                                .notasEspeciales(operacion.getNotasEspeciales())
+                                .build();
+                        porServicioYFecha.put(clave, item);
+                    }
+                    modificadas.put(item, Boolean.TRUE);
+                }
+                case ACTUALIZAR -> {
+                    if (operacion.getCantidad() == null) {
+                        throw new RuntimeException("La cantidad es obligatoria para actualizar un item");
+                    }
+                    CarritoItem item = buscarLinea(porId, operacion.getItemId());
+                    if (operacion.getCantidad() <= 0) {
+                        quitarLinea(item, porId, porServicioYFecha);
+                        modificadas.put(item, Boolean.FALSE);
+                    } else {
+                        item.setCantidad(operacion.getCantidad());
+                        modificadas.put(item, Boolean.TRUE);
+                    }
+                }
+                case ELIMINAR -> {
+                    CarritoItem item = buscarLinea(porId, operacion.getItemId());
+                    quitarLinea(item, porId, porServicioYFecha);
+                    modificadas.put(item, Boolean.FALSE);
+                }
+            }
+        }
+        
+        Set<Long> eliminadas = modificadas.entrySet().stream()
+                .filter(entrada -> !entrada.getValue())
+                .map(entrada -> entrada.getKey().getId())
+                .collect(Collectors.toSet());
+        List<CarritoItem> nuevas = modificadas.entrySet().stream()
+                .filter(entrada -> entrada.getValue() && entrada.getKey().getId() == null)
+                .map(Map.Entry::getKey)
+                .toList();
+        
+        bloqueoCupoService.liberar(eliminadas);
+        carrito.getItems().removeIf(item -> eliminadas.contains(item.getId()));
+        carrito.getItems().addAll(nuevas);
+        carritoItemRepository.saveAll(nuevas);
+        // Las cantidades cambiadas se escriben con el flush, agrupadas por hibernate.jdbc.batch_size
+        carritoItemRepository.flush();
+        
+        bloqueoCupoService.apartarTodos(modificadas.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(Map.Entry::getKey)
+                .toList());
+        
+        return convertToCarritoResponse(carrito);
+    }
+    
     public CarritoResponse actualizarCantidad(Long itemId, Integer nuevaCantidad) {
         Usuario usuario = getCurrentUser();
         
@@ -85,10 +196,11 @@ public class CarritoService {
         }
         
         if (nuevaCantidad <= 0) {
+            bloqueoCupoService.liberar(List.of(item.getId()));
             carritoItemRepository.delete(item);
         } else {
             item.setCantidad(nuevaCantidad);
-            carritoItemRepository.save(item);
+            bloqueoCupoService.apartar(carritoItemRepository.save(item));
         }
         
         return convertToCarritoResponse(item.getCarrito());
@@ -106,6 +218,7 @@ public class CarritoService {
         }
         
         Carrito carrito = item.getCarrito();
+        bloqueoCupoService.liberar(List.of(item.getId()));
         carritoItemRepository.delete(item);
         
         return convertToCarritoResponse(carrito);
@@ -116,6 +229,7 @@ public class CarritoService {
         
         Optional<Carrito> carritoOpt = carritoRepository.findByUsuario(usuario);
         if (carritoOpt.isPresent()) {
+            bloqueoCupoService.liberar(carritoOpt.get().getItems().stream().map(CarritoItem::getId).toList());
             carritoItemRepository.deleteByCarritoId(carritoOpt.get().getId());
         }
     }
@@ -125,6 +239,33 @@ public class CarritoService {
         return carritoItemRepository.countByUsuarioId(usuario.getId());
     }
     
+    private void validarAgregar(OperacionCarritoRequest operacion) {
+        if (operacion.getServicioId() == null || operacion.getFechaServicio() == null) {
+            throw new RuntimeException("El servicio y la fecha son obligatorios para agregar un item");
+        }
+        if (operacion.getCantidad() == null || operacion.getCantidad() <= 0) {
+            throw new RuntimeException("La cantidad debe ser positiva");
+        }
+    }
+    
+    private CarritoItem buscarLinea(Map<Long, CarritoItem> porId, Long itemId) {
+        // Solo se encuentran las líneas del carrito del usuario, así se valida también el permiso
+        CarritoItem item = itemId != null ? porId.get(itemId) : null;
+        if (item == null) {
+            throw new ResourceNotFoundException("Item del carrito", "id", itemId);
+        }
+        return item;
+    }
+    
+    private void quitarLinea(CarritoItem item, Map<Long, CarritoItem> porId, Map<String, CarritoItem> porServicioYFecha) {
+        porId.remove(item.getId());
+        porServicioYFecha.remove(claveLinea(item.getServicio().getId(), item.getFechaServicio()));
+    }
+    
+    private static String claveLinea(Long servicioId, LocalDate fechaServicio) {
+        return servicioId + ":" + fechaServicio;
+    }
+    
     private Carrito obtenerOCrearCarrito(Usuario usuario) {
         return carritoRepository.findByUsuario(usuario)
                 .orElseGet(() -> {
@@ -136,8 +277,10 @@ public class CarritoService {
     }
     
     private CarritoResponse convertToCarritoResponse(Carrito carrito) {
+        Map<Long, LocalDateTime> vencimientos = bloqueoCupoService.getVencimientos(
+                carrito.getItems().stream().map(CarritoItem::getId).toList());
         List<CarritoItemResponse> items = carrito.getItems().stream()
-                .map(this::convertToCarritoItemResponse)
+                .map(item -> convertToCarritoItemResponse(item, vencimientos.get(item.getId())))
                 .collect(Collectors.toList());
         
         return CarritoResponse.builder()
@@ -151,7 +294,7 @@ public class CarritoService {
                 .build();
     }
     
-    private CarritoItemResponse convertToCarritoItemResponse(CarritoItem item) {
+    private CarritoItemResponse convertToCarritoItemResponse(CarritoItem item, LocalDateTime cupoApartadoHasta) {
         return CarritoItemResponse.builder()
                 .id(item.getId())
                 .cantidad(item.getCantidad())
@@ -160,6 +303,7 @@ public class CarritoService {
                 .fechaServicio(item.getFechaServicio())
                 .notasEspeciales(item.getNotasEspeciales())
                 .fechaAgregado(item.getFechaAgregado())
+                .cupoApartadoHasta(cupoApartadoHasta)
                 .servicio(convertToServicioBasicResponse(item.getServicio()))
                 .build();
     }
@@ -189,10 +333,6 @@ public class CarritoService {
     }
     
     private Usuario getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (!(principal instanceof Usuario)) {
-            throw new RuntimeException("Usuario no autenticado correctamente");
-        }
-        return (Usuario) principal;
+        return authContext.getUsuario();
     }
 }
\ No newline at end of file
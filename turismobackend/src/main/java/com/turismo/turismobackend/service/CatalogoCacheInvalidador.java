@@ -0,0 +1,52 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.CacheConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class CatalogoCacheInvalidador {
+    
+    private final CacheManager cacheManager;
+    
+    // Lo llama CatalogoVersionService al detectar una versión nueva, propia o de otra instancia.
+    // Se vacían las cachés completas porque la versión compartida no indica qué elemento cambió
+    public void invalidar(CatalogoModificadoEvent.Tipo tipo) {
+        switch (tipo) {
+            case PLAN -> limpiar(List.of(CacheConfig.PLANES, CacheConfig.TARIFAS_PLAN, CacheConfig.PLANES_LISTADOS));
+            case SERVICIO -> {
+                // Los planes incluyen el detalle de sus servicios
+                limpiar(List.of(CacheConfig.SERVICIOS, CacheConfig.SERVICIOS_LISTADOS,
+                        CacheConfig.PLANES, CacheConfig.PLANES_LISTADOS, CacheConfig.TARIFAS_PLAN));
+            }
+            case EMPRENDEDOR -> {
+                // Servicios y planes muestran al emprendedor; municipalidades y categorías lo listan o cuentan
+                limpiar(List.of(CacheConfig.EMPRENDEDORES, CacheConfig.EMPRENDEDORES_LISTADOS,
+                        CacheConfig.SERVICIOS, CacheConfig.SERVICIOS_LISTADOS,
+                        CacheConfig.PLANES, CacheConfig.PLANES_LISTADOS,
+                        CacheConfig.MUNICIPALIDADES, CacheConfig.MUNICIPALIDADES_LISTADOS,
+                        CacheConfig.CATEGORIAS, CacheConfig.CATEGORIAS_LISTADOS));
+            }
+            case CATEGORIA -> limpiar(List.of(CacheConfig.CATEGORIAS, CacheConfig.CATEGORIAS_LISTADOS,
+                    CacheConfig.EMPRENDEDORES, CacheConfig.EMPRENDEDORES_LISTADOS));
+            case MUNICIPALIDAD -> limpiar(List.of(CacheConfig.MUNICIPALIDADES, CacheConfig.MUNICIPALIDADES_LISTADOS,
+                    CacheConfig.EMPRENDEDORES, CacheConfig.EMPRENDEDORES_LISTADOS,
+                    CacheConfig.SERVICIOS, CacheConfig.SERVICIOS_LISTADOS,
+                    CacheConfig.PLANES, CacheConfig.PLANES_LISTADOS));
+        }
+    }
+    
+    private void limpiar(List<String> nombresCache) {
+        for (String nombreCache : nombresCache) {
+            Cache cache = cacheManager.getCache(nombreCache);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
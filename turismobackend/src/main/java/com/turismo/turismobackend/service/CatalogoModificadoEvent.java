@@ -0,0 +1,9 @@
+package com.turismo.turismobackend.service;
+
+// Se publica al crear, modificar o eliminar un elemento del catálogo
+public record CatalogoModificadoEvent(Tipo tipo, Long id) {
+    
+    public enum Tipo {
+        PLAN, SERVICIO, EMPRENDEDOR, CATEGORIA, MUNICIPALIDAD
+    }
+}
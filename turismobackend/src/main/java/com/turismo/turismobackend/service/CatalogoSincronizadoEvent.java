@@ -0,0 +1,5 @@
+package com.turismo.turismobackend.service;
+
+// Se publica cuando cambia la versión compartida de un tipo, sea por un cambio de esta instancia o de otra
+public record CatalogoSincronizadoEvent(CatalogoModificadoEvent.Tipo tipo) {
+}
@@ -0,0 +1,151 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.CatalogoVersion;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.repository.CatalogoVersionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Versiones por tipo de catálogo para construir ETag y Last-Modified sin consultar las tablas del
+// catálogo. Las versiones viven en catalogo_versiones: todas las instancias generan el mismo ETag y el
+// refresco periódico detecta los cambios hechos en otras instancias para vaciar aquí sus cachés.
+@Service
+@RequiredArgsConstructor
+public class CatalogoVersionService {
+    
+    // Tipos cuyos datos aparecen embebidos en las respuestas de cada tipo
+    private static final Map<CatalogoModificadoEvent.Tipo, List<CatalogoModificadoEvent.Tipo>> DEPENDENCIAS = Map.of(
+            CatalogoModificadoEvent.Tipo.PLAN, List.of(CatalogoModificadoEvent.Tipo.SERVICIO,
+                    CatalogoModificadoEvent.Tipo.EMPRENDEDOR, CatalogoModificadoEvent.Tipo.MUNICIPALIDAD),
+            CatalogoModificadoEvent.Tipo.SERVICIO, List.of(CatalogoModificadoEvent.Tipo.EMPRENDEDOR,
+                    CatalogoModificadoEvent.Tipo.MUNICIPALIDAD),
+            CatalogoModificadoEvent.Tipo.EMPRENDEDOR, List.of(CatalogoModificadoEvent.Tipo.MUNICIPALIDAD,
+                    CatalogoModificadoEvent.Tipo.CATEGORIA),
+            CatalogoModificadoEvent.Tipo.CATEGORIA, List.of(CatalogoModificadoEvent.Tipo.EMPRENDEDOR),
+            CatalogoModificadoEvent.Tipo.MUNICIPALIDAD, List.of(CatalogoModificadoEvent.Tipo.EMPRENDEDOR)
+    );
+    
+    private final CatalogoVersionRepository catalogoVersionRepository;
+    private final CatalogoCacheInvalidador cacheInvalidador;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    private final Map<CatalogoModificadoEvent.Tipo, Version> versiones = new ConcurrentHashMap<>();
+    private final AtomicBoolean conteosReservasPendientes = new AtomicBoolean();
+    
+    // Dentro de la transacción del cambio: la versión se confirma o se revierte junto con él
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void registrarCambio(CatalogoModificadoEvent evento) {
+        catalogoVersionRepository.incrementar(evento.tipo().name(), LocalDateTime.now());
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogoModificado(CatalogoModificadoEvent evento) {
+        refrescar();
+    }
+    
+    // Recoge los cambios de cualquier instancia. Primero vacía la caché del tipo y después publica la
+    // versión nueva: un ETag nuevo nunca se sirve con datos de la caché anterior
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.catalogo.sincronizacion-ms:1000}")
+    public synchronized void refrescar() {
+        Map<CatalogoModificadoEvent.Tipo, Version> leidas = new EnumMap<>(CatalogoModificadoEvent.Tipo.class);
+        for (CatalogoVersion fila : catalogoVersionRepository.findAll()) {
+            leidas.put(CatalogoModificadoEvent.Tipo.valueOf(fila.getTipo()),
+                    new Version(fila.getVersion(), fila.getFechaModificacion()
+                            .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        }
+        for (CatalogoModificadoEvent.Tipo tipo : CatalogoModificadoEvent.Tipo.values()) {
+            Version leida = leidas.get(tipo);
+            if (leida != null && leida.numero() > version(tipo).numero()) {
+                cacheInvalidador.invalidar(tipo);
+                versiones.put(tipo, leida);
+                eventPublisher.publishEvent(new CatalogoSincronizadoEvent(tipo));
+            }
+        }
+    }
+    
+    // El total de reservas que muestran los planes no justifica invalidar el catálogo en cada reserva:
+    // las altas y cancelaciones se agrupan y se publican como un único cambio periódico
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReservaTransicion(ReservaTransicionEvent evento) {
+        if (cambiaConteoReservas(evento)) {
+            conteosReservasPendientes.set(true);
+        }
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReservaTransicionLote(ReservaTransicionLoteEvent evento) {
+        if (evento.transiciones().stream().anyMatch(this::cambiaConteoReservas)) {
+            conteosReservasPendientes.set(true);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${application.catalogo.conteo-reservas-ms:300000}")
+    public void publicarConteosReservas() {
+        if (conteosReservasPendientes.getAndSet(false)) {
+            eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.PLAN, null));
+        }
+    }
+    
+    // ETag de un listado: cambia con cualquier modificación del tipo o de sus dependencias
+    public String etagListado(CatalogoModificadoEvent.Tipo tipo) {
+        return construirEtag(tipo, null);
+    }
+    
+    // ETag de un elemento: la versión es la del tipo, así cualquier cambio del tipo lo invalida
+    public String etagElemento(CatalogoModificadoEvent.Tipo tipo, Long id) {
+        return construirEtag(tipo, id);
+    }
+    
+    public long ultimaModificacion(CatalogoModificadoEvent.Tipo tipo) {
+        long ultima = version(tipo).modificacion();
+        for (CatalogoModificadoEvent.Tipo dependencia : DEPENDENCIAS.get(tipo)) {
+            ultima = Math.max(ultima, version(dependencia).modificacion());
+        }
+        return ultima;
+    }
+    
+    private String construirEtag(CatalogoModificadoEvent.Tipo tipo, Long id) {
+        StringBuilder etag = new StringBuilder("\"").append(tipo.name().toLowerCase());
+        if (id != null) {
+            etag.append('-').append(id);
+        }
+        etag.append('-').append(version(tipo).numero());
+        for (CatalogoModificadoEvent.Tipo dependencia : DEPENDENCIAS.get(tipo)) {
+            etag.append('.').append(version(dependencia).numero());
+        }
+        return etag.append('"').toString();
+    }
+    
+    private Version version(CatalogoModificadoEvent.Tipo tipo) {
+        return versiones.getOrDefault(tipo, Version.INICIAL);
+    }
+    
+    private boolean cambiaConteoReservas(ReservaTransicionEvent evento) {
+        return evento.fuente() == ReservaTransicionEvent.Fuente.PLAN
+                && (evento.estadoAnterior() == null
+                || Reserva.EstadoReserva.CANCELADA.name().equals(evento.estadoNuevo()));
+    }
+    
+    private record Version(long numero, long modificacion) {
+        
+        // Tipo sin cambios registrados; sin Last-Modified hasta el primer cambio
+        private static final Version INICIAL = new Version(0, 0);
+    }
+}
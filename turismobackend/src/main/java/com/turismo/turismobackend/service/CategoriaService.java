@@ -1,12 +1,16 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.CacheConfig;
 import com.turismo.turismobackend.dto.request.CategoriaRequest;
 import com.turismo.turismobackend.dto.response.CategoriaResponse;
 import com.turismo.turismobackend.exception.ResourceNotFoundException;
 import com.turismo.turismobackend.model.Categoria;
 import com.turismo.turismobackend.repository.CategoriaRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,13 +20,18 @@ import java.util.stream.Collectors;
 public class CategoriaService {
     
     private final CategoriaRepository categoriaRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
+    // Cuenta los emprendedores (colección perezosa) también cuando lo llama el hilo de snapshots
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.CATEGORIAS_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<CategoriaResponse> getAllCategorias() {
         return categoriaRepository.findAll().stream()
                 .map(this::mapToCategoriaResponse)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.CATEGORIAS, key = "#id")
     public CategoriaResponse getCategoriaById(Long id) {
         Categoria categoria = categoriaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Categoría", "id", id));
@@ -43,6 +52,7 @@ public class CategoriaService {
                 .build();
         
         categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.CATEGORIA, categoria.getId()));
         
         return mapToCategoriaResponse(categoria);
     }
@@ -63,6 +73,7 @@ public class CategoriaService {
         categoria.setDescripcion(request.getDescripcion());
         
         categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.CATEGORIA, categoria.getId()));
         
         return mapToCategoriaResponse(categoria);
     }
@@ -78,6 +89,7 @@ public class CategoriaService {
         }
         
         categoriaRepository.delete(categoria);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.CATEGORIA, id));
     }
     
     private CategoriaResponse mapToCategoriaResponse(Categoria categoria) {
@@ -0,0 +1,46 @@
+package com.turismo.turismobackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turismo.turismobackend.model.EventoOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+// Abre la conversación del cliente con cada emprendedor de una reserva de carrito recién creada
+@Component
+@RequiredArgsConstructor
+public class ChatReservaSuscriptor implements SuscriptorOutbox {
+    
+    private final ChatService chatService;
+    private final ObjectMapper objectMapper;
+    
+    @Override
+    public String nombre() {
+        return "chat-reserva-carrito";
+    }
+    
+    @Override
+    public Set<EventoOutbox.TipoEvento> tipos() {
+        return Set.of(EventoOutbox.TipoEvento.RESERVA_CREADA);
+    }
+    
+    @Override
+    public void manejar(EventoOutbox evento) {
+        if (!ReservaTransicionEvent.Fuente.CARRITO.name().equals(evento.getFuente())) {
+            return;
+        }
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(evento.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Payload inválido en el evento " + evento.getId(), e);
+        }
+        // Si la conversación ya existe no se crea otra, así que reintentar es seguro
+        for (JsonNode emprendedorId : payload.path("emprendedorIds")) {
+            chatService.iniciarConversacionDeReservaCarrito(evento.getAgregadoId(), emprendedorId.asLong());
+        }
+    }
+}
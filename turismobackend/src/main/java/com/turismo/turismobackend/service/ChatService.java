@@ -1,5 +1,6 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
 import com.turismo.turismobackend.dto.request.ChatMensajeRequest;
 import com.turismo.turismobackend.dto.response.*;
 import com.turismo.turismobackend.exception.ResourceNotFoundException;
@@ -8,7 +9,6 @@ import com.turismo.turismobackend.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
@@ -26,6 +26,7 @@ public class ChatService {
     private final EmprendedorRepository emprendedorRepository;
     private final ReservaRepository reservaRepository;
     private final ReservaCarritoRepository reservaCarritoRepository;
+    private final AuthContext authContext;
     
     public List<ChatConversacionResponse> obtenerConversaciones() {
         Usuario usuario = getCurrentUser();
@@ -34,10 +35,9 @@ public class ChatService {
         
         if (hasRole("ROLE_EMPRENDEDOR")) {
             // Si es emprendedor, buscar por emprendedor
-            Emprendedor emprendedor = emprendedorRepository.findByUsuarioId(usuario.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "usuario_id", usuario.getId()));
+            Long emprendedorId = getEmprendedorIdActual(usuario);
             conversaciones = conversacionRepository.findByEmprendedorIdAndEstado(
-                    emprendedor.getId(), ChatConversacion.EstadoConversacion.ACTIVA);
+                    emprendedorId, ChatConversacion.EstadoConversacion.ACTIVA);
         } else {
             // Si es usuario normal, buscar por usuario
             conversaciones = conversacionRepository.findByUsuarioIdAndEstado(
@@ -50,8 +50,17 @@ public class ChatService {
     }
     
     public ChatConversacionResponse iniciarConversacionConReservaCarrito(Long emprendedorId, Long reservaCarritoId) {
-        Usuario usuario = getCurrentUser();
-        
+        return convertToConversacionResponse(abrirConversacionCarrito(getCurrentUser(), emprendedorId, reservaCarritoId));
+    }
+    
+    // Para procesos sin usuario autenticado (eventos de reserva): la conversación es del cliente de la reserva
+    public void iniciarConversacionDeReservaCarrito(Long reservaCarritoId, Long emprendedorId) {
+        ReservaCarrito reservaCarrito = reservaCarritoRepository.findById(reservaCarritoId)
+                .orElseThrow(() -> new ResourceNotFoundException("ReservaCarrito", "id", reservaCarritoId));
+        abrirConversacionCarrito(reservaCarrito.getUsuario(), emprendedorId, reservaCarritoId);
+    }
+    
+    private ChatConversacion abrirConversacionCarrito(Usuario usuario, Long emprendedorId, Long reservaCarritoId) {
         Emprendedor emprendedor = emprendedorRepository.findById(emprendedorId)
                 .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "id", emprendedorId));
         
@@ -91,7 +100,7 @@ public class ChatService {
             mensajeRepository.save(mensajeSistema);
         }
         
-        return convertToConversacionResponse(conversacion);
+        return conversacion;
     }
     
     public ChatMensajeResponse enviarMensaje(ChatMensajeRequest request) {
@@ -107,9 +116,8 @@ public class ChatService {
         if (conversacion.getUsuario().getId().equals(usuario.getId())) {
             puedeParticipar = true;
         } else if (hasRole("ROLE_EMPRENDEDOR")) {
-            Emprendedor emprendedor = emprendedorRepository.findByUsuarioId(usuario.getId())
-                    .orElse(null);
-            if (emprendedor != null && conversacion.getEmprendedor().getId().equals(emprendedor.getId())) {
+            Long emprendedorId = authContext.getEmprendedorId();
+            if (emprendedorId != null && conversacion.getEmprendedor().getId().equals(emprendedorId)) {
                 puedeParticipar = true;
                 esEmprendedor = true;
             }
@@ -130,7 +138,7 @@ public class ChatService {
                 .build();
         
         if (esEmprendedor) {
-            mensaje.setEmprendedor(emprendedorRepository.findByUsuarioId(usuario.getId()).get());
+            mensaje.setEmprendedor(conversacion.getEmprendedor());
         } else {
             mensaje.setUsuario(usuario);
         }
@@ -182,9 +190,7 @@ public class ChatService {
         Usuario usuario = getCurrentUser();
         
         if (hasRole("ROLE_EMPRENDEDOR")) {
-            Emprendedor emprendedor = emprendedorRepository.findByUsuarioId(usuario.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "usuario_id", usuario.getId()));
-            return mensajeRepository.countMensajesNoLeidosParaEmprendedor(emprendedor.getId());
+            return mensajeRepository.countMensajesNoLeidosParaEmprendedor(getEmprendedorIdActual(usuario));
         } else {
             return mensajeRepository.countMensajesNoLeidosParaUsuario(usuario.getId());
         }
@@ -208,9 +214,8 @@ public class ChatService {
         if (conversacion.getUsuario().getId().equals(usuario.getId())) {
             tienePermiso = true;
         } else if (hasRole("ROLE_EMPRENDEDOR")) {
-            Emprendedor emprendedor = emprendedorRepository.findByUsuarioId(usuario.getId())
-                    .orElse(null);
-            if (emprendedor != null && conversacion.getEmprendedor().getId().equals(emprendedor.getId())) {
+            Long emprendedorId = authContext.getEmprendedorId();
+            if (emprendedorId != null && conversacion.getEmprendedor().getId().equals(emprendedorId)) {
                 tienePermiso = true;
             }
         }
@@ -303,17 +308,20 @@ public class ChatService {
     }
     
     private Usuario getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (!(principal instanceof Usuario)) {
-            throw new RuntimeException("Usuario no autenticado correctamente");
-        }
-        return (Usuario) principal;
+        return authContext.getUsuario();
     }
     
     private boolean hasRole(String role) {
-            return getCurrentUser().getAuthorities().stream()
-                    .anyMatch(authority -> authority.getAuthority().equals(role));
+        return authContext.hasRole(role);
+    }
+    
+    private Long getEmprendedorIdActual(Usuario usuario) {
+        Long emprendedorId = authContext.getEmprendedorId();
+        if (emprendedorId == null) {
+            throw new ResourceNotFoundException("Emprendedor", "usuario_id", usuario.getId());
         }
+        return emprendedorId;
+    }
         public ChatConversacionResponse obtenerConversacionPorId(Long conversacionId) {
         Usuario usuario = getCurrentUser();
         
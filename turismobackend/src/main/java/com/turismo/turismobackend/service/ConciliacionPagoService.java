@@ -0,0 +1,314 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.Pago;
+import com.turismo.turismobackend.model.PagoCarrito;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.ReservaCarrito;
+import com.turismo.turismobackend.repository.PagoCarritoRepository;
+import com.turismo.turismobackend.repository.PagoRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Confirma o rechaza pagos en lote a partir de un extracto bancario. Cada lote de líneas se procesa
+// en su propia transacción con actualizaciones masivas, y cada reserva afectada se recalcula una vez.
+@Service
+@RequiredArgsConstructor
+public class ConciliacionPagoService {
+
+    private static final Set<Pago.EstadoPago> ESTADOS_CONCILIABLES = Set.of(Pago.EstadoPago.PENDIENTE, Pago.EstadoPago.PROCESANDO);
+    private static final String MOTIVO_RECHAZO = "conciliación bancaria";
+    
+    private final PagoRepository pagoRepository;
+    private final PagoCarritoRepository pagoCarritoRepository;
+    private final ReservaRepository reservaRepository;
+    private final ReservaCarritoRepository reservaCarritoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IngresoRollupService ingresoRollupService;
+    private final OutboxService outboxService;
+    private final AgendaEmprendedorService agendaEmprendedorService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    
+    @Value("${application.conciliacion.tamano-lote:500}")
+    private int tamanoLote;
+    
+    public enum Accion {
+        CONFIRMAR,
+        RECHAZAR
+    }
+    
+    public enum Resultado {
+        CONFIRMADO,
+        RECHAZADO,
+        OMITIDO,
+        NO_ENCONTRADO,
+        DISCREPANCIA,
+        SIN_PERMISO,
+        LINEA_INVALIDA,
+        ERROR
+    }
+    
+    // Quién concilia; se resuelve en el hilo de la petición porque el reporte se escribe en otro hilo
+    public record Operador(boolean admin, Long usuarioId, Long municipalidadId) {
+    }
+    
+    public record LineaConciliacion(int numero, String referencia, BigDecimal monto, Accion accion) {
+    }
+    
+    public record ResultadoLinea(int numero, String referencia, Resultado resultado, String detalle) {
+    
+        public String toCsv() {
+            return numero + "," + referencia + "," + resultado + "," + (detalle != null ? detalle.replace(',', ';') : "");
+        }
+    }
+    
+    // Formato por línea: referencia[,monto[,CONFIRMAR|RECHAZAR]]; la referencia es el código de pago
+    // o el número de transacción. Se ignoran líneas vacías, comentarios (#) y la cabecera.
+    // El extracto se lee a medida que se procesa: solo se guarda en memoria el lote en curso, y una
+    // línea mal formada se informa como LINEA_INVALIDA sin detener el resto.
+    public void conciliar(BufferedReader lector, Operador operador, Consumer<ResultadoLinea> salida) throws IOException {
+        List<LineaConciliacion> lote = new ArrayList<>();
+        List<ResultadoLinea> invalidas = new ArrayList<>();
+        String texto;
+        int numero = 0;
+        while ((texto = lector.readLine()) != null) {
+            numero++;
+            texto = texto.trim();
+            if (texto.isEmpty() || texto.startsWith("#") || texto.toLowerCase().startsWith("referencia")) {
+                continue;
+            }
+            try {
+                lote.add(interpretar(numero, texto));
+            } catch (IllegalArgumentException e) {
+                invalidas.add(new ResultadoLinea(numero, texto.split("[,;]")[0].trim(), Resultado.LINEA_INVALIDA,
+                        "Línea no válida: " + texto));
+            }
+            if (lote.size() + invalidas.size() >= tamanoLote) {
+                procesar(lote, invalidas, operador, salida);
+                lote = new ArrayList<>();
+                invalidas = new ArrayList<>();
+            }
+        }
+        if (!lote.isEmpty() || !invalidas.isEmpty()) {
+            procesar(lote, invalidas, operador, salida);
+        }
+    }
+    
+    private LineaConciliacion interpretar(int numero, String texto) {
+        String[] partes = texto.split("[,;]");
+        String referencia = partes[0].trim();
+        if (referencia.isEmpty()) {
+            throw new IllegalArgumentException("Referencia vacía");
+        }
+        BigDecimal monto = null;
+        Accion accion = Accion.CONFIRMAR;
+        if (partes.length > 1 && !partes[1].isBlank()) {
+            monto = new BigDecimal(partes[1].trim());
+        }
+        if (partes.length > 2 && !partes[2].isBlank()) {
+            accion = Accion.valueOf(partes[2].trim().toUpperCase());
+        }
+        return new LineaConciliacion(numero, referencia, monto, accion);
+    }
+    
+    private void procesar(List<LineaConciliacion> lote, List<ResultadoLinea> invalidas, Operador operador,
+                          Consumer<ResultadoLinea> salida) {
+        List<ResultadoLinea> resultados = new ArrayList<>(invalidas);
+        if (!lote.isEmpty()) {
+            try {
+                resultados.addAll(transactionTemplate.execute(estado -> procesarLote(lote, operador)));
+            } catch (RuntimeException e) {
+                // El lote completo se revierte; las líneas pueden reenviarse en otro extracto
+                lote.forEach(linea -> resultados.add(new ResultadoLinea(linea.numero(), linea.referencia(),
+                        Resultado.ERROR, "Lote revertido: " + e.getMessage())));
+            }
+        }
+        // Se informa cuando el lote ya está confirmado en base de datos, en el orden del extracto
+        resultados.sort(Comparator.comparingInt(ResultadoLinea::numero));
+        resultados.forEach(salida);
+    }
+    
+    private List<ResultadoLinea> procesarLote(List<LineaConciliacion> lote, Operador operador) {
+        Set<String> referencias = new HashSet<>();
+        lote.forEach(linea -> referencias.add(linea.referencia()));
+    
+        Map<String, List<Pago>> pagos = indexar(pagoRepository.findByReferencias(referencias),
+                Pago::getCodigoPago, Pago::getNumeroTransaccion);
+        Map<String, List<PagoCarrito>> pagosCarrito = indexar(pagoCarritoRepository.findByReferencias(referencias),
+                PagoCarrito::getCodigoPago, PagoCarrito::getNumeroTransaccion);
+    
+        List<Pago> confirmados = new ArrayList<>();
+        List<PagoCarrito> confirmadosCarrito = new ArrayList<>();
+        Set<Long> pagosAConfirmar = new HashSet<>();
+        Set<Long> pagosARechazar = new HashSet<>();
+        Set<Long> pagosCarritoAConfirmar = new HashSet<>();
+        Set<Long> pagosCarritoARechazar = new HashSet<>();
+        // Monto confirmado por reserva, para recalcular cada una una sola vez
+        Map<Long, Reserva> reservas = new LinkedHashMap<>();
+        Map<Long, BigDecimal> confirmadoPorReserva = new HashMap<>();
+        Map<Long, ReservaCarrito> reservasCarrito = new LinkedHashMap<>();
+        Map<Long, BigDecimal> confirmadoPorReservaCarrito = new HashMap<>();
+    
+        List<ResultadoLinea> resultados = new ArrayList<>();
+        for (LineaConciliacion linea : lote) {
+            List<Pago> candidatos = pagos.getOrDefault(linea.referencia(), List.of());
+            List<PagoCarrito> candidatosCarrito = pagosCarrito.getOrDefault(linea.referencia(), List.of());
+    
+            if (candidatos.size() + candidatosCarrito.size() == 0) {
+                resultados.add(resultado(linea, Resultado.NO_ENCONTRADO, null));
+            } else if (candidatos.size() + candidatosCarrito.size() > 1) {
+                resultados.add(resultado(linea, Resultado.DISCREPANCIA, "La referencia coincide con varios pagos"));
+            } else if (!candidatos.isEmpty()) {
+                Pago pago = candidatos.get(0);
+                Resultado validacion = validar(linea, pago.getEstado(), pago.getMonto(),
+                        pagosAConfirmar.contains(pago.getId()) || pagosARechazar.contains(pago.getId()));
+                if (validacion == null && !puedeConciliar(operador, pago.getReserva())) {
+                    validacion = Resultado.SIN_PERMISO;
+                }
+                if (validacion != null) {
+                    resultados.add(resultado(linea, validacion, pago.getCodigoPago() + " en estado " + pago.getEstado()));
+                } else if (linea.accion() == Accion.CONFIRMAR) {
+                    pagosAConfirmar.add(pago.getId());
+                    confirmados.add(pago);
+                    reservas.put(pago.getReserva().getId(), pago.getReserva());
+                    confirmadoPorReserva.merge(pago.getReserva().getId(), pago.getMonto(), BigDecimal::add);
+                    resultados.add(resultado(linea, Resultado.CONFIRMADO, pago.getCodigoPago()));
+                } else {
+                    pagosARechazar.add(pago.getId());
+                    resultados.add(resultado(linea, Resultado.RECHAZADO, pago.getCodigoPago()));
+                }
+            } else {
+                PagoCarrito pago = candidatosCarrito.get(0);
+                Resultado validacion = validar(linea, pago.getEstado(), pago.getMonto(),
+                        pagosCarritoAConfirmar.contains(pago.getId()) || pagosCarritoARechazar.contains(pago.getId()));
+                // Un carrito agrupa servicios de varios emprendedores: solo el administrador lo concilia
+                if (validacion == null && !operador.admin()) {
+                    validacion = Resultado.SIN_PERMISO;
+                }
+                if (validacion != null) {
+                    resultados.add(resultado(linea, validacion, pago.getCodigoPago() + " en estado " + pago.getEstado()));
+                } else if (linea.accion() == Accion.CONFIRMAR) {
+                    pagosCarritoAConfirmar.add(pago.getId());
+                    confirmadosCarrito.add(pago);
+                    reservasCarrito.put(pago.getReservaCarrito().getId(), pago.getReservaCarrito());
+                    confirmadoPorReservaCarrito.merge(pago.getReservaCarrito().getId(), pago.getMonto(), BigDecimal::add);
+                    resultados.add(resultado(linea, Resultado.CONFIRMADO, pago.getCodigoPago()));
+                } else {
+                    pagosCarritoARechazar.add(pago.getId());
+                    resultados.add(resultado(linea, Resultado.RECHAZADO, pago.getCodigoPago()));
+                }
+            }
+        }
+    
+        LocalDateTime ahora = LocalDateTime.now();
+        // Si otro proceso cambió alguno de estos pagos desde la lectura, el conteo no cuadra y el lote se revierte
+        if (!pagosAConfirmar.isEmpty() && pagoRepository.confirmarPendientes(pagosAConfirmar, ahora) != pagosAConfirmar.size()) {
+            throw new RuntimeException("pagos modificados durante la conciliación");
+        }
+        if (!pagosARechazar.isEmpty() && pagoRepository.rechazarPendientes(pagosARechazar, MOTIVO_RECHAZO) != pagosARechazar.size()) {
+            throw new RuntimeException("pagos modificados durante la conciliación");
+        }
+        if (!pagosCarritoAConfirmar.isEmpty()
+                && pagoCarritoRepository.confirmarPendientes(pagosCarritoAConfirmar, ahora) != pagosCarritoAConfirmar.size()) {
+            throw new RuntimeException("pagos modificados durante la conciliación");
+        }
+        if (!pagosCarritoARechazar.isEmpty()
+                && pagoCarritoRepository.rechazarPendientes(pagosCarritoARechazar, MOTIVO_RECHAZO) != pagosCarritoARechazar.size()) {
+            throw new RuntimeException("pagos modificados durante la conciliación");
+        }
+    
+        // Los UPDATE masivos no pasan por el contexto de persistencia: los pagos leídos seguirían en
+        // PENDIENTE. Se desvinculan y se vuelven a leer con el estado y la fecha de confirmación guardados
+        confirmados.forEach(entityManager::detach);
+        confirmadosCarrito.forEach(entityManager::detach);
+        confirmados = pagosAConfirmar.isEmpty() ? List.of() : pagoRepository.findConReservaByIdIn(pagosAConfirmar);
+        confirmadosCarrito = pagosCarritoAConfirmar.isEmpty()
+                ? List.of() : pagoCarritoRepository.findConReservaByIdIn(pagosCarritoAConfirmar);
+    
+        reservas.forEach((id, reserva) -> {
+            Reserva.EstadoReserva estadoAnterior = reserva.getEstado();
+            reserva.sumarPagoConfirmado(confirmadoPorReserva.get(id));
+            reserva.actualizarEstadoPorPagos();
+            if (reserva.getEstado() != estadoAnterior) {
+                eventPublisher.publishEvent(ReservaTransicionEvent.de(reserva, estadoAnterior));
+            }
+        });
+        reservaRepository.saveAll(reservas.values());
+        List<Long> carritosCambiados = new ArrayList<>();
+        reservasCarrito.forEach((id, reservaCarrito) -> {
+            ReservaCarrito.EstadoReservaCarrito estadoAnterior = reservaCarrito.getEstado();
+            reservaCarrito.sumarPagoConfirmado(confirmadoPorReservaCarrito.get(id));
+            reservaCarrito.actualizarEstadoPorPagos();
+            if (reservaCarrito.getEstado() != estadoAnterior) {
+                carritosCambiados.add(id);
+                eventPublisher.publishEvent(ReservaTransicionEvent.de(reservaCarrito, estadoAnterior, reservaCarrito.getItems()));
+            }
+        });
+        reservaCarritoRepository.saveAll(reservasCarrito.values());
+        // La agenda muestra el estado de la reserva de cada item
+        agendaEmprendedorService.registrarCambios(carritosCambiados);
+        ingresoRollupService.registrarPagosConfirmados(confirmados, confirmadosCarrito, ahora.toLocalDate());
+        outboxService.registrarPagosConfirmados(confirmados, confirmadosCarrito);
+        // Forzar el UPDATE (y la comprobación de @Version) dentro del lote
+        reservaRepository.flush();
+    
+        return resultados;
+    }
+    
+    // null si la línea puede aplicarse
+    private Resultado validar(LineaConciliacion linea, Pago.EstadoPago estado, BigDecimal monto, boolean repetida) {
+        if (repetida || !ESTADOS_CONCILIABLES.contains(estado)) {
+            return Resultado.OMITIDO;
+        }
+        if (linea.monto() != null && linea.monto().compareTo(monto) != 0) {
+            return Resultado.DISCREPANCIA;
+        }
+        return null;
+    }
+    
+    private boolean puedeConciliar(Operador operador, Reserva reserva) {
+        if (operador.admin()) {
+            return true;
+        }
+        return reserva.getPlan().getUsuarioCreador().getId().equals(operador.usuarioId())
+                || (operador.municipalidadId() != null
+                    && operador.municipalidadId().equals(reserva.getPlan().getMunicipalidad().getId()));
+    }
+    
+    private static <T> Map<String, List<T>> indexar(List<T> pagos, Function<T, String> codigo, Function<T, String> transaccion) {
+        Map<String, List<T>> indice = new HashMap<>();
+        for (T pago : pagos) {
+            indice.computeIfAbsent(codigo.apply(pago), clave -> new ArrayList<>()).add(pago);
+            String numero = transaccion.apply(pago);
+            if (numero != null && !numero.equals(codigo.apply(pago))) {
+                indice.computeIfAbsent(numero, clave -> new ArrayList<>()).add(pago);
+            }
+        }
+        return indice;
+    }
+    
+    private static ResultadoLinea resultado(LineaConciliacion linea, Resultado resultado, String detalle) {
+        return new ResultadoLinea(linea.numero(), linea.referencia(), resultado, detalle);
+    }
+}
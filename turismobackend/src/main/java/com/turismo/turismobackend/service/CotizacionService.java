@@ -0,0 +1,321 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.request.CotizacionPlanRequest;
+import com.turismo.turismobackend.dto.request.ReservaServicioRequest;
+import com.turismo.turismobackend.dto.response.CotizacionResponse;
+import com.turismo.turismobackend.model.Carrito;
+import com.turismo.turismobackend.model.CarritoItem;
+import com.turismo.turismobackend.repository.CarritoRepository;
+import com.turismo.turismobackend.repository.CotizacionUsadaRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Cotiza un plan (con personalizaciones y número de personas) o el carrito sin guardar nada.
+// Los importes se calculan en céntimos enteros con precios cacheados y van firmados (HMAC) en un
+// token de un solo uso; el checkout que lo recibe usa esos importes sin recalcular precios ni
+// descuentos. La clave de firma es propia (application.cotizacion.clave-firma), no la de JWT.
+@Service
+@RequiredArgsConstructor
+public class CotizacionService {
+    
+    private static final String VERSION_TOKEN = "c2";
+    private static final String ALGORITMO_FIRMA = "HmacSHA256";
+    private static final int PERSONAS_GRUPO = 5;
+    // Puntos básicos sobre el precio de una persona, igual que el cálculo previo de ReservaService
+    private static final long DESCUENTO_GRUPO_PB = 1000;
+    private static final long DESCUENTO_CLIENTE_FRECUENTE_PB = 500;
+    
+    private final TarifaService tarifaService;
+    private final NivelClienteService nivelClienteService;
+    private final CarritoRepository carritoRepository;
+    private final AuthContext authContext;
+    private final CotizacionUsadaRepository cotizacionUsadaRepository;
+    private final SecureRandom aleatorio = new SecureRandom();
+    
+    @Value("${application.cotizacion.clave-firma:}")
+    private String claveFirma;
+    
+    @Value("${application.security.jwt.secret-key}")
+    private String claveJwt;
+    
+    @Value("${application.cotizacion.vigencia-minutos:15}")
+    private long vigenciaMinutos;
+    
+    // Montos que se guardan en la reserva
+    public record Importes(long totalCentimos, long descuentoCentimos) {
+    
+        public BigDecimal montoTotal() {
+            return BigDecimal.valueOf(totalCentimos, 2);
+        }
+    
+        public BigDecimal montoDescuento() {
+            return BigDecimal.valueOf(descuentoCentimos, 2);
+        }
+    
+        public BigDecimal montoFinal() {
+            return BigDecimal.valueOf(totalCentimos - descuentoCentimos, 2);
+        }
+    }
+    
+    private record Linea(String concepto, int cantidad, long precioCentimos) {
+    }
+    
+    // huella identifica lo cotizado (plan, personas y elecciones, o líneas del carrito)
+    private record Calculo(String huella, List<Linea> lineas, long totalCentimos, long descuentoGrupoCentimos,
+                           long descuentoFrecuenteCentimos) {
+    
+        Importes importes() {
+            return new Importes(totalCentimos, descuentoGrupoCentimos + descuentoFrecuenteCentimos);
+        }
+    }
+    
+    // Sin clave propia no se arranca: compartir la de JWT haría que filtrar una sirva para la otra
+    @PostConstruct
+    void validarClaveFirma() {
+        if (claveFirma == null || claveFirma.isBlank()) {
+            throw new IllegalStateException("Falta application.cotizacion.clave-firma");
+        }
+        if (claveFirma.equals(claveJwt)) {
+            throw new IllegalStateException("application.cotizacion.clave-firma debe ser distinta de la clave de JWT");
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${application.cotizacion.limpieza-ms:3600000}")
+    public void limpiarUsadas() {
+        cotizacionUsadaRepository.eliminarVencidas(LocalDateTime.now());
+    }
+    
+    public CotizacionResponse cotizarPlan(CotizacionPlanRequest request) {
+        Long usuarioId = authContext.getUsuarioId();
+        Calculo calculo = calcularPlan(usuarioId, request.getPlanId(), request.getNumeroPersonas(),
+                request.getServiciosPersonalizados());
+        return convertToResponse(calculo, usuarioId, CotizacionResponse.Tipo.PLAN)
+                .planId(request.getPlanId())
+                .numeroPersonas(request.getNumeroPersonas())
+                .build();
+    }
+    
+    @Transactional(readOnly = true)
+    public CotizacionResponse cotizarCarrito() {
+        Long usuarioId = authContext.getUsuarioId();
+        Carrito carrito = carritoRepository.findByUsuarioIdWithItems(usuarioId)
+                .orElseThrow(() -> new RuntimeException("No hay carrito para este usuario"));
+        if (carrito.isEmpty()) {
+            throw new RuntimeException("El carrito está vacío");
+        }
+        return convertToResponse(calcularCarrito(carrito), usuarioId, CotizacionResponse.Tipo.CARRITO).build();
+    }
+    
+    // Con token se respetan los montos cotizados si corresponden a esta reserva y el plan sigue
+    // activo; el token queda usado al confirmar la transacción de la reserva. Sin token se cobra
+    // como antes de las cotizaciones: precio del plan por persona, sin ajustes por personalización
+    public Importes importesPlan(Long usuarioId, Long planId, int numeroPersonas,
+                                 List<ReservaServicioRequest> personalizados, String token) {
+        if (token == null || token.isBlank()) {
+            return calcularPlan(usuarioId, planId, numeroPersonas, List.of()).importes();
+        }
+        if (!tarifaService.getTarifaPlan(planId).activo()) {
+            throw new RuntimeException("El plan turístico no está disponible para reservas");
+        }
+        return verificar(token, usuarioId, huellaPlan(planId, numeroPersonas, elecciones(personalizados)));
+    }
+    
+    public Importes importesCarrito(Long usuarioId, Carrito carrito, String token) {
+        if (token == null || token.isBlank()) {
+            return calcularCarrito(carrito).importes();
+        }
+        return verificar(token, usuarioId, huellaCarrito(carrito));
+    }
+    
+    private Calculo calcularPlan(Long usuarioId, Long planId, int numeroPersonas,
+                                 List<ReservaServicioRequest> personalizados) {
+        TarifaService.TarifaPlan tarifa = tarifaService.getTarifaPlan(planId);
+        if (!tarifa.activo()) {
+            throw new RuntimeException("El plan turístico no está disponible para reservas");
+        }
+    
+        List<Linea> lineas = new ArrayList<>();
+        lineas.add(new Linea(tarifa.nombre(), numeroPersonas, tarifa.precioCentimos()));
+        long porPersona = tarifa.precioCentimos();
+        Map<Long, Boolean> elecciones = elecciones(personalizados);
+        for (Map.Entry<Long, Boolean> eleccion : elecciones.entrySet()) {
+            TarifaService.TarifaServicio servicio = tarifa.servicios().get(eleccion.getKey());
+            if (servicio == null) {
+                throw new RuntimeException("El servicio " + eleccion.getKey() + " no pertenece al plan");
+            }
+            // El precio del plan ya suma los servicios obligatorios: se agregan los opcionales
+            // elegidos y se descuentan los personalizables que se quitan
+            if (servicio.opcional() && eleccion.getValue()) {
+                porPersona += servicio.precioCentimos();
+                lineas.add(new Linea("Opcional: " + servicio.nombre(), numeroPersonas, servicio.precioCentimos()));
+            } else if (!servicio.opcional() && !eleccion.getValue() && servicio.personalizable()) {
+                porPersona -= servicio.precioCentimos();
+                lineas.add(new Linea("Sin " + servicio.nombre(), numeroPersonas, -servicio.precioCentimos()));
+            }
+        }
+    
+        // Como hasta ahora, los descuentos se calculan sobre el precio de una persona
+        long descuentoGrupo = numeroPersonas >= PERSONAS_GRUPO ? porcentaje(porPersona, DESCUENTO_GRUPO_PB) : 0;
+        long descuentoFrecuente = nivelClienteService.esClienteFrecuente(usuarioId)
+                ? porcentaje(porPersona, DESCUENTO_CLIENTE_FRECUENTE_PB) : 0;
+        return new Calculo(huellaPlan(planId, numeroPersonas, elecciones), lineas,
+                Math.multiplyExact(porPersona, numeroPersonas), descuentoGrupo, descuentoFrecuente);
+    }
+    
+    // Mismo total que Carrito.getTotalCarrito: el precio de cada línea es el guardado al agregarla
+    private Calculo calcularCarrito(Carrito carrito) {
+        List<Linea> lineas = new ArrayList<>();
+        long total = 0;
+        for (CarritoItem item : carrito.getItems()) {
+            long precio = TarifaService.aCentimos(item.getPrecioUnitario());
+            lineas.add(new Linea(item.getServicio().getNombre() + " (" + item.getFechaServicio() + ")",
+                    item.getCantidad(), precio));
+            total = Math.addExact(total, Math.multiplyExact(precio, item.getCantidad()));
+        }
+        return new Calculo(huellaCarrito(carrito), lineas, total, 0, 0);
+    }
+    
+    private CotizacionResponse.CotizacionResponseBuilder convertToResponse(Calculo calculo, Long usuarioId,
+                                                                         CotizacionResponse.Tipo tipo) {
+        long expiraEn = System.currentTimeMillis() + vigenciaMinutos * 60_000;
+        Importes importes = calculo.importes();
+        return CotizacionResponse.builder()
+                .tipo(tipo)
+                .lineas(calculo.lineas().stream()
+                        .map(linea -> CotizacionResponse.LineaCotizacion.builder()
+                                .concepto(linea.concepto())
+                                .cantidad(linea.cantidad())
+                                .precioUnitario(BigDecimal.valueOf(linea.precioCentimos(), 2))
+                                .subtotal(BigDecimal.valueOf(linea.precioCentimos() * linea.cantidad(), 2))
+                                .build())
+                        .toList())
+                .montoTotal(importes.montoTotal())
+                .descuentoGrupo(BigDecimal.valueOf(calculo.descuentoGrupoCentimos(), 2))
+                .descuentoClienteFrecuente(BigDecimal.valueOf(calculo.descuentoFrecuenteCentimos(), 2))
+                .montoDescuento(importes.montoDescuento())
+                .montoFinal(importes.montoFinal())
+                .token(firmar(usuarioId, calculo.huella(), importes, expiraEn))
+                .validaHasta(LocalDateTime.ofInstant(Instant.ofEpochMilli(expiraEn), ZoneId.systemDefault()));
+    }
+    
+    // Token: base64url(version|jti|usuario|huella|total|descuento|expira) + "." + base64url(HMAC)
+    private String firmar(Long usuarioId, String huella, Importes importes, long expiraEn) {
+        byte[] jti = new byte[16];
+        aleatorio.nextBytes(jti);
+        String contenido = String.join("|", VERSION_TOKEN, HexFormat.of().formatHex(jti),
+                String.valueOf(usuarioId), huella,
+                String.valueOf(importes.totalCentimos()), String.valueOf(importes.descuentoCentimos()),
+                String.valueOf(expiraEn));
+        Base64.Encoder codificador = Base64.getUrlEncoder().withoutPadding();
+        return codificador.encodeToString(contenido.getBytes(StandardCharsets.UTF_8)) + "." +
+                codificador.encodeToString(hmac(contenido));
+    }
+    
+    private Importes verificar(String token, Long usuarioId, String huella) {
+        String[] partes;
+        String contenido;
+        try {
+            int punto = token.indexOf('.');
+            Base64.Decoder decodificador = Base64.getUrlDecoder();
+            contenido = new String(decodificador.decode(token.substring(0, punto)), StandardCharsets.UTF_8);
+            byte[] firma = decodificador.decode(token.substring(punto + 1));
+            if (!MessageDigest.isEqual(firma, hmac(contenido))) {
+                throw new RuntimeException("La cotización no es válida");
+            }
+            partes = contenido.split("\\|");
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("La cotización no es válida");
+        }
+        if (partes.length != 7 || !VERSION_TOKEN.equals(partes[0])) {
+            throw new RuntimeException("La cotización no es válida");
+        }
+        long expiraEn = Long.parseLong(partes[6]);
+        if (expiraEn < System.currentTimeMillis()) {
+            throw new RuntimeException("La cotización venció, solicite una nueva");
+        }
+        if (!String.valueOf(usuarioId).equals(partes[2]) || !huella.equals(partes[3])) {
+            throw new RuntimeException("La cotización no corresponde a esta reserva");
+        }
+        if (cotizacionUsadaRepository.registrar(partes[1],
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(expiraEn), ZoneId.systemDefault())) == 0) {
+            throw new RuntimeException("La cotización ya se usó, solicite una nueva");
+        }
+        return new Importes(Long.parseLong(partes[4]), Long.parseLong(partes[5]));
+    }
+    
+    private byte[] hmac(String contenido) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO_FIRMA);
+            mac.init(new SecretKeySpec(claveFirma.getBytes(StandardCharsets.UTF_8), ALGORITMO_FIRMA));
+            return mac.doFinal(contenido.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    // Elecciones ordenadas por servicio del plan, para que el orden de la petición no cambie la huella
+    private static Map<Long, Boolean> elecciones(List<ReservaServicioRequest> personalizados) {
+        Map<Long, Boolean> elecciones = new TreeMap<>();
+        if (personalizados != null) {
+            for (ReservaServicioRequest personalizado : personalizados) {
+                if (personalizado.getServicioPlanId() == null) {
+                    throw new RuntimeException("El ID del servicio del plan es obligatorio");
+                }
+                elecciones.put(personalizado.getServicioPlanId(), !Boolean.FALSE.equals(personalizado.getIncluido()));
+            }
+        }
+        return elecciones;
+    }
+    
+    private static String huellaPlan(Long planId, int numeroPersonas, Map<Long, Boolean> elecciones) {
+        return sha256("PLAN:" + planId + ":" + numeroPersonas + ":" + elecciones);
+    }
+    
+    private static String huellaCarrito(Carrito carrito) {
+        StringBuilder contenido = new StringBuilder("CARRITO");
+        carrito.getItems().stream()
+                .sorted(Comparator.comparing(CarritoItem::getId))
+                .forEach(item -> contenido.append(':').append(item.getId())
+                        .append(',').append(item.getFechaServicio())
+                        .append(',').append(item.getCantidad())
+                        .append(',').append(TarifaService.aCentimos(item.getPrecioUnitario())));
+        return sha256(contenido.toString());
+    }
+    
+    private static String sha256(String contenido) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(contenido.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    // Redondeo half-up en enteros: (centimos * pb + 5000) / 10000
+    private static long porcentaje(long centimos, long puntosBasicos) {
+        return (Math.multiplyExact(centimos, puntosBasicos) + 5_000) / 10_000;
+    }
+}
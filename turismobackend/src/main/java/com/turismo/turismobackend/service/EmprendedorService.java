@@ -1,5 +1,7 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.config.CacheConfig;
 import com.turismo.turismobackend.dto.request.EmprendedorRequest;
 import com.turismo.turismobackend.dto.response.EmprendedorResponse;
 import com.turismo.turismobackend.exception.ResourceNotFoundException;
@@ -10,9 +12,12 @@ import com.turismo.turismobackend.model.Usuario;
 import com.turismo.turismobackend.repository.CategoriaRepository;
 import com.turismo.turismobackend.repository.EmprendedorRepository;
 import com.turismo.turismobackend.repository.MunicipalidadRepository;
+import com.turismo.turismobackend.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,13 +29,18 @@ public class EmprendedorService {
     private final EmprendedorRepository emprendedorRepository;
     private final MunicipalidadRepository municipalidadRepository;
     private final CategoriaRepository categoriaRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuthContext authContext;
     
+    @Cacheable(cacheNames = CacheConfig.EMPRENDEDORES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<EmprendedorResponse> getAllEmprendedores() {
         return emprendedorRepository.findAll().stream()
-                .map(this::mapToEmprendedorResponse)
+                .map(this::mapToEmprendedorResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.EMPRENDEDORES, key = "#id")
     public EmprendedorResponse getEmprendedorById(Long id) {
         Emprendedor emprendedor = emprendedorRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "id", id));
@@ -38,33 +48,37 @@ public class EmprendedorService {
         return mapToEmprendedorResponse(emprendedor);
     }
     
+    @Cacheable(cacheNames = CacheConfig.EMPRENDEDORES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<EmprendedorResponse> getEmprendedoresByMunicipalidad(Long municipalidadId) {
         Municipalidad municipalidad = municipalidadRepository.findById(municipalidadId)
                 .orElseThrow(() -> new ResourceNotFoundException("Municipalidad", "id", municipalidadId));
         
         return emprendedorRepository.findByMunicipalidad(municipalidad).stream()
-                .map(this::mapToEmprendedorResponse)
+                .map(this::mapToEmprendedorResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.EMPRENDEDORES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<EmprendedorResponse> getEmprendedoresByRubro(String rubro) {
         return emprendedorRepository.findByRubro(rubro).stream()
-                .map(this::mapToEmprendedorResponse)
+                .map(this::mapToEmprendedorResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.EMPRENDEDORES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<EmprendedorResponse> getEmprendedoresByCategoria(Long categoriaId) {
         Categoria categoria = categoriaRepository.findById(categoriaId)
                 .orElseThrow(() -> new ResourceNotFoundException("Categoría", "id", categoriaId));
         
         return emprendedorRepository.findByCategoria(categoria).stream()
-                .map(this::mapToEmprendedorResponse)
+                .map(this::mapToEmprendedorResumen)
                 .collect(Collectors.toList());
     }
     
+    @Transactional
     public EmprendedorResponse createEmprendedor(EmprendedorRequest request) {
         // Obtener el usuario autenticado
-        Usuario usuario = (Usuario) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Usuario usuario = authContext.getUsuario();
         
         // Verificar si el usuario ya tiene un emprendedor asignado
         if (emprendedorRepository.findByUsuario(usuario).isPresent()) {
@@ -102,6 +116,10 @@ public class EmprendedorService {
                 .build();
         
         emprendedorRepository.save(emprendedor);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.EMPRENDEDOR, emprendedor.getId()));
+        // El vínculo forma parte de las claims del token
+        usuarioRepository.incrementarVersionToken(usuario.getId());
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(usuario.getId(), usuario.getUsername()));
         
         return mapToEmprendedorResponse(emprendedor);
     }
@@ -112,7 +130,7 @@ public class EmprendedorService {
                 .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "id", id));
         
         // Obtener el usuario autenticado
-        Usuario usuario = (Usuario) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Usuario usuario = authContext.getUsuario();
         
         // Buscar la municipalidad, si se va a cambiar
         Municipalidad municipalidad = null;
@@ -153,30 +171,36 @@ public class EmprendedorService {
         emprendedor.setCategoria(categoria);
         
         emprendedorRepository.save(emprendedor);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.EMPRENDEDOR, emprendedor.getId()));
         
         return mapToEmprendedorResponse(emprendedor);
     }
 
+    @Transactional
     public void deleteEmprendedor(Long id) {
         // Buscar el emprendedor
         Emprendedor emprendedor = emprendedorRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "id", id));
         
         // Obtener el usuario autenticado
-        Usuario usuario = (Usuario) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Usuario usuario = authContext.getUsuario();
         
         // Verificar si el usuario es el propietario del emprendedor o un administrador
         if (!emprendedor.getUsuario().getId().equals(usuario.getId()) && 
-                usuario.getAuthorities().stream().noneMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+                !authContext.isAdmin()) {
             throw new RuntimeException("No tienes permiso para eliminar este emprendedor");
         }
         
         emprendedorRepository.delete(emprendedor);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.EMPRENDEDOR, id));
+        Usuario propietario = emprendedor.getUsuario();
+        usuarioRepository.incrementarVersionToken(propietario.getId());
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(propietario.getId(), propietario.getUsername()));
     }
     
     public EmprendedorResponse getEmprendedorByUsuario() {
         // Obtener el usuario autenticado
-        Usuario usuario = (Usuario) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Usuario usuario = authContext.getUsuario();
         
         // Buscar emprendedor por usuario
         Emprendedor emprendedor = emprendedorRepository.findByUsuario(usuario)
@@ -186,6 +210,15 @@ public class EmprendedorService {
     }
     
     private EmprendedorResponse mapToEmprendedorResponse(Emprendedor emprendedor) {
+        return mapToEmprendedorResponse(emprendedor, true);
+    }
+    
+    // Listados: sin los textos del grupo "detalle", que costarían una consulta extra por emprendedor
+    private EmprendedorResponse mapToEmprendedorResumen(Emprendedor emprendedor) {
+        return mapToEmprendedorResponse(emprendedor, false);
+    }
+    
+    private EmprendedorResponse mapToEmprendedorResponse(Emprendedor emprendedor, boolean detalle) {
         // Mapear municipalidad resumida
         EmprendedorResponse.MunicipalidadResumen municipalidadResumen = EmprendedorResponse.MunicipalidadResumen.builder()
                 .id(emprendedor.getMunicipalidad().getId())
@@ -203,7 +236,7 @@ public class EmprendedorService {
         }
 
         // Construir respuesta
-        return EmprendedorResponse.builder()
+        EmprendedorResponse.EmprendedorResponseBuilder builder = EmprendedorResponse.builder()
                 .id(emprendedor.getId())
                 .nombreEmpresa(emprendedor.getNombreEmpresa())
                 .rubro(emprendedor.getRubro())
@@ -214,13 +247,15 @@ public class EmprendedorService {
                 .telefono(emprendedor.getTelefono())
                 .email(emprendedor.getEmail())
                 .sitioWeb(emprendedor.getSitioWeb())
-                .descripcion(emprendedor.getDescripcion())
-                .productos(emprendedor.getProductos())
-                .servicios(emprendedor.getServicios())
                 .usuarioId(emprendedor.getUsuario() != null ? emprendedor.getUsuario().getId() : null) // ✅ Cambio clave
                 .municipalidad(municipalidadResumen)
-                .categoria(categoriaResumen)
-                .build();
+                .categoria(categoriaResumen);
+        if (detalle) {
+            builder.descripcion(emprendedor.getDescripcion())
+                    .productos(emprendedor.getProductos())
+                    .servicios(emprendedor.getServicios());
+        }
+        return builder.build();
     }
 
     // NUEVOS MÉTODOS para ubicación
@@ -228,7 +263,7 @@ public class EmprendedorService {
         return emprendedorRepository.findAll().stream()
                 .filter(Emprendedor::tieneUbicacionValida)
                 .filter(emp -> calcularDistancia(latitud, longitud, emp.getLatitud(), emp.getLongitud()) <= radioKm)
-                .map(this::mapToEmprendedorResponse)
+                .map(this::mapToEmprendedorResumen)
                 .collect(Collectors.toList());
     }
     
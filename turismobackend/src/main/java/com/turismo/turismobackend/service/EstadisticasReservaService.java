@@ -0,0 +1,466 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.response.EstadisticasReservaResponse;
+import com.turismo.turismobackend.model.EstadisticaReserva;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.ReservaCarrito;
+import com.turismo.turismobackend.model.Rol;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.EstadisticaReservaRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Contadores de reservas por estado, ámbito (usuario, emprendedor, municipalidad, global) y periodo.
+// Se actualizan en memoria tras el commit de cada transición, se guardan periódicamente en
+// estadisticas_reservas como incrementos y se pueden reconstruir desde las tablas de reservas.
+// Cada instancia lee lo guardado al arrancar más sus propias transiciones; la tabla suma las de todas.
+@Service
+@RequiredArgsConstructor
+public class EstadisticasReservaService {
+    
+    public static final String PERIODO_TOTAL = "TOTAL";
+    // Items cancelados de reservas de carrito que siguen activas; no es un estado de la reserva
+    public static final String ITEMS_CANCELADOS = "ITEMS_CANCELADOS";
+    private static final long ID_GLOBAL = 0L;
+    
+    private final EstadisticaReservaRepository estadisticaReservaRepository;
+    private final ReservaRepository reservaRepository;
+    private final ReservaCarritoRepository reservaCarritoRepository;
+    private final ReservaCarritoItemRepository reservaCarritoItemRepository;
+    private final EmprendedorRepository emprendedorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthContext authContext;
+    
+    private final Map<Clave, Contador> contadores = new ConcurrentHashMap<>();
+    private final Set<Clave> pendientes = ConcurrentHashMap.newKeySet();
+    
+    public enum Ambito {
+        USUARIO, EMPRENDEDOR, MUNICIPALIDAD, GLOBAL
+    }
+    
+    private record Clave(ReservaTransicionEvent.Fuente fuente, Ambito ambito, Long entidadId, String periodo, String estado) {
+    }
+    
+    // Contador afectado por una transición y el monto que le corresponde
+    private record Destino(Ambito ambito, Long entidadId, long centimos) {
+    }
+    
+    // Valor visible y la parte que aún no se ha sumado en estadisticas_reservas
+    private static class Contador {
+    
+        private final AtomicLong cantidad = new AtomicLong();
+        private final AtomicLong montoCentimos = new AtomicLong();
+        private final AtomicLong cantidadPendiente = new AtomicLong();
+        private final AtomicLong montoPendiente = new AtomicLong();
+    
+        void sumar(long reservas, long centimos) {
+            cantidad.addAndGet(reservas);
+            montoCentimos.addAndGet(centimos);
+            cantidadPendiente.addAndGet(reservas);
+            montoPendiente.addAndGet(centimos);
+        }
+    
+        // Lo ya guardado solo cambia el valor visible
+        void cargar(long reservas, long centimos) {
+            cantidad.addAndGet(reservas);
+            montoCentimos.addAndGet(centimos);
+        }
+    
+        long[] tomarPendiente() {
+            return new long[]{cantidadPendiente.getAndSet(0), montoPendiente.getAndSet(0)};
+        }
+    
+        void devolverPendiente(long[] delta) {
+            cantidadPendiente.addAndGet(delta[0]);
+            montoPendiente.addAndGet(delta[1]);
+        }
+    
+        // [cantidad, monto, cantidad pendiente, monto pendiente]
+        long[] leer() {
+            return new long[]{cantidad.get(), montoCentimos.get(), cantidadPendiente.get(), montoPendiente.get()};
+        }
+    
+        // Aplica un recálculo sobre el mismo contador: lo sumado después de la lectura inicial se conserva
+        // y lo pendiente hasta entonces ya forma parte de la tabla reescrita
+        void corregir(long[] inicial, long[] recalculado) {
+            cantidad.addAndGet(recalculado[0] - inicial[0]);
+            montoCentimos.addAndGet(recalculado[1] - inicial[1]);
+            cantidadPendiente.addAndGet(-inicial[2]);
+            montoPendiente.addAndGet(-inicial[3]);
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void cargar() {
+        for (EstadisticaReserva fila : estadisticaReservaRepository.findAll()) {
+            Clave clave = new Clave(ReservaTransicionEvent.Fuente.valueOf(fila.getFuente()), Ambito.valueOf(fila.getAmbito()),
+                    fila.getEntidadId(), fila.getPeriodo(), fila.getEstado());
+            contadores.computeIfAbsent(clave, c -> new Contador()).cargar(fila.getCantidad(), fila.getMontoCentimos());
+        }
+    
+        // Transiciones posteriores al último checkpoint se habrían perdido: si los totales
+        // globales no coinciden con la base de datos se reconstruye todo
+        if (!coincideConBaseDeDatos()) {
+            reconstruir();
+        }
+    }
+    
+    // Tras el commit, para no contar transiciones que se revierten
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReservaTransicion(ReservaTransicionEvent evento) {
+        aplicar(evento, municipalidadesDeEmprendedores(List.of(evento)));
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReservaTransicionLote(ReservaTransicionLoteEvent lote) {
+        Map<Long, Long> municipalidades = municipalidadesDeEmprendedores(lote.transiciones());
+        lote.transiciones().forEach(evento -> aplicar(evento, municipalidades));
+    }
+    
+    // Cuenta items, no reservas: la reserva sigue en su estado con el monto de todos sus items
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReservaItemsCancelados(ReservaItemsCanceladosEvent evento) {
+        Map<Long, Long> municipalidades = municipalidadesDe(evento.cancelaciones().stream()
+                .map(ReservaItemsCanceladosEvent.ItemsCancelados::emprendedorId)
+                .collect(Collectors.toSet()));
+        for (ReservaItemsCanceladosEvent.ItemsCancelados cancelacion : evento.cancelaciones()) {
+            long items = cancelacion.itemIds().size();
+            long centimos = aCentimos(cancelacion.subtotal());
+            List<Destino> destinos = new ArrayList<>();
+            destinos.add(new Destino(Ambito.GLOBAL, ID_GLOBAL, centimos));
+            destinos.add(new Destino(Ambito.USUARIO, cancelacion.usuarioId(), centimos));
+            destinos.add(new Destino(Ambito.EMPRENDEDOR, cancelacion.emprendedorId(), centimos));
+            Long municipalidadId = municipalidades.get(cancelacion.emprendedorId());
+            if (municipalidadId != null) {
+                destinos.add(new Destino(Ambito.MUNICIPALIDAD, municipalidadId, centimos));
+            }
+            for (Destino destino : destinos) {
+                for (String periodo : periodos(cancelacion.fechaReserva())) {
+                    sumar(new Clave(ReservaTransicionEvent.Fuente.CARRITO, destino.ambito(), destino.entidadId(), periodo,
+                            ITEMS_CANCELADOS), items, destino.centimos());
+                }
+            }
+        }
+    }
+    
+    private void aplicar(ReservaTransicionEvent evento, Map<Long, Long> municipalidadPorEmprendedor) {
+        List<String> periodos = periodos(evento.fechaReserva());
+        long centimos = aCentimos(evento.monto());
+    
+        List<Destino> destinos = new ArrayList<>();
+        destinos.add(new Destino(Ambito.GLOBAL, ID_GLOBAL, centimos));
+        destinos.add(new Destino(Ambito.USUARIO, evento.usuarioId(), centimos));
+        if (evento.municipalidadId() != null) {
+            destinos.add(new Destino(Ambito.MUNICIPALIDAD, evento.municipalidadId(), centimos));
+        }
+        // Una reserva de carrito cuenta una vez en cada municipalidad de sus emprendedores,
+        // con el subtotal de los items de esa municipalidad
+        Map<Long, Long> centimosPorMunicipalidad = new HashMap<>();
+        evento.montoPorEmprendedor().forEach((emprendedorId, monto) -> {
+            destinos.add(new Destino(Ambito.EMPRENDEDOR, emprendedorId, aCentimos(monto)));
+            Long municipalidadId = municipalidadPorEmprendedor.get(emprendedorId);
+            if (municipalidadId != null) {
+                centimosPorMunicipalidad.merge(municipalidadId, aCentimos(monto), Long::sum);
+            }
+        });
+        centimosPorMunicipalidad.forEach((municipalidadId, montoMunicipalidad) ->
+                destinos.add(new Destino(Ambito.MUNICIPALIDAD, municipalidadId, montoMunicipalidad)));
+    
+        for (Destino destino : destinos) {
+            for (String periodo : periodos) {
+                if (evento.estadoAnterior() != null) {
+                    sumar(new Clave(evento.fuente(), destino.ambito(), destino.entidadId(), periodo, evento.estadoAnterior()),
+                            -1, -destino.centimos());
+                }
+                sumar(new Clave(evento.fuente(), destino.ambito(), destino.entidadId(), periodo, evento.estadoNuevo()),
+                        1, destino.centimos());
+            }
+        }
+    }
+    
+    // Municipalidad de los emprendedores de las reservas de carrito, en una consulta por evento o lote
+    private Map<Long, Long> municipalidadesDeEmprendedores(List<ReservaTransicionEvent> eventos) {
+        return municipalidadesDe(eventos.stream()
+                .filter(evento -> evento.fuente() == ReservaTransicionEvent.Fuente.CARRITO)
+                .flatMap(evento -> evento.montoPorEmprendedor().keySet().stream())
+                .collect(Collectors.toSet()));
+    }
+    
+    private Map<Long, Long> municipalidadesDe(Set<Long> emprendedorIds) {
+        Map<Long, Long> municipalidades = new HashMap<>();
+        if (!emprendedorIds.isEmpty()) {
+            for (Object[] fila : emprendedorRepository.findMunicipalidadIds(emprendedorIds)) {
+                municipalidades.put((Long) fila[0], (Long) fila[1]);
+            }
+        }
+        return municipalidades;
+    }
+    
+    // Estadísticas del usuario actual: global para admin, su emprendedor o municipalidad si la tiene
+    public EstadisticasReservaResponse getEstadisticasActuales(ReservaTransicionEvent.Fuente fuente, String periodo) {
+        if (authContext.isAdmin()) {
+            return getEstadisticas(fuente, Ambito.GLOBAL, ID_GLOBAL, periodo);
+        }
+        if (fuente == ReservaTransicionEvent.Fuente.CARRITO && authContext.hasRole(Rol.RolNombre.ROLE_EMPRENDEDOR)
+                && authContext.getEmprendedorId() != null) {
+            return getEstadisticas(fuente, Ambito.EMPRENDEDOR, authContext.getEmprendedorId(), periodo);
+        }
+        if (authContext.hasRole(Rol.RolNombre.ROLE_MUNICIPALIDAD) && authContext.getMunicipalidadId() != null) {
+            return getEstadisticas(fuente, Ambito.MUNICIPALIDAD, authContext.getMunicipalidadId(), periodo);
+        }
+        return getEstadisticas(fuente, Ambito.USUARIO, authContext.getUsuarioId(), periodo);
+    }
+    
+    // Una lectura de contador por estado, sin consultar la base de datos
+    public EstadisticasReservaResponse getEstadisticas(ReservaTransicionEvent.Fuente fuente, Ambito ambito,
+                                                       Long entidadId, String periodo) {
+        periodo = validarPeriodo(periodo);
+        Map<String, Long> reservasPorEstado = new LinkedHashMap<>();
+        Map<String, BigDecimal> montoPorEstado = new LinkedHashMap<>();
+        long total = 0;
+        long montoTotal = 0;
+        for (String estado : estados(fuente)) {
+            Contador contador = contadores.get(new Clave(fuente, ambito, entidadId, periodo, estado));
+            long cantidad = contador != null ? contador.cantidad.get() : 0;
+            long centimos = contador != null ? contador.montoCentimos.get() : 0;
+            reservasPorEstado.put(estado, cantidad);
+            montoPorEstado.put(estado, BigDecimal.valueOf(centimos, 2));
+            total += cantidad;
+            if (!estado.equals("CANCELADA")) {
+                montoTotal += centimos;
+            }
+        }
+        EstadisticasReservaResponse.EstadisticasReservaResponseBuilder respuesta = EstadisticasReservaResponse.builder()
+                .fuente(fuente.name())
+                .ambito(ambito.name())
+                .entidadId(entidadId)
+                .periodo(periodo)
+                .totalReservas(total)
+                .reservasPorEstado(reservasPorEstado)
+                .montoTotal(BigDecimal.valueOf(montoTotal, 2))
+                .montoPorEstado(montoPorEstado);
+        if (fuente == ReservaTransicionEvent.Fuente.CARRITO) {
+            Contador itemsCancelados = contadores.get(new Clave(fuente, ambito, entidadId, periodo, ITEMS_CANCELADOS));
+            respuesta.itemsCancelados(itemsCancelados != null ? itemsCancelados.cantidad.get() : 0)
+                    .montoItemsCancelados(BigDecimal.valueOf(itemsCancelados != null ? itemsCancelados.montoCentimos.get() : 0, 2));
+        }
+        return respuesta.build();
+    }
+    
+    // Guarda lo sumado desde el último checkpoint como incremento
+    @Scheduled(fixedDelayString = "${application.estadisticas.checkpoint-ms:60000}")
+    public synchronized void checkpoint() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        List<Clave> claves = new ArrayList<>(pendientes);
+        pendientes.removeAll(claves);
+        Map<Clave, long[]> deltas = new LinkedHashMap<>();
+        for (Clave clave : claves) {
+            long[] delta = contadores.get(clave).tomarPendiente();
+            if (delta[0] != 0 || delta[1] != 0) {
+                deltas.put(clave, delta);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(estado -> deltas.forEach(this::guardar));
+        } catch (RuntimeException e) {
+            // Se reintentan en el siguiente checkpoint
+            deltas.forEach((clave, delta) -> contadores.get(clave).devolverPendiente(delta));
+            pendientes.addAll(claves);
+        }
+    }
+    
+    // Recalcula todos los contadores desde las reservas, reescribe la tabla y corrige los contadores
+    // en memoria sin reemplazarlos, así no se pierde lo sumado mientras se recalcula. Una transición
+    // que termine entre la lectura inicial y las consultas puede quedar contada dos veces;
+    // el siguiente reconstruir lo corrige.
+    public synchronized Map<String, Long> reconstruir() {
+        Map<Clave, long[]> iniciales = new HashMap<>();
+        contadores.forEach((clave, contador) -> iniciales.put(clave, contador.leer()));
+        Map<Clave, long[]> nuevos = new HashMap<>();
+    
+        for (Object[] fila : reservaRepository.sumarEstadisticasPorUsuarioYMunicipalidad()) {
+            // [usuario, municipalidad, año, mes, estado, cantidad, monto]
+            String estado = ((Reserva.EstadoReserva) fila[4]).name();
+            String mes = YearMonth.of(((Number) fila[2]).intValue(), ((Number) fila[3]).intValue()).toString();
+            long cantidad = ((Number) fila[5]).longValue();
+            long centimos = aCentimos((BigDecimal) fila[6]);
+            for (String periodo : List.of(PERIODO_TOTAL, mes)) {
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.PLAN, Ambito.GLOBAL, ID_GLOBAL, periodo, estado), cantidad, centimos);
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.PLAN, Ambito.USUARIO, (Long) fila[0], periodo, estado), cantidad, centimos);
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.PLAN, Ambito.MUNICIPALIDAD, (Long) fila[1], periodo, estado), cantidad, centimos);
+            }
+        }
+    
+        for (Object[] fila : reservaCarritoRepository.sumarEstadisticasPorUsuario()) {
+            // [usuario, año, mes, estado, cantidad, monto]
+            String estado = ((ReservaCarrito.EstadoReservaCarrito) fila[3]).name();
+            String mes = YearMonth.of(((Number) fila[1]).intValue(), ((Number) fila[2]).intValue()).toString();
+            long cantidad = ((Number) fila[4]).longValue();
+            long centimos = aCentimos((BigDecimal) fila[5]);
+            for (String periodo : List.of(PERIODO_TOTAL, mes)) {
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.CARRITO, Ambito.GLOBAL, ID_GLOBAL, periodo, estado), cantidad, centimos);
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.CARRITO, Ambito.USUARIO, (Long) fila[0], periodo, estado), cantidad, centimos);
+            }
+        }
+    
+        for (Object[] fila : reservaCarritoItemRepository.sumarEstadisticasPorMunicipalidad()) {
+            // [municipalidad, año, mes, estado, reservas distintas, subtotal de sus items]
+            String estado = ((ReservaCarrito.EstadoReservaCarrito) fila[3]).name();
+            String mes = YearMonth.of(((Number) fila[1]).intValue(), ((Number) fila[2]).intValue()).toString();
+            long cantidad = ((Number) fila[4]).longValue();
+            long centimos = aCentimos((BigDecimal) fila[5]);
+            for (String periodo : List.of(PERIODO_TOTAL, mes)) {
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.CARRITO, Ambito.MUNICIPALIDAD, (Long) fila[0], periodo, estado), cantidad, centimos);
+            }
+        }
+    
+        for (Object[] fila : reservaCarritoItemRepository.sumarEstadisticasPorEmprendedor()) {
+            // [emprendedor, año, mes, estado, reservas distintas, subtotal de sus items]
+            String estado = ((ReservaCarrito.EstadoReservaCarrito) fila[3]).name();
+            String mes = YearMonth.of(((Number) fila[1]).intValue(), ((Number) fila[2]).intValue()).toString();
+            long cantidad = ((Number) fila[4]).longValue();
+            long centimos = aCentimos((BigDecimal) fila[5]);
+            for (String periodo : List.of(PERIODO_TOTAL, mes)) {
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.CARRITO, Ambito.EMPRENDEDOR, (Long) fila[0], periodo, estado), cantidad, centimos);
+            }
+        }
+    
+        for (Object[] fila : reservaCarritoItemRepository.sumarEstadisticasItemsCancelados()) {
+            // [usuario, emprendedor, municipalidad, año, mes, items, subtotal]
+            String mes = YearMonth.of(((Number) fila[3]).intValue(), ((Number) fila[4]).intValue()).toString();
+            long cantidad = ((Number) fila[5]).longValue();
+            long centimos = aCentimos((BigDecimal) fila[6]);
+            for (String periodo : List.of(PERIODO_TOTAL, mes)) {
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.CARRITO, Ambito.GLOBAL, ID_GLOBAL, periodo, ITEMS_CANCELADOS), cantidad, centimos);
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.CARRITO, Ambito.USUARIO, (Long) fila[0], periodo, ITEMS_CANCELADOS), cantidad, centimos);
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.CARRITO, Ambito.EMPRENDEDOR, (Long) fila[1], periodo, ITEMS_CANCELADOS), cantidad, centimos);
+                acumular(nuevos, new Clave(ReservaTransicionEvent.Fuente.CARRITO, Ambito.MUNICIPALIDAD, (Long) fila[2], periodo, ITEMS_CANCELADOS), cantidad, centimos);
+            }
+        }
+    
+        long[] vacio = new long[4];
+        Set<Clave> claves = new HashSet<>(iniciales.keySet());
+        claves.addAll(nuevos.keySet());
+        long diferencias = claves.stream()
+                .filter(clave -> {
+                    long[] inicial = iniciales.getOrDefault(clave, vacio);
+                    long[] nuevo = nuevos.getOrDefault(clave, vacio);
+                    return inicial[0] != nuevo[0] || inicial[1] != nuevo[1];
+                })
+                .count();
+    
+        // En una tabla vacía cada incremento es el valor completo
+        transactionTemplate.executeWithoutResult(estado -> {
+            estadisticaReservaRepository.eliminarTodo();
+            nuevos.forEach(this::guardar);
+        });
+        for (Clave clave : claves) {
+            contadores.computeIfAbsent(clave, c -> new Contador())
+                    .corregir(iniciales.getOrDefault(clave, vacio), nuevos.getOrDefault(clave, vacio));
+        }
+    
+        Map<String, Long> resumen = new LinkedHashMap<>();
+        resumen.put("contadores", (long) nuevos.size());
+        resumen.put("diferencias", diferencias);
+        return resumen;
+    }
+    
+    private boolean coincideConBaseDeDatos() {
+        Map<String, Long> plan = new HashMap<>();
+        for (Object[] fila : reservaRepository.countAgrupadoPorEstado()) {
+            plan.put(((Reserva.EstadoReserva) fila[0]).name(), ((Number) fila[1]).longValue());
+        }
+        Map<String, Long> carrito = new HashMap<>();
+        for (Object[] fila : reservaCarritoRepository.countAgrupadoPorEstado()) {
+            carrito.put(((ReservaCarrito.EstadoReservaCarrito) fila[0]).name(), ((Number) fila[1]).longValue());
+        }
+        return coinciden(ReservaTransicionEvent.Fuente.PLAN, plan) && coinciden(ReservaTransicionEvent.Fuente.CARRITO, carrito);
+    }
+    
+    private boolean coinciden(ReservaTransicionEvent.Fuente fuente, Map<String, Long> enBaseDeDatos) {
+        for (String estado : estados(fuente)) {
+            Contador contador = contadores.get(new Clave(fuente, Ambito.GLOBAL, ID_GLOBAL, PERIODO_TOTAL, estado));
+            long enMemoria = contador != null ? contador.cantidad.get() : 0;
+            if (enMemoria != enBaseDeDatos.getOrDefault(estado, 0L)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void sumar(Clave clave, long reservas, long centimos) {
+        contadores.computeIfAbsent(clave, c -> new Contador()).sumar(reservas, centimos);
+        pendientes.add(clave);
+    }
+    
+    private void guardar(Clave clave, long[] delta) {
+        estadisticaReservaRepository.acumular(clave.fuente().name(), clave.ambito().name(), clave.entidadId(),
+                clave.periodo(), clave.estado(), delta[0], delta[1]);
+    }
+    
+    private static void acumular(Map<Clave, long[]> mapa, Clave clave, long reservas, long centimos) {
+        if (clave.entidadId() != null) {
+            long[] valor = mapa.computeIfAbsent(clave, c -> new long[2]);
+            valor[0] += reservas;
+            valor[1] += centimos;
+        }
+    }
+    
+    private static List<String> periodos(LocalDateTime fechaReserva) {
+        return fechaReserva != null
+                ? List.of(PERIODO_TOTAL, YearMonth.from(fechaReserva).toString())
+                : List.of(PERIODO_TOTAL);
+    }
+    
+    private static String validarPeriodo(String periodo) {
+        if (periodo == null || periodo.isBlank() || periodo.equalsIgnoreCase(PERIODO_TOTAL)) {
+            return PERIODO_TOTAL;
+        }
+        try {
+            return YearMonth.parse(periodo).toString();
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Periodo no válido: " + periodo + " (use TOTAL o yyyy-MM)");
+        }
+    }
+    
+    private static List<String> estados(ReservaTransicionEvent.Fuente fuente) {
+        Enum<?>[] valores = fuente == ReservaTransicionEvent.Fuente.PLAN
+                ? Reserva.EstadoReserva.values()
+                : ReservaCarrito.EstadoReservaCarrito.values();
+        return Arrays.stream(valores).map(Enum::name).toList();
+    }
+    
+    private static long aCentimos(BigDecimal monto) {
+        return Objects.requireNonNullElse(monto, BigDecimal.ZERO).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+}
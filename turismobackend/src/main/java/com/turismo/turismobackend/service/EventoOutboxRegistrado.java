@@ -0,0 +1,5 @@
+package com.turismo.turismobackend.service;
+
+// Se publica al guardar un evento en el outbox, para entregarlo en cuanto confirme la transacción
+public record EventoOutboxRegistrado(Long eventoId) {
+}
@@ -0,0 +1,265 @@
+package com.turismo.turismobackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.exception.IdempotenciaException;
+import com.turismo.turismobackend.model.RespuestaIdempotente;
+import com.turismo.turismobackend.repository.RespuestaIdempotenteRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Soporte de la cabecera Idempotency-Key en escrituras de reservas y pagos. El frente en memoria
+// son varios ConcurrentHashMap elegidos por hash de la clave, con el resultado (terminado o en
+// curso) de cada una: las copias que llegan a este nodo esperan ese resultado sin bloquear a las
+// demás claves. La tabla respuestas_idempotentes reparte las claves entre nodos y conserva las
+// respuestas durante el TTL, así una repetición nunca vuelve a ejecutar el servicio. La respuesta
+// se guarda en la misma transacción que la escritura: o quedan ambas o ninguna.
+@Service
+@RequiredArgsConstructor
+public class IdempotenciaService {
+    
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+    
+    private static final int FRAGMENTOS = 16;
+    private static final int LONGITUD_MAXIMA_CLAVE = 100;
+    
+    private record Resultado(String huella, int codigoHttp, String cuerpo, LocalDateTime expiraEn,
+                             LocalDateTime enMemoriaHasta) {
+    }
+    
+    // La fila EN_CURSO insertada por esta petición, o la respuesta que ya estaba guardada
+    private record Reclamo(Long id, Resultado guardado) {
+    }
+    
+    private record Ejecucion<T>(ResponseEntity<T> respuesta, Resultado resultado) {
+    }
+    
+    private final RespuestaIdempotenteRepository respuestaIdempotenteRepository;
+    private final ObjectMapper objectMapper;
+    private final AuthContext authContext;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${application.idempotencia.ttl-horas:24}")
+    private long ttlHoras;
+    
+    @Value("${application.idempotencia.en-curso-segundos:60}")
+    private long enCursoSegundos;
+    
+    @Value("${application.idempotencia.memoria-minutos:10}")
+    private long memoriaMinutos;
+    
+    private final List<ConcurrentHashMap<String, CompletableFuture<Resultado>>> fragmentos = crearFragmentos();
+    
+    // Filas EN_CURSO que este nodo está ejecutando; su vencimiento se renueva mientras duren
+    private final Set<Long> enEjecucion = ConcurrentHashMap.newKeySet();
+    
+    public <T> ResponseEntity<T> ejecutar(String idempotencyKey, String operacion, Object peticion, Class<T> tipo,
+                                          Supplier<ResponseEntity<T>> accion) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return accion.get();
+        }
+        if (idempotencyKey.length() > LONGITUD_MAXIMA_CLAVE) {
+            throw new IdempotenciaException(HttpStatus.BAD_REQUEST,
+                    "La cabecera " + CABECERA + " admite hasta " + LONGITUD_MAXIMA_CLAVE + " caracteres");
+        }
+        String clave = authContext.getUsuarioId() + ":" + operacion + ":" + idempotencyKey;
+        String huella = huella(peticion);
+        ConcurrentHashMap<String, CompletableFuture<Resultado>> fragmento = fragmentos.get(
+                Math.floorMod(clave.hashCode(), FRAGMENTOS));
+    
+        while (true) {
+            CompletableFuture<Resultado> propio = new CompletableFuture<>();
+            CompletableFuture<Resultado> existente = fragmento.putIfAbsent(clave, propio);
+            if (existente == null) {
+                return ejecutarPrimera(clave, huella, tipo, accion, fragmento, propio);
+            }
+            Resultado resultado = esperar(existente);
+            // La primera falló o su respuesta venció: esta petición intenta quedarse con la clave
+            if (resultado == null || !resultado.expiraEn().isAfter(LocalDateTime.now())) {
+                fragmento.remove(clave, existente);
+                continue;
+            }
+            return repetir(resultado, huella, tipo);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${application.idempotencia.limpieza-ms:600000}")
+    public void limpiar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (ConcurrentHashMap<String, CompletableFuture<Resultado>> fragmento : fragmentos) {
+            fragmento.values().removeIf(futuro -> futuro.isDone() && !futuro.isCompletedExceptionally()
+                    && futuro.join().enMemoriaHasta().isBefore(ahora));
+        }
+        respuestaIdempotenteRepository.eliminarVencidas(ahora);
+    }
+    
+    // Una petición que tarda más que en-curso-segundos no pierde la clave: otro nodo la vería
+    // vencida y volvería a ejecutar la escritura
+    @Scheduled(fixedDelayString = "${application.idempotencia.renovacion-ms:20000}")
+    public void renovar() {
+        List<Long> ids = List.copyOf(enEjecucion);
+        if (!ids.isEmpty()) {
+            respuestaIdempotenteRepository.renovar(ids, LocalDateTime.now().plusSeconds(enCursoSegundos));
+        }
+    }
+    
+    private <T> ResponseEntity<T> ejecutarPrimera(String clave, String huella, Class<T> tipo,
+                                                  Supplier<ResponseEntity<T>> accion,
+                                                  ConcurrentHashMap<String, CompletableFuture<Resultado>> fragmento,
+                                                  CompletableFuture<Resultado> propio) {
+        Reclamo reclamo;
+        try {
+            reclamo = reclamar(clave, huella);
+        } catch (RuntimeException e) {
+            fragmento.remove(clave, propio);
+            propio.completeExceptionally(e);
+            throw e;
+        }
+        if (reclamo.guardado() != null) {
+            propio.complete(reclamo.guardado());
+            return repetir(reclamo.guardado(), huella, tipo);
+        }
+    
+        Long id = reclamo.id();
+        enEjecucion.add(id);
+        Ejecucion<T> ejecucion;
+        try {
+            // La escritura del servicio se une a esta transacción; si no se puede guardar la
+            // respuesta se revierte también la escritura
+            ejecucion = transactionTemplate.execute(estado -> {
+                ResponseEntity<T> respuesta = accion.get();
+                LocalDateTime ahora = LocalDateTime.now();
+                LocalDateTime expiraEn = ahora.plusHours(ttlHoras);
+                Resultado resultado = new Resultado(huella, respuesta.getStatusCode().value(),
+                        json(respuesta.getBody()), expiraEn, ahora.plusMinutes(memoriaMinutos));
+                if (respuestaIdempotenteRepository.completar(id, resultado.codigoHttp(), resultado.cuerpo(),
+                        expiraEn) == 0) {
+                    // La fila venció y se borró: otra petición pudo tomar la clave
+                    throw enCurso();
+                }
+                return new Ejecucion<>(respuesta, resultado);
+            });
+        } catch (RuntimeException e) {
+            // Un error no se guarda: el cliente puede reintentar con la misma clave. Se borra por id
+            // para no soltar la fila de otra petición que la haya tomado tras vencer esta
+            respuestaIdempotenteRepository.liberar(id);
+            fragmento.remove(clave, propio);
+            propio.completeExceptionally(e);
+            throw e;
+        } finally {
+            enEjecucion.remove(id);
+        }
+        propio.complete(ejecucion.resultado());
+        return ejecucion.respuesta();
+    }
+    
+    // Deja la clave EN_CURSO a nombre de esta petición, o devuelve la respuesta ya guardada
+    private Reclamo reclamar(String clave, String huella) {
+        LocalDateTime ahora = LocalDateTime.now();
+        respuestaIdempotenteRepository.eliminarVencida(clave, ahora);
+        Optional<RespuestaIdempotente> existente = respuestaIdempotenteRepository.findByClave(clave);
+        if (existente.isPresent()) {
+            RespuestaIdempotente respuesta = existente.get();
+            if (respuesta.getEstado() == RespuestaIdempotente.Estado.EN_CURSO) {
+                throw enCurso();
+            }
+            return new Reclamo(null, new Resultado(respuesta.getHuella(), respuesta.getCodigoHttp(),
+                    respuesta.getCuerpo(), respuesta.getExpiraEn(), ahora.plusMinutes(memoriaMinutos)));
+        }
+        try {
+            // Vencimiento corto: si este nodo cae a mitad de la petición la clave se libera sola
+            RespuestaIdempotente reclamada = respuestaIdempotenteRepository.saveAndFlush(RespuestaIdempotente.builder()
+                    .clave(clave)
+                    .huella(huella)
+                    .estado(RespuestaIdempotente.Estado.EN_CURSO)
+                    .expiraEn(ahora.plusSeconds(enCursoSegundos))
+                    .build());
+            return new Reclamo(reclamada.getId(), null);
+        } catch (DataIntegrityViolationException e) {
+            // Otro nodo reclamó la clave entre la consulta y el insert
+            throw enCurso();
+        }
+    }
+    
+    private Resultado esperar(CompletableFuture<Resultado> futuro) {
+        try {
+            return futuro.get(enCursoSegundos, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw enCurso();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Espera interrumpida", e);
+        }
+    }
+    
+    private <T> ResponseEntity<T> repetir(Resultado resultado, String huella, Class<T> tipo) {
+        if (!resultado.huella().equals(huella)) {
+            throw new IdempotenciaException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "La cabecera " + CABECERA + " ya se usó con una petición diferente");
+        }
+        try {
+            return ResponseEntity.status(resultado.codigoHttp())
+                    .header(CABECERA_REPETIDA, "true")
+                    .body(objectMapper.readValue(resultado.cuerpo(), tipo));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo leer la respuesta guardada", e);
+        }
+    }
+    
+    private String huella(Object peticion) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(json(peticion).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private String json(Object valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo serializar para Idempotency-Key", e);
+        }
+    }
+    
+    private static IdempotenciaException enCurso() {
+        return new IdempotenciaException(HttpStatus.CONFLICT,
+                "Una petición con la misma " + CABECERA + " sigue en curso");
+    }
+    
+    private static List<ConcurrentHashMap<String, CompletableFuture<Resultado>>> crearFragmentos() {
+        List<ConcurrentHashMap<String, CompletableFuture<Resultado>>> lista = new ArrayList<>(FRAGMENTOS);
+        for (int i = 0; i < FRAGMENTOS; i++) {
+            lista.add(new ConcurrentHashMap<>());
+        }
+        return lista;
+    }
+}
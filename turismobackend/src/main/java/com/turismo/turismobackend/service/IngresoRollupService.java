@@ -0,0 +1,279 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.dto.response.IngresoSerieResponse;
+import com.turismo.turismobackend.model.IngresoDiario;
+import com.turismo.turismobackend.model.IngresoReconstruccion;
+import com.turismo.turismobackend.model.Pago;
+import com.turismo.turismobackend.model.PagoCarrito;
+import com.turismo.turismobackend.repository.IngresoDiarioRepository;
+import com.turismo.turismobackend.repository.IngresoReconstruccionRepository;
+import com.turismo.turismobackend.repository.PagoCarritoRepository;
+import com.turismo.turismobackend.repository.PagoRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Mantiene la tabla ingresos_diarios: suma los pagos al confirmarse o reembolsarse y permite
+// reconstruirla desde el histórico. Los montos se guardan en céntimos para sumar sin redondeos.
+// Cada pago cuenta una sola vez en las cantidades aunque un pago de carrito se reparta entre varios
+// emprendedores: la cantidad va a la fila que recibe la mayor parte del monto.
+@Service
+@RequiredArgsConstructor
+public class IngresoRollupService {
+    
+    private final IngresoDiarioRepository ingresoDiarioRepository;
+    private final IngresoReconstruccionRepository ingresoReconstruccionRepository;
+    private final PagoRepository pagoRepository;
+    private final PagoCarritoRepository pagoCarritoRepository;
+    private final ReservaCarritoItemRepository reservaCarritoItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${application.ingresos.tamano-lote-reconstruccion:1000}")
+    private int tamanoLote;
+    
+    public enum Agrupacion {
+        DIA,
+        MES
+    }
+    
+    private record Clave(Long municipalidadId, Long emprendedorId, LocalDate fecha, Pago.MetodoPago metodoPago) {
+    }
+    
+    // Parte de un pago de carrito que corresponde a un emprendedor, según el subtotal de sus items
+    private record Participacion(Long emprendedorId, Long municipalidadId, long subtotalCentimos) {
+    }
+    
+    // Deltas agrupados por fila: [confirmado, cantidad confirmados, reembolsado, cantidad reembolsados]
+    private static class Acumulador {
+    
+        private final Map<Clave, long[]> filas = new LinkedHashMap<>();
+    
+        // pagos es 1 en la fila que cuenta el pago y 0 en el resto de partes del mismo pago
+        void sumar(Clave clave, long centimos, int pagos, boolean confirmado, boolean reembolsado) {
+            long[] fila = filas.computeIfAbsent(clave, c -> new long[4]);
+            if (confirmado) {
+                fila[0] += centimos;
+                fila[1] += pagos;
+            }
+            if (reembolsado) {
+                fila[2] += centimos;
+                fila[3] += pagos;
+            }
+        }
+    }
+    
+    // Sin la fila de coordinación el bloqueo compartido no protegería la primera reconstrucción
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararCoordinacion() {
+        ingresoReconstruccionRepository.crearSiNoExiste();
+    }
+    
+    // Se ejecuta dentro de la transacción que confirma el pago
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarPagoConfirmado(Pago pago) {
+        registrarPagosConfirmados(List.of(pago), List.of(), pago.getFechaConfirmacion().toLocalDate());
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarPagosConfirmados(List<Pago> pagos, List<PagoCarrito> pagosCarrito, LocalDate fecha) {
+        registrar(pagos, pagosCarrito, pago -> fecha, pago -> fecha, true, false);
+    }
+    
+    // Un reembolso suma al reembolsado de la fila del día de confirmación, igual que la reconstrucción;
+    // el monto confirmado de ese día no cambia
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarPagosReembolsados(List<Pago> pagos, List<PagoCarrito> pagosCarrito) {
+        registrar(pagos, pagosCarrito, pago -> fechaIngreso(pago.getFechaConfirmacion(), pago.getFechaPago()),
+                pago -> fechaIngreso(pago.getFechaConfirmacion(), pago.getFechaPago()), false, true);
+    }
+    
+    private void registrar(List<Pago> pagos, List<PagoCarrito> pagosCarrito, Function<Pago, LocalDate> fechaPago,
+                           Function<PagoCarrito, LocalDate> fechaPagoCarrito, boolean confirmado, boolean reembolsado) {
+        // Espera si hay una reconstrucción en curso; la suma se aplica sobre la tabla ya reconstruida
+        ingresoReconstruccionRepository.bloquearCompartido();
+        Acumulador acumulador = new Acumulador();
+        for (Pago pago : pagos) {
+            Long municipalidadId = pago.getReserva().getPlan().getMunicipalidad().getId();
+            acumulador.sumar(new Clave(municipalidadId, IngresoDiario.SIN_ID, fechaPago.apply(pago), pago.getMetodoPago()),
+                    aCentimos(pago.getMonto()), 1, confirmado, reembolsado);
+        }
+        if (!pagosCarrito.isEmpty()) {
+            Map<Long, List<Participacion>> participaciones = cargarParticipaciones(pagosCarrito.stream()
+                    .map(pago -> pago.getReservaCarrito().getId())
+                    .distinct()
+                    .toList());
+            for (PagoCarrito pago : pagosCarrito) {
+                repartir(acumulador, participaciones.get(pago.getReservaCarrito().getId()),
+                        aCentimos(pago.getMonto()), fechaPagoCarrito.apply(pago), pago.getMetodoPago(),
+                        confirmado, reembolsado);
+            }
+        }
+        escribir(acumulador);
+    }
+    
+    // Una sola transacción: las consultas siguen viendo los totales anteriores hasta el commit, y el
+    // bloqueo exclusivo retiene las actualizaciones en línea mientras dura, así un pago confirmado
+    // durante la reconstrucción se suma después sobre la tabla nueva y no dos veces
+    public Map<String, Long> reconstruir() {
+        ingresoReconstruccionRepository.crearSiNoExiste();
+        return transactionTemplate.execute(estado -> {
+            ingresoReconstruccionRepository.bloquearExclusivo();
+            ingresoDiarioRepository.eliminarTodo();
+            Map<String, Long> resumen = reconstruirDesdeHistorico();
+            ingresoReconstruccionRepository.registrarReconstruccion(LocalDateTime.now());
+            return resumen;
+        });
+    }
+    
+    private Map<String, Long> reconstruirDesdeHistorico() {
+        long pagos = 0;
+        Long ultimoId = 0L;
+        while (true) {
+            Long desdeId = ultimoId;
+            List<Object[]> lote = pagoRepository.findHistoricoIngresos(desdeId, PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            Acumulador acumulador = new Acumulador();
+            for (Object[] fila : lote) {
+                acumulador.sumar(new Clave((Long) fila[4], IngresoDiario.SIN_ID, ((LocalDateTime) fila[3]).toLocalDate(),
+                        (Pago.MetodoPago) fila[2]), aCentimos((BigDecimal) fila[1]), 1, true,
+                        fila[5] == Pago.EstadoPago.REEMBOLSADO);
+            }
+            escribir(acumulador);
+            pagos += lote.size();
+            ultimoId = (Long) lote.get(lote.size() - 1)[0];
+        }
+    
+        long pagosCarrito = 0;
+        ultimoId = 0L;
+        while (true) {
+            Long desdeId = ultimoId;
+            List<Object[]> lote = pagoCarritoRepository.findHistoricoIngresos(desdeId, PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            Map<Long, List<Participacion>> participaciones = cargarParticipaciones(lote.stream()
+                    .map(fila -> (Long) fila[4])
+                    .distinct()
+                    .toList());
+            Acumulador acumulador = new Acumulador();
+            for (Object[] fila : lote) {
+                repartir(acumulador, participaciones.get((Long) fila[4]), aCentimos((BigDecimal) fila[1]),
+                        ((LocalDateTime) fila[3]).toLocalDate(), (Pago.MetodoPago) fila[2],
+                        true, fila[5] == Pago.EstadoPago.REEMBOLSADO);
+            }
+            escribir(acumulador);
+            pagosCarrito += lote.size();
+            ultimoId = (Long) lote.get(lote.size() - 1)[0];
+        }
+    
+        Map<String, Long> resumen = new LinkedHashMap<>();
+        resumen.put("pagos", pagos);
+        resumen.put("pagosCarrito", pagosCarrito);
+        resumen.put("filas", ingresoDiarioRepository.count());
+        return resumen;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<IngresoSerieResponse> getSerie(LocalDate desde, LocalDate hasta, Long municipalidadId,
+                                               Long emprendedorId, Pago.MetodoPago metodoPago, Agrupacion agrupacion) {
+        if (desde.isAfter(hasta)) {
+            throw new RuntimeException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+    
+        // La tabla ya está agregada por día; el agrupado mensual se hace sobre esas filas
+        Map<LocalDate, long[]> periodos = new LinkedHashMap<>();
+        for (Object[] fila : ingresoDiarioRepository.sumarPorDia(desde, hasta, municipalidadId, emprendedorId, metodoPago)) {
+            LocalDate fecha = (LocalDate) fila[0];
+            LocalDate periodo = agrupacion == Agrupacion.MES ? fecha.withDayOfMonth(1) : fecha;
+            long[] total = periodos.computeIfAbsent(periodo, p -> new long[4]);
+            for (int i = 0; i < 4; i++) {
+                total[i] += ((Number) fila[i + 1]).longValue();
+            }
+        }
+    
+        return periodos.entrySet().stream()
+                .map(entrada -> IngresoSerieResponse.builder()
+                        .fecha(entrada.getKey())
+                        .montoConfirmado(BigDecimal.valueOf(entrada.getValue()[0], 2))
+                        .cantidadConfirmados(entrada.getValue()[1])
+                        .montoReembolsado(BigDecimal.valueOf(entrada.getValue()[2], 2))
+                        .cantidadReembolsados(entrada.getValue()[3])
+                        .build())
+                .collect(Collectors.toList());
+    }
+    
+    private Map<Long, List<Participacion>> cargarParticipaciones(List<Long> reservaCarritoIds) {
+        Map<Long, List<Participacion>> participaciones = new HashMap<>();
+        for (Object[] fila : reservaCarritoItemRepository.findRepartoIngresos(reservaCarritoIds)) {
+            long subtotal = aCentimos(((BigDecimal) fila[3]).multiply(BigDecimal.valueOf((Integer) fila[4])));
+            participaciones.computeIfAbsent((Long) fila[0], id -> new ArrayList<>())
+                    .add(new Participacion((Long) fila[1], fila[2] != null ? (Long) fila[2] : IngresoDiario.SIN_ID, subtotal));
+        }
+        return participaciones;
+    }
+    
+    // Reparto proporcional al subtotal de cada item; el resto de la división va a la última parte.
+    // El pago se cuenta una vez, en la parte de mayor monto
+    private void repartir(Acumulador acumulador, List<Participacion> participaciones, long centimos,
+                          LocalDate fecha, Pago.MetodoPago metodoPago, boolean confirmado, boolean reembolsado) {
+        long subtotalTotal = participaciones == null ? 0 : participaciones.stream().mapToLong(Participacion::subtotalCentimos).sum();
+        if (subtotalTotal == 0) {
+            acumulador.sumar(new Clave(IngresoDiario.SIN_ID, IngresoDiario.SIN_ID, fecha, metodoPago), centimos, 1,
+                    confirmado, reembolsado);
+            return;
+        }
+        long[] partes = new long[participaciones.size()];
+        long asignado = 0;
+        int mayor = 0;
+        for (int i = 0; i < partes.length; i++) {
+            partes[i] = i == partes.length - 1
+                    ? centimos - asignado
+                    : BigDecimal.valueOf(centimos).multiply(BigDecimal.valueOf(participaciones.get(i).subtotalCentimos()))
+                            .divide(BigDecimal.valueOf(subtotalTotal), 0, RoundingMode.DOWN).longValue();
+            asignado += partes[i];
+            if (partes[i] > partes[mayor]) {
+                mayor = i;
+            }
+        }
+        for (int i = 0; i < partes.length; i++) {
+            Participacion participacion = participaciones.get(i);
+            acumulador.sumar(new Clave(participacion.municipalidadId(), participacion.emprendedorId(), fecha, metodoPago),
+                    partes[i], i == mayor ? 1 : 0, confirmado, reembolsado);
+        }
+    }
+    
+    private void escribir(Acumulador acumulador) {
+        acumulador.filas.forEach((clave, fila) -> ingresoDiarioRepository.acumular(
+                clave.municipalidadId(), clave.emprendedorId(), clave.fecha(), clave.metodoPago().name(),
+                fila[0], (int) fila[1], fila[2], (int) fila[3]));
+    }
+    
+    private static LocalDate fechaIngreso(LocalDateTime fechaConfirmacion, LocalDateTime fechaPago) {
+        return (fechaConfirmacion != null ? fechaConfirmacion : fechaPago).toLocalDate();
+    }
+    
+    private static long aCentimos(BigDecimal monto) {
+        return monto.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
@@ -1,23 +1,40 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.model.Rol;
+import com.turismo.turismobackend.model.Usuario;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
     
+    // Claims del formato autocontenido (application.security.jwt.claims-autocontenidas)
+    public static final String CLAIM_USUARIO_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_EMPRENDEDOR_ID = "emprendedorId";
+    public static final String CLAIM_MUNICIPALIDAD_ID = "municipalidadId";
+    public static final String CLAIM_VERSION = "ver";
+    private static final String CLAIM_NOMBRE = "nombre";
+    private static final String CLAIM_APELLIDO = "apellido";
+    private static final String CLAIM_EMAIL = "email";
+    
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
     
@@ -27,6 +44,24 @@ public class JwtService {
     @Value("${application.security.jwt.refresh-token.expiration}")
     private long refreshExpiration;
     
+    // La clave y el parser son inmutables y seguros entre hilos; se construyen una sola vez
+    private Key signInKey;
+    private JwtParser jwtParser;
+    
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        signInKey = Keys.hmacShaKeyFor(keyBytes);
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+    }
+    
+    // Verifica firma y expiración; lanza JwtException si el token no es válido
+    public Claims parseToken(String token) {
+        return extractAllClaims(token);
+    }
+    
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -68,30 +103,72 @@ public class JwtService {
                 .compact();
     }
     
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    public String generateSelfContainedToken(Usuario usuario, Long emprendedorId, Long municipalidadId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USUARIO_ID, usuario.getId());
+        claims.put(CLAIM_ROLES, usuario.getRoles().stream()
+                .map(rol -> rol.getNombre().name())
+                .toList());
+        claims.put(CLAIM_NOMBRE, usuario.getNombre());
+        claims.put(CLAIM_APELLIDO, usuario.getApellido());
+        claims.put(CLAIM_EMAIL, usuario.getEmail());
+        claims.put(CLAIM_VERSION, usuario.getTokenVersion() != null ? usuario.getTokenVersion() : 0);
+        if (emprendedorId != null) {
+            claims.put(CLAIM_EMPRENDEDOR_ID, emprendedorId);
+        }
+        if (municipalidadId != null) {
+            claims.put(CLAIM_MUNICIPALIDAD_ID, municipalidadId);
+        }
+        return buildToken(claims, usuario, jwtExpiration);
     }
     
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isSelfContained(Claims claims) {
+        return claims.get(CLAIM_USUARIO_ID) != null;
     }
     
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public Long getLongClaim(Claims claims, String nombre) {
+        Object valor = claims.get(nombre);
+        return valor instanceof Number numero ? numero.longValue() : null;
+    }
+    
+    // Principal construido solo con las claims, sin consultar la base de datos. No está
+    // gestionado por JPA y no debe guardarse; sirve como referencia por id en consultas y relaciones.
+    public Usuario buildPrincipal(Claims claims) {
+        Set<Rol> roles = new HashSet<>();
+        Collection<?> nombresRoles = claims.get(CLAIM_ROLES, Collection.class);
+        if (nombresRoles != null) {
+            for (Object nombreRol : nombresRoles) {
+                roles.add(Rol.builder().nombre(Rol.RolNombre.valueOf(nombreRol.toString())).build());
+            }
+        }
+        Long version = getLongClaim(claims, CLAIM_VERSION);
+        
+        return Usuario.builder()
+                .id(getLongClaim(claims, CLAIM_USUARIO_ID))
+                .username(claims.getSubject())
+                .nombre(claims.get(CLAIM_NOMBRE, String.class))
+                .apellido(claims.get(CLAIM_APELLIDO, String.class))
+                .email(claims.get(CLAIM_EMAIL, String.class))
+                .roles(roles)
+                .tokenVersion(version != null ? version.intValue() : 0)
+                .build();
+    }
+    
+    public boolean isTokenValid(String token, UserDetails userDetails) {
+        return isTokenValid(extractAllClaims(token), userDetails);
+    }
+    
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
     
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
     
     private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
     }
 }
\ No newline at end of file
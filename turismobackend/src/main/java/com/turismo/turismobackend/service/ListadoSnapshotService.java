@@ -0,0 +1,196 @@
+package com.turismo.turismobackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Listados públicos ya serializados a JSON (y opcionalmente comprimidos con gzip). Cada snapshot
+// guarda la versión del catálogo con la que se generó; tras un cambio se regenera en segundo plano
+// y, si una petición llega antes, se genera en ese momento para no servir datos desactualizados.
+// Solo hay una generación en curso por clave: las peticiones concurrentes esperan su resultado.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ListadoSnapshotService {
+    
+    private final ObjectMapper objectMapper;
+    private final CatalogoVersionService catalogoVersionService;
+    private final ThreadPoolTaskExecutor snapshotsExecutor;
+    
+    @Value("${application.snapshots.gzip:true}")
+    private boolean gzipHabilitado;
+    
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Registro> registros = new ConcurrentHashMap<>();
+    private final Set<String> pendientes = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<Snapshot>> enCurso = new ConcurrentHashMap<>();
+    
+    public Snapshot obtener(String clave, CatalogoModificadoEvent.Tipo tipo, Supplier<?> generador) {
+        registros.putIfAbsent(clave, new Registro(tipo, generador));
+        String version = catalogoVersionService.etagListado(tipo);
+        Snapshot snapshot = snapshots.get(clave);
+        if (snapshot == null || !snapshot.version().equals(version)) {
+            snapshot = generar(clave, registros.get(clave));
+        }
+        return snapshot;
+    }
+    
+    // CatalogoVersionService lo publica después de vaciar la caché y actualizar la versión
+    @EventListener
+    public void onCatalogoSincronizado(CatalogoSincronizadoEvent evento) {
+        registros.forEach((clave, registro) -> {
+            Snapshot actual = snapshots.get(clave);
+            boolean desactualizado = actual == null
+                    || !actual.version().equals(catalogoVersionService.etagListado(registro.tipo()));
+            // pendientes agrupa varios cambios seguidos en una sola regeneración
+            if (desactualizado && pendientes.add(clave)) {
+                try {
+                    snapshotsExecutor.execute(() -> {
+                        pendientes.remove(clave);
+                        try {
+                            generar(clave, registro);
+                        } catch (RuntimeException e) {
+                            // La siguiente petición lo generará de forma síncrona
+                            log.warn("No se pudo regenerar el snapshot {} en segundo plano", clave, e);
+                        }
+                    });
+                } catch (TaskRejectedException e) {
+                    // Cola llena o aplicación deteniéndose: lo generará la siguiente petición
+                    pendientes.remove(clave);
+                }
+            }
+        });
+    }
+    
+    private Snapshot generar(String clave, Registro registro) {
+        while (true) {
+            CompletableFuture<Snapshot> propia = new CompletableFuture<>();
+            CompletableFuture<Snapshot> existente = enCurso.putIfAbsent(clave, propia);
+            if (existente == null) {
+                try {
+                    Snapshot snapshot = construir(clave, registro);
+                    propia.complete(snapshot);
+                    return snapshot;
+                } catch (RuntimeException e) {
+                    propia.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    enCurso.remove(clave, propia);
+                }
+            }
+            try {
+                Snapshot snapshot = existente.join();
+                // Una generación iniciada antes del último cambio no sirve; se vuelve a intentar
+                if (snapshot.version().equals(catalogoVersionService.etagListado(registro.tipo()))) {
+                    return snapshot;
+                }
+            } catch (CompletionException e) {
+                // Falló la generación en curso: se intenta de nuevo
+            }
+        }
+    }
+    
+    private Snapshot construir(String clave, Registro registro) {
+        // La versión se lee antes de generar: si cambia mientras tanto, el snapshot queda desactualizado
+        String version = catalogoVersionService.etagListado(registro.tipo());
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(registro.generador().get());
+            Snapshot snapshot = new Snapshot(version, json, gzipHabilitado ? comprimir(json) : null);
+            snapshots.put(clave, snapshot);
+            return snapshot;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo serializar el listado " + clave, e);
+        }
+    }
+    
+    private static byte[] comprimir(byte[] datos) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return salida.toByteArray();
+    }
+    
+    private record Registro(CatalogoModificadoEvent.Tipo tipo, Supplier<?> generador) {
+    }
+    
+    public record Snapshot(String version, byte[] json, byte[] gzip) {
+        
+        // Escribe los bytes tal cual; usa la variante gzip si el cliente la acepta
+        public ResponseEntity<byte[]> toResponseEntity(WebRequest webRequest) {
+            boolean usarGzip = gzip != null && aceptaGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            
+            ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (usarGzip) {
+                respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+                return respuesta.body(gzip);
+            }
+            return respuesta.body(json);
+        }
+        
+        // Accept-Encoding con valores q: "gzip;q=0" lo rechaza y "*" lo acepta si gzip no aparece aparte
+        static boolean aceptaGzip(String aceptaCodificacion) {
+            if (aceptaCodificacion == null) {
+                return false;
+            }
+            Double calidadGzip = null;
+            Double calidadComodin = null;
+            for (String elemento : aceptaCodificacion.split(",")) {
+                String[] partes = elemento.split(";");
+                String codificacion = partes[0].trim().toLowerCase();
+                double calidad = calidad(partes);
+                if (codificacion.equals("gzip") || codificacion.equals("x-gzip")) {
+                    calidadGzip = calidadGzip == null ? calidad : Math.max(calidadGzip, calidad);
+                } else if (codificacion.equals("*")) {
+                    calidadComodin = calidad;
+                }
+            }
+            if (calidadGzip != null) {
+                return calidadGzip > 0;
+            }
+            return calidadComodin != null && calidadComodin > 0;
+        }
+        
+        private static double calidad(String[] partes) {
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim();
+                if (parametro.toLowerCase().startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parametro.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        // Un valor q mal formado no cuenta como aceptado
+                        return 0;
+                    }
+                }
+            }
+            return 1;
+        }
+    }
+}
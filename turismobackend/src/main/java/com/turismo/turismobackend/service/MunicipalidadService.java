@@ -1,5 +1,7 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.config.CacheConfig;
 import com.turismo.turismobackend.dto.request.MunicipalidadRequest;
 import com.turismo.turismobackend.dto.response.MunicipalidadResponse;
 import com.turismo.turismobackend.exception.ResourceNotFoundException;
@@ -9,8 +11,10 @@ import com.turismo.turismobackend.model.Usuario;
 import com.turismo.turismobackend.repository.MunicipalidadRepository;
 import com.turismo.turismobackend.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,13 +26,19 @@ public class MunicipalidadService {
     
     private final MunicipalidadRepository municipalidadRepository;
     private final UsuarioRepository usuarioRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuthContext authContext;
     
+    // Lee los emprendedores de cada municipalidad; ListadoSnapshotService lo llama fuera de una petición
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.MUNICIPALIDADES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<MunicipalidadResponse> getAllMunicipalidades() {
         return municipalidadRepository.findAll().stream()
                 .map(this::mapToMunicipalidadResponse)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.MUNICIPALIDADES, key = "#id")
     public MunicipalidadResponse getMunicipalidadById(Long id) {
         Municipalidad municipalidad = municipalidadRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Municipalidad", "id", id));
@@ -36,9 +46,10 @@ public class MunicipalidadService {
         return mapToMunicipalidadResponse(municipalidad);
     }
     
+    @Transactional
     public MunicipalidadResponse createMunicipalidad(MunicipalidadRequest request) {
         // Obtener el usuario autenticado
-        Usuario usuario = (Usuario) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Usuario usuario = authContext.getUsuario();
         
         // Verificar si el usuario ya tiene una municipalidad asignada
         if (municipalidadRepository.findByUsuario(usuario).isPresent()) {
@@ -59,6 +70,10 @@ public class MunicipalidadService {
                 .build();
         
         municipalidadRepository.save(municipalidad);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.MUNICIPALIDAD, municipalidad.getId()));
+        // El vínculo forma parte de las claims del token
+        usuarioRepository.incrementarVersionToken(usuario.getId());
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(usuario.getId(), usuario.getUsername()));
         
         return mapToMunicipalidadResponse(municipalidad);
     }
@@ -69,7 +84,7 @@ public class MunicipalidadService {
                 .orElseThrow(() -> new ResourceNotFoundException("Municipalidad", "id", id));
         
         // Obtener el usuario autenticado
-        Usuario usuario = (Usuario) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Usuario usuario = authContext.getUsuario();
         
         // Verificar si el usuario es el propietario de la municipalidad
         /*if (!municipalidad.getUsuario().getId().equals(usuario.getId())) {
@@ -87,39 +102,48 @@ public class MunicipalidadService {
         municipalidad.setDescripcion(request.getDescripcion());
         
         municipalidadRepository.save(municipalidad);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.MUNICIPALIDAD, municipalidad.getId()));
         
         return mapToMunicipalidadResponse(municipalidad);
     }
     
+    @Transactional
     public void deleteMunicipalidad(Long id) {
         // Buscar la municipalidad
         Municipalidad municipalidad = municipalidadRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Municipalidad", "id", id));
         
         // Obtener el usuario autenticado
-        Usuario usuario = (Usuario) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Usuario usuario = authContext.getUsuario();
         
         // Verificar si el usuario es el propietario de la municipalidad o un administrador
         if (!municipalidad.getUsuario().getId().equals(usuario.getId()) && 
-                usuario.getAuthorities().stream().noneMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+                !authContext.isAdmin()) {
             throw new RuntimeException("No tienes permiso para eliminar esta municipalidad");
         }
         
         municipalidadRepository.delete(municipalidad);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.MUNICIPALIDAD, id));
+        Usuario propietario = municipalidad.getUsuario();
+        usuarioRepository.incrementarVersionToken(propietario.getId());
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(propietario.getId(), propietario.getUsername()));
     }
     
+    @Cacheable(cacheNames = CacheConfig.MUNICIPALIDADES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<MunicipalidadResponse> getMunicipalidadesByDepartamento(String departamento) {
         return municipalidadRepository.findByDepartamento(departamento).stream()
                 .map(this::mapToMunicipalidadResponse)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.MUNICIPALIDADES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<MunicipalidadResponse> getMunicipalidadesByProvincia(String provincia) {
         return municipalidadRepository.findByProvincia(provincia).stream()
                 .map(this::mapToMunicipalidadResponse)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.MUNICIPALIDADES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<MunicipalidadResponse> getMunicipalidadesByDistrito(String distrito) {
         return municipalidadRepository.findByDistrito(distrito).stream()
                 .map(this::mapToMunicipalidadResponse)
@@ -128,7 +152,7 @@ public class MunicipalidadService {
     
     public MunicipalidadResponse getMunicipalidadByUsuario() {
         // Obtener el usuario autenticado
-        Usuario usuario = (Usuario) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Usuario usuario = authContext.getUsuario();
         
         // Buscar municipalidad por usuario
         Municipalidad municipalidad = municipalidadRepository.findByUsuario(usuario)
@@ -0,0 +1,63 @@
+package com.turismo.turismobackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+// Reservas de plan completadas por cada usuario, en memoria, para el descuento de cliente frecuente.
+// Se cuenta una vez por usuario y se invalida cuando una de sus reservas entra o sale de COMPLETADA;
+// el TTL cubre las transiciones hechas por otras instancias.
+@Service
+public class NivelClienteService {
+    
+    private static final long RESERVAS_CLIENTE_FRECUENTE = 3;
+    private static final String COMPLETADA = Reserva.EstadoReserva.COMPLETADA.name();
+    
+    private final Cache<Long, Long> reservasCompletadas;
+    private final ReservaRepository reservaRepository;
+    
+    public NivelClienteService(
+            @Value("${application.cotizacion.nivel-cliente.ttl-minutos:30}") long ttlMinutos,
+            @Value("${application.cotizacion.nivel-cliente.tamano-maximo:100000}") long tamanoMaximo,
+            ReservaRepository reservaRepository,
+            MeterRegistry meterRegistry
+    ) {
+        this.reservaRepository = reservaRepository;
+        this.reservasCompletadas = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutos))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, reservasCompletadas, "nivelCliente");
+    }
+    
+    public boolean esClienteFrecuente(Long usuarioId) {
+        Long completadas = reservasCompletadas.get(usuarioId, id -> {
+            Long total = reservaRepository.countReservasCompletadasByUsuario(id);
+            return total != null ? total : 0L;
+        });
+        return completadas >= RESERVAS_CLIENTE_FRECUENTE;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReservaTransicion(ReservaTransicionEvent evento) {
+        if (evento.fuente() == ReservaTransicionEvent.Fuente.PLAN
+                && (COMPLETADA.equals(evento.estadoNuevo()) || COMPLETADA.equals(evento.estadoAnterior()))) {
+            reservasCompletadas.invalidate(evento.usuarioId());
+        }
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReservaTransicionLote(ReservaTransicionLoteEvent lote) {
+        lote.transiciones().forEach(this::onReservaTransicion);
+    }
+}
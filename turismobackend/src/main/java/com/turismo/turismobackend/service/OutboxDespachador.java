@@ -0,0 +1,124 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.EventoOutbox;
+import com.turismo.turismobackend.model.EventoOutboxEntrega;
+import com.turismo.turismobackend.repository.EventoOutboxEntregaRepository;
+import com.turismo.turismobackend.repository.EventoOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+
+// Entrega los eventos del outbox a los suscriptores fuera de la transacción que los generó.
+// Cada evento se intenta en cuanto confirma su transacción; los que fallan o quedaron sin
+// entregar (p. ej. por un reinicio) los recoge la tarea programada con espera exponencial.
+@Component
+@RequiredArgsConstructor
+public class OutboxDespachador {
+    
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final EventoOutboxEntregaRepository eventoOutboxEntregaRepository;
+    private final List<SuscriptorOutbox> suscriptores;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor outboxExecutor;
+    
+    @Value("${application.outbox.max-intentos:8}")
+    private int maxIntentos;
+    
+    @Value("${application.outbox.espera-base-ms:5000}")
+    private long esperaBaseMs;
+    
+    @Value("${application.outbox.bloqueo-ms:120000}")
+    private long bloqueoMs;
+    
+    @Value("${application.outbox.tamano-lote:100}")
+    private int tamanoLote;
+    
+    @Value("${application.outbox.retencion-dias:7}")
+    private int retencionDias;
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEventoRegistrado(EventoOutboxRegistrado evento) {
+        try {
+            outboxExecutor.execute(() -> despachar(evento.eventoId()));
+        } catch (TaskRejectedException e) {
+            // Cola llena o apagando: el evento sigue pendiente y lo entrega procesarPendientes
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${application.outbox.intervalo-ms:10000}")
+    public void procesarPendientes() {
+        List<Long> ids = eventoOutboxRepository.findIdsPendientes(LocalDateTime.now(), PageRequest.of(0, tamanoLote));
+        ids.forEach(this::despachar);
+    }
+    
+    @Scheduled(fixedDelayString = "${application.outbox.limpieza-ms:3600000}")
+    public void limpiar() {
+        LocalDateTime limite = LocalDateTime.now().minusDays(retencionDias);
+        eventoOutboxRepository.eliminarProcesadosAntesDe(limite);
+        eventoOutboxEntregaRepository.eliminarAntesDe(limite);
+    }
+    
+    private void despachar(Long eventoId) {
+        LocalDateTime ahora = LocalDateTime.now();
+        if (eventoOutboxRepository.bloquear(eventoId, ahora, ahora.plus(bloqueoMs, ChronoUnit.MILLIS)) == 0) {
+            return;
+        }
+        EventoOutbox evento = eventoOutboxRepository.findById(eventoId).orElse(null);
+        if (evento == null) {
+            return;
+        }
+    
+        // Los suscriptores que ya lo procesaron en un intento anterior no lo vuelven a recibir
+        Set<String> entregados = eventoOutboxEntregaRepository.findSuscriptoresByEventoId(eventoId);
+        String error = null;
+        for (SuscriptorOutbox suscriptor : suscriptores) {
+            if (!suscriptor.tipos().contains(evento.getTipo()) || entregados.contains(suscriptor.nombre())) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(estado -> {
+                    suscriptor.manejar(evento);
+                    eventoOutboxEntregaRepository.save(EventoOutboxEntrega.builder()
+                            .eventoId(eventoId)
+                            .suscriptor(suscriptor.nombre())
+                            .fechaEntrega(LocalDateTime.now())
+                            .build());
+                });
+            } catch (RuntimeException e) {
+                error = suscriptor.nombre() + ": " + e.getMessage();
+            }
+        }
+        finalizar(evento, error);
+    }
+    
+    private void finalizar(EventoOutbox evento, String error) {
+        LocalDateTime ahora = LocalDateTime.now();
+        evento.setBloqueadoHasta(null);
+        if (error == null) {
+            evento.setEstado(EventoOutbox.EstadoEvento.PROCESADO);
+            evento.setFechaProcesado(ahora);
+        } else {
+            evento.setIntentos(evento.getIntentos() + 1);
+            evento.setUltimoError(error.length() > 500 ? error.substring(0, 500) : error);
+            if (evento.getIntentos() >= maxIntentos) {
+                evento.setEstado(EventoOutbox.EstadoEvento.FALLIDO);
+            } else {
+                long espera = esperaBaseMs << Math.min(evento.getIntentos() - 1, 10);
+                evento.setProximoIntento(ahora.plus(espera, ChronoUnit.MILLIS));
+            }
+        }
+        eventoOutboxRepository.save(evento);
+    }
+}
@@ -0,0 +1,116 @@
+package com.turismo.turismobackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turismo.turismobackend.model.EventoOutbox;
+import com.turismo.turismobackend.model.Pago;
+import com.turismo.turismobackend.model.PagoCarrito;
+import com.turismo.turismobackend.repository.EventoOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Escribe los eventos de reservas y pagos en eventos_outbox dentro de la transacción del cambio.
+// La entrega a los suscriptores la hace OutboxDespachador después del commit
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+    
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    // Antes del commit: el evento queda guardado solo si la transición se confirma
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onReservaTransicion(ReservaTransicionEvent evento) {
+        EventoOutbox.TipoEvento tipo = tipoDe(evento);
+        if (tipo == null) {
+            return;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("reservaId", evento.reservaId());
+        payload.put("usuarioId", evento.usuarioId());
+        payload.put("municipalidadId", evento.municipalidadId());
+        payload.put("emprendedorIds", evento.montoPorEmprendedor().keySet());
+        payload.put("monto", evento.monto());
+        payload.put("estadoAnterior", evento.estadoAnterior());
+        payload.put("estadoNuevo", evento.estadoNuevo());
+        registrar(tipo, evento.fuente(), evento.reservaId(), payload);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onReservaTransicionLote(ReservaTransicionLoteEvent lote) {
+        lote.transiciones().forEach(this::onReservaTransicion);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onReservaItemsCancelados(ReservaItemsCanceladosEvent evento) {
+        for (ReservaItemsCanceladosEvent.ItemsCancelados cancelacion : evento.cancelaciones()) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("reservaId", cancelacion.reservaId());
+            payload.put("usuarioId", cancelacion.usuarioId());
+            payload.put("emprendedorId", cancelacion.emprendedorId());
+            payload.put("itemIds", cancelacion.itemIds());
+            payload.put("subtotal", cancelacion.subtotal());
+            registrar(EventoOutbox.TipoEvento.RESERVA_ITEMS_CANCELADOS, ReservaTransicionEvent.Fuente.CARRITO,
+                    cancelacion.reservaId(), payload);
+        }
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarPagosConfirmados(List<Pago> pagos, List<PagoCarrito> pagosCarrito) {
+        for (Pago pago : pagos) {
+            registrar(EventoOutbox.TipoEvento.PAGO_CONFIRMADO, ReservaTransicionEvent.Fuente.PLAN, pago.getId(),
+                    payloadPago(pago.getId(), pago.getReserva().getId(), pago.getMonto(), pago.getMetodoPago()));
+        }
+        for (PagoCarrito pago : pagosCarrito) {
+            registrar(EventoOutbox.TipoEvento.PAGO_CONFIRMADO, ReservaTransicionEvent.Fuente.CARRITO, pago.getId(),
+                    payloadPago(pago.getId(), pago.getReservaCarrito().getId(), pago.getMonto(), pago.getMetodoPago()));
+        }
+    }
+    
+    private Map<String, Object> payloadPago(Long pagoId, Long reservaId, BigDecimal monto, Pago.MetodoPago metodoPago) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("pagoId", pagoId);
+        payload.put("reservaId", reservaId);
+        payload.put("monto", monto);
+        payload.put("metodoPago", metodoPago);
+        return payload;
+    }
+    
+    private void registrar(EventoOutbox.TipoEvento tipo, ReservaTransicionEvent.Fuente fuente, Long agregadoId,
+                           Map<String, Object> payload) {
+        EventoOutbox evento;
+        try {
+            evento = eventoOutboxRepository.save(EventoOutbox.builder()
+                    .tipo(tipo)
+                    .fuente(fuente.name())
+                    .agregadoId(agregadoId)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo serializar el evento " + tipo, e);
+        }
+        eventPublisher.publishEvent(new EventoOutboxRegistrado(evento.getId()));
+    }
+    
+    private static EventoOutbox.TipoEvento tipoDe(ReservaTransicionEvent evento) {
+        if (evento.estadoAnterior() == null) {
+            return EventoOutbox.TipoEvento.RESERVA_CREADA;
+        }
+        return switch (evento.estadoNuevo()) {
+            case "CONFIRMADA" -> EventoOutbox.TipoEvento.RESERVA_CONFIRMADA;
+            case "CANCELADA" -> EventoOutbox.TipoEvento.RESERVA_CANCELADA;
+            default -> null;
+        };
+    }
+}
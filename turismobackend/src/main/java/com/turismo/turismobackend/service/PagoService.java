@@ -1,5 +1,6 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
 import com.turismo.turismobackend.dto.request.PagoRequest;
 import com.turismo.turismobackend.dto.response.PagoResponse;
 import com.turismo.turismobackend.exception.ResourceNotFoundException;
@@ -9,7 +10,7 @@ import com.turismo.turismobackend.model.Usuario;
 import com.turismo.turismobackend.repository.PagoRepository;
 import com.turismo.turismobackend.repository.ReservaRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +25,10 @@ public class PagoService {
     
     private final PagoRepository pagoRepository;
     private final ReservaRepository reservaRepository;
+    private final AuthContext authContext;
+    private final IngresoRollupService ingresoRollupService;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
     
     public List<PagoResponse> getAllPagos() {
         // Solo admin puede ver todos los pagos
@@ -156,8 +161,38 @@ public class PagoService {
         
         Pago updatedPago = pagoRepository.save(pago);
         
-        // Actualizar estado de reserva
+        // Acumular en la reserva; @Version rechaza una confirmación concurrente sobre la misma reserva
+        pago.getReserva().sumarPagoConfirmado(pago.getMonto());
         actualizarEstadoReservaPorPago(pago.getReserva());
+        ingresoRollupService.registrarPagoConfirmado(updatedPago);
+        outboxService.registrarPagosConfirmados(List.of(updatedPago), List.of());
+        
+        return convertToResponse(updatedPago);
+    }
+    
+    public PagoResponse reembolsarPago(Long id, String motivo) {
+        Pago pago = pagoRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Pago", "id", id));
+        
+        // Solo admin o propietario del plan pueden reembolsar pagos
+        Usuario usuario = getCurrentUser();
+        if (!hasRole("ROLE_ADMIN") && !esPropietarioDelPlan(pago.getReserva(), usuario)) {
+            throw new RuntimeException("No tiene permisos para reembolsar este pago");
+        }
+        
+        if (pago.getEstado() != Pago.EstadoPago.CONFIRMADO) {
+            throw new RuntimeException("Solo se pueden reembolsar pagos confirmados");
+        }
+        
+        pago.setEstado(Pago.EstadoPago.REEMBOLSADO);
+        pago.setObservaciones(pago.getObservaciones() + " | Motivo reembolso: " + motivo);
+        
+        Pago updatedPago = pagoRepository.save(pago);
+        
+        // @Version en la reserva rechaza un cambio concurrente de su monto pagado
+        pago.getReserva().restarPagoReembolsado(pago.getMonto());
+        reservaRepository.save(pago.getReserva());
+        ingresoRollupService.registrarPagosReembolsados(List.of(updatedPago), List.of());
         
         return convertToResponse(updatedPago);
     }
@@ -184,19 +219,12 @@ public class PagoService {
     }
     
     private void actualizarEstadoReservaPorPago(Reserva reserva) {
-        Long totalPagado = pagoRepository.getTotalPagadoByReserva(reserva.getId());
-        if (totalPagado == null) totalPagado = 0L;
-        
-        if (totalPagado >= reserva.getMontoFinal().longValue()) {
-            reserva.setEstado(Reserva.EstadoReserva.PAGADA);
-        } else if (totalPagado > 0) {
-            // Tiene pagos parciales, mantener confirmada si ya lo estaba
-            if (reserva.getEstado() == Reserva.EstadoReserva.PENDIENTE) {
-                reserva.setEstado(Reserva.EstadoReserva.CONFIRMADA);
-            }
-        }
-        
+        Reserva.EstadoReserva estadoAnterior = reserva.getEstado();
+        reserva.actualizarEstadoPorPagos();
         reservaRepository.save(reserva);
+        if (reserva.getEstado() != estadoAnterior) {
+            eventPublisher.publishEvent(ReservaTransicionEvent.de(reserva, estadoAnterior));
+        }
     }
     
     private PagoResponse convertToResponse(Pago pago) {
@@ -216,22 +244,17 @@ public class PagoService {
     }
     
     private Usuario getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (!(principal instanceof Usuario)) {
-            throw new RuntimeException("Usuario no autenticado correctamente");
-        }
-        return (Usuario) principal;
+        return authContext.getUsuario();
     }
     
     private boolean hasRole(String role) {
-        return getCurrentUser().getAuthorities().stream()
-                .anyMatch(authority -> authority.getAuthority().equals(role));
+        return authContext.hasRole(role);
     }
     
     private boolean esPropietarioDelPlan(Reserva reserva, Usuario usuario) {
+        // El dueño de la municipalidad del plan; su municipalidad se resuelve una sola vez por petición
         return reserva.getPlan().getUsuarioCreador().getId().equals(usuario.getId()) ||
-               (reserva.getPlan().getMunicipalidad().getUsuario() != null && 
-                reserva.getPlan().getMunicipalidad().getUsuario().getId().equals(usuario.getId()));
+               reserva.getPlan().getMunicipalidad().getId().equals(authContext.getMunicipalidadId());
     }
     
     private boolean perteneceAMunicipalidad(Usuario usuario, Long municipalidadId) {
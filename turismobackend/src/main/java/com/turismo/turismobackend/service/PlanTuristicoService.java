@@ -1,5 +1,7 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.config.CacheConfig;
 import com.turismo.turismobackend.dto.request.PlanTuristicoRequest;
 import com.turismo.turismobackend.dto.request.ServicioPlanRequest;
 import com.turismo.turismobackend.dto.response.*;
@@ -7,12 +9,20 @@ import com.turismo.turismobackend.exception.ResourceNotFoundException;
 import com.turismo.turismobackend.model.*;
 import com.turismo.turismobackend.repository.*;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,65 +34,97 @@ public class PlanTuristicoService {
     private final ServicioTuristicoRepository servicioRepository;
     private final ServicioPlanRepository servicioPlanRepository;
     private final MunicipalidadRepository municipalidadRepository;
+    private final PopularidadService popularidadService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuthContext authContext;
     
+    @Cacheable(cacheNames = CacheConfig.PLANES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<PlanTuristicoResponse> getAllPlanes() {
         return planRepository.findAll().stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.PLANES, key = "#id")
     public PlanTuristicoResponse getPlanById(Long id) {
         PlanTuristico plan = planRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Plan turístico", "id", id));
         return convertToResponse(plan);
     }
     
+    @Cacheable(cacheNames = CacheConfig.PLANES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<PlanTuristicoResponse> getPlanesByMunicipalidad(Long municipalidadId) {
         return planRepository.findByMunicipalidadId(municipalidadId).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.PLANES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<PlanTuristicoResponse> getPlanesByEstado(PlanTuristico.EstadoPlan estado) {
         return planRepository.findByEstado(estado).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.PLANES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<PlanTuristicoResponse> getPlanesByNivelDificultad(PlanTuristico.NivelDificultad nivel) {
         return planRepository.findByNivelDificultad(nivel).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.PLANES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<PlanTuristicoResponse> getPlanesByDuracion(Integer duracionMin, Integer duracionMax) {
         return planRepository.findByDuracionDiasBetween(duracionMin, duracionMax).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.PLANES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<PlanTuristicoResponse> getPlanesByPrecio(BigDecimal precioMin, BigDecimal precioMax) {
         return planRepository.findByPrecioTotalBetween(precioMin, precioMax).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.PLANES_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<PlanTuristicoResponse> searchPlanes(String termino) {
         return planRepository.findByNombreOrDescripcionContaining(termino, termino).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
     public List<PlanTuristicoResponse> getMisPlanes() {
         Usuario usuario = getCurrentUser();
         return planRepository.findByUsuarioCreadorId(usuario.getId()).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
-    public List<PlanTuristicoResponse> getPlanesMasPopulares() {
-        return planRepository.findMostPopular().stream()
-                .map(this::convertToResponse)
+    public List<PlanTuristicoResponse> getPlanesMasPopulares(int limite) {
+        // El ranking incluye planes no publicados: se recorre por tramos hasta completar el límite
+        List<PlanTuristico> planes = new ArrayList<>();
+        Set<Long> agregados = new HashSet<>();
+        int desde = 0;
+        while (planes.size() < limite) {
+            List<Long> ids = popularidadService.getTopPlanes(desde, limite * 2);
+            if (ids.isEmpty()) {
+                break;
+            }
+            desde += ids.size();
+            Map<Long, PlanTuristico> planesPorId = planRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(PlanTuristico::getId, Function.identity()));
+            for (Long planId : ids) {
+                PlanTuristico plan = planesPorId.get(planId);
+                if (planes.size() < limite && plan != null && plan.getEstado() == PlanTuristico.EstadoPlan.ACTIVO
+                        && agregados.add(planId)) {
+                    planes.add(plan);
+                }
+            }
+        }
+        
+        return planes.stream()
+                .map(plan -> convertToResponse(plan, (int) popularidadService.getTotalReservasPlan(plan.getId()), false))
                 .collect(Collectors.toList());
     }
     
@@ -92,8 +134,11 @@ public class PlanTuristicoService {
         // Obtener municipalidad del usuario (si es municipalidad) o buscar por ID
         Municipalidad municipalidad;
         if (hasRole("ROLE_MUNICIPALIDAD")) {
-            municipalidad = municipalidadRepository.findByUsuarioId(usuario.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Municipalidad", "usuario_id", usuario.getId()));
+            Long municipalidadId = authContext.getMunicipalidadId();
+            if (municipalidadId == null) {
+                throw new ResourceNotFoundException("Municipalidad", "usuario_id", usuario.getId());
+            }
+            municipalidad = municipalidadRepository.getReferenceById(municipalidadId);
         } else if (hasRole("ROLE_ADMIN")) {
             if (request.getMunicipalidadId() == null) {
                 throw new RuntimeException("Admin debe especificar la municipalidad en el request");
@@ -104,21 +149,11 @@ public class PlanTuristicoService {
             throw new RuntimeException("No tiene permisos para crear planes turísticos");
         }
         
+        // Resolver todos los servicios referenciados en una sola consulta
+        Map<Long, ServicioTuristico> serviciosPorId = resolverServicios(request.getServicios());
+        
         // Calcular precio total ANTES de crear el plan
-        BigDecimal precioTotal = BigDecimal.ZERO;
-        for (ServicioPlanRequest servicioRequest : request.getServicios()) {
-            ServicioTuristico servicio = servicioRepository.findById(servicioRequest.getServicioId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Servicio", "id", servicioRequest.getServicioId()));
-            
-            // Calcular precio del servicio
-            BigDecimal precioServicio = servicioRequest.getPrecioEspecial() != null 
-                    ? servicioRequest.getPrecioEspecial() 
-                    : servicio.getPrecio();
-            
-            if (!servicioRequest.getEsOpcional()) {
-                precioTotal = precioTotal.add(precioServicio);
-            }
-        }
+        BigDecimal precioTotal = calcularPrecioTotal(request.getServicios(), serviciosPorId);
         
         // Crear plan con el precio total ya calculado
         PlanTuristico plan = PlanTuristico.builder()
@@ -142,26 +177,18 @@ public class PlanTuristicoService {
         PlanTuristico savedPlan = planRepository.save(plan);
         
         // Agregar servicios al plan
+        List<ServicioPlan> serviciosPlan = new ArrayList<>();
         for (ServicioPlanRequest servicioRequest : request.getServicios()) {
-            ServicioTuristico servicio = servicioRepository.findById(servicioRequest.getServicioId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Servicio", "id", servicioRequest.getServicioId()));
-            
             ServicioPlan servicioPlan = ServicioPlan.builder()
                     .plan(savedPlan)
-                    .servicio(servicio)
-                    .diaDelPlan(servicioRequest.getDiaDelPlan())
-                    .ordenEnElDia(servicioRequest.getOrdenEnElDia())
-                    .horaInicio(servicioRequest.getHoraInicio())
-                    .horaFin(servicioRequest.getHoraFin())
-                    .precioEspecial(servicioRequest.getPrecioEspecial())
-                    .notas(servicioRequest.getNotas())
-                    .esOpcional(servicioRequest.getEsOpcional())
-                    .esPersonalizable(servicioRequest.getEsPersonalizable())
+                    .servicio(serviciosPorId.get(servicioRequest.getServicioId()))
                     .build();
-            
-            servicioPlanRepository.save(servicioPlan);
+            aplicarDatosServicioPlan(servicioPlan, servicioRequest);
+            serviciosPlan.add(servicioPlan);
         }
+        savedPlan.getServicios().addAll(servicioPlanRepository.saveAll(serviciosPlan));
         
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.PLAN, savedPlan.getId()));
         return convertToResponse(savedPlan);
     }
     
@@ -187,42 +214,14 @@ public class PlanTuristicoService {
         plan.setRecomendaciones(request.getRecomendaciones());
         plan.setRequisitos(request.getRequisitos());
         
-        // Eliminar servicios existentes del plan
-        servicioPlanRepository.deleteByPlanId(id);
+        Map<Long, ServicioTuristico> serviciosPorId = resolverServicios(request.getServicios());
         
-        // Agregar nuevos servicios y recalcular precio
-        BigDecimal precioTotal = BigDecimal.ZERO;
-        for (ServicioPlanRequest servicioRequest : request.getServicios()) {
-            ServicioTuristico servicio = servicioRepository.findById(servicioRequest.getServicioId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Servicio", "id", servicioRequest.getServicioId()));
-            
-            ServicioPlan servicioPlan = ServicioPlan.builder()
-                    .plan(plan)
-                    .servicio(servicio)
-                    .diaDelPlan(servicioRequest.getDiaDelPlan())
-                    .ordenEnElDia(servicioRequest.getOrdenEnElDia())
-                    .horaInicio(servicioRequest.getHoraInicio())
-                    .horaFin(servicioRequest.getHoraFin())
-                    .precioEspecial(servicioRequest.getPrecioEspecial())
-                    .notas(servicioRequest.getNotas())
-                    .esOpcional(servicioRequest.getEsOpcional())
-                    .esPersonalizable(servicioRequest.getEsPersonalizable())
-                    .build();
-            
-            servicioPlanRepository.save(servicioPlan);
-            
-            // Calcular precio total
-            BigDecimal precioServicio = servicioRequest.getPrecioEspecial() != null 
-                    ? servicioRequest.getPrecioEspecial() 
-                    : servicio.getPrecio();
-            
-            if (!servicioRequest.getEsOpcional()) {
-                precioTotal = precioTotal.add(precioServicio);
-            }
-        }
+        // Aplicar solo las diferencias sobre los servicios existentes del plan
+        sincronizarServiciosPlan(plan, request.getServicios(), serviciosPorId);
         
-        plan.setPrecioTotal(precioTotal);
+        plan.setPrecioTotal(calcularPrecioTotal(request.getServicios(), serviciosPorId));
         PlanTuristico updatedPlan = planRepository.save(plan);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.PLAN, id));
         return convertToResponse(updatedPlan);
     }
     
@@ -245,6 +244,7 @@ public class PlanTuristicoService {
         }
         
         planRepository.delete(plan);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.PLAN, id));
     }
     
     public PlanTuristicoResponse cambiarEstado(Long id, PlanTuristico.EstadoPlan nuevoEstado) {
@@ -259,11 +259,120 @@ public class PlanTuristicoService {
         
         plan.setEstado(nuevoEstado);
         PlanTuristico updatedPlan = planRepository.save(plan);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.PLAN, id));
         return convertToResponse(updatedPlan);
     }
     
+    private Map<Long, ServicioTuristico> resolverServicios(List<ServicioPlanRequest> servicioRequests) {
+        // Un mismo servicio no puede repetirse en el mismo día y orden
+        Set<String> claves = new HashSet<>();
+        for (ServicioPlanRequest servicioRequest : servicioRequests) {
+            if (!claves.add(claveServicioPlan(servicioRequest.getServicioId(),
+                    servicioRequest.getDiaDelPlan(), servicioRequest.getOrdenEnElDia()))) {
+                throw new RuntimeException("El servicio " + servicioRequest.getServicioId() + " está repetido en el día "
+                        + servicioRequest.getDiaDelPlan() + " con el orden " + servicioRequest.getOrdenEnElDia());
+            }
+        }
+        
+        Set<Long> ids = servicioRequests.stream()
+                .map(ServicioPlanRequest::getServicioId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        
+        Map<Long, ServicioTuristico> serviciosPorId = servicioRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ServicioTuristico::getId, Function.identity()));
+        
+        // Validar que no falte ninguno de los servicios solicitados
+        for (Long id : ids) {
+            if (!serviciosPorId.containsKey(id)) {
+                throw new ResourceNotFoundException("Servicio", "id", id);
+            }
+        }
+        
+        return serviciosPorId;
+    }
+    
+    private BigDecimal calcularPrecioTotal(List<ServicioPlanRequest> servicioRequests,
+                                           Map<Long, ServicioTuristico> serviciosPorId) {
+        BigDecimal precioTotal = BigDecimal.ZERO;
+        for (ServicioPlanRequest servicioRequest : servicioRequests) {
+            if (servicioRequest.getEsOpcional()) {
+                continue;
+            }
+            
+            BigDecimal precioServicio = servicioRequest.getPrecioEspecial() != null 
+                    ? servicioRequest.getPrecioEspecial() 
+                    : serviciosPorId.get(servicioRequest.getServicioId()).getPrecio();
+            precioTotal = precioTotal.add(precioServicio);
+        }
+        return precioTotal;
+    }
+    
+    private void sincronizarServiciosPlan(PlanTuristico plan, List<ServicioPlanRequest> servicioRequests,
+                                          Map<Long, ServicioTuristico> serviciosPorId) {
+        // Indexar filas existentes por (servicio, día, orden); si ya había filas repetidas
+        // se conserva la primera y las demás se eliminan
+        Map<String, ServicioPlan> existentes = new HashMap<>();
+        List<ServicioPlan> repetidos = new ArrayList<>();
+        for (ServicioPlan servicioPlan : plan.getServicios()) {
+            if (existentes.putIfAbsent(claveServicioPlan(servicioPlan.getServicio().getId(),
+                    servicioPlan.getDiaDelPlan(), servicioPlan.getOrdenEnElDia()), servicioPlan) != null) {
+                repetidos.add(servicioPlan);
+            }
+        }
+        
+        List<ServicioPlan> nuevos = new ArrayList<>();
+        for (ServicioPlanRequest servicioRequest : servicioRequests) {
+            ServicioPlan existente = existentes.remove(claveServicioPlan(servicioRequest.getServicioId(),
+                    servicioRequest.getDiaDelPlan(), servicioRequest.getOrdenEnElDia()));
+            
+            if (existente != null) {
+                // Hibernate solo emite UPDATE si algún campo cambió realmente
+                aplicarDatosServicioPlan(existente, servicioRequest);
+            } else {
+                ServicioPlan servicioPlan = ServicioPlan.builder()
+                        .plan(plan)
+                        .servicio(serviciosPorId.get(servicioRequest.getServicioId()))
+                        .build();
+                aplicarDatosServicioPlan(servicioPlan, servicioRequest);
+                nuevos.add(servicioPlan);
+            }
+        }
+        
+        // Las filas que ya no están en el request se eliminan por orphanRemoval
+        Set<Long> idsEliminados = existentes.values().stream()
+                .map(ServicioPlan::getId)
+                .collect(Collectors.toCollection(HashSet::new));
+        repetidos.forEach(servicioPlan -> idsEliminados.add(servicioPlan.getId()));
+        plan.getServicios().removeIf(servicioPlan -> idsEliminados.contains(servicioPlan.getId()));
+        plan.getServicios().addAll(servicioPlanRepository.saveAll(nuevos));
+    }
+    
+    private void aplicarDatosServicioPlan(ServicioPlan servicioPlan, ServicioPlanRequest servicioRequest) {
+        servicioPlan.setDiaDelPlan(servicioRequest.getDiaDelPlan());
+        servicioPlan.setOrdenEnElDia(servicioRequest.getOrdenEnElDia());
+        servicioPlan.setHoraInicio(servicioRequest.getHoraInicio());
+        servicioPlan.setHoraFin(servicioRequest.getHoraFin());
+        servicioPlan.setPrecioEspecial(servicioRequest.getPrecioEspecial());
+        servicioPlan.setNotas(servicioRequest.getNotas());
+        servicioPlan.setEsOpcional(servicioRequest.getEsOpcional());
+        servicioPlan.setEsPersonalizable(servicioRequest.getEsPersonalizable());
+    }
+    
+    private String claveServicioPlan(Long servicioId, Integer dia, Integer orden) {
+        return servicioId + ":" + dia + ":" + orden;
+    }
+    
     private PlanTuristicoResponse convertToResponse(PlanTuristico plan) {
-        return PlanTuristicoResponse.builder()
+        return convertToResponse(plan, plan.getReservas().size(), true);
+    }
+    
+    // Listados: sin los textos del grupo "detalle", que costarían una consulta extra por plan y servicio
+    private PlanTuristicoResponse convertToResumen(PlanTuristico plan) {
+        return convertToResponse(plan, plan.getReservas().size(), false);
+    }
+    
+    private PlanTuristicoResponse convertToResponse(PlanTuristico plan, int totalReservas, boolean detalle) {
+        PlanTuristicoResponse.PlanTuristicoResponseBuilder builder = PlanTuristicoResponse.builder()
                 .id(plan.getId())
                 .nombre(plan.getNombre())
                 .descripcion(plan.getDescripcion())
@@ -273,23 +382,25 @@ public class PlanTuristicoService {
                 .estado(plan.getEstado())
                 .nivelDificultad(plan.getNivelDificultad())
                 .imagenPrincipalUrl(plan.getImagenPrincipalUrl())
-                .itinerario(plan.getItinerario())
-                .incluye(plan.getIncluye())
-                .noIncluye(plan.getNoIncluye())
-                .recomendaciones(plan.getRecomendaciones())
-                .requisitos(plan.getRequisitos())
                 .fechaCreacion(plan.getFechaCreacion())
                 .fechaActualizacion(plan.getFechaActualizacion())
                 .municipalidad(convertToMunicipalidadBasicResponse(plan.getMunicipalidad()))
                 .usuarioCreador(convertToUsuarioBasicResponse(plan.getUsuarioCreador()))
                 .servicios(plan.getServicios().stream()
-                        .map(this::convertToServicioPlanResponse)
+                        .map(servicioPlan -> convertToServicioPlanResponse(servicioPlan, detalle))
                         .collect(Collectors.toList()))
-                .totalReservas(plan.getReservas().size())
-                .build();
+                .totalReservas(totalReservas);
+        if (detalle) {
+            builder.itinerario(plan.getItinerario())
+                    .incluye(plan.getIncluye())
+                    .noIncluye(plan.getNoIncluye())
+                    .recomendaciones(plan.getRecomendaciones())
+                    .requisitos(plan.getRequisitos());
+        }
+        return builder.build();
     }
     
-    private ServicioPlanResponse convertToServicioPlanResponse(ServicioPlan servicioPlan) {
+    private ServicioPlanResponse convertToServicioPlanResponse(ServicioPlan servicioPlan, boolean detalle) {
         return ServicioPlanResponse.builder()
                 .id(servicioPlan.getId())
                 .diaDelPlan(servicioPlan.getDiaDelPlan())
@@ -300,12 +411,12 @@ public class PlanTuristicoService {
                 .notas(servicioPlan.getNotas())
                 .esOpcional(servicioPlan.getEsOpcional())
                 .esPersonalizable(servicioPlan.getEsPersonalizable())
-                .servicio(convertToServicioResponse(servicioPlan.getServicio()))
+                .servicio(convertToServicioResponse(servicioPlan.getServicio(), detalle))
                 .build();
     }
     
-    private ServicioTuristicoResponse convertToServicioResponse(ServicioTuristico servicio) {
-        return ServicioTuristicoResponse.builder()
+    private ServicioTuristicoResponse convertToServicioResponse(ServicioTuristico servicio, boolean detalle) {
+        ServicioTuristicoResponse.ServicioTuristicoResponseBuilder builder = ServicioTuristicoResponse.builder()
                 .id(servicio.getId())
                 .nombre(servicio.getNombre())
                 .descripcion(servicio.getDescripcion())
@@ -315,11 +426,13 @@ public class PlanTuristicoService {
                 .tipo(servicio.getTipo())
                 .estado(servicio.getEstado())
                 .ubicacion(servicio.getUbicacion())
-                .requisitos(servicio.getRequisitos())
-                .incluye(servicio.getIncluye())
-                .noIncluye(servicio.getNoIncluye())
-                .imagenUrl(servicio.getImagenUrl())
-                .build();
+                .imagenUrl(servicio.getImagenUrl());
+        if (detalle) {
+            builder.requisitos(servicio.getRequisitos())
+                    .incluye(servicio.getIncluye())
+                    .noIncluye(servicio.getNoIncluye());
+        }
+        return builder.build();
     }
     
     private MunicipalidadBasicResponse convertToMunicipalidadBasicResponse(Municipalidad municipalidad) {
@@ -343,15 +456,10 @@ public class PlanTuristicoService {
     }
     
     private Usuario getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (!(principal instanceof Usuario)) {
-            throw new RuntimeException("Usuario no autenticado correctamente");
-        }
-        return (Usuario) principal;
+        return authContext.getUsuario();
     }
     
     private boolean hasRole(String role) {
-        return getCurrentUser().getAuthorities().stream()
-                .anyMatch(authority -> authority.getAuthority().equals(role));
+        return authContext.hasRole(role);
     }
 }
\ No newline at end of file
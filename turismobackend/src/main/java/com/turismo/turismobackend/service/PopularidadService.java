@@ -0,0 +1,244 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+// Ranking de popularidad de planes y servicios mantenido en memoria. Los contadores se
+// actualizan al confirmar cada reserva o cancelación, así el top-N no recorre la tabla de reservas.
+@Service
+@RequiredArgsConstructor
+public class PopularidadService {
+
+    private static final int TAMANO_LOTE_INICIAL = 1000;
+
+    // Vidas medias que puede avanzar la referencia antes de rebasarla: los pesos nuevos no pasan
+    // de 2^16 y los puntajes acumulados quedan muy lejos del límite de un double
+    private static final int VIDAS_MEDIAS_POR_REBASE = 16;
+
+    private final ReservaRepository reservaRepository;
+    private final ReservaCarritoItemRepository reservaCarritoItemRepository;
+
+    // Vida media del puntaje en horas; 0 desactiva el decaimiento temporal
+    @Value("${application.popularidad.vida-media-horas:0}")
+    private long vidaMediaHoras;
+
+    private final Ranking rankingPlanes = new Ranking();
+    private final Ranking rankingServicios = new Ranking();
+
+    // Instante de referencia para el decaimiento "hacia adelante": los pesos nuevos crecen
+    // en lugar de reescalar todos los puntajes en cada reserva. Como 2^(horas/vida media)
+    // desborda con el tiempo, rebasar() la adelanta de vez en cuando y reescala los puntajes
+    private volatile LocalDateTime referencia = LocalDateTime.now();
+
+    // Cada peso se calcula y se aplica bajo la lectura; el rebase toma la escritura para que
+    // ningún ajuste mezcle la referencia anterior con los puntajes ya reescalados
+    private final ReadWriteLock candadoReferencia = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        cargarRanking(rankingPlanes, reservaRepository::findReservasActivasParaRanking);
+        cargarRanking(rankingServicios, reservaCarritoItemRepository::findItemsActivosParaRanking);
+    }
+
+    // Cada reserva suma el mismo peso que luego resta su cancelación: peso(fechaReserva)
+    private void cargarRanking(Ranking ranking, BiFunction<Long, Pageable, List<Object[]>> consulta) {
+        Long desdeId = 0L;
+        while (true) {
+            List<Object[]> lote = consulta.apply(desdeId, PageRequest.of(0, TAMANO_LOTE_INICIAL));
+            if (lote.isEmpty()) {
+                break;
+            }
+            Map<Long, List<LocalDateTime>> fechasPorId = new HashMap<>();
+            for (Object[] fila : lote) {
+                fechasPorId.computeIfAbsent((Long) fila[1], id -> new ArrayList<>()).add((LocalDateTime) fila[2]);
+            }
+            conReferencia(() -> sumarPesos(fechasPorId)
+                    .forEach((id, peso) -> ranking.ajustar(id, peso, fechasPorId.get(id).size())));
+            desdeId = (Long) lote.get(lote.size() - 1)[0];
+        }
+    }
+
+    public void registrarReservaPlan(Long planId, LocalDateTime fechaReserva) {
+        alConfirmar(() -> rankingPlanes.ajustar(planId, peso(fechaReserva), 1));
+    }
+
+    public void cancelarReservaPlan(Long planId, LocalDateTime fechaReserva) {
+        alConfirmar(() -> rankingPlanes.ajustar(planId, -peso(fechaReserva), -1));
+    }
+
+    public void registrarReservaServicio(Long servicioId, LocalDateTime fechaReserva) {
+        alConfirmar(() -> rankingServicios.ajustar(servicioId, peso(fechaReserva), 1));
+    }
+
+    public void cancelarReservaServicio(Long servicioId, LocalDateTime fechaReserva) {
+        alConfirmar(() -> rankingServicios.ajustar(servicioId, -peso(fechaReserva), -1));
+    }
+
+    // Cancelaciones en bloque: un solo ajuste por plan o servicio con la suma de los pesos
+    public void cancelarReservasPlan(Map<Long, List<LocalDateTime>> fechasReservaPorPlan) {
+        alConfirmar(() -> sumarPesos(fechasReservaPorPlan).forEach((planId, peso) ->
+                rankingPlanes.ajustar(planId, -peso, -fechasReservaPorPlan.get(planId).size())));
+    }
+
+    public void cancelarReservasServicio(Map<Long, List<LocalDateTime>> fechasReservaPorServicio) {
+        alConfirmar(() -> sumarPesos(fechasReservaPorServicio).forEach((servicioId, peso) ->
+                rankingServicios.ajustar(servicioId, -peso, -fechasReservaPorServicio.get(servicioId).size())));
+    }
+
+    // Ids ordenados por puntaje a partir de la posición desde; permite seguir recorriendo el ranking
+    // cuando el llamador descarta entradas (p. ej. planes no publicados)
+    public List<Long> getTopPlanes(int desde, int limite) {
+        return rankingPlanes.top(desde, limite);
+    }
+
+    public List<Long> getTopServicios(int desde, int limite) {
+        return rankingServicios.top(desde, limite);
+    }
+
+    public long getTotalReservasPlan(Long planId) {
+        return rankingPlanes.total(planId);
+    }
+
+    // Adelanta la referencia a ahora y multiplica los puntajes por 2^(-horas/vida media): el orden
+    // no cambia y una cancelación posterior sigue restando lo mismo que sumó su reserva
+    @Scheduled(fixedDelayString = "${application.popularidad.intervalo-rebase-ms:3600000}")
+    public void rebasar() {
+        if (vidaMediaHoras <= 0) {
+            return;
+        }
+        candadoReferencia.writeLock().lock();
+        try {
+            LocalDateTime nueva = LocalDateTime.now();
+            double horas = Duration.between(referencia, nueva).toMinutes() / 60.0;
+            if (horas < (double) vidaMediaHoras * VIDAS_MEDIAS_POR_REBASE) {
+                return;
+            }
+            double factor = Math.pow(2, -horas / vidaMediaHoras);
+            rankingPlanes.escalar(factor);
+            rankingServicios.escalar(factor);
+            referencia = nueva;
+        } finally {
+            candadoReferencia.writeLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> sumarPesos(Map<Long, List<LocalDateTime>> fechasPorId) {
+        Map<Long, Double> pesos = new HashMap<>();
+        fechasPorId.forEach((id, fechas) -> pesos.put(id, fechas.stream().mapToDouble(this::peso).sum()));
+        return pesos;
+    }
+
+    private double peso(LocalDateTime fecha) {
+        if (vidaMediaHoras <= 0 || fecha == null) {
+            return 1.0;
+        }
+        double horas = Duration.between(referencia, fecha).toMinutes() / 60.0;
+        return Math.pow(2, horas / vidaMediaHoras);
+    }
+
+    private void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    conReferencia(accion);
+                }
+            });
+        } else {
+            conReferencia(accion);
+        }
+    }
+
+    private void conReferencia(Runnable accion) {
+        candadoReferencia.readLock().lock();
+        try {
+            accion.run();
+        } finally {
+            candadoReferencia.readLock().unlock();
+        }
+    }
+
+    private record Entrada(Long id, double puntaje, long total) {
+    }
+
+    private static class Ranking {
+
+        private static final Comparator<Entrada> ORDEN = Comparator
+                .comparingDouble(Entrada::puntaje).reversed()
+                .thenComparing(Entrada::id);
+
+        private final ConcurrentHashMap<Long, Entrada> entradas = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListSet<Entrada> orden = new ConcurrentSkipListSet<>(ORDEN);
+
+        void ajustar(Long id, double deltaPuntaje, long deltaTotal) {
+            // compute serializa las actualizaciones de un mismo id
+            entradas.compute(id, (clave, actual) -> {
+                if (actual != null) {
+                    orden.remove(actual);
+                }
+                long total = Math.max(0, (actual != null ? actual.total() : 0) + deltaTotal);
+                if (total == 0) {
+                    return null;
+                }
+                double puntaje = Math.max(0, (actual != null ? actual.puntaje() : 0) + deltaPuntaje);
+                Entrada nueva = new Entrada(clave, puntaje, total);
+                orden.add(nueva);
+                return nueva;
+            });
+        }
+
+        void escalar(double factor) {
+            entradas.replaceAll((id, actual) -> {
+                orden.remove(actual);
+                Entrada nueva = new Entrada(id, actual.puntaje() * factor, actual.total());
+                orden.add(nueva);
+                return nueva;
+            });
+        }
+
+        List<Long> top(int desde, int limite) {
+            if (desde < 0 || limite <= 0) {
+                return List.of();
+            }
+            List<Long> ids = new ArrayList<>(Math.min(limite, entradas.size()));
+            int posicion = 0;
+            for (Entrada entrada : orden) {
+                if (ids.size() >= limite) {
+                    break;
+                }
+                if (posicion++ >= desde) {
+                    ids.add(entrada.id());
+                }
+            }
+            return ids;
+        }
+
+        long total(Long id) {
+            Entrada entrada = entradas.get(id);
+            return entrada != null ? entrada.total() : 0;
+        }
+    }
+}
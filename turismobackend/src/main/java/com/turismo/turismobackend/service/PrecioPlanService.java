@@ -0,0 +1,147 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.dto.response.ConsistenciaPrecioPlanResponse;
+import com.turismo.turismobackend.repository.PlanTuristicoRepository;
+import com.turismo.turismobackend.repository.ServicioPlanRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Mantiene PlanTuristico.precioTotal cuando cambia el precio de un servicio: solo se suma la
+// diferencia a los planes que lo incluyen como obligatorio y sin precio especial, con un UPDATE
+// por lote. reconstruir() recalcula desde servicios_planes y verificar() informa las diferencias.
+@Service
+public class PrecioPlanService {
+    
+    private static final int MAXIMO_DIFERENCIAS = 100;
+    
+    private final PlanTuristicoRepository planRepository;
+    private final ServicioPlanRepository servicioPlanRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicLong inconsistentes;
+    
+    @Value("${application.planes.precios.tamano-lote:500}")
+    private int tamanoLote;
+    
+    public PrecioPlanService(PlanTuristicoRepository planRepository,
+                             ServicioPlanRepository servicioPlanRepository,
+                             TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry) {
+        this.planRepository = planRepository;
+        this.servicioPlanRepository = servicioPlanRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.inconsistentes = meterRegistry.gauge("planes.precios.inconsistentes", new AtomicLong());
+    }
+    
+    // Dentro de la transacción que cambia el precio, con la fila del servicio bloqueada: el servicio
+    // y sus planes se confirman juntos
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int propagarCambioPrecio(Long servicioId, BigDecimal precioAnterior, BigDecimal precioNuevo) {
+        BigDecimal delta = precioNuevo.subtract(precioAnterior);
+        if (delta.signum() == 0) {
+            return 0;
+        }
+        List<Long> planIds = servicioPlanRepository.findPlanIdsConPrecioDeServicio(servicioId);
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < planIds.size(); i += tamanoLote) {
+            List<Long> lote = planIds.subList(i, Math.min(i + tamanoLote, planIds.size()));
+            if (planRepository.aplicarDiferenciaPrecio(lote, servicioId, delta, ahora) != lote.size()) {
+                // Algún plan del lote cambió a la vez (se borró o se rehízo): en lugar de rechazar la
+                // edición se recalcula el lote completo desde sus servicios
+                planRepository.recalcularPrecio(lote, ahora);
+            }
+        }
+        return planIds.size();
+    }
+    
+    // Recalcula los planes con precio distinto al de sus servicios; cada lote va en su propia transacción
+    public Map<String, Long> reconstruir() {
+        long planes = 0;
+        long corregidos = 0;
+        Long ultimoId = 0L;
+        while (true) {
+            List<Long> lote = planRepository.findIdsDesde(ultimoId, PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            Integer filas = transactionTemplate.execute(estado -> {
+                List<Long> planIds = planRepository.findPreciosInconsistentes(lote).stream()
+                        .map(fila -> ((Number) fila[0]).longValue())
+                        .toList();
+                if (planIds.isEmpty()) {
+                    return 0;
+                }
+                planRepository.recalcularPrecio(planIds, LocalDateTime.now());
+                planIds.forEach(id -> eventPublisher.publishEvent(
+                        new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.PLAN, id)));
+                return planIds.size();
+            });
+            planes += lote.size();
+            corregidos += filas != null ? filas : 0;
+            ultimoId = lote.get(lote.size() - 1);
+        }
+        inconsistentes.set(0);
+    
+        Map<String, Long> resumen = new LinkedHashMap<>();
+        resumen.put("planes", planes);
+        resumen.put("corregidos", corregidos);
+        return resumen;
+    }
+    
+    @Transactional(readOnly = true)
+    public ConsistenciaPrecioPlanResponse verificar() {
+        long planes = 0;
+        long total = 0;
+        List<ConsistenciaPrecioPlanResponse.DiferenciaPrecio> diferencias = new ArrayList<>();
+        Long ultimoId = 0L;
+        while (true) {
+            List<Long> lote = planRepository.findIdsDesde(ultimoId, PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            for (Object[] fila : planRepository.findPreciosInconsistentes(lote)) {
+                total++;
+                if (diferencias.size() < MAXIMO_DIFERENCIAS) {
+                    diferencias.add(ConsistenciaPrecioPlanResponse.DiferenciaPrecio.builder()
+                            .planId(((Number) fila[0]).longValue())
+                            .precioGuardado((BigDecimal) fila[1])
+                            .precioCalculado((BigDecimal) fila[2])
+                            .build());
+                }
+            }
+            planes += lote.size();
+            ultimoId = lote.get(lote.size() - 1);
+        }
+        inconsistentes.set(total);
+    
+        return ConsistenciaPrecioPlanResponse.builder()
+                .planesRevisados(planes)
+                .inconsistentes(total)
+                .diferencias(diferencias)
+                .build();
+    }
+    
+    // Revisión periódica; el resultado queda en la métrica planes.precios.inconsistentes
+    @Scheduled(fixedDelayString = "${application.planes.precios.verificacion-ms:86400000}",
+               initialDelayString = "${application.planes.precios.verificacion-ms:86400000}")
+    public void verificarPeriodicamente() {
+        verificar();
+    }
+}
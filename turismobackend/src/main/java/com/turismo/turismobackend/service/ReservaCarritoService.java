@@ -1,17 +1,20 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
 import com.turismo.turismobackend.dto.request.ReservaCarritoRequest;
 import com.turismo.turismobackend.dto.response.*;
 import com.turismo.turismobackend.exception.ResourceNotFoundException;
 import com.turismo.turismobackend.model.*;
 import com.turismo.turismobackend.repository.*;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -29,9 +32,15 @@ public class ReservaCarritoService {
     private final ReservaCarritoItemRepository reservaCarritoItemRepository;
     private final CarritoRepository carritoRepository;
     private final CarritoItemRepository carritoItemRepository;
-    private final EmprendedorRepository emprendedorRepository;
     private final ChatService chatService;
     private final ChatConversacionRepository conversacionRepository;
+    private final PopularidadService popularidadService;
+    private final AuthContext authContext;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BloqueoCupoService bloqueoCupoService;
+    private final CandadoCupoService candadoCupoService;
+    private final CotizacionService cotizacionService;
+    private final AgendaEmprendedorService agendaEmprendedorService;
     
     public ReservaCarritoResponse crearReservaDesdeCarrito(ReservaCarritoRequest request) {
         Usuario usuario = getCurrentUser();
@@ -44,33 +53,42 @@ public class ReservaCarritoService {
             throw new RuntimeException("El carrito está vacío");
         }
         
-        // Validar disponibilidad de servicios
+        // Validar disponibilidad de servicios; los cupos apartados por este carrito no cuentan como ocupados
+        List<Long> carritoItemIds = carrito.getItems().stream().map(CarritoItem::getId).toList();
+        candadoCupoService.bloquear(carrito.getItems().stream()
+                .map(item -> new CandadoCupoService.Clave(
+                        CandadoCupoService.Tipo.SERVICIO, item.getServicio().getId(), item.getFechaServicio()))
+                .toList());
         for (CarritoItem item : carrito.getItems()) {
             if (item.getServicio().getEstado() != ServicioTuristico.EstadoServicio.ACTIVO) {
                 throw new RuntimeException("El servicio " + item.getServicio().getNombre() + " no está disponible");
             }
             
             // Verificar capacidad
-            Long personasReservadas = reservaCarritoItemRepository
-                    .countPersonasByServicioAndFecha(item.getServicio().getId(), item.getFechaServicio());
+            int personasOcupadas = bloqueoCupoService
+                    .ocupadasPorOtros(item.getServicio().getId(), item.getFechaServicio(), carritoItemIds);
             
-            if (personasReservadas != null && 
-                personasReservadas + item.getCantidad() > item.getServicio().getCapacidadMaxima()) {
+            if (personasOcupadas + item.getCantidad() > item.getServicio().getCapacidadMaxima()) {
                 throw new RuntimeException("No hay suficiente capacidad para el servicio " + 
                         item.getServicio().getNombre() + " en la fecha seleccionada");
             }
         }
         
         // Crear reserva
-        BigDecimal montoTotal = carrito.getTotalCarrito();
-        BigDecimal montoDescuento = BigDecimal.ZERO; // Aquí podrías aplicar descuentos
-        BigDecimal montoFinal = montoTotal.subtract(montoDescuento);
+        // Montos de la cotización firmada si el carrito no cambió desde entonces, o calculados ahora
+        CotizacionService.Importes importes = cotizacionService.importesCarrito(
+                usuario.getId(), carrito, request.getTokenCotizacion());
+        BigDecimal montoTotal = importes.montoTotal();
+        BigDecimal montoDescuento = importes.montoDescuento();
+        BigDecimal montoFinal = importes.montoFinal();
         
         ReservaCarrito reserva = ReservaCarrito.builder()
                 .usuario(usuario)
                 .montoTotal(montoTotal)
                 .montoDescuento(montoDescuento)
                 .montoFinal(montoFinal)
+                .fechaInicio(carrito.getItems().stream().map(CarritoItem::getFechaServicio).min(LocalDate::compareTo).orElse(null))
+                .fechaFin(carrito.getItems().stream().map(CarritoItem::getFechaServicio).max(LocalDate::compareTo).orElse(null))
                 .estado(ReservaCarrito.EstadoReservaCarrito.PENDIENTE)
                 .metodoPago(request.getMetodoPago())
                 .observaciones(request.getObservaciones())
@@ -81,10 +99,12 @@ public class ReservaCarritoService {
         ReservaCarrito savedReserva = reservaCarritoRepository.save(reserva);
         
         // Crear items de la reserva desde el carrito
+        List<ReservaCarritoItem> itemsCreados = new ArrayList<>();
         for (CarritoItem carritoItem : carrito.getItems()) {
             ReservaCarritoItem reservaItem = ReservaCarritoItem.builder()
                     .reservaCarrito(savedReserva)
                     .servicio(carritoItem.getServicio())
+                    .emprendedorId(carritoItem.getServicio().getEmprendedor().getId())
                     .cantidad(carritoItem.getCantidad())
                     .precioUnitario(carritoItem.getPrecioUnitario())
                     .fechaServicio(carritoItem.getFechaServicio())
@@ -92,25 +112,17 @@ public class ReservaCarritoService {
                     .estado(ReservaCarritoItem.EstadoItemReserva.PENDIENTE)
                     .build();
             
-            reservaCarritoItemRepository.save(reservaItem);
+            itemsCreados.add(reservaCarritoItemRepository.save(reservaItem));
+            popularidadService.registrarReservaServicio(carritoItem.getServicio().getId(), savedReserva.getFechaReserva());
         }
+        agendaEmprendedorService.registrarCambios(List.of(savedReserva.getId()));
+        eventPublisher.publishEvent(ReservaTransicionEvent.de(savedReserva, null, itemsCreados));
         
-        // Limpiar carrito
+        // Limpiar carrito; el cupo ya queda ocupado por los items de la reserva
+        bloqueoCupoService.liberar(carritoItemIds);
         carritoItemRepository.deleteByCarritoId(carrito.getId());
-
-        Set<Long> emprendedoresIds = new HashSet<>();
-        for (CarritoItem carritoItem : carrito.getItems()) {
-            emprendedoresIds.add(carritoItem.getServicio().getEmprendedor().getId());
-        }
-        // Iniciar conversación con cada emprendedor único
-        for (Long emprendedorId : emprendedoresIds) {
-            try {
-                chatService.iniciarConversacionConReservaCarrito(emprendedorId, savedReserva.getId());
-            } catch (Exception e) {
-                // Log error pero no fallar la reserva
-                System.err.println("Error al crear conversación con emprendedor " + emprendedorId + ": " + e.getMessage());
-            }
-        }
+        
+        // Las conversaciones con cada emprendedor las abre ChatReservaSuscriptor tras el commit
         
         return convertToReservaCarritoResponse(savedReserva);
     }
@@ -162,7 +174,9 @@ public class ReservaCarritoService {
             item.setEstado(ReservaCarritoItem.EstadoItemReserva.CONFIRMADO);
             reservaCarritoItemRepository.save(item);
         }
+        agendaEmprendedorService.registrarCambios(List.of(reserva.getId()));
         
+        eventPublisher.publishEvent(ReservaTransicionEvent.de(reserva, ReservaCarrito.EstadoReservaCarrito.PENDIENTE, reserva.getItems()));
         return convertToReservaCarritoResponse(reservaCarritoRepository.save(reserva));
     }
     
@@ -180,16 +194,22 @@ public class ReservaCarritoService {
             throw new RuntimeException("No se puede cancelar una reserva completada");
         }
         
+        ReservaCarrito.EstadoReservaCarrito estadoAnterior = reserva.getEstado();
         reserva.setEstado(ReservaCarrito.EstadoReservaCarrito.CANCELADA);
         reserva.setFechaCancelacion(LocalDateTime.now());
         reserva.setMotivoCancelacion(motivo);
         
         // Cancelar items
         for (ReservaCarritoItem item : reserva.getItems()) {
+            if (item.getEstado() != ReservaCarritoItem.EstadoItemReserva.CANCELADO) {
+                popularidadService.cancelarReservaServicio(item.getServicio().getId(), reserva.getFechaReserva());
+            }
             item.setEstado(ReservaCarritoItem.EstadoItemReserva.CANCELADO);
             reservaCarritoItemRepository.save(item);
         }
+        agendaEmprendedorService.registrarCambios(List.of(reserva.getId()));
         
+        eventPublisher.publishEvent(ReservaTransicionEvent.de(reserva, estadoAnterior, reserva.getItems()));
         return convertToReservaCarritoResponse(reservaCarritoRepository.save(reserva));
     }
 
@@ -270,16 +290,11 @@ public class ReservaCarritoService {
     
     
     private Usuario getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (!(principal instanceof Usuario)) {
-            throw new RuntimeException("Usuario no autenticado correctamente");
-        }
-        return (Usuario) principal;
+        return authContext.getUsuario();
     }
     
     private boolean hasRole(String role) {
-        return getCurrentUser().getAuthorities().stream()
-                .anyMatch(authority -> authority.getAuthority().equals(role));
+        return authContext.hasRole(role);
     }
     public ReservaCarritoResponse completarReserva(Long id) {
         ReservaCarrito reserva = reservaCarritoRepository.findById(id)
@@ -290,14 +305,19 @@ public class ReservaCarritoService {
             throw new RuntimeException("Solo se pueden completar reservas confirmadas o en proceso");
         }
         
+        ReservaCarrito.EstadoReservaCarrito estadoAnterior = reserva.getEstado();
         reserva.setEstado(ReservaCarrito.EstadoReservaCarrito.COMPLETADA);
         
-        // Completar todos los items
+        // Completar los items activos; los cancelados siguen contando como items cancelados
         for (ReservaCarritoItem item : reserva.getItems()) {
-            item.setEstado(ReservaCarritoItem.EstadoItemReserva.COMPLETADO);
-            reservaCarritoItemRepository.save(item);
+            if (item.getEstado() != ReservaCarritoItem.EstadoItemReserva.CANCELADO) {
+                item.setEstado(ReservaCarritoItem.EstadoItemReserva.COMPLETADO);
+                reservaCarritoItemRepository.save(item);
+            }
         }
+        agendaEmprendedorService.registrarCambios(List.of(reserva.getId()));
         
+        eventPublisher.publishEvent(ReservaTransicionEvent.de(reserva, estadoAnterior, reserva.getItems()));
         return convertToReservaCarritoResponse(reservaCarritoRepository.save(reserva));
     }
 
@@ -326,12 +346,14 @@ public class ReservaCarritoService {
             throw new RuntimeException("Solo los emprendedores pueden acceder a esta función");
         }
         
-        // Buscar emprendedor del usuario
-        Emprendedor emprendedor = emprendedorRepository.findByUsuarioId(usuario.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "usuario_id", usuario.getId()));
+        // Emprendedor del usuario, resuelto una vez por petición
+        Long emprendedorId = authContext.getEmprendedorId();
+        if (emprendedorId == null) {
+            throw new ResourceNotFoundException("Emprendedor", "usuario_id", usuario.getId());
+        }
         
         List<ReservaCarrito> reservas = reservaCarritoRepository
-                .findByEmprendedorId(emprendedor.getId());
+                .findByEmprendedorId(emprendedorId);
         
         return reservas.stream()
                 .map(this::convertToReservaCarritoResponse)
@@ -0,0 +1,20 @@
+package com.turismo.turismobackend.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Items cancelados de reservas de carrito que siguen activas (la reserva no cambia de estado),
+// agrupados por reserva y emprendedor; un solo evento por lote
+public record ReservaItemsCanceladosEvent(List<ItemsCancelados> cancelaciones) {
+    
+    public record ItemsCancelados(
+            Long reservaId,
+            Long usuarioId,
+            Long emprendedorId,
+            List<Long> itemIds,
+            BigDecimal subtotal,
+            LocalDateTime fechaReserva
+    ) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
 import com.turismo.turismobackend.dto.request.ReservaRequest;
 import com.turismo.turismobackend.dto.response.*;
 import com.turismo.turismobackend.exception.ResourceNotFoundException;
@@ -7,14 +8,19 @@ import com.turismo.turismobackend.model.*;
 import com.turismo.turismobackend.dto.request.ReservaServicioRequest;
 import com.turismo.turismobackend.repository.*;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +32,11 @@ public class ReservaService {
     private final PlanTuristicoRepository planRepository;
     private final ServicioPlanRepository servicioPlanRepository;
     private final ReservaServicioRepository reservaServicioRepository;
+    private final PopularidadService popularidadService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuthContext authContext;
+    private final CandadoCupoService candadoCupoService;
+    private final CotizacionService cotizacionService;
     
     public List<ReservaResponse> getAllReservas() {
         // Solo admin puede ver todas las reservas
@@ -117,7 +128,9 @@ public class ReservaService {
         // 2. Validar fechas
         LocalDate fechaFin = request.getFechaInicio().plusDays(plan.getDuracionDias() - 1);
         
-        // 3. Verificar disponibilidad de capacidad
+        // 3. Verificar disponibilidad de capacidad, con el cupo del plan en esa fecha bloqueado hasta el commit
+        candadoCupoService.bloquear(List.of(new CandadoCupoService.Clave(
+                CandadoCupoService.Tipo.PLAN, plan.getId(), request.getFechaInicio())));
         Long personasReservadas = reservaRepository.countPersonasByPlanAndDate(
                 request.getPlanId(), request.getFechaInicio());
         
@@ -126,10 +139,12 @@ public class ReservaService {
             throw new RuntimeException("No hay suficiente capacidad disponible para las fechas seleccionadas");
         }
         
-        // 4. Calcular montos con descuentos aplicables
-        BigDecimal montoTotal = plan.getPrecioTotal().multiply(BigDecimal.valueOf(request.getNumeroPersonas()));
-        BigDecimal montoDescuento = calcularDescuentos(usuario, plan, request.getNumeroPersonas());
-        BigDecimal montoFinal = montoTotal.subtract(montoDescuento);
+        // 4. Montos de la cotización firmada, o cotizados ahora con las mismas reglas
+        CotizacionService.Importes importes = cotizacionService.importesPlan(usuario.getId(), plan.getId(),
+                request.getNumeroPersonas(), request.getServiciosPersonalizados(), request.getTokenCotizacion());
+        BigDecimal montoTotal = importes.montoTotal();
+        BigDecimal montoDescuento = importes.montoDescuento();
+        BigDecimal montoFinal = importes.montoFinal();
         
         // Crear reserva
         Reserva reserva = Reserva.builder()
@@ -152,24 +167,28 @@ public class ReservaService {
         Reserva savedReserva = reservaRepository.save(reserva);
         
         // Crear servicios personalizados si se proporcionan
-        if (request.getServiciosPersonalizados() != null) {
+        if (request.getServiciosPersonalizados() != null && !request.getServiciosPersonalizados().isEmpty()) {
+            Map<Long, ServicioPlan> serviciosPlanPorId = resolverServiciosPlan(request.getServiciosPersonalizados());
+            
+            List<ReservaServicio> reservaServicios = new ArrayList<>();
             for (ReservaServicioRequest servicioRequest : request.getServiciosPersonalizados()) {
-                ServicioPlan servicioPlan = servicioPlanRepository.findById(servicioRequest.getServicioPlanId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Servicio del plan", "id", servicioRequest.getServicioPlanId()));
-                
                 ReservaServicio reservaServicio = ReservaServicio.builder()
                         .reserva(savedReserva)
-                        .servicioPlan(servicioPlan)
+                        .servicioPlan(serviciosPlanPorId.get(servicioRequest.getServicioPlanId()))
                         .incluido(servicioRequest.getIncluido())
                         .precioPersonalizado(servicioRequest.getPrecioPersonalizado())
                         .observaciones(servicioRequest.getObservaciones())
                         .estado(servicioRequest.getEstado())
                         .build();
-                
-                reservaServicioRepository.save(reservaServicio);
+                reservaServicios.add(reservaServicio);
             }
+            
+            reservaServicioRepository.saveAll(reservaServicios);
         }
         
+        popularidadService.registrarReservaPlan(plan.getId(), savedReserva.getFechaReserva());
+        eventPublisher.publishEvent(ReservaTransicionEvent.de(savedReserva, null));
+        
         return convertToReservaResponse(savedReserva);
     }
     
@@ -191,6 +210,7 @@ public class ReservaService {
         reserva.setFechaConfirmacion(LocalDateTime.now());
         
         Reserva updatedReserva = reservaRepository.save(reserva);
+        eventPublisher.publishEvent(ReservaTransicionEvent.de(updatedReserva, Reserva.EstadoReserva.PENDIENTE));
         return convertToResponse(updatedReserva);
     }
     
@@ -211,11 +231,14 @@ public class ReservaService {
             throw new RuntimeException("No se puede cancelar una reserva en estado " + reserva.getEstado());
         }
         
+        Reserva.EstadoReserva estadoAnterior = reserva.getEstado();
         reserva.setEstado(Reserva.EstadoReserva.CANCELADA);
         reserva.setFechaCancelacion(LocalDateTime.now());
         reserva.setMotivoCancelacion(motivo);
         
         Reserva updatedReserva = reservaRepository.save(reserva);
+        eventPublisher.publishEvent(ReservaTransicionEvent.de(updatedReserva, estadoAnterior));
+        popularidadService.cancelarReservaPlan(reserva.getPlan().getId(), reserva.getFechaReserva());
         return convertToResponse(updatedReserva);
     }
     
@@ -236,6 +259,7 @@ public class ReservaService {
         reserva.setEstado(Reserva.EstadoReserva.COMPLETADA);
         
         Reserva updatedReserva = reservaRepository.save(reserva);
+        eventPublisher.publishEvent(ReservaTransicionEvent.de(updatedReserva, Reserva.EstadoReserva.EN_PROCESO));
         return convertToResponse(updatedReserva);
     }
     
@@ -248,6 +272,23 @@ public class ReservaService {
         }
     }
     
+    private Map<Long, ServicioPlan> resolverServiciosPlan(List<ReservaServicioRequest> servicioRequests) {
+        Set<Long> ids = servicioRequests.stream()
+                .map(ReservaServicioRequest::getServicioPlanId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        
+        Map<Long, ServicioPlan> serviciosPlanPorId = servicioPlanRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ServicioPlan::getId, Function.identity()));
+        
+        for (Long id : ids) {
+            if (!serviciosPlanPorId.containsKey(id)) {
+                throw new ResourceNotFoundException("Servicio del plan", "id", id);
+            }
+        }
+        
+        return serviciosPlanPorId;
+    }
+    
     private BigDecimal calcularMontoTotal(PlanTuristico plan, ReservaRequest request) {
         BigDecimal total = plan.getPrecioTotal().multiply(BigDecimal.valueOf(request.getNumeroPersonas()));
         
@@ -313,40 +354,17 @@ public class ReservaService {
     }
     
     private Usuario getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (!(principal instanceof Usuario)) {
-            throw new RuntimeException("Usuario no autenticado correctamente");
-        }
-        return (Usuario) principal;
+        return authContext.getUsuario();
     }
     
     private boolean hasRole(String role) {
-        return getCurrentUser().getAuthorities().stream()
-                .anyMatch(authority -> authority.getAuthority().equals(role));
+        return authContext.hasRole(role);
     }
 
-    // NUEVO MÉTODO para calcular descuentos
-    private BigDecimal calcularDescuentos(Usuario usuario, PlanTuristico plan, Integer numeroPersonas) {
-        BigDecimal descuento = BigDecimal.ZERO;
-        
-        // Descuento por grupo grande (más de 5 personas)
-        if (numeroPersonas >= 5) {
-            descuento = descuento.add(plan.getPrecioTotal().multiply(BigDecimal.valueOf(0.10))); // 10% descuento
-        }
-        
-        // Descuento por usuario frecuente (más de 3 reservas completadas)
-        Long reservasCompletadas = reservaRepository.countReservasCompletadasByUsuario(usuario.getId());
-        if (reservasCompletadas != null && reservasCompletadas >= 3) {
-            descuento = descuento.add(plan.getPrecioTotal().multiply(BigDecimal.valueOf(0.05))); // 5% descuento
-        }
-        
-        return descuento;
-    }
-    
     private boolean esPropietarioDelPlan(PlanTuristico plan, Usuario usuario) {
+        // El dueño de la municipalidad del plan; su municipalidad se resuelve una sola vez por petición
         return plan.getUsuarioCreador().getId().equals(usuario.getId()) ||
-               (plan.getMunicipalidad().getUsuario() != null && 
-                plan.getMunicipalidad().getUsuario().getId().equals(usuario.getId()));
+               plan.getMunicipalidad().getId().equals(authContext.getMunicipalidadId());
     }
 
     private ReservaResponse convertToReservaResponse(Reserva reserva) {
@@ -469,9 +487,6 @@ public class ReservaService {
                         .ubicacion(servicioPlan.getServicio().getUbicacion())
                         .latitud(servicioPlan.getServicio().getLatitud())
                         .longitud(servicioPlan.getServicio().getLongitud())
-                        .requisitos(servicioPlan.getServicio().getRequisitos())
-                        .incluye(servicioPlan.getServicio().getIncluye())
-                        .noIncluye(servicioPlan.getServicio().getNoIncluye())
                         .imagenUrl(servicioPlan.getServicio().getImagenUrl())
                         .build())
                 .build();
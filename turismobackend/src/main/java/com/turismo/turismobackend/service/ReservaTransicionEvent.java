@@ -0,0 +1,47 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.ReservaCarrito;
+import com.turismo.turismobackend.model.ReservaCarritoItem;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Se publica cuando una reserva se crea (estadoAnterior null) o cambia de estado.
+// montoPorEmprendedor solo aplica a reservas de carrito: subtotal de los items de cada emprendedor
+public record ReservaTransicionEvent(
+        Fuente fuente,
+        Long reservaId,
+        Long usuarioId,
+        Long municipalidadId,
+        Map<Long, BigDecimal> montoPorEmprendedor,
+        LocalDateTime fechaReserva,
+        BigDecimal monto,
+        String estadoAnterior,
+        String estadoNuevo
+) {
+    
+    public enum Fuente {
+        PLAN, CARRITO
+    }
+    
+    public static ReservaTransicionEvent de(Reserva reserva, Reserva.EstadoReserva anterior) {
+        return new ReservaTransicionEvent(Fuente.PLAN, reserva.getId(), reserva.getUsuario().getId(),
+                reserva.getPlan().getMunicipalidad().getId(), Map.of(), reserva.getFechaReserva(),
+                reserva.getMontoFinal(), anterior != null ? anterior.name() : null, reserva.getEstado().name());
+    }
+    
+    public static ReservaTransicionEvent de(ReservaCarrito reserva, ReservaCarrito.EstadoReservaCarrito anterior,
+                                            List<ReservaCarritoItem> items) {
+        Map<Long, BigDecimal> montoPorEmprendedor = new HashMap<>();
+        for (ReservaCarritoItem item : items) {
+            montoPorEmprendedor.merge(item.getEmprendedorId(), item.getSubtotal(), BigDecimal::add);
+        }
+        return new ReservaTransicionEvent(Fuente.CARRITO, reserva.getId(), reserva.getUsuario().getId(), null,
+                montoPorEmprendedor, reserva.getFechaReserva(), reserva.getMontoFinal(), anterior != null ? anterior.name() : null,
+                reserva.getEstado().name());
+    }
+}
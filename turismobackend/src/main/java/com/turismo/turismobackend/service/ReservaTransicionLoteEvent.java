@@ -0,0 +1,7 @@
+package com.turismo.turismobackend.service;
+
+import java.util.List;
+
+// Transiciones aplicadas en bloque (p. ej. por TransicionReservaService); un solo evento por lote
+public record ReservaTransicionLoteEvent(List<ReservaTransicionEvent> transiciones) {
+}
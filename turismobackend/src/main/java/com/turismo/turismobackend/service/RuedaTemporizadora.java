@@ -0,0 +1,96 @@
+package com.turismo.turismobackend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Rueda de tiempos jerárquica. Cada nivel tiene RANURAS ranuras y una ranura del nivel n abarca
+// RANURAS^n ticks. Programar y vencer cuestan O(1) por elemento; cuando el tick actual completa
+// una vuelta de un nivel, la ranura siguiente de ese nivel se reparte en los niveles inferiores.
+// No admite cancelar: quien la usa comprueba al vencer si el elemento sigue vigente.
+public class RuedaTemporizadora<T> {
+    
+    private static final int BITS = 6;
+    private static final int RANURAS = 1 << BITS;
+    private static final int NIVELES = 4;
+    
+    private record Entrada<T>(T valor, long tick) {
+    }
+    
+    private final long tickMs;
+    private final long origenMs;
+    private final List<List<List<Entrada<T>>>> niveles = new ArrayList<>();
+    // Más allá del último nivel; se reparten cuando este completa una vuelta
+    private List<Entrada<T>> desbordadas = new ArrayList<>();
+    private long tickActual;
+    
+    public RuedaTemporizadora(long tickMs, long origenMs) {
+        this.tickMs = tickMs;
+        this.origenMs = origenMs;
+        for (int nivel = 0; nivel < NIVELES; nivel++) {
+            List<List<Entrada<T>>> ranuras = new ArrayList<>(RANURAS);
+            for (int i = 0; i < RANURAS; i++) {
+                ranuras.add(new ArrayList<>());
+            }
+            niveles.add(ranuras);
+        }
+    }
+    
+    public synchronized void programar(T valor, long vencimientoMs) {
+        // Redondeo hacia arriba: nunca vence antes de tiempo
+        long tick = Math.floorDiv(vencimientoMs - origenMs + tickMs - 1, tickMs);
+        insertar(new Entrada<>(valor, Math.max(tick, tickActual + 1)));
+    }
+    
+    // Avanza hasta ahoraMs y devuelve los elementos vencidos por el camino
+    public synchronized List<T> avanzar(long ahoraMs) {
+        long objetivo = Math.floorDiv(ahoraMs - origenMs, tickMs);
+        List<T> vencidos = new ArrayList<>();
+        while (tickActual < objetivo) {
+            tickActual++;
+            for (int nivel = 1; nivel <= NIVELES; nivel++) {
+                if ((tickActual & ((1L << (BITS * nivel)) - 1)) != 0) {
+                    break;
+                }
+                List<Entrada<T>> bajar;
+                if (nivel == NIVELES) {
+                    bajar = desbordadas;
+                    desbordadas = new ArrayList<>();
+                } else {
+                    bajar = vaciar(nivel, tickActual);
+                }
+                bajar.forEach(this::insertar);
+            }
+            for (Entrada<T> entrada : vaciar(0, tickActual)) {
+                if (entrada.tick() <= tickActual) {
+                    vencidos.add(entrada.valor());
+                } else {
+                    insertar(entrada);
+                }
+            }
+        }
+        return vencidos;
+    }
+    
+    private void insertar(Entrada<T> entrada) {
+        long delta = entrada.tick() - tickActual;
+        for (int nivel = 0; nivel < NIVELES; nivel++) {
+            if (delta < (1L << (BITS * (nivel + 1)))) {
+                niveles.get(nivel).get(ranura(nivel, entrada.tick())).add(entrada);
+                return;
+            }
+        }
+        desbordadas.add(entrada);
+    }
+    
+    private List<Entrada<T>> vaciar(int nivel, long tick) {
+        List<List<Entrada<T>>> ranuras = niveles.get(nivel);
+        int indice = ranura(nivel, tick);
+        List<Entrada<T>> contenido = ranuras.get(indice);
+        ranuras.set(indice, new ArrayList<>());
+        return contenido;
+    }
+    
+    private static int ranura(int nivel, long tick) {
+        return (int) ((tick >> (BITS * nivel)) & (RANURAS - 1));
+    }
+}
@@ -1,5 +1,7 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.config.CacheConfig;
 import com.turismo.turismobackend.dto.request.ServicioTuristicoRequest;
 import com.turismo.turismobackend.dto.response.ServicioTuristicoResponse;
 import com.turismo.turismobackend.dto.response.EmprendedorBasicResponse;
@@ -11,12 +13,18 @@ import com.turismo.turismobackend.model.Usuario;
 import com.turismo.turismobackend.repository.ServicioTuristicoRepository;
 import com.turismo.turismobackend.repository.EmprendedorRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,69 +34,102 @@ public class ServicioTuristicoService {
     
     private final ServicioTuristicoRepository servicioRepository;
     private final EmprendedorRepository emprendedorRepository;
+    private final PopularidadService popularidadService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuthContext authContext;
+    private final PrecioPlanService precioPlanService;
     
+    @Cacheable(cacheNames = CacheConfig.SERVICIOS_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<ServicioTuristicoResponse> getAllServicios() {
         return servicioRepository.findAll().stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.SERVICIOS, key = "#id")
     public ServicioTuristicoResponse getServicioById(Long id) {
         ServicioTuristico servicio = servicioRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Servicio turístico", "id", id));
         return convertToResponse(servicio);
     }
     
+    @Cacheable(cacheNames = CacheConfig.SERVICIOS_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<ServicioTuristicoResponse> getServiciosByEmprendedor(Long emprendedorId) {
         return servicioRepository.findByEmprendedorId(emprendedorId).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.SERVICIOS_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<ServicioTuristicoResponse> getServiciosByMunicipalidad(Long municipalidadId) {
         return servicioRepository.findByEmprendedorMunicipalidadId(municipalidadId).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.SERVICIOS_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<ServicioTuristicoResponse> getServiciosByTipo(ServicioTuristico.TipoServicio tipo) {
         return servicioRepository.findByTipo(tipo).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.SERVICIOS_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<ServicioTuristicoResponse> getServiciosByEstado(ServicioTuristico.EstadoServicio estado) {
         return servicioRepository.findByEstado(estado).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.SERVICIOS_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<ServicioTuristicoResponse> getServiciosByPrecio(BigDecimal precioMin, BigDecimal precioMax) {
         return servicioRepository.findByPrecioBetween(precioMin, precioMax).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.SERVICIOS_LISTADOS, keyGenerator = "catalogoKeyGenerator")
     public List<ServicioTuristicoResponse> searchServicios(String termino) {
         return servicioRepository.findByNombreOrDescripcionContaining(termino, termino).stream()
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
     public List<ServicioTuristicoResponse> getMisServicios() {
-        Usuario usuario = getCurrentUser();
-        Emprendedor emprendedor = emprendedorRepository.findByUsuarioId(usuario.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "usuario_id", usuario.getId()));
+        return servicioRepository.findByEmprendedorId(getEmprendedorIdActual()).stream()
+                .map(this::convertToResumen)
+                .collect(Collectors.toList());
+    }
+    
+    public List<ServicioTuristicoResponse> getServiciosPopulares(int limite) {
+        // El ranking incluye servicios no activos: se recorre por tramos hasta completar el límite
+        List<ServicioTuristico> servicios = new ArrayList<>();
+        Set<Long> agregados = new HashSet<>();
+        int desde = 0;
+        while (servicios.size() < limite) {
+            List<Long> ids = popularidadService.getTopServicios(desde, limite * 2);
+            if (ids.isEmpty()) {
+                break;
+            }
+            desde += ids.size();
+            Map<Long, ServicioTuristico> serviciosPorId = servicioRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(ServicioTuristico::getId, Function.identity()));
+            for (Long servicioId : ids) {
+                ServicioTuristico servicio = serviciosPorId.get(servicioId);
+                if (servicios.size() < limite && servicio != null
+                        && servicio.getEstado() == ServicioTuristico.EstadoServicio.ACTIVO && agregados.add(servicioId)) {
+                    servicios.add(servicio);
+                }
+            }
+        }
         
-        return servicioRepository.findByEmprendedorId(emprendedor.getId()).stream()
-                .map(this::convertToResponse)
+        return servicios.stream()
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
     
     public ServicioTuristicoResponse createServicio(ServicioTuristicoRequest request) {
-        Usuario usuario = getCurrentUser();
-        Emprendedor emprendedor = emprendedorRepository.findByUsuarioId(usuario.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Emprendedor", "usuario_id", usuario.getId()));
+        Emprendedor emprendedor = emprendedorRepository.getReferenceById(getEmprendedorIdActual());
         
         ServicioTuristico servicio = ServicioTuristico.builder()
                 .nombre(request.getNombre())
@@ -109,11 +150,13 @@ public class ServicioTuristicoService {
                 .build();
         
         ServicioTuristico savedServicio = servicioRepository.save(servicio);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.SERVICIO, savedServicio.getId()));
         return convertToResponse(savedServicio);
     }
     
     public ServicioTuristicoResponse updateServicio(Long id, ServicioTuristicoRequest request) {
-        ServicioTuristico servicio = servicioRepository.findById(id)
+        // Con la fila bloqueada, el precio anterior es el que tienen sumado los planes
+        ServicioTuristico servicio = servicioRepository.findByIdParaActualizar(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Servicio turístico", "id", id));
         
         // Verificar que el servicio pertenece al emprendedor actual
@@ -122,6 +165,7 @@ public class ServicioTuristicoService {
             throw new RuntimeException("No tiene permisos para modificar este servicio");
         }
         
+        BigDecimal precioAnterior = servicio.getPrecio();
         servicio.setNombre(request.getNombre());
         servicio.setDescripcion(request.getDescripcion());
         servicio.setPrecio(request.getPrecio());
@@ -136,7 +180,11 @@ public class ServicioTuristicoService {
         servicio.setNoIncluye(request.getNoIncluye());
         servicio.setImagenUrl(request.getImagenUrl());
         
-        ServicioTuristico updatedServicio = servicioRepository.save(servicio);
+        // Se escribe antes de ajustar los planes: si hay que recalcularlos leen el precio nuevo
+        ServicioTuristico updatedServicio = servicioRepository.saveAndFlush(servicio);
+        // Los planes que incluyen el servicio guardan su precio total; se ajustan en la misma transacción
+        precioPlanService.propagarCambioPrecio(id, precioAnterior, request.getPrecio());
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.SERVICIO, id));
         return convertToResponse(updatedServicio);
     }
     
@@ -151,6 +199,7 @@ public class ServicioTuristicoService {
         }
         
         servicioRepository.delete(servicio);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.SERVICIO, id));
     }
     
     public ServicioTuristicoResponse cambiarEstado(Long id, ServicioTuristico.EstadoServicio nuevoEstado) {
@@ -165,11 +214,21 @@ public class ServicioTuristicoService {
         
         servicio.setEstado(nuevoEstado);
         ServicioTuristico updatedServicio = servicioRepository.save(servicio);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.SERVICIO, id));
         return convertToResponse(updatedServicio);
     }
     
     private ServicioTuristicoResponse convertToResponse(ServicioTuristico servicio) {
-        return ServicioTuristicoResponse.builder()
+        return convertToResponse(servicio, true);
+    }
+    
+    // Listados: sin los textos del grupo "detalle", que costarían una consulta extra por servicio
+    private ServicioTuristicoResponse convertToResumen(ServicioTuristico servicio) {
+        return convertToResponse(servicio, false);
+    }
+    
+    private ServicioTuristicoResponse convertToResponse(ServicioTuristico servicio, boolean detalle) {
+        ServicioTuristicoResponse.ServicioTuristicoResponseBuilder builder = ServicioTuristicoResponse.builder()
                 .id(servicio.getId())
                 .nombre(servicio.getNombre())
                 .descripcion(servicio.getDescripcion())
@@ -181,12 +240,14 @@ public class ServicioTuristicoService {
                 .ubicacion(servicio.getUbicacion())
                 .latitud(servicio.getLatitud())     // NUEVO CAMPO
                 .longitud(servicio.getLongitud())   // NUEVO CAMPO
-                .requisitos(servicio.getRequisitos())
-                .incluye(servicio.getIncluye())
-                .noIncluye(servicio.getNoIncluye())
                 .imagenUrl(servicio.getImagenUrl())
-                .emprendedor(convertToEmprendedorBasicResponse(servicio.getEmprendedor()))
-                .build();
+                .emprendedor(convertToEmprendedorBasicResponse(servicio.getEmprendedor()));
+        if (detalle) {
+            builder.requisitos(servicio.getRequisitos())
+                    .incluye(servicio.getIncluye())
+                    .noIncluye(servicio.getNoIncluye());
+        }
+        return builder.build();
     }
     
     private EmprendedorBasicResponse convertToEmprendedorBasicResponse(Emprendedor emprendedor) {
@@ -211,7 +272,7 @@ public class ServicioTuristicoService {
                 .filter(ServicioTuristico::tieneUbicacionValida)
                 .filter(servicio -> calcularDistancia(latitud, longitud, 
                         servicio.getLatitud(), servicio.getLongitud()) <= radioKm)
-                .map(this::convertToResponse)
+                .map(this::convertToResumen)
                 .collect(Collectors.toList());
     }
 
@@ -230,10 +291,14 @@ public class ServicioTuristicoService {
 
     
     private Usuario getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (!(principal instanceof Usuario)) {
-            throw new RuntimeException("Usuario no autenticado correctamente");
+        return authContext.getUsuario();
+    }
+    
+    private Long getEmprendedorIdActual() {
+        Long emprendedorId = authContext.getEmprendedorId();
+        if (emprendedorId == null) {
+            throw new ResourceNotFoundException("Emprendedor", "usuario_id", authContext.getUsuarioId());
         }
-        return (Usuario) principal;
+        return emprendedorId;
     }
 }
\ No newline at end of file
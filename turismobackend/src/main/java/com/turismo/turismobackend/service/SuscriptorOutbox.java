@@ -0,0 +1,17 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.EventoOutbox;
+
+import java.util.Set;
+
+// Consumidor de eventos del outbox. manejar() corre en su propia transacción junto con el
+// registro de entrega; si lanza una excepción el evento se reintenta más tarde
+public interface SuscriptorOutbox {
+    
+    // Identificador estable: se guarda en eventos_outbox_entregas
+    String nombre();
+    
+    Set<EventoOutbox.TipoEvento> tipos();
+    
+    void manejar(EventoOutbox evento);
+}
@@ -0,0 +1,58 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.CacheConfig;
+import com.turismo.turismobackend.exception.ResourceNotFoundException;
+import com.turismo.turismobackend.model.PlanTuristico;
+import com.turismo.turismobackend.model.ServicioPlan;
+import com.turismo.turismobackend.repository.PlanTuristicoRepository;
+import com.turismo.turismobackend.repository.ServicioPlanRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+// Precios de un plan y de cada uno de sus servicios en céntimos. Se cachean hasta que cambia el
+// plan o algún servicio (CatalogoCacheInvalidador), así cotizar no consulta la base de datos.
+@Service
+@RequiredArgsConstructor
+public class TarifaService {
+    
+    private final PlanTuristicoRepository planRepository;
+    private final ServicioPlanRepository servicioPlanRepository;
+    
+    public record TarifaServicio(String nombre, boolean opcional, boolean personalizable, long precioCentimos) {
+    }
+    
+    public record TarifaPlan(Long planId, String nombre, boolean activo, long precioCentimos,
+                             Map<Long, TarifaServicio> servicios) {
+    }
+    
+    @Cacheable(cacheNames = CacheConfig.TARIFAS_PLAN, key = "#planId")
+    @Transactional(readOnly = true)
+    public TarifaPlan getTarifaPlan(Long planId) {
+        PlanTuristico plan = planRepository.findById(planId)
+                .orElseThrow(() -> new ResourceNotFoundException("Plan turístico", "id", planId));
+    
+        Map<Long, TarifaServicio> servicios = new HashMap<>();
+        for (ServicioPlan servicioPlan : servicioPlanRepository.findByPlanIdConServicio(planId)) {
+            BigDecimal precio = servicioPlan.getPrecioEspecial() != null
+                    ? servicioPlan.getPrecioEspecial()
+                    : servicioPlan.getServicio().getPrecio();
+            servicios.put(servicioPlan.getId(), new TarifaServicio(servicioPlan.getServicio().getNombre(),
+                    Boolean.TRUE.equals(servicioPlan.getEsOpcional()),
+                    Boolean.TRUE.equals(servicioPlan.getEsPersonalizable()),
+                    aCentimos(precio)));
+        }
+        return new TarifaPlan(plan.getId(), plan.getNombre(), plan.getEstado() == PlanTuristico.EstadoPlan.ACTIVO,
+                aCentimos(plan.getPrecioTotal()), Map.copyOf(servicios));
+    }
+    
+    static long aCentimos(BigDecimal monto) {
+        return monto.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
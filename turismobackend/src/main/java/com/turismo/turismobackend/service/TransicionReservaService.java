@@ -0,0 +1,222 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.ReservaCarrito;
+import com.turismo.turismobackend.model.ReservaCarritoItem;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Avanza el estado de las reservas según la fecha: EN_PROCESO al llegar el inicio, COMPLETADA
+// después del fin y, sin pago al vencer el plazo, NO_SHOW en planes o CANCELADA en carrito (que no
+// tiene NO_SHOW). Los ids se leen por lotes sobre los índices (estado, fecha) y se cambian con
+// UPDATE masivos sin cargar entidades; cada lote publica un único evento con sus transiciones.
+@Service
+@RequiredArgsConstructor
+public class TransicionReservaService {
+    
+    private static final String MOTIVO_SIN_PAGO = "Cancelada automáticamente: sin pago al llegar la fecha del servicio";
+    
+    private final ReservaRepository reservaRepository;
+    private final ReservaCarritoRepository reservaCarritoRepository;
+    private final ReservaCarritoItemRepository reservaCarritoItemRepository;
+    private final PopularidadService popularidadService;
+    private final AgendaEmprendedorService agendaEmprendedorService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${application.transiciones.tamano-lote:500}")
+    private int tamanoLote;
+    
+    @Value("${application.transiciones.dias-limite-pago:0}")
+    private int diasLimitePago;
+    
+    private final AtomicBoolean enEjecucion = new AtomicBoolean();
+    
+    // Columna que se compara con la fecha: inicio <= fecha o fin < fecha
+    private enum Criterio {
+        INICIO,
+        FIN
+    }
+    
+    @Scheduled(fixedDelayString = "${application.transiciones.intervalo-ms:900000}")
+    public void programado() {
+        if (enEjecucion.compareAndSet(false, true)) {
+            try {
+                aplicarTransiciones();
+            } finally {
+                enEjecucion.set(false);
+            }
+        }
+    }
+    
+    public Map<String, Object> ejecutar() {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            throw new RuntimeException("Las transiciones de reservas ya se están ejecutando");
+        }
+        try {
+            return aplicarTransiciones();
+        } finally {
+            enEjecucion.set(false);
+        }
+    }
+    
+    private Map<String, Object> aplicarTransiciones() {
+        long inicio = System.nanoTime();
+        LocalDate hoy = LocalDate.now();
+        LocalDate limitePago = hoy.plusDays(diasLimitePago);
+        Map<String, Object> resumen = new LinkedHashMap<>();
+    
+        // Inicio antes que fin: una reserva ya terminada pasa por EN_PROCESO y COMPLETADA en la misma ejecución
+        long total = 0;
+        total += plan(resumen, Criterio.INICIO, hoy, Reserva.EstadoReserva.CONFIRMADA, Reserva.EstadoReserva.EN_PROCESO);
+        total += plan(resumen, Criterio.INICIO, hoy, Reserva.EstadoReserva.PAGADA, Reserva.EstadoReserva.EN_PROCESO);
+        total += plan(resumen, Criterio.FIN, hoy, Reserva.EstadoReserva.EN_PROCESO, Reserva.EstadoReserva.COMPLETADA);
+        total += plan(resumen, Criterio.INICIO, limitePago, Reserva.EstadoReserva.PENDIENTE, Reserva.EstadoReserva.NO_SHOW);
+        total += carrito(resumen, Criterio.INICIO, hoy,
+                ReservaCarrito.EstadoReservaCarrito.CONFIRMADA, ReservaCarrito.EstadoReservaCarrito.EN_PROCESO);
+        total += carrito(resumen, Criterio.INICIO, hoy,
+                ReservaCarrito.EstadoReservaCarrito.PAGADA, ReservaCarrito.EstadoReservaCarrito.EN_PROCESO);
+        total += carrito(resumen, Criterio.FIN, hoy,
+                ReservaCarrito.EstadoReservaCarrito.EN_PROCESO, ReservaCarrito.EstadoReservaCarrito.COMPLETADA);
+        total += carrito(resumen, Criterio.INICIO, limitePago,
+                ReservaCarrito.EstadoReservaCarrito.PENDIENTE, ReservaCarrito.EstadoReservaCarrito.CANCELADA);
+    
+        long nanos = System.nanoTime() - inicio;
+        Timer.builder("reservas.transiciones.ejecucion")
+                .description("Duración de cada ejecución de las transiciones de reservas por fecha")
+                .register(meterRegistry)
+                .record(Duration.ofNanos(nanos));
+        resumen.put("total", total);
+        resumen.put("duracionMs", nanos / 1_000_000);
+        resumen.put("reservasPorSegundo", nanos > 0 ? Math.round(total * 1_000_000_000.0 / nanos) : 0);
+        return resumen;
+    }
+    
+    private long plan(Map<String, Object> resumen, Criterio criterio, LocalDate fecha,
+                      Reserva.EstadoReserva anterior, Reserva.EstadoReserva nuevo) {
+        long aplicadas = 0;
+        Long desdeId = 0L;
+        while (true) {
+            List<Object[]> lote = criterio == Criterio.INICIO
+                    ? reservaRepository.findParaTransicionPorInicio(anterior, fecha, desdeId, PageRequest.of(0, tamanoLote))
+                    : reservaRepository.findParaTransicionPorFin(anterior, fecha, desdeId, PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            List<Long> ids = lote.stream().map(fila -> (Long) fila[0]).toList();
+            Boolean aplicado = transactionTemplate.execute(estado -> {
+                // Si alguna cambió desde la lectura se revierte el lote; se retoma en la siguiente ejecución
+                if (reservaRepository.cambiarEstado(ids, anterior, nuevo) != ids.size()) {
+                    estado.setRollbackOnly();
+                    return false;
+                }
+                eventPublisher.publishEvent(new ReservaTransicionLoteEvent(lote.stream()
+                        .map(fila -> new ReservaTransicionEvent(ReservaTransicionEvent.Fuente.PLAN, (Long) fila[0],
+                                (Long) fila[1], (Long) fila[2], Map.of(), (LocalDateTime) fila[3], (BigDecimal) fila[4],
+                                anterior.name(), nuevo.name()))
+                        .toList()));
+                return true;
+            });
+            if (Boolean.TRUE.equals(aplicado)) {
+                aplicadas += ids.size();
+            }
+            desdeId = ids.get(ids.size() - 1);
+        }
+        registrar(resumen, ReservaTransicionEvent.Fuente.PLAN, anterior.name(), nuevo.name(), aplicadas);
+        return aplicadas;
+    }
+    
+    private long carrito(Map<String, Object> resumen, Criterio criterio, LocalDate fecha,
+                         ReservaCarrito.EstadoReservaCarrito anterior, ReservaCarrito.EstadoReservaCarrito nuevo) {
+        long aplicadas = 0;
+        Long desdeId = 0L;
+        while (true) {
+            List<Object[]> lote = criterio == Criterio.INICIO
+                    ? reservaCarritoRepository.findParaTransicionPorInicio(anterior, fecha, desdeId, PageRequest.of(0, tamanoLote))
+                    : reservaCarritoRepository.findParaTransicionPorFin(anterior, fecha, desdeId, PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            List<Long> ids = lote.stream().map(fila -> (Long) fila[0]).toList();
+            Boolean aplicado = transactionTemplate.execute(estado -> {
+                LocalDateTime ahora = LocalDateTime.now();
+                int cambiadas = nuevo == ReservaCarrito.EstadoReservaCarrito.CANCELADA
+                        ? reservaCarritoRepository.cancelarPendientes(ids, ahora, MOTIVO_SIN_PAGO)
+                        : reservaCarritoRepository.cambiarEstado(ids, anterior, nuevo);
+                if (cambiadas != ids.size()) {
+                    estado.setRollbackOnly();
+                    return false;
+                }
+                actualizarItems(lote, ids, nuevo, ahora);
+    
+                Map<Long, Map<Long, BigDecimal>> montos = new HashMap<>();
+                for (Object[] fila : reservaCarritoItemRepository.sumarPorEmprendedor(ids)) {
+                    montos.computeIfAbsent((Long) fila[0], id -> new HashMap<>()).put((Long) fila[1], (BigDecimal) fila[2]);
+                }
+                eventPublisher.publishEvent(new ReservaTransicionLoteEvent(lote.stream()
+                        .map(fila -> new ReservaTransicionEvent(ReservaTransicionEvent.Fuente.CARRITO, (Long) fila[0],
+                                (Long) fila[1], null, montos.getOrDefault((Long) fila[0], Map.of()),
+                                (LocalDateTime) fila[2], (BigDecimal) fila[3], anterior.name(), nuevo.name()))
+                        .toList()));
+                return true;
+            });
+            if (Boolean.TRUE.equals(aplicado)) {
+                aplicadas += ids.size();
+            }
+            desdeId = ids.get(ids.size() - 1);
+        }
+        registrar(resumen, ReservaTransicionEvent.Fuente.CARRITO, anterior.name(), nuevo.name(), aplicadas);
+        return aplicadas;
+    }
+    
+    // Los items siguen a la reserva al completarse o cancelarse; al pasar a EN_PROCESO no cambian,
+    // pero la agenda se refresca en todos los casos porque muestra el estado de la reserva
+    private void actualizarItems(List<Object[]> lote, List<Long> ids, ReservaCarrito.EstadoReservaCarrito nuevo,
+                                 LocalDateTime ahora) {
+        if (nuevo == ReservaCarrito.EstadoReservaCarrito.CANCELADA) {
+            Map<Long, LocalDateTime> fechasReserva = new HashMap<>();
+            lote.forEach(fila -> fechasReserva.put((Long) fila[0], (LocalDateTime) fila[2]));
+            for (Object[] fila : reservaCarritoItemRepository.findServiciosActivos(ids)) {
+                popularidadService.cancelarReservaServicio((Long) fila[1], fechasReserva.get((Long) fila[0]));
+            }
+            reservaCarritoItemRepository.cambiarEstadoPorReservas(ids, ReservaCarritoItem.EstadoItemReserva.CANCELADO, ahora);
+        } else if (nuevo == ReservaCarrito.EstadoReservaCarrito.COMPLETADA) {
+            reservaCarritoItemRepository.cambiarEstadoPorReservas(ids, ReservaCarritoItem.EstadoItemReserva.COMPLETADO, ahora);
+        }
+        agendaEmprendedorService.registrarCambios(ids);
+    }
+    
+    private void registrar(Map<String, Object> resumen, ReservaTransicionEvent.Fuente fuente,
+                           String anterior, String nuevo, long cantidad) {
+        resumen.put(fuente + " " + anterior + "->" + nuevo, cantidad);
+        Counter.builder("reservas.transiciones.programadas")
+                .description("Reservas cambiadas de estado por fecha")
+                .tag("fuente", fuente.name())
+                .tag("anterior", anterior)
+                .tag("nuevo", nuevo)
+                .register(meterRegistry)
+                .increment(cantidad);
+    }
+}
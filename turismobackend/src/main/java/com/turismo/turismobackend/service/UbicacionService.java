@@ -1,12 +1,13 @@
 package com.turismo.turismobackend.service;
 
+import com.turismo.turismobackend.config.AuthContext;
 import com.turismo.turismobackend.dto.request.UbicacionRequest;
 import com.turismo.turismobackend.dto.response.*;
 import com.turismo.turismobackend.exception.ResourceNotFoundException;
 import com.turismo.turismobackend.model.*;
 import com.turismo.turismobackend.repository.*;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +22,8 @@ public class UbicacionService {
     private final EmprendedorRepository emprendedorRepository;
     private final ServicioTuristicoRepository servicioRepository;
     private final MunicipalidadRepository municipalidadRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuthContext authContext;
     
     public List<EmprendedorResponse> obtenerEmprendedoresConUbicacion(
             Long municipalidadId, Double latitud, Double longitud, Double radio) {
@@ -97,6 +100,7 @@ public class UbicacionService {
         emprendedor.setDireccionCompleta(request.getDireccionCompleta());
         
         Emprendedor saved = emprendedorRepository.save(emprendedor);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.EMPRENDEDOR, emprendedorId));
         return convertEmprendedorToUbicacionResponse(saved);
     }
     
@@ -114,6 +118,7 @@ public class UbicacionService {
         servicio.setLongitud(request.getLongitud());
         
         ServicioTuristico saved = servicioRepository.save(servicio);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.SERVICIO, servicioId));
         return convertServicioToUbicacionResponse(saved);
     }
     
@@ -152,7 +157,7 @@ public class UbicacionService {
         return List.of();
     }
     
-    // Métodos de conversión privados
+    // Métodos de conversión privados (solo listados: sin los textos del grupo "detalle")
     private EmprendedorResponse convertEmprendedorToResponse(Emprendedor emprendedor) {
         return EmprendedorResponse.builder()
                 .id(emprendedor.getId())
@@ -165,9 +170,6 @@ public class UbicacionService {
                 .telefono(emprendedor.getTelefono())
                 .email(emprendedor.getEmail())
                 .sitioWeb(emprendedor.getSitioWeb())
-                .descripcion(emprendedor.getDescripcion())
-                .productos(emprendedor.getProductos())
-                .servicios(emprendedor.getServicios())
                 .usuarioId(emprendedor.getUsuario().getId())
                 .municipalidad(EmprendedorResponse.MunicipalidadResumen.builder()
                         .id(emprendedor.getMunicipalidad().getId())
@@ -195,9 +197,6 @@ public class UbicacionService {
                 .ubicacion(servicio.getUbicacion())
                 .latitud(servicio.getLatitud())
                 .longitud(servicio.getLongitud())
-                .requisitos(servicio.getRequisitos())
-                .incluye(servicio.getIncluye())
-                .noIncluye(servicio.getNoIncluye())
                 .imagenUrl(servicio.getImagenUrl())
                 .emprendedor(EmprendedorBasicResponse.builder()
                         .id(servicio.getEmprendedor().getId())
@@ -249,15 +248,10 @@ public class UbicacionService {
     }
     
     private Usuario getCurrentUser() {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        if (!(principal instanceof Usuario)) {
-            throw new RuntimeException("Usuario no autenticado correctamente");
-        }
-        return (Usuario) principal;
+        return authContext.getUsuario();
     }
     
     private boolean hasRole(String role) {
-        return getCurrentUser().getAuthorities().stream()
-                .anyMatch(authority -> authority.getAuthority().equals(role));
+        return authContext.hasRole(role);
     }
 }
@@ -0,0 +1,5 @@
+package com.turismo.turismobackend.service;
+
+// Se publica cuando cambian los datos de seguridad de un usuario (por ejemplo, sus roles)
+public record UsuarioModificadoEvent(Long usuarioId, String username) {
+}
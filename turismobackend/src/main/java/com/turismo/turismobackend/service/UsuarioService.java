@@ -9,6 +9,7 @@ import com.turismo.turismobackend.repository.EmprendedorRepository;
 import com.turismo.turismobackend.repository.RolRepository;
 import com.turismo.turismobackend.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +24,7 @@ public class UsuarioService {
     private final UsuarioRepository usuarioRepository;
     private final EmprendedorRepository emprendedorRepository;
     private final RolRepository rolRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     public List<UsuarioResponse> getAllUsuarios() {
         return usuarioRepository.findAll().stream()
@@ -80,6 +82,10 @@ public class UsuarioService {
         // Asignar usuario al emprendedor
         emprendedor.setUsuario(usuario);
         emprendedorRepository.save(emprendedor);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.EMPRENDEDOR, emprendedorId));
+        revocarTokens(usuario);
+        usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(usuario.getId(), usuario.getUsername()));
     }
     
     @Transactional
@@ -102,11 +108,16 @@ public class UsuarioService {
         if (emprendedorAnterior.isPresent()) {
             emprendedorAnterior.get().setUsuario(null);
             emprendedorRepository.save(emprendedorAnterior.get());
+            eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.EMPRENDEDOR, emprendedorAnterior.get().getId()));
         }
         
         // Asignar al nuevo emprendedor
         nuevoEmprendedor.setUsuario(usuario);
         emprendedorRepository.save(nuevoEmprendedor);
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.EMPRENDEDOR, emprendedorId));
+        revocarTokens(usuario);
+        usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(usuario.getId(), usuario.getUsername()));
     }
     
     @Transactional
@@ -123,6 +134,10 @@ public class UsuarioService {
         // Desasignar usuario del emprendedor
         emprendedor.get().setUsuario(null);
         emprendedorRepository.save(emprendedor.get());
+        eventPublisher.publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.EMPRENDEDOR, emprendedor.get().getId()));
+        revocarTokens(usuario);
+        usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(usuario.getId(), usuario.getUsername()));
     }
     
     @Transactional
@@ -149,7 +164,9 @@ public class UsuarioService {
         
         // Asignar el rol
         usuario.getRoles().add(rol);
+        revocarTokens(usuario);
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(usuario.getId(), usuario.getUsername()));
     }
     
     @Transactional
@@ -184,7 +201,9 @@ public class UsuarioService {
         
         // Quitar el rol
         usuario.getRoles().remove(rol);
+        revocarTokens(usuario);
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(usuario.getId(), usuario.getUsername()));
     }
     
     @Transactional
@@ -199,7 +218,15 @@ public class UsuarioService {
         // Limpiar todos los roles y asignar solo ROLE_USER
         usuario.getRoles().clear();
         usuario.getRoles().add(userRole);
+        revocarTokens(usuario);
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(usuario.getId(), usuario.getUsername()));
+    }
+    
+    // Los tokens con claims autocontenidas emitidos antes de este cambio dejan de aceptarse
+    private void revocarTokens(Usuario usuario) {
+        int versionActual = usuario.getTokenVersion() != null ? usuario.getTokenVersion() : 0;
+        usuario.setTokenVersion(versionActual + 1);
     }
     
     private UsuarioResponse mapToUsuarioResponse(Usuario usuario) {
@@ -0,0 +1,50 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.repository.UsuarioRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Versión de token vigente por usuario. Solo se guardan los usuarios con versión mayor a 0,
+// así el mapa se mantiene pequeño; el refresco periódico recoge cambios hechos en otras instancias.
+// Las versiones solo crecen: el refresco y los eventos combinan valores con el máximo sobre el mismo
+// mapa, así una actualización que llega durante el refresco no se pierde.
+@Service
+@RequiredArgsConstructor
+public class VersionTokenService {
+    
+    private final UsuarioRepository usuarioRepository;
+    
+    private final Map<Long, Integer> versiones = new ConcurrentHashMap<>();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.security.jwt.version-refresco-ms:30000}")
+    public void refrescar() {
+        for (Object[] fila : usuarioRepository.findVersionesToken()) {
+            versiones.merge((Long) fila[0], (Integer) fila[1], Math::max);
+        }
+    }
+    
+    public int getVersion(Long usuarioId) {
+        return versiones.getOrDefault(usuarioId, 0);
+    }
+    
+    public boolean esVigente(Long usuarioId, int versionToken) {
+        return getVersion(usuarioId) == versionToken;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUsuarioModificado(UsuarioModificadoEvent evento) {
+        Integer version = usuarioRepository.findTokenVersionById(evento.usuarioId());
+        if (version != null && version > 0) {
+            versiones.merge(evento.usuarioId(), version, Math::max);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.turismo.turismobackend.config;
+
+import com.turismo.turismobackend.repository.MigracionDatosRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import com.turismo.turismobackend.repository.UsuarioRepository;
+import com.turismo.turismobackend.service.AuthService;
+import com.turismo.turismobackend.service.CategoriaService;
+import com.turismo.turismobackend.service.EmprendedorService;
+import com.turismo.turismobackend.service.MunicipalidadService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DataInitializerTest {
+    
+    private static final String MIGRACION = "reserva_carrito_items.emprendedor_id.v2";
+    private static final String MIGRACION_FECHAS = "reserva_carrito_items.fecha_actualizacion";
+    
+    @Mock
+    private AuthService authService;
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private MunicipalidadService municipalidadService;
+    @Mock
+    private EmprendedorService emprendedorService;
+    @Mock
+    private CategoriaService categoriaService;
+    @Mock
+    private ReservaRepository reservaRepository;
+    @Mock
+    private ReservaCarritoRepository reservaCarritoRepository;
+    @Mock
+    private ReservaCarritoItemRepository reservaCarritoItemRepository;
+    @Mock
+    private MigracionDatosRepository migracionDatosRepository;
+    
+    @InjectMocks
+    private DataInitializer dataInitializer;
+    
+    @BeforeEach
+    void setUp() {
+        // Base de datos ya inicializada: solo corren las migraciones
+        when(usuarioRepository.count()).thenReturn(1L);
+        when(migracionDatosRepository.existsById(MIGRACION_FECHAS)).thenReturn(true);
+    }
+    
+    @Test
+    void migracionAplicadaNoSeRepite() {
+        when(migracionDatosRepository.existsById(MIGRACION)).thenReturn(true);
+        
+        dataInitializer.run();
+        
+        verify(reservaCarritoItemRepository, never()).asignarEmprendedorPendiente(anyInt());
+        verify(reservaCarritoItemRepository, never()).exigirEmprendedor();
+    }
+    
+    @Test
+    void completaPorLotesExigeLaColumnaYRegistraLaMigracion() {
+        when(migracionDatosRepository.existsById(MIGRACION)).thenReturn(false);
+        when(reservaCarritoItemRepository.asignarEmprendedorPendiente(5000)).thenReturn(5000, 120, 0);
+        when(reservaCarritoItemRepository.countSinEmprendedor()).thenReturn(0L);
+        
+        dataInitializer.run();
+        
+        InOrder orden = inOrder(reservaCarritoItemRepository, migracionDatosRepository);
+        orden.verify(reservaCarritoItemRepository, times(3)).asignarEmprendedorPendiente(5000);
+        orden.verify(reservaCarritoItemRepository).exigirEmprendedor();
+        orden.verify(migracionDatosRepository).registrar(eq(MIGRACION), any(LocalDateTime.class));
+    }
+    
+    @Test
+    void itemsSinEmprendedorDejanLaMigracionPendiente() {
+        when(migracionDatosRepository.existsById(MIGRACION)).thenReturn(false);
+        when(reservaCarritoItemRepository.asignarEmprendedorPendiente(5000)).thenReturn(0);
+        when(reservaCarritoItemRepository.countSinEmprendedor()).thenReturn(2L);
+        
+        dataInitializer.run();
+        
+        verify(reservaCarritoItemRepository, never()).exigirEmprendedor();
+        verify(migracionDatosRepository, never()).registrar(eq(MIGRACION), any());
+    }
+    
+    @Test
+    void completaFechasDeActualizacionUnaSolaVez() {
+        when(migracionDatosRepository.existsById(MIGRACION)).thenReturn(true);
+        when(migracionDatosRepository.existsById(MIGRACION_FECHAS)).thenReturn(false);
+        when(reservaCarritoItemRepository.asignarFechaActualizacionPendiente(5000)).thenReturn(5000, 0);
+        
+        dataInitializer.run();
+        
+        verify(reservaCarritoItemRepository, times(2)).asignarFechaActualizacionPendiente(5000);
+        verify(migracionDatosRepository).registrar(eq(MIGRACION_FECHAS), any(LocalDateTime.class));
+    }
+}
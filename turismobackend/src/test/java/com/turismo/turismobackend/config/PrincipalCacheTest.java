@@ -0,0 +1,95 @@
+package com.turismo.turismobackend.config;
+
+import com.turismo.turismobackend.model.Rol;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.MunicipalidadRepository;
+import com.turismo.turismobackend.service.UsuarioModificadoEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PrincipalCacheTest {
+    
+    @Mock
+    private EmprendedorRepository emprendedorRepository;
+    @Mock
+    private MunicipalidadRepository municipalidadRepository;
+    
+    private PrincipalCache principalCache;
+    private Usuario entidad;
+    private final AtomicInteger cargas = new AtomicInteger();
+    
+    @BeforeEach
+    void setUp() {
+        principalCache = new PrincipalCache(60, 100, new SimpleMeterRegistry(), emprendedorRepository, municipalidadRepository);
+        entidad = Usuario.builder()
+                .id(7L)
+                .username("ana")
+                .password("hash-1")
+                .nombre("Ana")
+                .apellido("Quispe")
+                .email("ana@correo.pe")
+                .tokenVersion(0)
+                .roles(new HashSet<>(Set.of(Rol.builder().id(2L).nombre(Rol.RolNombre.ROLE_EMPRENDEDOR).build())))
+                .build();
+        when(emprendedorRepository.findIdByUsuarioId(7L)).thenReturn(Optional.of(30L));
+        when(municipalidadRepository.findIdByUsuarioId(7L)).thenReturn(Optional.empty());
+    }
+    
+    private Function<String, Usuario> cargador() {
+        return username -> {
+            cargas.incrementAndGet();
+            return entidad;
+        };
+    }
+    
+    @Test
+    void cadaPeticionRecibeUnUsuarioPropioYNoLaEntidadCargada() {
+        Usuario primero = principalCache.obtener("ana", cargador()::apply).aUsuario();
+        primero.getRoles().clear();
+        primero.setPassword("otro");
+        Usuario segundo = principalCache.obtener("ana", cargador()::apply).aUsuario();
+        
+        assertThat(cargas).hasValue(1);
+        assertThat(primero).isNotSameAs(entidad);
+        assertThat(segundo.getPassword()).isEqualTo("hash-1");
+        assertThat(segundo.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_EMPRENDEDOR");
+    }
+    
+    @Test
+    void laCopiaIncluyeLosVinculosYNoCambiaConLaEntidad() {
+        PrincipalCache.Principal principal = principalCache.obtener("ana", cargador()::apply);
+        entidad.setPassword("hash-2");
+        entidad.getRoles().clear();
+        
+        assertThat(principal.emprendedorId()).isEqualTo(30L);
+        assertThat(principal.municipalidadId()).isNull();
+        assertThat(principalCache.obtener("ana", cargador()::apply).password()).isEqualTo("hash-1");
+        assertThat(principal.roles()).containsExactly(Rol.RolNombre.ROLE_EMPRENDEDOR);
+    }
+    
+    @Test
+    void unaModificacionDelUsuarioDescartaLaCopia() {
+        principalCache.obtener("ana", cargador()::apply);
+        entidad.setPassword("hash-2");
+        
+        principalCache.onUsuarioModificado(new UsuarioModificadoEvent(7L, "ana"));
+        
+        assertThat(principalCache.obtener("ana", cargador()::apply).password()).isEqualTo("hash-2");
+        assertThat(cargas).hasValue(2);
+    }
+}
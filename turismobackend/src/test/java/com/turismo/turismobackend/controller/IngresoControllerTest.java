@@ -0,0 +1,85 @@
+package com.turismo.turismobackend.controller;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.response.IngresoSerieResponse;
+import com.turismo.turismobackend.model.Rol;
+import com.turismo.turismobackend.service.IngresoRollupService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngresoControllerTest {
+    
+    private static final LocalDate DESDE = LocalDate.of(2026, 1, 1);
+    private static final LocalDate HASTA = LocalDate.of(2026, 1, 31);
+    
+    @Mock
+    private IngresoRollupService ingresoRollupService;
+    @Mock
+    private AuthContext authContext;
+    
+    @InjectMocks
+    private IngresoController ingresoController;
+    
+    @Test
+    void emprendedorSinPerfilNoPuedeConsultarOtraMunicipalidad() {
+        when(authContext.isAdmin()).thenReturn(false);
+        when(authContext.hasRole(Rol.RolNombre.ROLE_MUNICIPALIDAD)).thenReturn(false);
+        when(authContext.getEmprendedorId()).thenReturn(null);
+        
+        ResponseEntity<List<IngresoSerieResponse>> respuesta = ingresoController.getSerie(DESDE, HASTA, 9L, null, null, IngresoRollupService.Agrupacion.DIA);
+        
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(ingresoRollupService);
+    }
+    
+    @Test
+    void municipalidadSinVinculoNoPuedeConsultarUnEmprendedor() {
+        when(authContext.isAdmin()).thenReturn(false);
+        when(authContext.hasRole(Rol.RolNombre.ROLE_MUNICIPALIDAD)).thenReturn(true);
+        when(authContext.getMunicipalidadId()).thenReturn(null);
+        
+        ResponseEntity<List<IngresoSerieResponse>> respuesta = ingresoController.getSerie(DESDE, HASTA, null, 4L, null, IngresoRollupService.Agrupacion.DIA);
+        
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(ingresoRollupService);
+    }
+    
+    @Test
+    void losFiltrosDeLaPeticionSeIgnoranFueraDelAdministrador() {
+        when(authContext.isAdmin()).thenReturn(false);
+        when(authContext.hasRole(Rol.RolNombre.ROLE_MUNICIPALIDAD)).thenReturn(false);
+        when(authContext.getEmprendedorId()).thenReturn(4L);
+        when(ingresoRollupService.getSerie(DESDE, HASTA, null, 4L, null, IngresoRollupService.Agrupacion.MES))
+                .thenReturn(List.of());
+        
+        ResponseEntity<List<IngresoSerieResponse>> respuesta = ingresoController.getSerie(DESDE, HASTA, 9L, 77L, null, IngresoRollupService.Agrupacion.MES);
+        
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(ingresoRollupService).getSerie(DESDE, HASTA, null, 4L, null, IngresoRollupService.Agrupacion.MES);
+    }
+    
+    @Test
+    void elAdministradorUsaLosFiltrosDeLaPeticion() {
+        when(authContext.isAdmin()).thenReturn(true);
+        when(ingresoRollupService.getSerie(DESDE, HASTA, 9L, null, null, IngresoRollupService.Agrupacion.DIA))
+                .thenReturn(List.of());
+        
+        ingresoController.getSerie(DESDE, HASTA, 9L, null, null, IngresoRollupService.Agrupacion.DIA);
+        
+        verify(ingresoRollupService).getSerie(DESDE, HASTA, 9L, null, null, IngresoRollupService.Agrupacion.DIA);
+    }
+}
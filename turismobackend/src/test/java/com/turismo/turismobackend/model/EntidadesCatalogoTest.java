@@ -0,0 +1,51 @@
+package com.turismo.turismobackend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntidadesCatalogoTest {
+    
+    @Test
+    void toStringNoIncluyeTextosPerezososNiColecciones() {
+        PlanTuristico plan = PlanTuristico.builder()
+                .id(1L)
+                .nombre("Ruta Capachica")
+                .itinerario("Día 1: Llachón")
+                .requisitos("DNI")
+                .build();
+        ServicioTuristico servicio = ServicioTuristico.builder()
+                .id(2L)
+                .nombre("Kayak")
+                .incluye("Chaleco")
+                .build();
+        Emprendedor emprendedor = Emprendedor.builder()
+                .id(3L)
+                .nombreEmpresa("Turismo Llachón")
+                .productos("Tejidos")
+                .build();
+        
+        assertThat(plan.toString()).contains("Ruta Capachica").doesNotContain("Llachón", "DNI", "servicios", "reservas");
+        assertThat(servicio.toString()).contains("Kayak").doesNotContain("Chaleco", "carritoItems");
+        assertThat(emprendedor.toString()).contains("Turismo Llachón").doesNotContain("Tejidos", "mensajes");
+    }
+    
+    @Test
+    void igualdadPorId() {
+        PlanTuristico guardado = PlanTuristico.builder().id(1L).nombre("Antes").build();
+        PlanTuristico recargado = PlanTuristico.builder().id(1L).nombre("Después").build();
+        ServicioTuristico nuevo = ServicioTuristico.builder().nombre("Kayak").build();
+        ServicioTuristico otroNuevo = ServicioTuristico.builder().nombre("Kayak").build();
+        
+        assertThat(guardado).isEqualTo(recargado).hasSameHashCodeAs(recargado);
+        assertThat(nuevo).isNotEqualTo(otroNuevo).isEqualTo(nuevo);
+        
+        // El hash no cambia al asignarse el id, así la entidad sigue localizable en un Set
+        Set<ServicioTuristico> servicios = new HashSet<>(Set.of(nuevo));
+        nuevo.setId(5L);
+        assertThat(servicios).contains(nuevo);
+    }
+}
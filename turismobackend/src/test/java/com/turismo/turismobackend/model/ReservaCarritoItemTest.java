@@ -0,0 +1,19 @@
+package com.turismo.turismobackend.model;
+
+import jakarta.persistence.Column;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReservaCarritoItemTest {
+    
+    @Test
+    void emprendedorIdSeMapeaNulableHastaQueLaMigracionLoExija() throws NoSuchFieldException {
+        // Como NOT NULL, ddl-auto=update agrega la columna con 0 en las filas existentes y el backfill
+        // que busca nulos no las encuentra
+        Column columna = ReservaCarritoItem.class.getDeclaredField("emprendedorId").getAnnotation(Column.class);
+        
+        assertThat(columna.name()).isEqualTo("emprendedor_id");
+        assertThat(columna.nullable()).isTrue();
+    }
+}
@@ -0,0 +1,77 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.response.AgendaEmprendedorResponse;
+import com.turismo.turismobackend.repository.AgendaVersionRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AgendaEmprendedorServiceTest {
+    
+    private static final LocalDate DESDE = LocalDate.of(2026, 3, 1);
+    private static final LocalDate HASTA = LocalDate.of(2026, 3, 31);
+    
+    @Mock
+    private ReservaCarritoItemRepository reservaCarritoItemRepository;
+    @Mock
+    private AgendaVersionRepository agendaVersionRepository;
+    @Mock
+    private AuthContext authContext;
+    
+    @InjectMocks
+    private AgendaEmprendedorService agendaEmprendedorService;
+    
+    @Test
+    void elTokenEsLaVersionDelEmprendedorYFiltraPorElla() {
+        ReflectionTestUtils.setField(agendaEmprendedorService, "maxDias", 62);
+        when(authContext.getEmprendedorId()).thenReturn(3L);
+        when(agendaVersionRepository.findVersion(3L)).thenReturn(Optional.of(42L));
+        when(reservaCarritoItemRepository.findAgendaEmprendedor(3L, DESDE, HASTA, 40L)).thenReturn(List.of());
+        when(reservaCarritoItemRepository.contarAgendaPorDia(3L, DESDE, HASTA)).thenReturn(List.of());
+        
+        AgendaEmprendedorResponse agenda = agendaEmprendedorService.getAgenda(DESDE, HASTA, 40L);
+        
+        assertThat(agenda.getVersion()).isEqualTo(42L);
+        assertThat(agenda.getCompleta()).isFalse();
+        // La versión se lee antes que los items
+        InOrder orden = inOrder(agendaVersionRepository, reservaCarritoItemRepository);
+        orden.verify(agendaVersionRepository).findVersion(3L);
+        orden.verify(reservaCarritoItemRepository).findAgendaEmprendedor(3L, DESDE, HASTA, 40L);
+    }
+    
+    @Test
+    void registrarCambiosIncrementaLaVersionYLaCopiaEnLosItems() {
+        List<Long> reservas = List.of(10L, 11L);
+        
+        agendaEmprendedorService.registrarCambios(reservas);
+        
+        InOrder orden = inOrder(reservaCarritoItemRepository, agendaVersionRepository);
+        orden.verify(reservaCarritoItemRepository).flush();
+        orden.verify(agendaVersionRepository).crearFaltantes(reservas);
+        orden.verify(agendaVersionRepository).incrementar(reservas);
+        orden.verify(agendaVersionRepository).marcarItems(reservas);
+    }
+    
+    @Test
+    void sinReservasNoTocaLasVersiones() {
+        agendaEmprendedorService.registrarCambios(List.of());
+        
+        verifyNoInteractions(agendaVersionRepository, reservaCarritoItemRepository);
+    }
+}
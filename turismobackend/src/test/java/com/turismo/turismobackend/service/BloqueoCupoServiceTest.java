@@ -0,0 +1,103 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.BloqueoCupo;
+import com.turismo.turismobackend.model.CarritoItem;
+import com.turismo.turismobackend.model.ServicioTuristico;
+import com.turismo.turismobackend.repository.BloqueoCupoRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BloqueoCupoServiceTest {
+    
+    private static final LocalDate FECHA = LocalDate.of(2026, 3, 10);
+    
+    @Mock
+    private BloqueoCupoRepository bloqueoCupoRepository;
+    @Mock
+    private ReservaCarritoItemRepository reservaCarritoItemRepository;
+    @Mock
+    private CandadoCupoService candadoCupoService;
+    
+    @InjectMocks
+    private BloqueoCupoService bloqueoCupoService;
+    
+    private ServicioTuristico servicio;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(bloqueoCupoService, "habilitado", true);
+        ReflectionTestUtils.setField(bloqueoCupoService, "minutos", 15);
+        servicio = ServicioTuristico.builder().id(3L).nombre("Kayak").capacidadMaxima(10).build();
+    }
+    
+    @Test
+    void bajarLaCantidadAjustaElCupoSinComprobarCapacidad() {
+        BloqueoCupo existente = bloqueo(4, LocalDateTime.now().plusMinutes(5));
+        when(bloqueoCupoRepository.findByCarritoItemIdIn(List.of(7L))).thenReturn(List.of(existente));
+        when(bloqueoCupoRepository.saveAll(anyList())).thenAnswer(invocacion -> invocacion.getArgument(0));
+        
+        bloqueoCupoService.apartar(item(2));
+        
+        // La misma fila, con la cantidad nueva y el vencimiento renovado
+        assertThat(existente.getCantidad()).isEqualTo(2);
+        assertThat(existente.getExpiraEn()).isAfter(LocalDateTime.now().plusMinutes(14));
+        verifyNoInteractions(reservaCarritoItemRepository);
+    }
+    
+    @Test
+    void subirLaCantidadSinCapacidadFallaYConservaElCupoAnterior() {
+        BloqueoCupo existente = bloqueo(2, LocalDateTime.now().plusMinutes(5));
+        when(bloqueoCupoRepository.findByCarritoItemIdIn(List.of(7L))).thenReturn(List.of(existente));
+        when(reservaCarritoItemRepository.countPersonasByServicioAndFecha(3L, FECHA)).thenReturn(5L);
+        when(bloqueoCupoRepository.sumarVigentes(eq(3L), eq(FECHA), any(LocalDateTime.class), eq(Set.of(7L))))
+                .thenReturn(2L);
+        
+        assertThatThrownBy(() -> bloqueoCupoService.apartar(item(4)))
+                .hasMessageContaining("No hay suficiente capacidad");
+        assertThat(existente.getCantidad()).isEqualTo(2);
+        verify(bloqueoCupoRepository, never()).saveAll(anyList());
+    }
+    
+    @Test
+    void unCupoVencidoSeVuelveAComprobarAunqueBaje() {
+        BloqueoCupo vencido = bloqueo(4, LocalDateTime.now().minusMinutes(1));
+        when(bloqueoCupoRepository.findByCarritoItemIdIn(List.of(7L))).thenReturn(List.of(vencido));
+        when(reservaCarritoItemRepository.countPersonasByServicioAndFecha(3L, FECHA)).thenReturn(9L);
+        when(bloqueoCupoRepository.sumarVigentes(eq(3L), eq(FECHA), any(LocalDateTime.class), eq(Set.of(7L))))
+                .thenReturn(0L);
+        
+        assertThatThrownBy(() -> bloqueoCupoService.apartar(item(2)))
+                .hasMessageContaining("No hay suficiente capacidad");
+    }
+    
+    private CarritoItem item(int cantidad) {
+        return CarritoItem.builder().id(7L).servicio(servicio).fechaServicio(FECHA).cantidad(cantidad).build();
+    }
+    
+    private static BloqueoCupo bloqueo(int cantidad, LocalDateTime expiraEn) {
+        return BloqueoCupo.builder().id(1L).carritoItemId(7L).servicioId(3L).fechaServicio(FECHA)
+                .cantidad(cantidad).expiraEn(expiraEn).build();
+    }
+}
@@ -0,0 +1,184 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.dto.request.CancelacionMasivaRequest;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.ReservaCarrito;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.PlanTuristicoRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import com.turismo.turismobackend.repository.ServicioTuristicoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CancelacionMasivaServiceTest {
+    
+    private static final LocalDate DESDE = LocalDate.of(2026, 2, 1);
+    private static final LocalDate HASTA = LocalDate.of(2026, 2, 3);
+    private static final LocalDateTime FECHA_RESERVA = LocalDateTime.of(2026, 1, 10, 9, 0);
+    
+    @Mock
+    private ReservaRepository reservaRepository;
+    @Mock
+    private ReservaCarritoRepository reservaCarritoRepository;
+    @Mock
+    private ReservaCarritoItemRepository reservaCarritoItemRepository;
+    @Mock
+    private PlanTuristicoRepository planRepository;
+    @Mock
+    private ServicioTuristicoRepository servicioRepository;
+    @Mock
+    private EmprendedorRepository emprendedorRepository;
+    @Mock
+    private PopularidadService popularidadService;
+    @Mock
+    private AgendaEmprendedorService agendaEmprendedorService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    @InjectMocks
+    private CancelacionMasivaService cancelacionMasivaService;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cancelacionMasivaService, "tamanoLote", 200);
+        when(transactionTemplate.execute(any())).thenAnswer(invocacion ->
+                invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(new SimpleTransactionStatus()));
+    }
+    
+    @Test
+    void porServicioSoloCancelaLosItemsDelServicioYLaReservaSigueActiva() {
+        when(reservaCarritoRepository.findParaCancelacionMasiva(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.<Object[]>of(reserva(100L)), List.of());
+        when(reservaCarritoItemRepository.findParaCancelacionMasiva(List.of(100L), 3L, null, null, DESDE, HASTA))
+                .thenReturn(List.<Object[]>of(new Object[]{500L, 100L, 3L, 7L, new BigDecimal("60.00")}));
+        when(reservaCarritoItemRepository.cancelarItems(eq(List.of(500L)), any(LocalDateTime.class))).thenReturn(1);
+        // Le queda otro item activo (de otro servicio o fuera de las fechas)
+        when(reservaCarritoRepository.findSinItemsActivos(List.of(100L))).thenReturn(List.of());
+        List<CancelacionMasivaService.ResultadoLote> resultados = new ArrayList<>();
+        
+        long total = cancelacionMasivaService.cancelar(solicitud(CancelacionMasivaRequest.Alcance.SERVICIO, 3L),
+                resultados::add);
+        
+        // La reserva cuenta como afectada aunque siga activa por sus otros items
+        assertThat(total).isEqualTo(1);
+        assertThat(resultados).singleElement().satisfies(resultado -> assertThat(resultado.canceladas()).isEqualTo(1));
+        verify(popularidadService).cancelarReservasServicio(Map.of(3L, List.of(FECHA_RESERVA)));
+        verify(agendaEmprendedorService).registrarCambios(List.of(100L));
+        verify(reservaCarritoRepository, never()).cancelar(anyCollection(), any(), any(), anyString());
+        verify(eventPublisher, never()).publishEvent(any(ReservaTransicionLoteEvent.class));
+        // Sin cambio de estado, se publican los items cancelados para estadísticas y outbox
+        ArgumentCaptor<ReservaItemsCanceladosEvent> evento = ArgumentCaptor.forClass(ReservaItemsCanceladosEvent.class);
+        verify(eventPublisher).publishEvent(evento.capture());
+        assertThat(evento.getValue().cancelaciones()).singleElement().satisfies(cancelacion -> {
+            assertThat(cancelacion.reservaId()).isEqualTo(100L);
+            assertThat(cancelacion.usuarioId()).isEqualTo(1L);
+            assertThat(cancelacion.emprendedorId()).isEqualTo(7L);
+            assertThat(cancelacion.itemIds()).containsExactly(500L);
+            assertThat(cancelacion.subtotal()).isEqualByComparingTo("60.00");
+        });
+    }
+    
+    @Test
+    void laReservaSeCancelaCuandoNoLeQuedanItemsActivos() {
+        when(reservaCarritoRepository.findParaCancelacionMasiva(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.<Object[]>of(reserva(100L), reserva(101L)), List.of());
+        when(reservaCarritoItemRepository.findParaCancelacionMasiva(List.of(100L, 101L), null, 7L, null, DESDE, HASTA))
+                .thenReturn(List.<Object[]>of(new Object[]{500L, 100L, 3L, 7L, new BigDecimal("60.00")}, new Object[]{510L, 101L, 4L, 7L, new BigDecimal("80.00")}));
+        when(reservaCarritoItemRepository.cancelarItems(eq(List.of(500L, 510L)), any(LocalDateTime.class))).thenReturn(2);
+        when(reservaCarritoRepository.findSinItemsActivos(List.of(100L, 101L))).thenReturn(List.of(101L));
+        when(reservaCarritoRepository.cancelar(eq(List.of(101L)), eq(ReservaCarrito.EstadoReservaCarrito.CONFIRMADA),
+                any(LocalDateTime.class), eq("Cierre por lluvias"))).thenReturn(1);
+        when(reservaCarritoItemRepository.sumarPorEmprendedor(List.of(101L)))
+                .thenReturn(List.<Object[]>of(new Object[]{101L, 7L, new BigDecimal("80.00")}));
+        
+        cancelacionMasivaService.cancelar(solicitud(CancelacionMasivaRequest.Alcance.EMPRENDEDOR, 7L), resultado -> { });
+        
+        // La reserva que sigue activa publica sus items; la cancelada, su transición
+        ArgumentCaptor<Object> eventos = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(2)).publishEvent(eventos.capture());
+        assertThat(eventos.getAllValues()).satisfiesExactly(
+                evento -> assertThat(((ReservaItemsCanceladosEvent) evento).cancelaciones()).singleElement()
+                        .satisfies(cancelacion -> assertThat(cancelacion.reservaId()).isEqualTo(100L)),
+                evento -> assertThat(((ReservaTransicionLoteEvent) evento).transiciones()).singleElement()
+                        .satisfies(transicion -> {
+                            assertThat(transicion.reservaId()).isEqualTo(101L);
+                            assertThat(transicion.estadoNuevo()).isEqualTo("CANCELADA");
+                        }));
+    }
+    
+    @Test
+    void siUnItemCambioALaVezSeReintentaElLote() {
+        when(reservaCarritoRepository.findParaCancelacionMasiva(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.<Object[]>of(reserva(100L)), List.<Object[]>of(reserva(100L)), List.of());
+        when(reservaCarritoItemRepository.findParaCancelacionMasiva(List.of(100L), 3L, null, null, DESDE, HASTA))
+                .thenReturn(List.<Object[]>of(new Object[]{500L, 100L, 3L, 7L, new BigDecimal("60.00")}));
+        when(reservaCarritoItemRepository.cancelarItems(eq(List.of(500L)), any(LocalDateTime.class))).thenReturn(0, 1);
+        when(reservaCarritoRepository.findSinItemsActivos(List.of(100L))).thenReturn(List.of());
+        
+        long total = cancelacionMasivaService.cancelar(solicitud(CancelacionMasivaRequest.Alcance.SERVICIO, 3L),
+                resultado -> { });
+        
+        assertThat(total).isEqualTo(1);
+        verify(popularidadService).cancelarReservasServicio(any());
+    }
+    
+    @Test
+    void porPlanNoInvalidaElCatalogo() {
+        when(reservaRepository.findParaCancelacionMasiva(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 2L, 9L, FECHA_RESERVA, new BigDecimal("150.00"),
+                        Reserva.EstadoReserva.CONFIRMADA, 9L}), List.of());
+        when(reservaRepository.cancelar(eq(List.of(1L)), eq(Reserva.EstadoReserva.CONFIRMADA), any(LocalDateTime.class),
+                eq("Cierre por lluvias"))).thenReturn(1);
+        
+        cancelacionMasivaService.cancelar(solicitud(CancelacionMasivaRequest.Alcance.PLAN, 9L), resultado -> { });
+        
+        verify(eventPublisher, never()).publishEvent(any(CatalogoModificadoEvent.class));
+        verify(eventPublisher).publishEvent(any(ReservaTransicionLoteEvent.class));
+    }
+    
+    private static Object[] reserva(Long id) {
+        return new Object[]{id, 1L, FECHA_RESERVA, new BigDecimal("120.00"), ReservaCarrito.EstadoReservaCarrito.CONFIRMADA};
+    }
+    
+    private static CancelacionMasivaRequest solicitud(CancelacionMasivaRequest.Alcance alcance, Long id) {
+        return CancelacionMasivaRequest.builder()
+                .alcance(alcance)
+                .id(id)
+                .desde(DESDE)
+                .hasta(HASTA)
+                .motivo("Cierre por lluvias")
+                .build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.repository.CandadoCupoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CandadoCupoServiceTest {
+    
+    private static final LocalDate FECHA = LocalDate.of(2026, 5, 2);
+    private static final int CAPACIDAD = 5;
+    private static final int HILOS = 16;
+    
+    @Mock
+    private CandadoCupoRepository candadoCupoRepository;
+    
+    private CandadoCupoService candadoCupoService;
+    private ExecutorService ejecutor;
+    
+    @BeforeEach
+    void setUp() {
+        candadoCupoService = new CandadoCupoService(candadoCupoRepository, 8);
+        ReflectionTestUtils.setField(candadoCupoService, "esperaMs", 5000L);
+        ejecutor = Executors.newFixedThreadPool(HILOS);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        ejecutor.shutdownNow();
+    }
+    
+    @Test
+    void reservasSimultaneasNoSuperanLaCapacidad() throws Exception {
+        CandadoCupoService.Clave clave = new CandadoCupoService.Clave(CandadoCupoService.Tipo.SERVICIO, 3L, FECHA);
+        AtomicInteger ocupadas = new AtomicInteger();
+        AtomicInteger dentro = new AtomicInteger();
+        AtomicInteger maximoDentro = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            resultados.add(ejecutor.submit(() -> {
+                salida.await();
+                return enTransaccion(List.of(clave), () -> {
+                    maximoDentro.accumulateAndGet(dentro.incrementAndGet(), Math::max);
+                    try {
+                        // Leer, esperar y escribir: sin el candado varias peticiones verían el mismo cupo libre
+                        int leidas = ocupadas.get();
+                        Thread.sleep(2);
+                        if (leidas + 1 > CAPACIDAD) {
+                            return false;
+                        }
+                        ocupadas.set(leidas + 1);
+                        return true;
+                    } finally {
+                        dentro.decrementAndGet();
+                    }
+                });
+            }));
+        }
+        salida.countDown();
+        
+        int aceptadas = 0;
+        for (Future<Boolean> resultado : resultados) {
+            if (resultado.get(10, TimeUnit.SECONDS)) {
+                aceptadas++;
+            }
+        }
+        assertThat(aceptadas).isEqualTo(CAPACIDAD);
+        assertThat(ocupadas.get()).isEqualTo(CAPACIDAD);
+        assertThat(maximoDentro.get()).isEqualTo(1);
+        verify(candadoCupoRepository, times(HILOS)).bloquear("SERVICIO", 3L, FECHA);
+    }
+    
+    @Test
+    void clavesEnOrdenInversoNoSeBloqueanMutuamente() throws Exception {
+        CandadoCupoService.Clave primera = new CandadoCupoService.Clave(CandadoCupoService.Tipo.SERVICIO, 1L, FECHA);
+        CandadoCupoService.Clave segunda = new CandadoCupoService.Clave(CandadoCupoService.Tipo.PLAN, 9L, FECHA.plusDays(1));
+        CountDownLatch salida = new CountDownLatch(1);
+        
+        List<Future<Boolean>> resultados = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            List<CandadoCupoService.Clave> claves = i % 2 == 0 ? List.of(primera, segunda) : List.of(segunda, primera);
+            resultados.add(ejecutor.submit(() -> {
+                salida.await();
+                return enTransaccion(claves, () -> {
+                    Thread.sleep(1);
+                    return true;
+                });
+            }));
+        }
+        salida.countDown();
+        
+        for (Future<Boolean> resultado : resultados) {
+            assertThat(resultado.get(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+    
+    // Simula la transacción del hilo: los candados se sueltan en afterCompletion, como al confirmar
+    private <T> T enTransaccion(Collection<CandadoCupoService.Clave> claves, Callable<T> trabajo) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            candadoCupoService.bloquear(claves);
+            return trabajo.call();
+        } finally {
+            for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+                sincronizacion.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
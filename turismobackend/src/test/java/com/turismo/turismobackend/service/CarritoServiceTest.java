@@ -0,0 +1,193 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.request.CarritoLoteRequest;
+import com.turismo.turismobackend.dto.request.OperacionCarritoRequest;
+import com.turismo.turismobackend.dto.response.CarritoResponse;
+import com.turismo.turismobackend.exception.ResourceNotFoundException;
+import com.turismo.turismobackend.model.Carrito;
+import com.turismo.turismobackend.model.CarritoItem;
+import com.turismo.turismobackend.model.Emprendedor;
+import com.turismo.turismobackend.model.ServicioTuristico;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.CarritoItemRepository;
+import com.turismo.turismobackend.repository.CarritoRepository;
+import com.turismo.turismobackend.repository.ServicioTuristicoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CarritoServiceTest {
+    
+    private static final LocalDate FECHA = LocalDate.of(2026, 12, 5);
+    
+    @Mock
+    private CarritoRepository carritoRepository;
+    @Mock
+    private CarritoItemRepository carritoItemRepository;
+    @Mock
+    private ServicioTuristicoRepository servicioRepository;
+    @Mock
+    private AuthContext authContext;
+    @Mock
+    private BloqueoCupoService bloqueoCupoService;
+    
+    @InjectMocks
+    private CarritoService carritoService;
+    
+    private Carrito carrito;
+    private ServicioTuristico servicio;
+    private CarritoItem existente;
+    
+    @BeforeEach
+    void setUp() {
+        Usuario usuario = Usuario.builder().id(3L).build();
+        carrito = Carrito.builder().id(10L).usuario(usuario).build();
+        servicio = ServicioTuristico.builder()
+                .id(7L)
+                .precio(new BigDecimal("40.00"))
+                .estado(ServicioTuristico.EstadoServicio.ACTIVO)
+                .emprendedor(Emprendedor.builder().id(9L).build())
+                .build();
+        // Sin referencia al carrito: el equals de las entidades lo recorrería completo
+        existente = CarritoItem.builder()
+                .id(1L)
+                .servicio(servicio)
+                .cantidad(2)
+                .precioUnitario(new BigDecimal("40.00"))
+                .fechaServicio(FECHA)
+                .build();
+        carrito.getItems().add(existente);
+        
+        when(authContext.getUsuario()).thenReturn(usuario);
+        when(carritoRepository.findByUsuario(usuario)).thenReturn(Optional.of(carrito));
+        when(carritoItemRepository.findByCarritoIdConServicio(10L)).thenReturn(new ArrayList<>(carrito.getItems()));
+    }
+    
+    @Test
+    void agregarSumaALaLineaExistenteDelMismoServicioYFecha() {
+        when(servicioRepository.findAllById(Set.of(7L))).thenReturn(List.of(servicio));
+        
+        CarritoResponse respuesta = carritoService.aplicarLote(lote(agregar(3)));
+        
+        assertThat(existente.getCantidad()).isEqualTo(5);
+        assertThat(carrito.getItems()).hasSize(1);
+        assertThat(respuesta.getTotalItems()).isEqualTo(5);
+        assertThat(nuevasGuardadas()).isEmpty();
+        assertThat(apartadas()).singleElement().isSameAs(existente);
+    }
+    
+    @Test
+    void dosAgregarEnElMismoLoteSeJuntanEnUnaSolaLineaNueva() {
+        carrito.getItems().clear();
+        when(carritoItemRepository.findByCarritoIdConServicio(10L)).thenReturn(List.of());
+        when(servicioRepository.findAllById(Set.of(7L))).thenReturn(List.of(servicio));
+        
+        carritoService.aplicarLote(lote(agregar(1), agregar(2)));
+        
+        List<CarritoItem> nuevas = nuevasGuardadas();
+        assertThat(nuevas).singleElement().satisfies(item -> {
+            assertThat(item.getId()).isNull();
+            assertThat(item.getCantidad()).isEqualTo(3);
+            assertThat(item.getPrecioUnitario()).isEqualByComparingTo("40.00");
+        });
+        assertThat(carrito.getItems()).singleElement().isSameAs(nuevas.get(0));
+        assertThat(apartadas()).singleElement().isSameAs(nuevas.get(0));
+    }
+    
+    @Test
+    void actualizarACeroEliminaLaLinea() {
+        OperacionCarritoRequest actualizar = OperacionCarritoRequest.builder()
+                .tipo(OperacionCarritoRequest.Tipo.ACTUALIZAR)
+                .itemId(1L)
+                .cantidad(0)
+                .build();
+        
+        CarritoResponse respuesta = carritoService.aplicarLote(lote(actualizar));
+        
+        verify(bloqueoCupoService).liberar(Set.of(1L));
+        assertThat(carrito.getItems()).isEmpty();
+        assertThat(respuesta.getItems()).isEmpty();
+        assertThat(apartadas()).isEmpty();
+    }
+    
+    @Test
+    void eliminarYAgregarElMismoServicioYFechaCreaUnaLineaNueva() {
+        when(servicioRepository.findAllById(Set.of(7L))).thenReturn(List.of(servicio));
+        OperacionCarritoRequest eliminar = OperacionCarritoRequest.builder()
+                .tipo(OperacionCarritoRequest.Tipo.ELIMINAR)
+                .itemId(1L)
+                .build();
+        
+        carritoService.aplicarLote(lote(eliminar, agregar(4)));
+        
+        // La línea eliminada no recibe la cantidad: se reemplaza por una nueva
+        verify(bloqueoCupoService).liberar(Set.of(1L));
+        assertThat(existente.getCantidad()).isEqualTo(2);
+        List<CarritoItem> nuevas = nuevasGuardadas();
+        assertThat(nuevas).singleElement().satisfies(item -> assertThat(item.getCantidad()).isEqualTo(4));
+        assertThat(carrito.getItems()).singleElement().isSameAs(nuevas.get(0));
+    }
+    
+    @Test
+    void unItemDeOtroCarritoDevuelve404SinEscribirNada() {
+        // El item 99 existe, pero en el carrito de otro usuario: no aparece entre las líneas leídas
+        OperacionCarritoRequest actualizar = OperacionCarritoRequest.builder()
+                .tipo(OperacionCarritoRequest.Tipo.ACTUALIZAR)
+                .itemId(99L)
+                .cantidad(1)
+                .build();
+        
+        assertThatThrownBy(() -> carritoService.aplicarLote(lote(actualizar)))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(existente.getCantidad()).isEqualTo(2);
+        verify(carritoItemRepository, never()).saveAll(any());
+        verify(bloqueoCupoService, never()).liberar(any());
+    }
+    
+    private List<CarritoItem> nuevasGuardadas() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CarritoItem>> nuevas = ArgumentCaptor.forClass(List.class);
+        verify(carritoItemRepository).saveAll(nuevas.capture());
+        return nuevas.getValue();
+    }
+    
+    private List<CarritoItem> apartadas() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CarritoItem>> apartadas = ArgumentCaptor.forClass(List.class);
+        verify(bloqueoCupoService).apartarTodos(apartadas.capture());
+        return apartadas.getValue();
+    }
+    
+    private static OperacionCarritoRequest agregar(int cantidad) {
+        return OperacionCarritoRequest.builder()
+                .tipo(OperacionCarritoRequest.Tipo.AGREGAR)
+                .servicioId(7L)
+                .cantidad(cantidad)
+                .fechaServicio(FECHA)
+                .build();
+    }
+    
+    private static CarritoLoteRequest lote(OperacionCarritoRequest... operaciones) {
+        return CarritoLoteRequest.builder().operaciones(List.of(operaciones)).build();
+    }
+}
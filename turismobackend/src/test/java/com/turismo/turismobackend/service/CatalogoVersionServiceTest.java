@@ -0,0 +1,115 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.CatalogoVersion;
+import com.turismo.turismobackend.repository.CatalogoVersionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogoVersionServiceTest {
+    
+    @Mock
+    private CatalogoVersionRepository catalogoVersionRepository;
+    @Mock
+    private CatalogoCacheInvalidador cacheInvalidador;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @InjectMocks
+    private CatalogoVersionService catalogoVersionService;
+    
+    @Test
+    void cambioSeRegistraEnLaTablaCompartida() {
+        catalogoVersionService.registrarCambio(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.SERVICIO, 4L));
+        
+        verify(catalogoVersionRepository).incrementar(eq("SERVICIO"), any(LocalDateTime.class));
+    }
+    
+    @Test
+    void versionNuevaVaciaLaCacheAntesDePublicarse() {
+        when(catalogoVersionRepository.findAll()).thenReturn(List.of(fila("PLAN", 3L)));
+        
+        catalogoVersionService.refrescar();
+        
+        InOrder orden = inOrder(cacheInvalidador, eventPublisher);
+        orden.verify(cacheInvalidador).invalidar(CatalogoModificadoEvent.Tipo.PLAN);
+        orden.verify(eventPublisher).publishEvent(new CatalogoSincronizadoEvent(CatalogoModificadoEvent.Tipo.PLAN));
+        assertThat(catalogoVersionService.etagListado(CatalogoModificadoEvent.Tipo.PLAN)).isEqualTo("\"plan-3.0.0.0\"");
+        assertThat(catalogoVersionService.etagElemento(CatalogoModificadoEvent.Tipo.PLAN, 8L)).isEqualTo("\"plan-8-3.0.0.0\"");
+        
+        // Sin cambios en la tabla no se vuelve a invalidar
+        catalogoVersionService.refrescar();
+        verifyNoMoreInteractions(cacheInvalidador, eventPublisher);
+    }
+    
+    @Test
+    void dosInstanciasGeneranElMismoEtag() {
+        when(catalogoVersionRepository.findAll()).thenReturn(List.of(fila("SERVICIO", 2L), fila("EMPRENDEDOR", 5L)));
+        CatalogoVersionService otraInstancia = new CatalogoVersionService(catalogoVersionRepository,
+                mock(CatalogoCacheInvalidador.class), mock(ApplicationEventPublisher.class));
+        
+        catalogoVersionService.refrescar();
+        otraInstancia.refrescar();
+        
+        assertThat(catalogoVersionService.etagListado(CatalogoModificadoEvent.Tipo.PLAN))
+                .isEqualTo(otraInstancia.etagListado(CatalogoModificadoEvent.Tipo.PLAN))
+                .isEqualTo("\"plan-0.2.5.0\"");
+        assertThat(catalogoVersionService.ultimaModificacion(CatalogoModificadoEvent.Tipo.PLAN))
+                .isEqualTo(otraInstancia.ultimaModificacion(CatalogoModificadoEvent.Tipo.PLAN));
+    }
+    
+    @Test
+    void reservasDePlanSeAgrupanEnUnSoloCambioPeriodico() {
+        catalogoVersionService.onReservaTransicion(transicion(ReservaTransicionEvent.Fuente.PLAN, null, "PENDIENTE"));
+        catalogoVersionService.onReservaTransicion(transicion(ReservaTransicionEvent.Fuente.PLAN, "PENDIENTE", "CANCELADA"));
+        
+        catalogoVersionService.publicarConteosReservas();
+        catalogoVersionService.publicarConteosReservas();
+        
+        verify(eventPublisher).publishEvent(new CatalogoModificadoEvent(CatalogoModificadoEvent.Tipo.PLAN, null));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+    
+    @Test
+    void confirmacionesYReservasDeCarritoNoCambianElConteo() {
+        catalogoVersionService.onReservaTransicion(transicion(ReservaTransicionEvent.Fuente.PLAN, "PENDIENTE", "CONFIRMADA"));
+        catalogoVersionService.onReservaTransicion(transicion(ReservaTransicionEvent.Fuente.CARRITO, null, "PENDIENTE"));
+        
+        catalogoVersionService.publicarConteosReservas();
+        
+        verifyNoInteractions(eventPublisher);
+    }
+    
+    private static CatalogoVersion fila(String tipo, long version) {
+        return CatalogoVersion.builder()
+                .tipo(tipo)
+                .version(version)
+                .fechaModificacion(LocalDateTime.of(2026, 1, 15, 10, 0))
+                .build();
+    }
+    
+    private static ReservaTransicionEvent transicion(ReservaTransicionEvent.Fuente fuente, String anterior, String nuevo) {
+        return new ReservaTransicionEvent(fuente, 1L, 2L, 3L, Map.of(), LocalDateTime.now(),
+                BigDecimal.TEN, anterior, nuevo);
+    }
+}
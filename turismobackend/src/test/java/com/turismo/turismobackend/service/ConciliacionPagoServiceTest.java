@@ -0,0 +1,183 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.Municipalidad;
+import com.turismo.turismobackend.model.Pago;
+import com.turismo.turismobackend.model.PagoCarrito;
+import com.turismo.turismobackend.model.PlanTuristico;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.ReservaCarrito;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.PagoCarritoRepository;
+import com.turismo.turismobackend.repository.PagoRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConciliacionPagoServiceTest {
+    
+    @Mock
+    private PagoRepository pagoRepository;
+    @Mock
+    private PagoCarritoRepository pagoCarritoRepository;
+    @Mock
+    private ReservaRepository reservaRepository;
+    @Mock
+    private ReservaCarritoRepository reservaCarritoRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private IngresoRollupService ingresoRollupService;
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private AgendaEmprendedorService agendaEmprendedorService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private EntityManager entityManager;
+    
+    @InjectMocks
+    private ConciliacionPagoService conciliacionPagoService;
+    
+    private final ConciliacionPagoService.Operador admin = new ConciliacionPagoService.Operador(true, 1L, null);
+    private Reserva reserva;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(conciliacionPagoService, "tamanoLote", 500);
+        PlanTuristico plan = PlanTuristico.builder()
+                .id(100L)
+                .municipalidad(Municipalidad.builder().id(5L).build())
+                .build();
+        reserva = Reserva.builder()
+                .id(10L)
+                .plan(plan)
+                .usuario(Usuario.builder().id(3L).build())
+                .estado(Reserva.EstadoReserva.PENDIENTE)
+                .montoFinal(new BigDecimal("300.00"))
+                .build();
+    }
+    
+    @Test
+    void lineasMalFormadasSeInformanSinDetenerElExtracto() throws Exception {
+        ejecutarTransaccionesEnLinea();
+        Pago leido = pago(Pago.EstadoPago.PENDIENTE);
+        when(pagoRepository.findByReferencias(Set.of("PAG-1"))).thenReturn(List.of(leido));
+        when(pagoRepository.confirmarPendientes(eq(Set.of(1L)), any(LocalDateTime.class))).thenReturn(1);
+        when(pagoRepository.findConReservaByIdIn(Set.of(1L))).thenReturn(List.of(pago(Pago.EstadoPago.CONFIRMADO)));
+        
+        List<ConciliacionPagoService.ResultadoLinea> resultados = conciliar("""
+                referencia,monto,accion
+                PAG-2,abc
+                PAG-1,150.00
+                ,10
+                PAG-3,20,ANULAR
+                """);
+        
+        assertThat(resultados).extracting(ConciliacionPagoService.ResultadoLinea::numero).containsExactly(2, 3, 4, 5);
+        assertThat(resultados).extracting(ConciliacionPagoService.ResultadoLinea::resultado).containsExactly(
+                ConciliacionPagoService.Resultado.LINEA_INVALIDA,
+                ConciliacionPagoService.Resultado.CONFIRMADO,
+                ConciliacionPagoService.Resultado.LINEA_INVALIDA,
+                ConciliacionPagoService.Resultado.LINEA_INVALIDA);
+        assertThat(reserva.getEstado()).isEqualTo(Reserva.EstadoReserva.CONFIRMADA);
+    }
+    
+    @Test
+    void resumenYOutboxRecibenLosPagosYaConfirmados() throws Exception {
+        ejecutarTransaccionesEnLinea();
+        Pago leido = pago(Pago.EstadoPago.PENDIENTE);
+        when(pagoRepository.findByReferencias(Set.of("PAG-1"))).thenReturn(List.of(leido));
+        when(pagoRepository.confirmarPendientes(eq(Set.of(1L)), any(LocalDateTime.class))).thenReturn(1);
+        when(pagoRepository.findConReservaByIdIn(Set.of(1L))).thenReturn(List.of(pago(Pago.EstadoPago.CONFIRMADO)));
+        
+        conciliar("PAG-1,150.00\n");
+        
+        // El pago leído antes del UPDATE masivo se desvincula en lugar de reutilizarse
+        verify(entityManager).detach(leido);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Pago>> ingresos = ArgumentCaptor.forClass(List.class);
+        verify(ingresoRollupService).registrarPagosConfirmados(ingresos.capture(), anyList(), any(LocalDate.class));
+        assertThat(ingresos.getValue()).extracting(Pago::getEstado).containsExactly(Pago.EstadoPago.CONFIRMADO);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Pago>> outbox = ArgumentCaptor.forClass(List.class);
+        verify(outboxService).registrarPagosConfirmados(outbox.capture(), anyList());
+        assertThat(outbox.getValue()).extracting(Pago::getEstado).containsExactly(Pago.EstadoPago.CONFIRMADO);
+    }
+    
+    @Test
+    void elCambioDeEstadoDeUnCarritoRefrescaLaAgenda() throws Exception {
+        ejecutarTransaccionesEnLinea();
+        ReservaCarrito reservaCarrito = ReservaCarrito.builder()
+                .id(20L)
+                .usuario(Usuario.builder().id(3L).build())
+                .estado(ReservaCarrito.EstadoReservaCarrito.PENDIENTE)
+                .montoFinal(new BigDecimal("300.00"))
+                .build();
+        PagoCarrito pago = PagoCarrito.builder()
+                .id(2L)
+                .codigoPago("PAC-1")
+                .monto(new BigDecimal("150.00"))
+                .metodoPago(Pago.MetodoPago.EFECTIVO)
+                .estado(Pago.EstadoPago.PENDIENTE)
+                .reservaCarrito(reservaCarrito)
+                .build();
+        when(pagoCarritoRepository.findByReferencias(Set.of("PAC-1"))).thenReturn(List.of(pago));
+        when(pagoCarritoRepository.confirmarPendientes(eq(Set.of(2L)), any(LocalDateTime.class))).thenReturn(1);
+        
+        conciliar("PAC-1,150.00\n");
+        
+        assertThat(reservaCarrito.getEstado()).isEqualTo(ReservaCarrito.EstadoReservaCarrito.CONFIRMADA);
+        verify(agendaEmprendedorService).registrarCambios(List.of(20L));
+    }
+    
+    private void ejecutarTransaccionesEnLinea() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocacion ->
+                invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+    
+    private List<ConciliacionPagoService.ResultadoLinea> conciliar(String extracto) throws Exception {
+        List<ConciliacionPagoService.ResultadoLinea> resultados = new ArrayList<>();
+        conciliacionPagoService.conciliar(new BufferedReader(new StringReader(extracto)), admin, resultados::add);
+        return resultados;
+    }
+    
+    private Pago pago(Pago.EstadoPago estado) {
+        return Pago.builder()
+                .id(1L)
+                .codigoPago("PAG-1")
+                .monto(new BigDecimal("150.00"))
+                .metodoPago(Pago.MetodoPago.EFECTIVO)
+                .estado(estado)
+                .reserva(reserva)
+                .build();
+    }
+}
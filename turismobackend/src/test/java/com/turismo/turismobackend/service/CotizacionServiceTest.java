@@ -0,0 +1,149 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.request.CotizacionPlanRequest;
+import com.turismo.turismobackend.dto.request.ReservaServicioRequest;
+import com.turismo.turismobackend.dto.response.CotizacionResponse;
+import com.turismo.turismobackend.repository.CarritoRepository;
+import com.turismo.turismobackend.repository.CotizacionUsadaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CotizacionServiceTest {
+    
+    private static final Long USUARIO_ID = 1L;
+    private static final Long PLAN_ID = 10L;
+    private static final Long OPCIONAL_ID = 20L;
+    
+    @Mock
+    private TarifaService tarifaService;
+    @Mock
+    private NivelClienteService nivelClienteService;
+    @Mock
+    private CarritoRepository carritoRepository;
+    @Mock
+    private AuthContext authContext;
+    @Mock
+    private CotizacionUsadaRepository cotizacionUsadaRepository;
+    
+    @InjectMocks
+    private CotizacionService cotizacionService;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cotizacionService, "claveFirma", "clave-cotizaciones");
+        ReflectionTestUtils.setField(cotizacionService, "claveJwt", "clave-jwt");
+        ReflectionTestUtils.setField(cotizacionService, "vigenciaMinutos", 15L);
+    }
+    
+    @Test
+    void sinTokenSeCobraComoAntesSinAjustesPorPersonalizacion() {
+        when(tarifaService.getTarifaPlan(PLAN_ID)).thenReturn(tarifa(true));
+        when(nivelClienteService.esClienteFrecuente(USUARIO_ID)).thenReturn(true);
+        
+        CotizacionService.Importes importes = cotizacionService.importesPlan(USUARIO_ID, PLAN_ID, 5,
+                List.of(incluir(OPCIONAL_ID)), null);
+        
+        // Cálculo previo: precio del plan × personas; 10% por grupo y 5% por cliente frecuente,
+        // ambos sobre el precio de una persona
+        BigDecimal precio = new BigDecimal("123.45");
+        BigDecimal total = precio.multiply(BigDecimal.valueOf(5));
+        BigDecimal descuento = precio.multiply(new BigDecimal("0.10")).add(precio.multiply(new BigDecimal("0.05")));
+        assertThat(importes.montoTotal()).isEqualByComparingTo(total);
+        assertThat(importes.montoDescuento()).isEqualByComparingTo(descuento.setScale(2, RoundingMode.HALF_UP));
+        verify(cotizacionUsadaRepository, never()).registrar(anyString(), any());
+    }
+    
+    @Test
+    void conTokenSeUsanLosMontosCotizadosUnaSolaVez() {
+        when(authContext.getUsuarioId()).thenReturn(USUARIO_ID);
+        when(tarifaService.getTarifaPlan(PLAN_ID)).thenReturn(tarifa(true));
+        when(cotizacionUsadaRepository.registrar(anyString(), any(LocalDateTime.class))).thenReturn(1, 0);
+        
+        CotizacionResponse cotizacion = cotizacionService.cotizarPlan(solicitud());
+        CotizacionService.Importes importes = cotizacionService.importesPlan(USUARIO_ID, PLAN_ID, 2,
+                List.of(incluir(OPCIONAL_ID)), cotizacion.getToken());
+        
+        // El opcional elegido suma su precio: (123.45 + 20.00) × 2
+        assertThat(importes.montoFinal()).isEqualByComparingTo(cotizacion.getMontoFinal());
+        assertThat(importes.montoTotal()).isEqualByComparingTo("286.90");
+        assertThatThrownBy(() -> cotizacionService.importesPlan(USUARIO_ID, PLAN_ID, 2,
+                List.of(incluir(OPCIONAL_ID)), cotizacion.getToken()))
+                .hasMessageContaining("ya se usó");
+    }
+    
+    @Test
+    void conTokenSeRechazaSiElPlanYaNoEstaActivo() {
+        when(authContext.getUsuarioId()).thenReturn(USUARIO_ID);
+        when(tarifaService.getTarifaPlan(PLAN_ID)).thenReturn(tarifa(true), tarifa(false));
+        
+        CotizacionResponse cotizacion = cotizacionService.cotizarPlan(solicitud());
+        
+        assertThatThrownBy(() -> cotizacionService.importesPlan(USUARIO_ID, PLAN_ID, 2,
+                List.of(incluir(OPCIONAL_ID)), cotizacion.getToken()))
+                .hasMessageContaining("no está disponible");
+        verify(cotizacionUsadaRepository, never()).registrar(anyString(), any());
+    }
+    
+    @Test
+    void unTokenFirmadoConOtraClaveNoEsValido() {
+        when(authContext.getUsuarioId()).thenReturn(USUARIO_ID);
+        when(tarifaService.getTarifaPlan(PLAN_ID)).thenReturn(tarifa(true));
+        CotizacionResponse cotizacion = cotizacionService.cotizarPlan(solicitud());
+        
+        ReflectionTestUtils.setField(cotizacionService, "claveFirma", "otra-clave");
+        
+        assertThatThrownBy(() -> cotizacionService.importesPlan(USUARIO_ID, PLAN_ID, 2,
+                List.of(incluir(OPCIONAL_ID)), cotizacion.getToken()))
+                .hasMessageContaining("no es válida");
+    }
+    
+    @Test
+    void laClaveDeFirmaEsObligatoriaYDistintaDeLaDeJwt() {
+        ReflectionTestUtils.setField(cotizacionService, "claveFirma", "");
+        assertThatThrownBy(() -> cotizacionService.validarClaveFirma()).isInstanceOf(IllegalStateException.class);
+        
+        ReflectionTestUtils.setField(cotizacionService, "claveFirma", "clave-jwt");
+        assertThatThrownBy(() -> cotizacionService.validarClaveFirma()).isInstanceOf(IllegalStateException.class);
+        
+        ReflectionTestUtils.setField(cotizacionService, "claveFirma", "clave-cotizaciones");
+        cotizacionService.validarClaveFirma();
+    }
+    
+    private static CotizacionPlanRequest solicitud() {
+        return CotizacionPlanRequest.builder()
+                .planId(PLAN_ID)
+                .numeroPersonas(2)
+                .serviciosPersonalizados(List.of(incluir(OPCIONAL_ID)))
+                .build();
+    }
+    
+    private static ReservaServicioRequest incluir(Long servicioPlanId) {
+        return ReservaServicioRequest.builder().servicioPlanId(servicioPlanId).incluido(true).build();
+    }
+    
+    private static TarifaService.TarifaPlan tarifa(boolean activo) {
+        return new TarifaService.TarifaPlan(PLAN_ID, "Islas", activo, 12_345,
+                Map.of(OPCIONAL_ID, new TarifaService.TarifaServicio("Kayak", true, false, 2_000)));
+    }
+}
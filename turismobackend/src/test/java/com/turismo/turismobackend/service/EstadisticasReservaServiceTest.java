@@ -0,0 +1,138 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.response.EstadisticasReservaResponse;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.EstadisticaReservaRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EstadisticasReservaServiceTest {
+    
+    private static final LocalDateTime FECHA = LocalDateTime.of(2026, 3, 10, 9, 0);
+    
+    @Mock
+    private EstadisticaReservaRepository estadisticaReservaRepository;
+    @Mock
+    private ReservaRepository reservaRepository;
+    @Mock
+    private ReservaCarritoRepository reservaCarritoRepository;
+    @Mock
+    private ReservaCarritoItemRepository reservaCarritoItemRepository;
+    @Mock
+    private EmprendedorRepository emprendedorRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private AuthContext authContext;
+    
+    @InjectMocks
+    private EstadisticasReservaService estadisticasReservaService;
+    
+    @Test
+    void checkpointGuardaSoloLoSumadoDesdeElAnterior() {
+        ejecutarTransacciones();
+        
+        estadisticasReservaService.onReservaTransicion(reservaPlan(1L));
+        estadisticasReservaService.checkpoint();
+        estadisticasReservaService.onReservaTransicion(reservaPlan(2L));
+        estadisticasReservaService.checkpoint();
+        
+        // Dos incrementos de 1 en lugar del valor absoluto 2, que pisaría lo guardado por otra instancia
+        verify(estadisticaReservaRepository, times(2))
+                .acumular("PLAN", "GLOBAL", 0L, EstadisticasReservaService.PERIODO_TOTAL, "PENDIENTE", 1L, 10000L);
+    }
+    
+    @Test
+    void reservaDeCarritoCuentaUnaVezPorMunicipalidad() {
+        when(emprendedorRepository.findMunicipalidadIds(any())).thenReturn(List.of(
+                new Object[]{7L, 5L}, new Object[]{8L, 5L}));
+        
+        estadisticasReservaService.onReservaTransicion(new ReservaTransicionEvent(ReservaTransicionEvent.Fuente.CARRITO,
+                1L, 10L, null, Map.of(7L, new BigDecimal("30.00"), 8L, new BigDecimal("70.00")), FECHA,
+                new BigDecimal("100.00"), null, "PENDIENTE"));
+        
+        EstadisticasReservaResponse estadisticas = estadisticasReservaService.getEstadisticas(ReservaTransicionEvent.Fuente.CARRITO,
+                EstadisticasReservaService.Ambito.MUNICIPALIDAD, 5L, null);
+        assertThat(estadisticas.getReservasPorEstado()).containsEntry("PENDIENTE", 1L);
+        assertThat(estadisticas.getMontoTotal()).isEqualByComparingTo("100.00");
+    }
+    
+    @Test
+    void losItemsCanceladosDeUnaReservaActivaSeCuentanAparte() {
+        when(emprendedorRepository.findMunicipalidadIds(any())).thenReturn(List.<Object[]>of(new Object[]{7L, 5L}));
+        
+        estadisticasReservaService.onReservaItemsCancelados(new ReservaItemsCanceladosEvent(List.of(
+                new ReservaItemsCanceladosEvent.ItemsCancelados(1L, 10L, 7L, List.of(500L, 501L),
+                        new BigDecimal("45.00"), FECHA))));
+        
+        EstadisticasReservaResponse estadisticas = estadisticasReservaService.getEstadisticas(ReservaTransicionEvent.Fuente.CARRITO,
+                EstadisticasReservaService.Ambito.MUNICIPALIDAD, 5L, "2026-03");
+        assertThat(estadisticas.getItemsCancelados()).isEqualTo(2L);
+        assertThat(estadisticas.getMontoItemsCancelados()).isEqualByComparingTo("45.00");
+        // La reserva no cambió de estado
+        assertThat(estadisticas.getTotalReservas()).isZero();
+        assertThat(estadisticas.getReservasPorEstado()).doesNotContainKey(EstadisticasReservaService.ITEMS_CANCELADOS);
+        assertThat(estadisticasReservaService.getEstadisticas(ReservaTransicionEvent.Fuente.CARRITO,
+                EstadisticasReservaService.Ambito.EMPRENDEDOR, 7L, null).getItemsCancelados()).isEqualTo(2L);
+    }
+    
+    @Test
+    void reconstruirConservaLasTransicionesQueLleganMientrasRecalcula() {
+        ejecutarTransacciones();
+        estadisticasReservaService.onReservaTransicion(reservaPlan(1L));
+        when(reservaRepository.sumarEstadisticasPorUsuarioYMunicipalidad()).thenAnswer(invocacion -> {
+            // Una reserva confirmada durante el recálculo, que las consultas ya no ven
+            estadisticasReservaService.onReservaTransicion(reservaPlan(3L));
+            return List.<Object[]>of(new Object[]{10L, 5L, 2026, 3, Reserva.EstadoReserva.PENDIENTE, 2L, new BigDecimal("200.00")});
+        });
+        
+        estadisticasReservaService.reconstruir();
+        
+        verify(estadisticaReservaRepository).eliminarTodo();
+        verify(estadisticaReservaRepository)
+                .acumular("PLAN", "GLOBAL", 0L, EstadisticasReservaService.PERIODO_TOTAL, "PENDIENTE", 2L, 20000L);
+        assertThat(estadisticasReservaService.getEstadisticas(ReservaTransicionEvent.Fuente.PLAN,
+                EstadisticasReservaService.Ambito.GLOBAL, 0L, null).getReservasPorEstado()).containsEntry("PENDIENTE", 3L);
+        
+        // Lo pendiente antes de reconstruir ya está en la tabla; solo queda la transición posterior
+        estadisticasReservaService.checkpoint();
+        verify(estadisticaReservaRepository)
+                .acumular("PLAN", "GLOBAL", 0L, EstadisticasReservaService.PERIODO_TOTAL, "PENDIENTE", 1L, 10000L);
+    }
+    
+    private void ejecutarTransacciones() {
+        doAnswer(invocacion -> {
+            invocacion.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+    
+    private static ReservaTransicionEvent reservaPlan(Long reservaId) {
+        return new ReservaTransicionEvent(ReservaTransicionEvent.Fuente.PLAN, reservaId, 10L, 5L, Map.of(), FECHA,
+                new BigDecimal("100.00"), null, "PENDIENTE");
+    }
+}
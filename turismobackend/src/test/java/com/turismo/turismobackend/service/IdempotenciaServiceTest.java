@@ -0,0 +1,151 @@
+package com.turismo.turismobackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.exception.IdempotenciaException;
+import com.turismo.turismobackend.model.RespuestaIdempotente;
+import com.turismo.turismobackend.repository.RespuestaIdempotenteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotenciaServiceTest {
+    
+    private static final Long RECLAMO_ID = 5L;
+    
+    @Mock
+    private RespuestaIdempotenteRepository respuestaIdempotenteRepository;
+    @Mock
+    private AuthContext authContext;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    private IdempotenciaService idempotenciaService;
+    private final AtomicBoolean enTransaccion = new AtomicBoolean();
+    
+    @BeforeEach
+    void setUp() {
+        idempotenciaService = new IdempotenciaService(respuestaIdempotenteRepository, new ObjectMapper(),
+                authContext, transactionTemplate);
+        ReflectionTestUtils.setField(idempotenciaService, "ttlHoras", 24L);
+        ReflectionTestUtils.setField(idempotenciaService, "enCursoSegundos", 60L);
+        ReflectionTestUtils.setField(idempotenciaService, "memoriaMinutos", 10L);
+        when(authContext.getUsuarioId()).thenReturn(1L);
+        when(respuestaIdempotenteRepository.findByClave(anyString())).thenReturn(Optional.empty());
+        when(respuestaIdempotenteRepository.saveAndFlush(any(RespuestaIdempotente.class))).thenAnswer(invocacion -> {
+            RespuestaIdempotente respuesta = invocacion.getArgument(0);
+            respuesta.setId(RECLAMO_ID);
+            return respuesta;
+        });
+        when(transactionTemplate.execute(any())).thenAnswer(invocacion -> {
+            enTransaccion.set(true);
+            try {
+                return invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+            } finally {
+                enTransaccion.set(false);
+            }
+        });
+    }
+    
+    @Test
+    void laRespuestaSeGuardaEnLaMismaTransaccionQueLaEscritura() {
+        AtomicBoolean accionEnTransaccion = new AtomicBoolean();
+        AtomicBoolean completarEnTransaccion = new AtomicBoolean();
+        when(respuestaIdempotenteRepository.completar(eq(RECLAMO_ID), eq(201), anyString(), any(LocalDateTime.class)))
+                .thenAnswer(invocacion -> {
+                    completarEnTransaccion.set(enTransaccion.get());
+                    return 1;
+                });
+        
+        ResponseEntity<Map> respuesta = ejecutar("clave-1", () -> {
+            accionEnTransaccion.set(enTransaccion.get());
+            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("id", 7));
+        });
+        
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(accionEnTransaccion).isTrue();
+        assertThat(completarEnTransaccion).isTrue();
+        verify(respuestaIdempotenteRepository, never()).liberar(any());
+    }
+    
+    @Test
+    void siNoSePuedeGuardarLaRespuestaSeLiberaLaClaveYSePuedeReintentar() {
+        when(respuestaIdempotenteRepository.completar(eq(RECLAMO_ID), anyInt(), anyString(), any(LocalDateTime.class)))
+                .thenThrow(new DataAccessResourceFailureException("sin conexión"))
+                .thenReturn(1);
+        AtomicInteger ejecuciones = new AtomicInteger();
+        
+        assertThatThrownBy(() -> ejecutar("clave-2", () -> {
+            ejecuciones.incrementAndGet();
+            return ResponseEntity.ok(Map.of("id", 7));
+        })).isInstanceOf(DataAccessResourceFailureException.class);
+        verify(respuestaIdempotenteRepository).liberar(RECLAMO_ID);
+        
+        // La escritura se revirtió con la transacción: el reintento vuelve a ejecutarla
+        ResponseEntity<Map> respuesta = ejecutar("clave-2", () -> {
+            ejecuciones.incrementAndGet();
+            return ResponseEntity.ok(Map.of("id", 7));
+        });
+        assertThat(respuesta.getHeaders().containsKey(IdempotenciaService.CABECERA_REPETIDA)).isFalse();
+        assertThat(ejecuciones).hasValue(2);
+    }
+    
+    @Test
+    void unaReclamacionVencidaRevierteLaEscrituraConConflicto() {
+        when(respuestaIdempotenteRepository.completar(eq(RECLAMO_ID), anyInt(), anyString(), any(LocalDateTime.class)))
+                .thenReturn(0);
+        
+        assertThatThrownBy(() -> ejecutar("clave-3", () -> ResponseEntity.ok(Map.of("id", 7))))
+                .isInstanceOf(IdempotenciaException.class)
+                .satisfies(e -> assertThat(((IdempotenciaException) e).getStatus()).isEqualTo(HttpStatus.CONFLICT));
+        verify(respuestaIdempotenteRepository).liberar(RECLAMO_ID);
+    }
+    
+    @Test
+    void laReclamacionSeRenuevaMientrasLaPeticionSigueEnCurso() {
+        when(respuestaIdempotenteRepository.completar(eq(RECLAMO_ID), anyInt(), anyString(), any(LocalDateTime.class)))
+                .thenReturn(1);
+        
+        ejecutar("clave-4", () -> {
+            idempotenciaService.renovar();
+            return ResponseEntity.ok(Map.of("id", 7));
+        });
+        verify(respuestaIdempotenteRepository).renovar(eq(List.of(RECLAMO_ID)), any(LocalDateTime.class));
+        
+        // Terminada la petición ya no hay nada que renovar
+        idempotenciaService.renovar();
+        verify(respuestaIdempotenteRepository).renovar(any(), any());
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private ResponseEntity<Map> ejecutar(String clave, Supplier<ResponseEntity<Map>> accion) {
+        return idempotenciaService.ejecutar(clave, "crear", Map.of("servicioId", 3), Map.class, accion);
+    }
+}
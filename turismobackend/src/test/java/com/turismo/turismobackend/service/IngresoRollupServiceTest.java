@@ -0,0 +1,114 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.Municipalidad;
+import com.turismo.turismobackend.model.Pago;
+import com.turismo.turismobackend.model.PagoCarrito;
+import com.turismo.turismobackend.model.PlanTuristico;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.ReservaCarrito;
+import com.turismo.turismobackend.repository.IngresoDiarioRepository;
+import com.turismo.turismobackend.repository.IngresoReconstruccionRepository;
+import com.turismo.turismobackend.repository.PagoCarritoRepository;
+import com.turismo.turismobackend.repository.PagoRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngresoRollupServiceTest {
+    
+    private static final LocalDate HOY = LocalDate.of(2026, 3, 10);
+    
+    @Mock
+    private IngresoDiarioRepository ingresoDiarioRepository;
+    @Mock
+    private IngresoReconstruccionRepository ingresoReconstruccionRepository;
+    @Mock
+    private PagoRepository pagoRepository;
+    @Mock
+    private PagoCarritoRepository pagoCarritoRepository;
+    @Mock
+    private ReservaCarritoItemRepository reservaCarritoItemRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    @InjectMocks
+    private IngresoRollupService ingresoRollupService;
+    
+    @Test
+    void pagoDeCarritoRepartidoCuentaUnaSolaVez() {
+        PagoCarrito pago = PagoCarrito.builder()
+                .id(1L)
+                .monto(new BigDecimal("100.00"))
+                .metodoPago(Pago.MetodoPago.EFECTIVO)
+                .reservaCarrito(ReservaCarrito.builder().id(20L).build())
+                .build();
+        when(reservaCarritoItemRepository.findRepartoIngresos(List.of(20L))).thenReturn(List.of(
+                new Object[]{20L, 7L, 5L, new BigDecimal("30.00"), 1},
+                new Object[]{20L, 8L, 5L, new BigDecimal("70.00"), 1}));
+        
+        ingresoRollupService.registrarPagosConfirmados(List.of(), List.of(pago), HOY);
+        
+        // La cantidad va solo a la parte mayor; el monto se reparte entre ambos emprendedores
+        verify(ingresoReconstruccionRepository).bloquearCompartido();
+        verify(ingresoDiarioRepository).acumular(5L, 7L, HOY, "EFECTIVO", 3000L, 0, 0L, 0);
+        verify(ingresoDiarioRepository).acumular(5L, 8L, HOY, "EFECTIVO", 7000L, 1, 0L, 0);
+    }
+    
+    @Test
+    void reembolsoSumaSoloAlReembolsadoDelDiaDeConfirmacion() {
+        Pago pago = Pago.builder()
+                .id(1L)
+                .monto(new BigDecimal("150.00"))
+                .metodoPago(Pago.MetodoPago.TRANSFERENCIA)
+                .fechaConfirmacion(HOY.atTime(9, 30))
+                .reserva(Reserva.builder()
+                        .plan(PlanTuristico.builder().municipalidad(Municipalidad.builder().id(5L).build()).build())
+                        .build())
+                .build();
+        
+        ingresoRollupService.registrarPagosReembolsados(List.of(pago), List.of());
+        
+        verify(ingresoDiarioRepository).acumular(5L, 0L, HOY, "TRANSFERENCIA", 0L, 0, 15000L, 1);
+    }
+    
+    @Test
+    void reconstruccionBloqueaLasActualizacionesYVaEnUnaSolaTransaccion() {
+        ReflectionTestUtils.setField(ingresoRollupService, "tamanoLote", 100);
+        when(transactionTemplate.execute(any())).thenAnswer(invocacion ->
+                invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        List<Object[]> historico = List.<Object[]>of(new Object[]{3L, new BigDecimal("50.00"), Pago.MetodoPago.EFECTIVO,
+                HOY.atStartOfDay(), 5L, Pago.EstadoPago.REEMBOLSADO});
+        when(pagoRepository.findHistoricoIngresos(anyLong(), any(Pageable.class))).thenReturn(historico, List.of());
+        when(pagoCarritoRepository.findHistoricoIngresos(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        when(ingresoDiarioRepository.count()).thenReturn(1L);
+        
+        assertThat(ingresoRollupService.reconstruir()).containsEntry("pagos", 1L).containsEntry("filas", 1L);
+        
+        InOrder orden = inOrder(ingresoReconstruccionRepository, ingresoDiarioRepository);
+        orden.verify(ingresoReconstruccionRepository).bloquearExclusivo();
+        orden.verify(ingresoDiarioRepository).eliminarTodo();
+        orden.verify(ingresoDiarioRepository).acumular(5L, 0L, HOY, "EFECTIVO", 5000L, 1, 5000L, 1);
+        orden.verify(ingresoReconstruccionRepository).registrarReconstruccion(any(LocalDateTime.class));
+    }
+}
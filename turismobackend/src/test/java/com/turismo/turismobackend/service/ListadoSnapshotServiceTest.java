@@ -0,0 +1,85 @@
+package com.turismo.turismobackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ListadoSnapshotServiceTest {
+    
+    @Mock
+    private CatalogoVersionService catalogoVersionService;
+    
+    private ListadoSnapshotService listadoSnapshotService;
+    
+    @BeforeEach
+    void setUp() {
+        listadoSnapshotService = new ListadoSnapshotService(new ObjectMapper(), catalogoVersionService,
+                new ThreadPoolTaskExecutor());
+    }
+    
+    @Test
+    void peticionesConcurrentesCompartenUnaSolaGeneracion() throws Exception {
+        when(catalogoVersionService.etagListado(CatalogoModificadoEvent.Tipo.PLAN)).thenReturn("\"plan-1.0.0.0\"");
+        AtomicInteger generaciones = new AtomicInteger();
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        
+        Runnable peticion = () -> listadoSnapshotService.obtener("planes", CatalogoModificadoEvent.Tipo.PLAN, () -> {
+            generaciones.incrementAndGet();
+            iniciada.countDown();
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of("Titicaca");
+        });
+        AtomicReference<ListadoSnapshotService.Snapshot> segunda = new AtomicReference<>();
+        Thread primera = new Thread(peticion);
+        primera.start();
+        assertThat(iniciada.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread otra = new Thread(() -> segunda.set(listadoSnapshotService.obtener("planes",
+                CatalogoModificadoEvent.Tipo.PLAN, () -> {
+                    generaciones.incrementAndGet();
+                    return List.of();
+                })));
+        otra.start();
+        // La segunda petición queda esperando la generación en curso
+        long limite = System.currentTimeMillis() + 5000;
+        while (otra.getState() != Thread.State.WAITING && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        liberar.countDown();
+        primera.join(5000);
+        otra.join(5000);
+        
+        assertThat(generaciones.get()).isEqualTo(1);
+        assertThat(new String(segunda.get().json())).isEqualTo("[\"Titicaca\"]");
+    }
+    
+    @Test
+    void gzipSoloSiElClienteLoAceptaConCalidadPositiva() {
+        assertThat(ListadoSnapshotService.Snapshot.aceptaGzip("gzip, deflate, br")).isTrue();
+        assertThat(ListadoSnapshotService.Snapshot.aceptaGzip("GZIP;q=0.8")).isTrue();
+        assertThat(ListadoSnapshotService.Snapshot.aceptaGzip("deflate, *;q=0.5")).isTrue();
+        assertThat(ListadoSnapshotService.Snapshot.aceptaGzip("gzip;q=0")).isFalse();
+        assertThat(ListadoSnapshotService.Snapshot.aceptaGzip("gzip; q=0.0, deflate")).isFalse();
+        assertThat(ListadoSnapshotService.Snapshot.aceptaGzip("*, gzip;q=0")).isFalse();
+        assertThat(ListadoSnapshotService.Snapshot.aceptaGzip("br, identity")).isFalse();
+        assertThat(ListadoSnapshotService.Snapshot.aceptaGzip(null)).isFalse();
+    }
+}
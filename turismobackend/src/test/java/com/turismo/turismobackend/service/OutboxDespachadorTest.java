@@ -0,0 +1,81 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.repository.EventoOutboxEntregaRepository;
+import com.turismo.turismobackend.repository.EventoOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDespachadorTest {
+    
+    @Mock
+    private EventoOutboxRepository eventoOutboxRepository;
+    @Mock
+    private EventoOutboxEntregaRepository eventoOutboxEntregaRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    private ThreadPoolTaskExecutor outboxExecutor;
+    private OutboxDespachador outboxDespachador;
+    
+    @BeforeEach
+    void setUp() {
+        // Un hilo y una tarea en cola, como el bean con application.outbox.hilos=1 y cola-maxima=1
+        outboxExecutor = new ThreadPoolTaskExecutor();
+        outboxExecutor.setCorePoolSize(1);
+        outboxExecutor.setMaxPoolSize(1);
+        outboxExecutor.setQueueCapacity(1);
+        outboxExecutor.initialize();
+        outboxDespachador = new OutboxDespachador(eventoOutboxRepository, eventoOutboxEntregaRepository, List.of(),
+                transactionTemplate, outboxExecutor);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        outboxExecutor.shutdown();
+    }
+    
+    @Test
+    void conLaColaLlenaElEventoQuedaParaLaTareaProgramada() throws InterruptedException {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch ocupado = new CountDownLatch(1);
+        outboxExecutor.execute(() -> {
+            ocupado.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(ocupado.await(5, TimeUnit.SECONDS)).isTrue();
+        // El evento 1 espera en la cola; no hay sitio para el 2
+        when(eventoOutboxRepository.bloquear(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(0);
+        
+        outboxDespachador.onEventoRegistrado(new EventoOutboxRegistrado(1L));
+        assertThatCode(() -> outboxDespachador.onEventoRegistrado(new EventoOutboxRegistrado(2L))).doesNotThrowAnyException();
+        
+        liberar.countDown();
+        verify(eventoOutboxRepository, timeout(5000)).bloquear(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(eventoOutboxRepository, never()).bloquear(eq(2L), any(), any());
+    }
+}
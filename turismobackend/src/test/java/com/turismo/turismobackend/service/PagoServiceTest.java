@@ -0,0 +1,107 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.model.Municipalidad;
+import com.turismo.turismobackend.model.Pago;
+import com.turismo.turismobackend.model.PlanTuristico;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.PagoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PagoServiceTest {
+    
+    @Mock
+    private PagoRepository pagoRepository;
+    @Mock
+    private ReservaRepository reservaRepository;
+    @Mock
+    private AuthContext authContext;
+    @Mock
+    private IngresoRollupService ingresoRollupService;
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @InjectMocks
+    private PagoService pagoService;
+    
+    @Test
+    void listadoPorMunicipalidadSigueReservadoAlAdmin() {
+        when(authContext.getUsuario()).thenReturn(Usuario.builder().id(2L).build());
+        when(authContext.hasRole("ROLE_ADMIN")).thenReturn(false);
+        
+        assertThatThrownBy(() -> pagoService.getPagosByMunicipalidad(5L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("No tiene permisos");
+        verifyNoInteractions(pagoRepository);
+    }
+    
+    @Test
+    void adminVeLosPagosDeCualquierMunicipalidad() {
+        when(authContext.getUsuario()).thenReturn(Usuario.builder().id(1L).build());
+        when(authContext.hasRole("ROLE_ADMIN")).thenReturn(true);
+        when(pagoRepository.findByMunicipalidadId(5L)).thenReturn(List.of());
+        
+        assertThat(pagoService.getPagosByMunicipalidad(5L)).isEmpty();
+    }
+    
+    @Test
+    void reembolsoActualizaElResumenDeIngresosYElMontoPagado() {
+        Reserva reserva = Reserva.builder()
+                .id(10L)
+                .plan(PlanTuristico.builder()
+                        .id(100L)
+                        .municipalidad(Municipalidad.builder().id(5L).build())
+                        .usuarioCreador(Usuario.builder().id(9L).build())
+                        .build())
+                .montoPagado(new BigDecimal("150.00"))
+                .build();
+        Pago pago = Pago.builder()
+                .id(1L)
+                .monto(new BigDecimal("150.00"))
+                .estado(Pago.EstadoPago.CONFIRMADO)
+                .reserva(reserva)
+                .build();
+        when(pagoRepository.findById(1L)).thenReturn(Optional.of(pago));
+        when(pagoRepository.save(pago)).thenReturn(pago);
+        when(authContext.getUsuario()).thenReturn(Usuario.builder().id(1L).build());
+        when(authContext.hasRole("ROLE_ADMIN")).thenReturn(true);
+        
+        assertThat(pagoService.reembolsarPago(1L, "Cancelación del cliente").getEstado())
+                .isEqualTo(Pago.EstadoPago.REEMBOLSADO);
+        assertThat(reserva.getMontoPagado()).isEqualByComparingTo(BigDecimal.ZERO);
+        verify(ingresoRollupService).registrarPagosReembolsados(List.of(pago), List.of());
+    }
+    
+    @Test
+    void soloSeReembolsanPagosConfirmados() {
+        Pago pago = Pago.builder().id(1L).estado(Pago.EstadoPago.PENDIENTE).reserva(Reserva.builder().build()).build();
+        when(pagoRepository.findById(1L)).thenReturn(Optional.of(pago));
+        when(authContext.getUsuario()).thenReturn(Usuario.builder().id(1L).build());
+        when(authContext.hasRole("ROLE_ADMIN")).thenReturn(true);
+        
+        assertThatThrownBy(() -> pagoService.reembolsarPago(1L, "Duplicado"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("confirmados");
+        verifyNoInteractions(ingresoRollupService);
+    }
+}
@@ -0,0 +1,164 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.request.PlanTuristicoRequest;
+import com.turismo.turismobackend.dto.request.ServicioPlanRequest;
+import com.turismo.turismobackend.dto.response.PlanTuristicoResponse;
+import com.turismo.turismobackend.model.Municipalidad;
+import com.turismo.turismobackend.model.PlanTuristico;
+import com.turismo.turismobackend.model.ServicioPlan;
+import com.turismo.turismobackend.model.ServicioTuristico;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.MunicipalidadRepository;
+import com.turismo.turismobackend.repository.PlanTuristicoRepository;
+import com.turismo.turismobackend.repository.ServicioPlanRepository;
+import com.turismo.turismobackend.repository.ServicioTuristicoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PlanTuristicoServiceTest {
+    
+    @Mock
+    private PlanTuristicoRepository planRepository;
+    @Mock
+    private ServicioTuristicoRepository servicioRepository;
+    @Mock
+    private ServicioPlanRepository servicioPlanRepository;
+    @Mock
+    private MunicipalidadRepository municipalidadRepository;
+    @Mock
+    private PopularidadService popularidadService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private AuthContext authContext;
+    
+    @InjectMocks
+    private PlanTuristicoService planTuristicoService;
+    
+    private Usuario creador;
+    private ServicioTuristico servicio;
+    private PlanTuristico plan;
+    
+    @BeforeEach
+    void setUp() {
+        creador = Usuario.builder().id(1L).username("creador").build();
+        servicio = ServicioTuristico.builder().id(10L).nombre("Paseo").precio(new BigDecimal("50.00")).build();
+        plan = PlanTuristico.builder()
+                .id(100L)
+                .nombre("Plan")
+                .usuarioCreador(creador)
+                .municipalidad(Municipalidad.builder().id(5L).nombre("Capachica").build())
+                .servicios(new ArrayList<>())
+                .reservas(new ArrayList<>())
+                .build();
+    }
+    
+    @Test
+    void updatePlanRechazaServiciosRepetidosEnElMismoDiaYOrden() {
+        when(planRepository.findById(100L)).thenReturn(Optional.of(plan));
+        when(authContext.getUsuario()).thenReturn(creador);
+        
+        PlanTuristicoRequest request = request(List.of(servicioRequest(1, 1), servicioRequest(1, 1)));
+        
+        assertThatThrownBy(() -> planTuristicoService.updatePlan(100L, request))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("repetido");
+        verify(planRepository, never()).save(any());
+    }
+    
+    @Test
+    void updatePlanEliminaFilasExistentesRepetidas() {
+        ServicioPlan primera = servicioPlan(200L, 1, 1);
+        ServicioPlan repetida = servicioPlan(201L, 1, 1);
+        plan.getServicios().addAll(List.of(primera, repetida));
+        when(planRepository.findById(100L)).thenReturn(Optional.of(plan));
+        when(authContext.getUsuario()).thenReturn(creador);
+        when(servicioRepository.findAllById(anyIterable())).thenReturn(List.of(servicio));
+        when(servicioPlanRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(planRepository.save(plan)).thenReturn(plan);
+        
+        planTuristicoService.updatePlan(100L, request(List.of(servicioRequest(1, 1))));
+        
+        assertThat(plan.getServicios()).containsExactly(primera);
+        assertThat(plan.getPrecioTotal()).isEqualByComparingTo("50.00");
+    }
+    
+    @Test
+    void planesPopularesSigueRecorriendoElRankingHastaCompletarElLimite() {
+        PlanTuristico borrador = plan(1L, PlanTuristico.EstadoPlan.BORRADOR);
+        PlanTuristico inactivo = plan(2L, PlanTuristico.EstadoPlan.INACTIVO);
+        PlanTuristico activo = plan(3L, PlanTuristico.EstadoPlan.ACTIVO);
+        when(popularidadService.getTopPlanes(0, 2)).thenReturn(List.of(1L, 2L));
+        when(popularidadService.getTopPlanes(2, 2)).thenReturn(List.of(3L));
+        when(planRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(borrador, inactivo));
+        when(planRepository.findAllById(List.of(3L))).thenReturn(List.of(activo));
+        when(popularidadService.getTotalReservasPlan(3L)).thenReturn(7L);
+        
+        List<PlanTuristicoResponse> planes = planTuristicoService.getPlanesMasPopulares(1);
+        
+        assertThat(planes).extracting(PlanTuristicoResponse::getId).containsExactly(3L);
+        assertThat(planes.get(0).getTotalReservas()).isEqualTo(7);
+    }
+    
+    private PlanTuristico plan(Long id, PlanTuristico.EstadoPlan estado) {
+        return PlanTuristico.builder()
+                .id(id)
+                .nombre("Plan " + id)
+                .estado(estado)
+                .usuarioCreador(creador)
+                .municipalidad(plan.getMunicipalidad())
+                .build();
+    }
+    
+    private PlanTuristicoRequest request(List<ServicioPlanRequest> servicios) {
+        return PlanTuristicoRequest.builder()
+                .nombre("Plan")
+                .duracionDias(2)
+                .capacidadMaxima(10)
+                .nivelDificultad(PlanTuristico.NivelDificultad.FACIL)
+                .servicios(servicios)
+                .build();
+    }
+    
+    private ServicioPlanRequest servicioRequest(int dia, int orden) {
+        return ServicioPlanRequest.builder()
+                .servicioId(10L)
+                .diaDelPlan(dia)
+                .ordenEnElDia(orden)
+                .esOpcional(false)
+                .esPersonalizable(false)
+                .build();
+    }
+    
+    private ServicioPlan servicioPlan(Long id, int dia, int orden) {
+        return ServicioPlan.builder()
+                .id(id)
+                .plan(plan)
+                .servicio(servicio)
+                .diaDelPlan(dia)
+                .ordenEnElDia(orden)
+                .esOpcional(false)
+                .esPersonalizable(false)
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PopularidadServiceTest {
+    
+    @Mock
+    private ReservaRepository reservaRepository;
+    @Mock
+    private ReservaCarritoItemRepository reservaCarritoItemRepository;
+    
+    @InjectMocks
+    private PopularidadService popularidadService;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(popularidadService, "vidaMediaHoras", 1L);
+    }
+    
+    @Test
+    void cancelarRestaElMismoPesoQueSumoLaCargaInicial() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Object[]> reservas = List.of(
+                new Object[]{1L, 10L, ahora.minusHours(10)},
+                new Object[]{2L, 10L, ahora},
+                new Object[]{3L, 20L, ahora.minusHours(1)});
+        when(reservaRepository.findReservasActivasParaRanking(any(), any(Pageable.class))).thenReturn(reservas, List.of());
+        popularidadService.inicializar();
+        assertThat(popularidadService.getTopPlanes(0, 10)).containsExactly(10L, 20L);
+        
+        // Sin la reserva reciente el plan 10 solo conserva el peso de la antigua
+        popularidadService.cancelarReservaPlan(10L, ahora);
+        
+        assertThat(popularidadService.getTopPlanes(0, 10)).containsExactly(20L, 10L);
+        assertThat(popularidadService.getTotalReservasPlan(10L)).isEqualTo(1);
+    }
+    
+    @Test
+    void registrarYCancelarLaMismaReservaDejaElRankingVacio() {
+        LocalDateTime fechaReserva = LocalDateTime.now().plusHours(3);
+        popularidadService.registrarReservaServicio(5L, fechaReserva);
+        popularidadService.cancelarReservaServicio(5L, fechaReserva);
+        
+        assertThat(popularidadService.getTopServicios(0, 10)).isEmpty();
+    }
+    
+    @Test
+    void rebasarReescalaLosPuntajesSinCambiarLoQueRestaUnaCancelacion() {
+        LocalDateTime ahora = LocalDateTime.now();
+        ReflectionTestUtils.setField(popularidadService, "referencia", ahora.minusHours(20));
+        popularidadService.registrarReservaPlan(1L, ahora.minusHours(18));
+        popularidadService.registrarReservaPlan(1L, ahora.minusHours(18));
+        popularidadService.registrarReservaPlan(2L, ahora.minusHours(16));
+        
+        popularidadService.rebasar();
+        
+        assertThat((LocalDateTime) ReflectionTestUtils.getField(popularidadService, "referencia"))
+                .isAfter(ahora.minusMinutes(1));
+        popularidadService.registrarReservaPlan(3L, ahora.minusHours(3));
+        assertThat(popularidadService.getTopPlanes(0, 10)).containsExactly(3L, 2L, 1L);
+        
+        // La cancelación resta el peso con la referencia nueva: al plan 1 le queda 2^-18, más que 2^-19
+        popularidadService.cancelarReservaPlan(1L, ahora.minusHours(18));
+        popularidadService.cancelarReservaPlan(2L, ahora.minusHours(16));
+        popularidadService.registrarReservaPlan(4L, ahora.minusHours(19));
+        
+        assertThat(popularidadService.getTopPlanes(0, 10)).containsExactly(3L, 1L, 4L);
+        assertThat(popularidadService.getTotalReservasPlan(1L)).isEqualTo(1);
+    }
+    
+    @Test
+    void topRecorreDesdeLaPosicionIndicadaEIgnoraLimitesInvalidos() {
+        LocalDateTime ahora = LocalDateTime.now();
+        popularidadService.registrarReservaPlan(1L, ahora);
+        popularidadService.registrarReservaPlan(1L, ahora);
+        popularidadService.registrarReservaPlan(2L, ahora);
+        
+        assertThat(popularidadService.getTopPlanes(1, 5)).containsExactly(2L);
+        assertThat(popularidadService.getTopPlanes(0, 0)).isEmpty();
+        assertThat(popularidadService.getTopPlanes(0, -3)).isEmpty();
+        assertThat(popularidadService.getTopPlanes(-1, 5)).isEmpty();
+    }
+}
@@ -0,0 +1,86 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.repository.PlanTuristicoRepository;
+import com.turismo.turismobackend.repository.ServicioPlanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PrecioPlanServiceTest {
+    
+    private static final Long SERVICIO_ID = 4L;
+    
+    @Mock
+    private PlanTuristicoRepository planRepository;
+    @Mock
+    private ServicioPlanRepository servicioPlanRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    private PrecioPlanService precioPlanService;
+    
+    @BeforeEach
+    void setUp() {
+        precioPlanService = new PrecioPlanService(planRepository, servicioPlanRepository, transactionTemplate,
+                eventPublisher, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(precioPlanService, "tamanoLote", 2);
+    }
+    
+    @Test
+    void sumaSoloLaDiferenciaPorLotes() {
+        BigDecimal delta = new BigDecimal("15.00");
+        when(servicioPlanRepository.findPlanIdsConPrecioDeServicio(SERVICIO_ID)).thenReturn(List.of(1L, 2L, 3L));
+        when(planRepository.aplicarDiferenciaPrecio(eq(List.of(1L, 2L)), eq(SERVICIO_ID), eq(delta), any(LocalDateTime.class)))
+                .thenReturn(2);
+        when(planRepository.aplicarDiferenciaPrecio(eq(List.of(3L)), eq(SERVICIO_ID), eq(delta), any(LocalDateTime.class)))
+                .thenReturn(1);
+        
+        int planes = precioPlanService.propagarCambioPrecio(SERVICIO_ID, new BigDecimal("50.00"), new BigDecimal("65.00"));
+        
+        assertThat(planes).isEqualTo(3);
+        verify(planRepository, never()).recalcularPrecio(anyCollection(), any());
+    }
+    
+    @Test
+    void siUnPlanCambioALaVezSeRecalculaElLoteEnVezDeFallar() {
+        when(servicioPlanRepository.findPlanIdsConPrecioDeServicio(SERVICIO_ID)).thenReturn(List.of(1L, 2L));
+        // El plan 2 se borró entre la consulta y el UPDATE
+        when(planRepository.aplicarDiferenciaPrecio(eq(List.of(1L, 2L)), eq(SERVICIO_ID), any(BigDecimal.class),
+                any(LocalDateTime.class))).thenReturn(1);
+        
+        int planes = precioPlanService.propagarCambioPrecio(SERVICIO_ID, new BigDecimal("50.00"), new BigDecimal("40.00"));
+        
+        assertThat(planes).isEqualTo(2);
+        verify(planRepository).recalcularPrecio(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+    }
+    
+    @Test
+    void sinCambioDePrecioNoTocaLosPlanes() {
+        int planes = precioPlanService.propagarCambioPrecio(SERVICIO_ID, new BigDecimal("50.00"), new BigDecimal("50.0"));
+        
+        assertThat(planes).isZero();
+        verifyNoInteractions(servicioPlanRepository, planRepository);
+    }
+}
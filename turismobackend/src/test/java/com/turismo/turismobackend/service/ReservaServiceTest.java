@@ -0,0 +1,110 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.model.Municipalidad;
+import com.turismo.turismobackend.model.PlanTuristico;
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.PlanTuristicoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import com.turismo.turismobackend.repository.ReservaServicioRepository;
+import com.turismo.turismobackend.repository.ServicioPlanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReservaServiceTest {
+    
+    @Mock
+    private ReservaRepository reservaRepository;
+    @Mock
+    private PlanTuristicoRepository planRepository;
+    @Mock
+    private ServicioPlanRepository servicioPlanRepository;
+    @Mock
+    private ReservaServicioRepository reservaServicioRepository;
+    @Mock
+    private PopularidadService popularidadService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private AuthContext authContext;
+    @Mock
+    private CandadoCupoService candadoCupoService;
+    @Mock
+    private CotizacionService cotizacionService;
+    
+    @InjectMocks
+    private ReservaService reservaService;
+    
+    private Usuario usuarioMunicipalidad;
+    private Municipalidad municipalidad;
+    
+    @BeforeEach
+    void setUp() {
+        usuarioMunicipalidad = Usuario.builder().id(2L).username("muni").build();
+        municipalidad = Municipalidad.builder().id(5L).nombre("Capachica").usuario(usuarioMunicipalidad).build();
+    }
+    
+    @Test
+    void listadoPorMunicipalidadSigueReservadoAlAdmin() {
+        // perteneceAMunicipalidad aún no está implementado: ni el dueño de la municipalidad accede
+        when(authContext.getUsuario()).thenReturn(usuarioMunicipalidad);
+        when(authContext.hasRole("ROLE_ADMIN")).thenReturn(false);
+        
+        assertThatThrownBy(() -> reservaService.getReservasByMunicipalidad(5L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("No tiene permisos");
+        verifyNoInteractions(reservaRepository);
+    }
+    
+    @Test
+    void duenoDeLaMunicipalidadVeLasReservasDeSusPlanes() {
+        PlanTuristico plan = PlanTuristico.builder()
+                .id(100L)
+                .municipalidad(municipalidad)
+                .usuarioCreador(Usuario.builder().id(9L).build())
+                .build();
+        when(planRepository.findById(100L)).thenReturn(Optional.of(plan));
+        when(authContext.getUsuario()).thenReturn(usuarioMunicipalidad);
+        when(authContext.getMunicipalidadId()).thenReturn(5L);
+        
+        assertThat(reservaService.getReservasByPlan(100L)).isEmpty();
+    }
+    
+    @Test
+    void cancelarUnaReservaNoSeTrataComoCambioDelCatalogo() {
+        Usuario cliente = Usuario.builder().id(3L).username("cliente").build();
+        PlanTuristico plan = PlanTuristico.builder().id(100L).municipalidad(municipalidad).build();
+        Reserva reserva = Reserva.builder()
+                .id(7L)
+                .plan(plan)
+                .usuario(cliente)
+                .estado(Reserva.EstadoReserva.PENDIENTE)
+                .build();
+        when(reservaRepository.findById(7L)).thenReturn(Optional.of(reserva));
+        when(reservaRepository.save(reserva)).thenReturn(reserva);
+        when(authContext.getUsuario()).thenReturn(cliente);
+        
+        reservaService.cancelarReserva(7L, "Cambio de fechas");
+        
+        // El total de reservas de los planes se refresca de forma agrupada en CatalogoVersionService
+        verify(eventPublisher).publishEvent(any(ReservaTransicionEvent.class));
+        verify(eventPublisher, never()).publishEvent(any(CatalogoModificadoEvent.class));
+    }
+}
@@ -0,0 +1,75 @@
+package com.turismo.turismobackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuedaTemporizadoraTest {
+    
+    @Test
+    void nuncaVenceAntesDeTiempo() {
+        RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(10, 0);
+        // 25 ms cae a mitad del tick 3: se redondea hacia arriba
+        rueda.programar("reserva", 25);
+        
+        assertThat(rueda.avanzar(29)).isEmpty();
+        assertThat(rueda.avanzar(30)).containsExactly("reserva");
+    }
+    
+    @Test
+    void unVencimientoPasadoVenceEnElTickSiguiente() {
+        RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(10, 0);
+        rueda.avanzar(100);
+        
+        rueda.programar("atrasada", 50);
+        
+        assertThat(rueda.avanzar(109)).isEmpty();
+        assertThat(rueda.avanzar(110)).containsExactly("atrasada");
+    }
+    
+    @Test
+    void laCascadaEnLosLimitesDe64Y4096NoAdelantaNiRetrasa() {
+        RuedaTemporizadora<Long> rueda = new RuedaTemporizadora<>(1, 0);
+        long[] vencimientos = {1, 63, 64, 65, 127, 128, 4095, 4096, 4097, 4160, 8191, 8192, 262143, 262144, 262145};
+        for (long vencimiento : vencimientos) {
+            rueda.programar(vencimiento, vencimiento);
+        }
+        
+        // Avanzando de milisegundo en milisegundo, cada uno vence justo en su tick
+        Map<Long, Long> vencidoEn = new HashMap<>();
+        for (long ahora = 1; ahora <= 262145; ahora++) {
+            for (Long valor : rueda.avanzar(ahora)) {
+                vencidoEn.put(valor, ahora);
+            }
+        }
+        
+        assertThat(vencidoEn).hasSize(vencimientos.length);
+        vencidoEn.forEach((valor, ahora) -> assertThat(ahora).isEqualTo(valor));
+    }
+    
+    @Test
+    void losElementosMasAllaDelUltimoNivelVencenASuTiempo() {
+        // 64^4 ticks no caben en los cuatro niveles: quedan desbordados hasta la vuelta del último
+        long origen = 1000;
+        long vencimiento = origen + (1L << 24) + 5;
+        RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(1, origen);
+        rueda.programar("lejana", vencimiento);
+        
+        assertThat(rueda.avanzar(vencimiento - 1)).isEmpty();
+        assertThat(rueda.avanzar(vencimiento)).containsExactly("lejana");
+    }
+    
+    @Test
+    void avanzarSobreUnHuecoGrandeDevuelveTodoEnOrden() {
+        RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(1, 0);
+        rueda.programar("lejos", 300_000);
+        rueda.programar("cerca", 40);
+        rueda.programar("medio", 5_000);
+        
+        assertThat(rueda.avanzar(1_000_000)).containsExactly("cerca", "medio", "lejos");
+        assertThat(rueda.avanzar(2_000_000)).isEmpty();
+    }
+}
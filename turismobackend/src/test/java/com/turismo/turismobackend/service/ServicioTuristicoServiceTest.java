@@ -0,0 +1,111 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.config.AuthContext;
+import com.turismo.turismobackend.dto.request.ServicioTuristicoRequest;
+import com.turismo.turismobackend.dto.response.ServicioTuristicoResponse;
+import com.turismo.turismobackend.model.Emprendedor;
+import com.turismo.turismobackend.model.Municipalidad;
+import com.turismo.turismobackend.model.ServicioTuristico;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.ServicioTuristicoRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ServicioTuristicoServiceTest {
+    
+    @Mock
+    private ServicioTuristicoRepository servicioRepository;
+    @Mock
+    private EmprendedorRepository emprendedorRepository;
+    @Mock
+    private PopularidadService popularidadService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private AuthContext authContext;
+    @Mock
+    private PrecioPlanService precioPlanService;
+    
+    @InjectMocks
+    private ServicioTuristicoService servicioTuristicoService;
+    
+    @Test
+    void editarElPrecioLeeElServicioBloqueadoYPropagaLaDiferencia() {
+        Usuario usuario = Usuario.builder().id(1L).username("emprendedor").build();
+        Emprendedor emprendedor = Emprendedor.builder().id(2L).usuario(usuario)
+                .municipalidad(Municipalidad.builder().id(3L).nombre("Capachica").build()).build();
+        ServicioTuristico servicio = ServicioTuristico.builder().id(4L).nombre("Kayak")
+                .precio(new BigDecimal("50.00")).emprendedor(emprendedor).build();
+        when(servicioRepository.findByIdParaActualizar(4L)).thenReturn(Optional.of(servicio));
+        when(servicioRepository.saveAndFlush(servicio)).thenReturn(servicio);
+        when(authContext.getUsuario()).thenReturn(usuario);
+        ServicioTuristicoRequest request = new ServicioTuristicoRequest();
+        request.setNombre("Kayak");
+        request.setPrecio(new BigDecimal("65.00"));
+        
+        servicioTuristicoService.updateServicio(4L, request);
+        
+        // El precio nuevo queda escrito antes de ajustar los planes
+        InOrder orden = inOrder(servicioRepository, precioPlanService);
+        orden.verify(servicioRepository).saveAndFlush(servicio);
+        orden.verify(precioPlanService).propagarCambioPrecio(4L, new BigDecimal("50.00"), new BigDecimal("65.00"));
+        verify(servicioRepository, never()).findById(anyLong());
+        verify(eventPublisher).publishEvent(any(CatalogoModificadoEvent.class));
+    }
+    
+    @Test
+    void elListadoNoLeeLosTextosDelDetalle() {
+        ServicioTuristico servicio = spy(servicioConDetalle());
+        when(servicioRepository.findAll()).thenReturn(List.of(servicio));
+        
+        List<ServicioTuristicoResponse> respuesta = servicioTuristicoService.getAllServicios();
+        
+        assertThat(respuesta).singleElement().satisfies(r -> {
+            assertThat(r.getNombre()).isEqualTo("Kayak");
+            assertThat(r.getRequisitos()).isNull();
+            assertThat(r.getIncluye()).isNull();
+            assertThat(r.getNoIncluye()).isNull();
+        });
+        verify(servicio, never()).getRequisitos();
+        verify(servicio, never()).getIncluye();
+        verify(servicio, never()).getNoIncluye();
+    }
+    
+    @Test
+    void elDetalleIncluyeLosTextosPerezosos() {
+        when(servicioRepository.findById(4L)).thenReturn(Optional.of(servicioConDetalle()));
+        
+        ServicioTuristicoResponse respuesta = servicioTuristicoService.getServicioById(4L);
+        
+        assertThat(respuesta.getRequisitos()).isEqualTo("Saber nadar");
+        assertThat(respuesta.getIncluye()).isEqualTo("Chaleco");
+        assertThat(respuesta.getNoIncluye()).isEqualTo("Almuerzo");
+    }
+    
+    private ServicioTuristico servicioConDetalle() {
+        Emprendedor emprendedor = Emprendedor.builder().id(2L).nombreEmpresa("Kayak Titicaca")
+                .municipalidad(Municipalidad.builder().id(3L).nombre("Capachica").build()).build();
+        return ServicioTuristico.builder().id(4L).nombre("Kayak").precio(new BigDecimal("50.00"))
+                .requisitos("Saber nadar").incluye("Chaleco").noIncluye("Almuerzo").emprendedor(emprendedor).build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.Reserva;
+import com.turismo.turismobackend.model.ReservaCarrito;
+import com.turismo.turismobackend.model.ReservaCarritoItem;
+import com.turismo.turismobackend.repository.ReservaCarritoItemRepository;
+import com.turismo.turismobackend.repository.ReservaCarritoRepository;
+import com.turismo.turismobackend.repository.ReservaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransicionReservaServiceTest {
+    
+    private static final LocalDateTime FECHA_RESERVA = LocalDateTime.of(2026, 1, 10, 9, 0);
+    
+    @Mock
+    private ReservaRepository reservaRepository;
+    @Mock
+    private ReservaCarritoRepository reservaCarritoRepository;
+    @Mock
+    private ReservaCarritoItemRepository reservaCarritoItemRepository;
+    @Mock
+    private PopularidadService popularidadService;
+    @Mock
+    private AgendaEmprendedorService agendaEmprendedorService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    private TransicionReservaService transicionReservaService;
+    private SimpleTransactionStatus estadoTransaccion;
+    
+    @BeforeEach
+    void setUp() {
+        transicionReservaService = new TransicionReservaService(reservaRepository, reservaCarritoRepository,
+                reservaCarritoItemRepository, popularidadService, agendaEmprendedorService, eventPublisher,
+                transactionTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(transicionReservaService, "tamanoLote", 500);
+        estadoTransaccion = new SimpleTransactionStatus();
+        when(transactionTemplate.execute(any())).thenAnswer(invocacion ->
+                invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(estadoTransaccion));
+    }
+    
+    @Test
+    void unLoteCompletoPublicaUnSoloEventoConTodasSusTransiciones() {
+        // Solo las reservas confirmadas tienen un lote; los demás estados no devuelven filas
+        when(reservaRepository.findParaTransicionPorInicio(any(), any(), any(), any())).thenAnswer(invocacion ->
+                invocacion.getArgument(0) == Reserva.EstadoReserva.CONFIRMADA && invocacion.<Long>getArgument(2) == 0L
+                        ? List.<Object[]>of(reservaPlan(1L), reservaPlan(2L)) : List.of());
+        when(reservaRepository.cambiarEstado(List.of(1L, 2L), Reserva.EstadoReserva.CONFIRMADA,
+                Reserva.EstadoReserva.EN_PROCESO)).thenReturn(2);
+        
+        Map<String, Object> resumen = transicionReservaService.ejecutar();
+        
+        assertThat(resumen).containsEntry("PLAN CONFIRMADA->EN_PROCESO", 2L).containsEntry("total", 2L);
+        ArgumentCaptor<ReservaTransicionLoteEvent> evento = ArgumentCaptor.forClass(ReservaTransicionLoteEvent.class);
+        verify(eventPublisher).publishEvent(evento.capture());
+        assertThat(evento.getValue().transiciones())
+                .extracting(ReservaTransicionEvent::reservaId, ReservaTransicionEvent::estadoAnterior,
+                        ReservaTransicionEvent::estadoNuevo)
+                .containsExactly(
+                        tuple(1L, "CONFIRMADA", "EN_PROCESO"),
+                        tuple(2L, "CONFIRMADA", "EN_PROCESO"));
+    }
+    
+    @Test
+    void siUnaReservaCambioALaVezSeRevierteElLoteSinPublicar() {
+        when(reservaRepository.findParaTransicionPorInicio(any(), any(), any(), any())).thenAnswer(invocacion ->
+                invocacion.getArgument(0) == Reserva.EstadoReserva.CONFIRMADA && invocacion.<Long>getArgument(2) == 0L
+                        ? List.<Object[]>of(reservaPlan(1L), reservaPlan(2L)) : List.of());
+        // Otra petición ya cambió la reserva 2
+        when(reservaRepository.cambiarEstado(List.of(1L, 2L), Reserva.EstadoReserva.CONFIRMADA,
+                Reserva.EstadoReserva.EN_PROCESO)).thenReturn(1);
+        
+        Map<String, Object> resumen = transicionReservaService.ejecutar();
+        
+        assertThat(estadoTransaccion.isRollbackOnly()).isTrue();
+        assertThat(resumen).containsEntry("PLAN CONFIRMADA->EN_PROCESO", 0L).containsEntry("total", 0L);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+    
+    @Test
+    void unCarritoSinPagoSeCancelaConSusItemsPopularidadYAgenda() {
+        when(reservaCarritoRepository.findParaTransicionPorInicio(any(), any(), any(), any())).thenAnswer(invocacion ->
+                invocacion.getArgument(0) == ReservaCarrito.EstadoReservaCarrito.PENDIENTE
+                        && invocacion.<Long>getArgument(2) == 0L
+                        ? List.<Object[]>of(reservaCarrito(20L)) : List.of());
+        when(reservaCarritoRepository.cancelarPendientes(eq(List.of(20L)), any(LocalDateTime.class), anyString()))
+                .thenReturn(1);
+        when(reservaCarritoItemRepository.findServiciosActivos(List.of(20L)))
+                .thenReturn(List.<Object[]>of(new Object[]{20L, 7L}));
+        when(reservaCarritoItemRepository.sumarPorEmprendedor(List.of(20L)))
+                .thenReturn(List.<Object[]>of(new Object[]{20L, 9L, new BigDecimal("80.00")}));
+        
+        transicionReservaService.ejecutar();
+        
+        verify(popularidadService).cancelarReservaServicio(7L, FECHA_RESERVA);
+        verify(reservaCarritoItemRepository).cambiarEstadoPorReservas(eq(List.of(20L)),
+                eq(ReservaCarritoItem.EstadoItemReserva.CANCELADO), any(LocalDateTime.class));
+        verify(agendaEmprendedorService).registrarCambios(List.of(20L));
+        ArgumentCaptor<ReservaTransicionLoteEvent> evento = ArgumentCaptor.forClass(ReservaTransicionLoteEvent.class);
+        verify(eventPublisher).publishEvent(evento.capture());
+        assertThat(evento.getValue().transiciones()).singleElement().satisfies(transicion -> {
+            assertThat(transicion.fuente()).isEqualTo(ReservaTransicionEvent.Fuente.CARRITO);
+            assertThat(transicion.estadoAnterior()).isEqualTo("PENDIENTE");
+            assertThat(transicion.estadoNuevo()).isEqualTo("CANCELADA");
+            assertThat(transicion.montoPorEmprendedor()).containsEntry(9L, new BigDecimal("80.00"));
+        });
+    }
+    
+    @Test
+    void alPasarAEnProcesoLaAgendaSeRefrescaSinCambiarLosItems() {
+        when(reservaCarritoRepository.findParaTransicionPorInicio(any(), any(), any(), any())).thenAnswer(invocacion ->
+                invocacion.getArgument(0) == ReservaCarrito.EstadoReservaCarrito.CONFIRMADA
+                        && invocacion.<Long>getArgument(2) == 0L
+                        ? List.<Object[]>of(reservaCarrito(20L)) : List.of());
+        when(reservaCarritoRepository.cambiarEstado(List.of(20L), ReservaCarrito.EstadoReservaCarrito.CONFIRMADA,
+                ReservaCarrito.EstadoReservaCarrito.EN_PROCESO)).thenReturn(1);
+        
+        transicionReservaService.ejecutar();
+        
+        verify(agendaEmprendedorService).registrarCambios(List.of(20L));
+        verify(reservaCarritoItemRepository, never()).cambiarEstadoPorReservas(any(), any(), any());
+    }
+    
+    private static Object[] reservaPlan(Long id) {
+        // [id, usuario, municipalidad, fecha de reserva, monto]
+        return new Object[]{id, 3L, 5L, FECHA_RESERVA, new BigDecimal("150.00")};
+    }
+    
+    private static Object[] reservaCarrito(Long id) {
+        // [id, usuario, fecha de reserva, monto]
+        return new Object[]{id, 3L, FECHA_RESERVA, new BigDecimal("80.00")};
+    }
+}
@@ -0,0 +1,51 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.model.Emprendedor;
+import com.turismo.turismobackend.model.Usuario;
+import com.turismo.turismobackend.repository.EmprendedorRepository;
+import com.turismo.turismobackend.repository.RolRepository;
+import com.turismo.turismobackend.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UsuarioServiceTest {
+    
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private EmprendedorRepository emprendedorRepository;
+    @Mock
+    private RolRepository rolRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @InjectMocks
+    private UsuarioService usuarioService;
+    
+    @Test
+    void primeraAsignacionDeEmprendedorRevocaTokensYAvisaDelCambio() {
+        Usuario usuario = Usuario.builder().id(4L).username("luis").tokenVersion(2).build();
+        Emprendedor emprendedor = Emprendedor.builder().id(8L).build();
+        when(usuarioRepository.findById(4L)).thenReturn(Optional.of(usuario));
+        when(emprendedorRepository.findById(8L)).thenReturn(Optional.of(emprendedor));
+        when(emprendedorRepository.findByUsuario(usuario)).thenReturn(Optional.empty());
+        
+        usuarioService.asignarUsuarioAEmprendedor(4L, 8L);
+        
+        assertThat(emprendedor.getUsuario()).isSameAs(usuario);
+        assertThat(usuario.getTokenVersion()).isEqualTo(3);
+        verify(usuarioRepository).save(usuario);
+        verify(eventPublisher).publishEvent(new UsuarioModificadoEvent(4L, "luis"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.turismo.turismobackend.service;
+
+import com.turismo.turismobackend.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VersionTokenServiceTest {
+    
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    
+    @InjectMocks
+    private VersionTokenService versionTokenService;
+    
+    @Test
+    void unRefrescoConDatosAnterioresNoPisaUnaVersionMasReciente() {
+        when(usuarioRepository.findTokenVersionById(1L)).thenReturn(3);
+        versionTokenService.onUsuarioModificado(new UsuarioModificadoEvent(1L, "ana"));
+        
+        // Lectura hecha antes del commit que subió la versión a 3
+        when(usuarioRepository.findVersionesToken()).thenReturn(List.of(new Object[]{1L, 2}, new Object[]{2L, 1}));
+        versionTokenService.refrescar();
+        
+        assertThat(versionTokenService.getVersion(1L)).isEqualTo(3);
+        assertThat(versionTokenService.getVersion(2L)).isEqualTo(1);
+        assertThat(versionTokenService.esVigente(1L, 2)).isFalse();
+    }
+    
+    @Test
+    void usuarioSinVersionTieneVersionCero() {
+        when(usuarioRepository.findVersionesToken()).thenReturn(List.of());
+        versionTokenService.refrescar();
+        
+        assertThat(versionTokenService.esVigente(9L, 0)).isTrue();
+    }
+}